@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.AppointmentStatus;
+import repository.AppointmentColumns;
+import repository.AppointmentRepository;
+
+/**
+ * Compares report scans over the loaded appointment list with the same scans over
+ * {@link AppointmentColumns}. Both representations are loaded once in setup, so only the scan
+ * is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentAnalyticsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private List<Appointment> appointments;
+    private AppointmentColumns columns;
+
+    /**
+     * Prepares the data set and loads both representations.
+     *
+     * @throws IOException if the data set cannot be prepared or read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        AppointmentRepository appointmentRepository = new AppointmentRepository();
+        appointments = appointmentRepository.loadAppointmentHistory();
+        columns = appointmentRepository.loadAppointmentColumns();
+    }
+
+    @Benchmark
+    public int countConfirmedFromList() {
+        int count = 0;
+        for (Appointment appointment : appointments) {
+            if (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countConfirmedFromColumns() {
+        return columns.count(AppointmentStatus.CONFIRMED);
+    }
+
+    @Benchmark
+    public Map<String, Integer> countByDoctorFromList() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Appointment appointment : appointments) {
+            counts.merge(appointment.getDoctorId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public int[] countByDoctorFromColumns() {
+        return columns.countByDoctor(null);
+    }
+
+    @Benchmark
+    public int[] countByDayFromColumns() {
+        return columns.countByDay(columns.getFirstDate(), columns.getLastDate(), null);
+    }
+}
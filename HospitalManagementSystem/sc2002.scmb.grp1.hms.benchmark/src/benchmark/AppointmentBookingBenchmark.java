@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.AppointmentController;
+import entity.Availability;
+import repository.AvailabilityRepository;
+
+/**
+ * Measures booking an appointment from an availability slot: the slot lookup, the next
+ * appointment ID, the appointment append and the availability rewrite.
+ * <p>
+ * Booking consumes the slot, so a fresh slot is added before every invocation (outside the
+ * measured time). Runs against a private copy of the data set.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+public class AppointmentBookingBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dataDir;
+    private AppointmentController appointmentController;
+    private AvailabilityRepository availabilityRepository;
+    private String patientId;
+    private int nextSlot;
+    private String slotId;
+
+    /**
+     * Copies the data set and creates the controller.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = BenchmarkDataset.prepare(rows, true);
+        BenchmarkDataset.silenceConsole();
+        appointmentController = new AppointmentController();
+        availabilityRepository = new AvailabilityRepository();
+        patientId = BenchmarkDataset.id("P", 1);
+        nextSlot = rows;
+    }
+
+    /**
+     * Adds the availability slot that the next invocation books.
+     *
+     * @throws IOException if the slot cannot be written.
+     */
+    @Setup(Level.Invocation)
+    public void addSlot() throws IOException {
+        nextSlot++;
+        slotId = BenchmarkDataset.id("AV", nextSlot);
+        availabilityRepository.createNewAvailability(
+                new Availability(slotId, BenchmarkDataset.id("D", 1), "20-12-2024", "14:00", "15:00"));
+    }
+
+    /**
+     * Deletes the private copy of the data set.
+     *
+     * @throws IOException if the copy cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkDataset.discard(dataDir);
+    }
+
+    @Benchmark
+    public void bookAppointment() throws IOException {
+        appointmentController.createRescheduleAppointment(patientId, slotId);
+    }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import util.DataDirectory;
+import util.SyntheticDataGenerator;
+
+/**
+ * Prepares the CSV data sets used by the benchmarks and points the repositories at them.
+ * <p>
+ * Every table (except the staff tables) gets {@code rows} rows from
+ * {@link SyntheticDataGenerator} with a fixed seed, so results are comparable between runs.
+ * </p>
+ * <p>
+ * Data sets are written once per table size under {@code hms.bench.dir} (defaults to
+ * {@code java.io.tmpdir/hms-bench}) and reused by later runs. Benchmarks that modify data
+ * work on a private copy so that every trial starts from the same state.
+ * </p>
+ * <p>
+ * The repositories resolve their file paths when their classes are initialised, so
+ * {@link #prepare(int, boolean)} must be called before any repository is created. JMH runs
+ * every parameter combination in its own fork, which makes this safe as long as benchmarks
+ * are not run with {@code -f 0}.
+ * </p>
+ */
+public final class BenchmarkDataset {
+    /**
+     * The password stored (hashed) for every generated user.
+     */
+    public static final String PASSWORD = "Benchmark123";
+
+    private static final long SEED = 42;
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private BenchmarkDataset() {
+    }
+
+    /**
+     * Makes sure a data set with the given number of rows exists and sets
+     * {@code hms.data.dir} to it.
+     *
+     * @param rows    The number of rows to generate for each table.
+     * @param mutable Whether the caller modifies the data and needs a private copy.
+     * @return The directory holding the data set.
+     * @throws IOException if the data set cannot be written or copied.
+     */
+    public static Path prepare(int rows, boolean mutable) throws IOException {
+        Path shared = baseDirectory().resolve("rows-" + rows);
+        if (!Files.exists(shared.resolve(COMPLETE_MARKER))) {
+            deleteRecursively(shared);
+            Files.createDirectories(shared);
+            writeTables(shared, rows);
+            Files.createFile(shared.resolve(COMPLETE_MARKER));
+        }
+
+        Path dataDir = shared;
+        if (mutable) {
+            dataDir = Files.createTempDirectory(baseDirectory(), "rows-" + rows + "-");
+            try (Stream<Path> files = Files.list(shared)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, dataDir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
+        System.setProperty(DataDirectory.DATA_DIR_PROPERTY, dataDir.toString());
+        return dataDir;
+    }
+
+    /**
+     * Deletes a private copy created by {@link #prepare(int, boolean)}.
+     *
+     * @param dataDir The directory to delete.
+     * @throws IOException if the directory cannot be deleted.
+     */
+    public static void discard(Path dataDir) throws IOException {
+        deleteRecursively(dataDir);
+    }
+
+    /**
+     * Replaces {@code System.out} with a stream that discards everything, since the
+     * repositories and controllers print console boxes on most operations.
+     */
+    public static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Formats an ID the same way the controllers do ("AP001", "AP1000", ...).
+     *
+     * @param prefix The ID prefix.
+     * @param number The sequence number.
+     * @return The formatted ID.
+     */
+    public static String id(String prefix, int number) {
+        return SyntheticDataGenerator.formatId(prefix, number);
+    }
+
+    private static Path baseDirectory() throws IOException {
+        Path base = Paths.get(System.getProperty("hms.bench.dir",
+                System.getProperty("java.io.tmpdir") + "/hms-bench"));
+        Files.createDirectories(base);
+        return base;
+    }
+
+    private static void writeTables(Path dir, int rows) throws IOException {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(SEED, rows);
+        generator.setMedications(rows);
+        generator.setReplenishmentRequests(rows);
+        generator.setPassword(PASSWORD);
+        generator.generate(dir.toString());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.User;
+import repository.DoctorRepository;
+import repository.PatientRepository;
+
+/**
+ * Measures login validation, which scans the user table and hashes the supplied password
+ * for every row it compares against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialBenchmark {
+    private static final int KEY_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private PatientRepository patientRepository;
+    private DoctorRepository doctorRepository;
+    private int[] keys;
+    private int doctors;
+    private int next;
+
+    /**
+     * Prepares the data set, creates the repositories and draws the user IDs to log in with.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        patientRepository = new PatientRepository();
+        doctorRepository = new DoctorRepository();
+
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new int[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = 1 + random.nextInt(rows);
+        }
+        doctors = Math.max(1, rows / 100);
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEY_COUNT - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public User validatePatient() {
+        return patientRepository.validateCredentials(BenchmarkDataset.id("P", nextKey()), BenchmarkDataset.PASSWORD);
+    }
+
+    @Benchmark
+    public User validatePatientWrongPassword() {
+        return patientRepository.validateCredentials(BenchmarkDataset.id("P", nextKey()), "WrongPassword");
+    }
+
+    @Benchmark
+    public User validateDoctor() {
+        return doctorRepository.validateCredentials(BenchmarkDataset.id("D", 1 + nextKey() % doctors),
+                BenchmarkDataset.PASSWORD);
+    }
+}
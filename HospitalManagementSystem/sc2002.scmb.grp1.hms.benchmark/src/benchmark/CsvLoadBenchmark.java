@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.Availability;
+import entity.MedicalRecord;
+import entity.MedicationInventory;
+import entity.Patient;
+import entity.ReplenishmentRequests;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+import repository.MedicalRecordRepository;
+import repository.MedicationInventoryRepository;
+import repository.PatientRepository;
+import repository.ReplenishmentRequestRepository;
+
+/**
+ * Measures how long it takes each repository to read and parse its whole CSV table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvLoadBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityRepository availabilityRepository;
+    private AppointmentOutcomeRepository appointmentOutcomeRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private MedicationInventoryRepository medicationInventoryRepository;
+    private PatientRepository patientRepository;
+    private ReplenishmentRequestRepository replenishmentRequestRepository;
+
+    /**
+     * Prepares the data set and creates the repositories.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        appointmentRepository = new AppointmentRepository();
+        availabilityRepository = new AvailabilityRepository();
+        appointmentOutcomeRepository = new AppointmentOutcomeRepository();
+        medicalRecordRepository = new MedicalRecordRepository();
+        medicationInventoryRepository = new MedicationInventoryRepository();
+        patientRepository = new PatientRepository();
+        replenishmentRequestRepository = new ReplenishmentRequestRepository();
+    }
+
+    @Benchmark
+    public List<Appointment> loadAppointments() throws IOException {
+        return appointmentRepository.loadAllAppointments();
+    }
+
+    @Benchmark
+    public List<Availability> loadAvailabilities() throws IOException {
+        return availabilityRepository.loadAllAvailabilities();
+    }
+
+    @Benchmark
+    public List<AppointmentOutcome> loadAppointmentOutcomes() throws IOException {
+        return appointmentOutcomeRepository.loadAllAppointmentOutcomes();
+    }
+
+    @Benchmark
+    public List<MedicalRecord> loadMedicalRecords() throws IOException {
+        return medicalRecordRepository.loadMedicalRecords();
+    }
+
+    @Benchmark
+    public List<MedicationInventory> loadMedications() throws IOException {
+        return medicationInventoryRepository.loadAllMedications();
+    }
+
+    @Benchmark
+    public List<Patient> loadPatients() throws IOException {
+        return patientRepository.loadPatients();
+    }
+
+    @Benchmark
+    public List<ReplenishmentRequests> loadReplenishmentRequests() throws IOException {
+        return replenishmentRequestRepository.loadAllRequests();
+    }
+}
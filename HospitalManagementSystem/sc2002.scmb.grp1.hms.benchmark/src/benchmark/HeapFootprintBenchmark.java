@@ -0,0 +1,144 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.Availability;
+import entity.MedicalRecord;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+import repository.MedicalRecordRepository;
+import storage.ColumnarSnapshot;
+import storage.OffHeapTable;
+import storage.StringDictionary;
+
+/**
+ * Measures how much heap a fully loaded table keeps alive, with and without the per-table
+ * string dictionaries.
+ * <p>
+ * Each fork loads a table once and reports the growth of the used heap after a full GC as the
+ * {@code retainedBytes} and {@code bytesPerRow} counters, so the dictionary's own entries are
+ * included. Binary snapshots are turned off so that every field starts as a fresh string, as it
+ * does when a CSV file is parsed. Heap figures from the memory bean are approximate; compare
+ * the {@code dictionary} settings at the same size rather than reading single numbers.
+ * </p>
+ * <p>
+ * Medical records are kept off the heap whatever the settings, so {@code medicalRecords} also
+ * reports the direct and mapped buffer memory in use after the load, which is almost all their
+ * {@link OffHeapTable}, as {@code offHeapBytes}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(3)
+public class HeapFootprintBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean dictionary;
+
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityRepository availabilityRepository;
+    private AppointmentOutcomeRepository appointmentOutcomeRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+
+    /**
+     * The heap retained by the loaded rows.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+        public long bytesPerRow;
+        public long offHeapBytes;
+
+        void record(long before, List<?> rows) {
+            retainedBytes = usedHeap() - before;
+            bytesPerRow = rows.isEmpty() ? 0 : retainedBytes / rows.size();
+        }
+    }
+
+    /**
+     * Prepares the data set and creates the repositories.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        System.setProperty(StringDictionary.ENABLED_PROPERTY, String.valueOf(dictionary));
+        System.setProperty(ColumnarSnapshot.ENABLED_PROPERTY, "false");
+        appointmentRepository = new AppointmentRepository();
+        availabilityRepository = new AvailabilityRepository();
+        appointmentOutcomeRepository = new AppointmentOutcomeRepository();
+        medicalRecordRepository = new MedicalRecordRepository();
+    }
+
+    @Benchmark
+    public List<Appointment> appointmentHistory(Footprint footprint) throws IOException {
+        long before = usedHeap();
+        List<Appointment> appointments = appointmentRepository.loadAppointmentHistory();
+        footprint.record(before, appointments);
+        return appointments;
+    }
+
+    @Benchmark
+    public List<Availability> availabilities(Footprint footprint) throws IOException {
+        long before = usedHeap();
+        List<Availability> availabilities = availabilityRepository.loadAllAvailabilities();
+        footprint.record(before, availabilities);
+        return availabilities;
+    }
+
+    @Benchmark
+    public List<AppointmentOutcome> appointmentOutcomeHistory(Footprint footprint) throws IOException {
+        long before = usedHeap();
+        List<AppointmentOutcome> outcomes = appointmentOutcomeRepository.loadAppointmentOutcomeHistory();
+        footprint.record(before, outcomes);
+        return outcomes;
+    }
+
+    @Benchmark
+    public List<MedicalRecord> medicalRecords(Footprint footprint) throws IOException {
+        long before = usedHeap();
+        List<MedicalRecord> records = medicalRecordRepository.loadMedicalRecords();
+        footprint.record(before, records);
+        footprint.offHeapBytes = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+        return records;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import repository.MedicationInventoryRepository;
+import util.SyntheticDataGenerator;
+
+/**
+ * Measures stock updates, which rewrite the whole inventory table for a single row.
+ * Runs against a private copy of the data set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryUpdateBenchmark {
+    private static final int KEY_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dataDir;
+    private MedicationInventoryRepository medicationInventoryRepository;
+    private int[] keys;
+    private int next;
+
+    /**
+     * Copies the data set, creates the repository and draws the medications to update.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = BenchmarkDataset.prepare(rows, true);
+        BenchmarkDataset.silenceConsole();
+        medicationInventoryRepository = new MedicationInventoryRepository();
+
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new int[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = random.nextInt(rows);
+        }
+    }
+
+    /**
+     * Deletes the private copy of the data set.
+     *
+     * @throws IOException if the copy cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkDataset.discard(dataDir);
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEY_COUNT - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public void updateStockLevel() throws IOException {
+        medicationInventoryRepository.updateStockLevel(SyntheticDataGenerator.medicationName(nextKey()), 100);
+    }
+
+    @Benchmark
+    public void updateStockAlert() throws IOException {
+        medicationInventoryRepository.updateStockAlert(SyntheticDataGenerator.medicationName(nextKey()), 20);
+    }
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.Availability;
+import entity.Doctor;
+import entity.MedicalRecord;
+import entity.Patient;
+import entity.ReplenishmentRequests;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+import repository.DoctorRepository;
+import repository.MedicalRecordRepository;
+import repository.PatientRepository;
+import repository.ReplenishmentRequestRepository;
+
+/**
+ * Measures lookups by primary key and by owner ID. Keys are drawn from a fixed-seed random
+ * sequence so that lookups hit rows spread across the whole table rather than the first one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int KEY_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityRepository availabilityRepository;
+    private AppointmentOutcomeRepository appointmentOutcomeRepository;
+    private DoctorRepository doctorRepository;
+    private MedicalRecordRepository medicalRecordRepository;
+    private PatientRepository patientRepository;
+    private ReplenishmentRequestRepository replenishmentRequestRepository;
+
+    private int[] keys;
+    private int doctors;
+    private int outcomes;
+    private int next;
+
+    /**
+     * Prepares the data set, creates the repositories and draws the lookup keys.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        appointmentRepository = new AppointmentRepository();
+        availabilityRepository = new AvailabilityRepository();
+        appointmentOutcomeRepository = new AppointmentOutcomeRepository();
+        doctorRepository = new DoctorRepository();
+        medicalRecordRepository = new MedicalRecordRepository();
+        patientRepository = new PatientRepository();
+        replenishmentRequestRepository = new ReplenishmentRequestRepository();
+
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new int[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = 1 + random.nextInt(rows);
+        }
+        doctors = Math.max(1, rows / 100);
+        outcomes = Math.max(1, rows / 4);
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEY_COUNT - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public Patient findPatientById() throws IOException {
+        return patientRepository.findPatientById(BenchmarkDataset.id("P", nextKey()));
+    }
+
+    @Benchmark
+    public Doctor findDoctorById() throws IOException {
+        return doctorRepository.findDoctorById(BenchmarkDataset.id("D", 1 + nextKey() % doctors));
+    }
+
+    @Benchmark
+    public Appointment getAppointmentById() throws IOException {
+        return appointmentRepository.getAppointmentById(BenchmarkDataset.id("AP", nextKey()));
+    }
+
+    @Benchmark
+    public Availability getAvailabilityById() throws IOException {
+        return availabilityRepository.getAvailabilityById(BenchmarkDataset.id("AV", nextKey()));
+    }
+
+    @Benchmark
+    public AppointmentOutcome getAppointmentOutcomeById() throws IOException {
+        // Only completed appointments have an outcome, roughly 40% of them.
+        return appointmentOutcomeRepository.getAppointmentOutcomeById(BenchmarkDataset.id("AO", 1 + nextKey() % outcomes));
+    }
+
+    @Benchmark
+    public ReplenishmentRequests getRequestById() throws IOException {
+        return replenishmentRequestRepository.getRequestById(nextKey());
+    }
+
+    @Benchmark
+    public List<MedicalRecord> findRecordsByPatientId() throws IOException {
+        return medicalRecordRepository.findRecordsByPatientId(BenchmarkDataset.id("P", nextKey()));
+    }
+}
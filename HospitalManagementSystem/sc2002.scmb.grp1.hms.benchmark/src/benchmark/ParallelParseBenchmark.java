@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.Patient;
+import repository.AppointmentRepository;
+import repository.PatientRepository;
+
+/**
+ * Compares full loads of the appointment and patient tables parsed on one thread with the same
+ * loads parsed in chunks on the common fork/join pool. The binary snapshots are turned off, so
+ * every load parses the CSV file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhms.snapshot=false")
+public class ParallelParseBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int rows;
+
+    private AppointmentRepository appointmentRepository;
+    private PatientRepository patientRepository;
+
+    /**
+     * Prepares the data set and creates the repositories.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        appointmentRepository = new AppointmentRepository();
+        patientRepository = new PatientRepository();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dhms.snapshot=false", "-Dhms.parse.parallel=false"})
+    public List<Appointment> loadAppointmentsOnOneThread() throws IOException {
+        return appointmentRepository.loadAllAppointments();
+    }
+
+    @Benchmark
+    public List<Appointment> loadAppointmentsInChunks() throws IOException {
+        return appointmentRepository.loadAllAppointments();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dhms.snapshot=false", "-Dhms.parse.parallel=false"})
+    public List<Patient> loadPatientsOnOneThread() throws IOException {
+        return patientRepository.loadPatients();
+    }
+
+    @Benchmark
+    public List<Patient> loadPatientsInChunks() throws IOException {
+        return patientRepository.loadPatients();
+    }
+}
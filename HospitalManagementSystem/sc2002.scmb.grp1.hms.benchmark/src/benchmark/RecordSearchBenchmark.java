@@ -0,0 +1,70 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.MedicalRecord;
+import repository.MedicalRecordRepository;
+
+/**
+ * Compares a boolean search through the medical record index with the same search done by
+ * scanning every record. The index is built in setup, so only the query is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordSearchBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private MedicalRecordRepository medicalRecordRepository;
+
+    /**
+     * Prepares the data set and builds the index.
+     *
+     * @throws IOException if the data set cannot be prepared or read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        medicalRecordRepository = new MedicalRecordRepository();
+        medicalRecordRepository.searchMedicalRecords("fever");
+    }
+
+    @Benchmark
+    public List<MedicalRecord> searchIndex() throws IOException {
+        return medicalRecordRepository.searchMedicalRecords("fever AND medication");
+    }
+
+    @Benchmark
+    public List<MedicalRecord> searchByScan() throws IOException {
+        List<MedicalRecord> matches = new ArrayList<>();
+        for (MedicalRecord record : medicalRecordRepository.loadMedicalRecords()) {
+            String text = (record.getDiagnosis() + " " + record.getTreatment() + " " + record.getPrescription())
+                    .toLowerCase(Locale.ROOT);
+            if (text.contains("fever") && text.contains("medication")) {
+                matches.add(record);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Appointment;
+import entity.ReplenishmentRequests;
+import repository.AppointmentRepository;
+import repository.ReplenishmentRequestRepository;
+
+/**
+ * Measures the status filters that back the doctor and pharmacist menus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatusFilterBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private AppointmentRepository appointmentRepository;
+    private ReplenishmentRequestRepository replenishmentRequestRepository;
+    private String doctorId;
+    private String patientId;
+
+    /**
+     * Prepares the data set and creates the repositories.
+     *
+     * @throws IOException if the data set cannot be prepared.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.prepare(rows, false);
+        BenchmarkDataset.silenceConsole();
+        appointmentRepository = new AppointmentRepository();
+        replenishmentRequestRepository = new ReplenishmentRequestRepository();
+        doctorId = BenchmarkDataset.id("D", 1);
+        patientId = BenchmarkDataset.id("P", Math.max(1, rows / 2));
+    }
+
+    @Benchmark
+    public List<Appointment> pendingAppointmentsByDoctor() throws IOException {
+        return appointmentRepository.getPendingAppointmentsByDoctorId(doctorId);
+    }
+
+    @Benchmark
+    public List<Appointment> confirmedAppointmentsByDoctor() throws IOException {
+        return appointmentRepository.getConfirmedAppointmentsByDoctorId(doctorId);
+    }
+
+    @Benchmark
+    public List<Appointment> confirmedOrPendingAppointmentsByPatient() throws IOException {
+        return appointmentRepository.getConfirmedOrPendingAppointmentsByDoctorId(patientId);
+    }
+
+    @Benchmark
+    public List<ReplenishmentRequests> pendingReplenishmentRequests() throws IOException {
+        return replenishmentRequestRepository.pendingRequests();
+    }
+}
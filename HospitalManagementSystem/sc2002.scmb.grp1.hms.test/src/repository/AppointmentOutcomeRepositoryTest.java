@@ -0,0 +1,35 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import entity.AppointmentOutcome;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that searching consultation notes finds what was last saved.
+ */
+class AppointmentOutcomeRepositoryTest {
+    @Test
+    void searchFollowsAddedAndUpdatedOutcomes() throws IOException {
+        AppointmentOutcomeRepository outcomes = new AppointmentOutcomeRepository();
+        outcomes.searchAppointmentOutcomes("pain"); // Builds the index before the writes
+
+        outcomes.createNewAppointmentOutcome(new AppointmentOutcome("AO9401", "AP9401", "07-01-2025", "Consultation",
+                "nil", "Pending", "Suspected sporotrichosis"));
+        List<AppointmentOutcome> found = outcomes.searchAppointmentOutcomes("sporotrichosis");
+        assertEquals(1, found.size());
+        assertEquals("AO9401", found.get(0).getOutcomeId());
+        assertEquals("Consultation", found.get(0).getServiceType());
+
+        AppointmentOutcome outcome = outcomes.getAppointmentOutcomeById("AO9401");
+        outcome.setConsultationNotes("Confirmed chromoblastomycosis");
+        outcomes.updateAppointmentOutcome(outcome);
+        assertTrue(outcomes.searchAppointmentOutcomes("sporotrichosis").isEmpty());
+        found = outcomes.searchAppointmentOutcomes("chromoblastomycosis AND confirmed");
+        assertEquals(1, found.size());
+        assertEquals("AO9401", found.get(0).getOutcomeId());
+    }
+}
@@ -0,0 +1,52 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import entity.Appointment;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import storage.OptimisticLockException;
+
+/**
+ * Tests that an appointment is only updated from the version that is stored.
+ */
+class AppointmentRepositoryTest {
+    @Test
+    void rejectsAnUpdateFromAStaleVersion() throws IOException {
+        AppointmentRepository appointments = new AppointmentRepository();
+        appointments.createNewAppointment(
+                new Appointment("AP9301", "P9301", "D001", "05-01-2025", "10:00", "11:00", "Pending"));
+        Appointment first = appointments.getAppointmentById("AP9301");
+        Appointment second = appointments.getAppointmentById("AP9301");
+
+        first.setStatus("Confirmed");
+        appointments.updateAppointment(first);
+        assertEquals(second.getVersion() + 1, first.getVersion());
+
+        second.setStatus("Cancelled");
+        OptimisticLockException conflict = assertThrows(OptimisticLockException.class,
+                () -> appointments.updateAppointment(second));
+        assertEquals("AP9301", conflict.getKey());
+        assertEquals(second.getVersion(), conflict.getExpectedVersion());
+        assertEquals(first.getVersion(), conflict.getActualVersion());
+
+        Appointment stored = appointments.getAppointmentById("AP9301");
+        assertEquals("Confirmed", stored.getStatus());
+        assertEquals(first.getVersion(), stored.getVersion());
+    }
+
+    @Test
+    void rejectsAnUpdateToADeletedAppointment() throws IOException {
+        AppointmentRepository appointments = new AppointmentRepository();
+        appointments.createNewAppointment(
+                new Appointment("AP9302", "P9302", "D001", "06-01-2025", "10:00", "11:00", "Pending"));
+        Appointment read = appointments.getAppointmentById("AP9302");
+        appointments.removeAppointmentById("AP9302");
+
+        read.setStatus("Confirmed");
+        OptimisticLockException conflict = assertThrows(OptimisticLockException.class,
+                () -> appointments.updateAppointment(read));
+        assertEquals(-1, conflict.getActualVersion());
+    }
+}
@@ -0,0 +1,71 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import entity.MedicalRecord;
+import entity.MedicalRecordVersion;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that searching medical records finds what was last saved, and that a record's versions
+ * are rebuilt from the fields each update changed.
+ */
+class MedicalRecordRepositoryTest {
+    @Test
+    void searchFollowsAddedAndUpdatedRecords() throws IOException {
+        MedicalRecordRepository records = new MedicalRecordRepository();
+        records.searchMedicalRecords("flu"); // Builds the index before the writes
+
+        records.addMedicalRecord(new MedicalRecord("R9201", "P9201", "D001", "Sporotrichosis", "Itraconazole", "Capsules"));
+        List<MedicalRecord> found = records.searchMedicalRecords("sporotrichosis AND itraconazole");
+        assertEquals(1, found.size());
+        assertEquals("R9201", found.get(0).getRecordId());
+
+        assertTrue(records.updateMedicalRecord("R9201", "Chromoblastomycosis", "Itraconazole", "Capsules"));
+        assertTrue(records.searchMedicalRecords("sporotrichosis").isEmpty());
+        found = records.searchMedicalRecords("chromoblastomycosis");
+        assertEquals(1, found.size());
+        assertEquals("R9201", found.get(0).getRecordId());
+    }
+
+    @Test
+    void rebuildsEachVersionFromTheFieldsThatChanged() throws IOException {
+        MedicalRecordRepository records = new MedicalRecordRepository();
+        records.addMedicalRecord(new MedicalRecord("R9202", "P9202", "D001", "Bronchitis", "Rest", "Cough syrup"));
+
+        assertTrue(records.updateMedicalRecord("R9202", "Pneumonia", "Rest", "Cough syrup"));
+        assertTrue(records.updateMedicalRecord("R9202", "Pneumonia", "Rest", "Amoxicillin"));
+        assertTrue(records.updateMedicalRecord("R9202", "Pneumonia", "Rest", "Amoxicillin")); // Changes nothing
+
+        List<MedicalRecordVersion> versions = records.loadRecordHistory("R9202");
+        assertEquals(3, versions.size());
+        assertVersion(versions.get(0), 1, "Bronchitis", "Rest", "Cough syrup");
+        assertNull(versions.get(0).getChangedAt());
+        assertVersion(versions.get(1), 2, "Pneumonia", "Rest", "Cough syrup");
+        assertNotNull(versions.get(1).getChangedAt());
+        assertVersion(versions.get(2), 3, "Pneumonia", "Rest", "Amoxicillin");
+        for (MedicalRecordVersion version : versions) {
+            assertEquals("P9202", version.getPatientId());
+            assertEquals("D001", version.getDoctorId());
+        }
+
+        MedicalRecord current = records.findRecordsByPatientId("P9202").get(0);
+        assertEquals("Pneumonia", current.getDiagnosis());
+        assertEquals("Amoxicillin", current.getPrescription());
+        assertTrue(records.loadRecordHistory("R9299").isEmpty());
+    }
+
+    private static void assertVersion(MedicalRecordVersion version, int number, String diagnosis, String treatment,
+            String prescription) {
+        assertEquals("R9202", version.getRecordId());
+        assertEquals(number, version.getVersion());
+        assertEquals(diagnosis, version.getDiagnosis());
+        assertEquals(treatment, version.getTreatment());
+        assertEquals(prescription, version.getPrescription());
+    }
+}
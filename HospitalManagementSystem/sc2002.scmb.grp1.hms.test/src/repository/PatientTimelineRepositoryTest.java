@@ -0,0 +1,43 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.TimelineEntry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the charges shown on a patient's timeline.
+ */
+class PatientTimelineRepositoryTest {
+    @Test
+    void chargesOnlyCompletedAppointments() throws IOException {
+        AppointmentRepository appointments = new AppointmentRepository();
+        appointments.createNewAppointment(
+                new Appointment("AP9001", "P9001", "D001", "02-01-2025", "10:00", "11:00", "Completed"));
+        appointments.createNewAppointment(
+                new Appointment("AP9002", "P9001", "D001", "03-01-2025", "10:00", "11:00", "Cancelled"));
+        AppointmentOutcomeRepository outcomes = new AppointmentOutcomeRepository();
+        outcomes.createNewAppointmentOutcome(
+                new AppointmentOutcome("AO9001", "AP9001", "02-01-2025", "Consultation", "nil", "Pending", "Checked"));
+        outcomes.createNewAppointmentOutcome(
+                new AppointmentOutcome("AO9002", "AP9002", "03-01-2025", "Consultation", "nil", "Pending", "Checked"));
+
+        List<TimelineEntry> timeline = new PatientTimelineRepository().getTimeline("P9001", 100);
+
+        List<String> charged = new ArrayList<>();
+        for (TimelineEntry entry : timeline) {
+            if (entry.getType().equals("Charge")) {
+                charged.add(entry.getId());
+            }
+        }
+        assertEquals(List.of("AP9001"), charged);
+        // The cancelled appointment's outcome is still listed, just not billed
+        assertTrue(timeline.stream().anyMatch(entry -> entry.getId().equals("AO9002")));
+    }
+}
@@ -0,0 +1,47 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import entity.ReplenishmentRequests;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import util.DataDirectory;
+
+/**
+ * Tests the IDs given to replenishment requests when another process shares the data directory.
+ */
+class ReplenishmentRequestRepositoryTest {
+    @Test
+    void numbersRequestsAfterThoseSavedByAnotherProcess() throws IOException {
+        ReplenishmentRequestRepository repository = new ReplenishmentRequestRepository();
+        repository.saveReplenishmentRequest("Paracetamol", 10);
+        int first = highestId(repository.loadAllRequests());
+
+        // Another process saves a request, leaving the file without a trailing line break
+        Path file = Path.of(DataDirectory.resolve("ReplenishmentRequests.csv"));
+        Files.writeString(file, (first + 1) + ",Ibuprofen,20,Pending", StandardOpenOption.APPEND);
+
+        repository.saveReplenishmentRequest("Amoxicillin", 30);
+
+        ReplenishmentRequests other = repository.getRequestById(first + 1);
+        assertNotNull(other);
+        assertEquals("Ibuprofen", other.getMedicationName());
+        ReplenishmentRequests saved = repository.getRequestById(first + 2);
+        assertNotNull(saved);
+        assertEquals("Amoxicillin", saved.getMedicationName());
+        assertEquals(30, saved.getQuantity());
+    }
+
+    private static int highestId(List<ReplenishmentRequests> requests) {
+        int highest = 0;
+        for (ReplenishmentRequests request : requests) {
+            highest = Math.max(highest, request.getRequestId());
+        }
+        return highest;
+    }
+}
@@ -0,0 +1,51 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import entity.Appointment;
+import entity.Availability;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+
+/**
+ * Tests the IDs given to new appointments once old ones have been archived.
+ */
+class AppointmentServiceTest {
+    @Test
+    void doesNotReuseArchivedIdsAfterTheNewestAppointmentIsCancelled() throws IOException {
+        AppointmentService service = new AppointmentService();
+        AppointmentRepository appointments = new AppointmentRepository();
+        AvailabilityRepository availabilities = new AvailabilityRepository();
+
+        String archivedId = service.nextAppointmentId();
+        appointments.createNewAppointment(
+                new Appointment(archivedId, "P9101", "D001", "02-01-2020", "10:00", "11:00", "Completed"));
+        availabilities.createNewAvailability(new Availability("AV9101", "D001", "02-01-2030", "10:00", "11:00"));
+        String newestId = service.bookAppointment("P9101", "AV9101").getValue().getAppointmentId();
+
+        assertTrue(appointments.archiveAppointmentsBefore(LocalDate.of(2021, 1, 1)) > 0);
+        // The newest appointment is cancelled, so the file no longer holds the highest ID
+        assertTrue(service.cancelAppointment("P9101", newestId).isSuccess());
+
+        availabilities.createNewAvailability(new Availability("AV9102", "D001", "03-01-2030", "10:00", "11:00"));
+        String bookedId = service.bookAppointment("P9101", "AV9102").getValue().getAppointmentId();
+
+        assertNotEquals(archivedId, bookedId);
+        Appointment archived = appointments.getAppointmentById(archivedId);
+        assertNotNull(archived);
+        assertEquals("P9101", archived.getPatientId());
+        assertEquals("Completed", archived.getStatus());
+        Set<String> ids = new HashSet<>();
+        for (Appointment appointment : appointments.loadAppointmentHistory()) {
+            assertTrue(ids.add(appointment.getAppointmentId()), appointment.getAppointmentId());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import storage.OptimisticLockException;
+
+/**
+ * Tests when a read-modify-write is tried again after losing to a concurrent update.
+ */
+class OptimisticRetryTest {
+    @Test
+    void triesAgainFromAFreshReadWhenNoVersionWasGiven() throws IOException {
+        int[] attempts = {0};
+
+        String result = OptimisticRetry.run("OptimisticRetryTest.retried", null, () -> {
+            if (++attempts[0] < OptimisticRetry.MAX_ATTEMPTS) {
+                throw new OptimisticLockException("Appointment", "AP001", attempts[0] - 1, attempts[0]);
+            }
+            return "written";
+        });
+
+        assertEquals("written", result);
+        assertEquals(OptimisticRetry.MAX_ATTEMPTS, attempts[0]);
+    }
+
+    @Test
+    void reportsTheConflictOnceEveryAttemptHasLost() {
+        int[] attempts = {0};
+        OptimisticLockException conflict = new OptimisticLockException("Appointment", "AP001", 0, 1);
+
+        OptimisticLockException thrown = assertThrows(OptimisticLockException.class,
+                () -> OptimisticRetry.run("OptimisticRetryTest.lost", null, () -> {
+                    attempts[0]++;
+                    throw conflict;
+                }));
+
+        assertSame(conflict, thrown);
+        assertEquals(OptimisticRetry.MAX_ATTEMPTS, attempts[0]);
+    }
+
+    @Test
+    void reportsTheConflictAtOnceWhenTheCallerGaveTheVersionItSaw() {
+        int[] attempts = {0};
+
+        assertThrows(OptimisticLockException.class,
+                () -> OptimisticRetry.run("OptimisticRetryTest.expected", 3L, () -> {
+                    attempts[0]++;
+                    throw new OptimisticLockException("Appointment", "AP001", 3, 4);
+                }));
+
+        assertEquals(1, attempts[0]);
+    }
+
+    @Test
+    void checksTheVersionTheCallerSaw() throws IOException {
+        OptimisticRetry.expect("Appointment", "AP001", null, 7);
+        OptimisticRetry.expect("Appointment", "AP001", 7L, 7);
+
+        OptimisticLockException thrown = assertThrows(OptimisticLockException.class,
+                () -> OptimisticRetry.expect("Appointment", "AP001", 6L, 7));
+        assertEquals(6, thrown.getExpectedVersion());
+        assertEquals(7, thrown.getActualVersion());
+    }
+}
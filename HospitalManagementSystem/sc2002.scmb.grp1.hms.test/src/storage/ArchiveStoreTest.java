@@ -0,0 +1,103 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests writing archive segments and reading them back, whole or by date.
+ */
+class ArchiveStoreTest {
+    private static final String HEADER = "VisitId,Date";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackTheRowsOfEachSegment() throws IOException {
+        ArchiveStore archive = ArchiveStore.forTable(table("Visits"));
+        assertTrue(archive.segments().isEmpty());
+
+        archive.write(HEADER, List.of("V1,03-01-2024", "V2,20-01-2024"), LocalDate.of(2024, 1, 3),
+                LocalDate.of(2024, 1, 20), "V2");
+        archive.write(HEADER, List.of("V3,01-06-2024"), LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 1));
+
+        List<ArchiveStore.Segment> segments = archive.segments();
+        assertEquals(2, segments.size());
+        assertEquals("Visits-000001.csv.gz", segments.get(0).getFileName());
+        assertEquals(2, segments.get(0).getRows());
+        assertEquals("V2", segments.get(0).getLastKey());
+        assertNull(segments.get(1).getLastKey());
+        assertEquals(List.of(HEADER, "V1,03-01-2024", "V2,20-01-2024"), lines(segments.get(0)));
+        assertEquals(List.of(HEADER, "V3,01-06-2024"), lines(segments.get(1)));
+        assertTrue(Files.exists(directory.resolve(ArchiveStore.ARCHIVE_DIRECTORY).resolve("Visits")
+                .resolve("Visits-000002.csv.gz")));
+    }
+
+    @Test
+    void listsOnlyTheSegmentsThatOverlapARange() throws IOException {
+        ArchiveStore archive = ArchiveStore.forTable(table("Ranged"));
+        archive.write(HEADER, List.of("V1,03-01-2024"), LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 3));
+        archive.write(HEADER, List.of("V2,01-06-2024"), LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        archive.write(HEADER, List.of("V3,no date"), null, null);
+
+        assertEquals(List.of("Ranged-000002.csv.gz", "Ranged-000003.csv.gz"),
+                names(archive.segments(LocalDate.of(2024, 6, 30), null)));
+        assertEquals(List.of("Ranged-000001.csv.gz", "Ranged-000003.csv.gz"),
+                names(archive.segments(null, LocalDate.of(2024, 5, 31))));
+        assertEquals(3, archive.segments(null, null).size());
+    }
+
+    @Test
+    void readsACatalogFromBeforeKeysWereRecorded() throws IOException {
+        CsvTable table = table("Older");
+        ArchiveStore archive = ArchiveStore.forTable(table);
+        archive.write(HEADER, List.of("V1,03-01-2024"), LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 3));
+        Path catalog = directory.resolve(ArchiveStore.ARCHIVE_DIRECTORY).resolve("Older")
+                .resolve(PartitionedTable.CATALOG_FILE);
+        Files.writeString(catalog, "Segment,Rows,FirstDate,LastDate\nOlder-000001.csv.gz,1,2024-01-03,2024-01-03\n");
+
+        archive.write(HEADER, List.of("V2,01-06-2024"), LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 1), "V2");
+
+        List<ArchiveStore.Segment> segments = archive.segments();
+        assertEquals(2, segments.size());
+        assertNull(segments.get(0).getLastKey());
+        assertEquals(List.of(HEADER, "V1,03-01-2024"), lines(segments.get(0)));
+        assertEquals("V2", segments.get(1).getLastKey());
+    }
+
+    private CsvTable table(String name) throws IOException {
+        Path file = directory.resolve(name + ".csv");
+        Files.writeString(file, HEADER + "\n");
+        return CsvTable.forFile(file.toString());
+    }
+
+    private static List<String> lines(ArchiveStore.Segment segment) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = segment.openReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> names(List<ArchiveStore.Segment> segments) {
+        List<String> names = new ArrayList<>();
+        for (ArchiveStore.Segment segment : segments) {
+            names.add(segment.getFileName());
+        }
+        return names;
+    }
+}
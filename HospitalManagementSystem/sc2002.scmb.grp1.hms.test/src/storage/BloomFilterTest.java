@@ -0,0 +1,94 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.CSVUtil;
+
+/**
+ * Tests that a table's key filter never rules out a key the table has.
+ */
+class BloomFilterTest {
+    private static final int ROWS = 5000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void neverRulesOutAnExistingKey() throws IOException {
+        BloomFilter filter = BloomFilter.forTable(table("Keys.csv", ROWS));
+
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(filter.mightContain(key(i)), key(i));
+            assertTrue(filter.mightContain(key(i).toLowerCase()), key(i));
+        }
+    }
+
+    @Test
+    void rulesOutMostUnknownKeys() throws IOException {
+        BloomFilter filter = BloomFilter.forTable(table("Unknown.csv", ROWS));
+
+        int falsePositives = 0;
+        for (int i = ROWS; i < 2 * ROWS; i++) {
+            if (filter.mightContain(key(i))) {
+                falsePositives++;
+            }
+        }
+        // About one in a hundred at ten bits per key; allow for an unlucky hash
+        assertTrue(falsePositives < ROWS / 20, falsePositives + " false positives");
+        assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    void findsKeysAppendedByThisProcessAndByOthers() throws IOException {
+        CsvTable table = table("Appended.csv", ROWS);
+        BloomFilter filter = BloomFilter.forTable(table);
+        filter.mightContain(key(0));
+
+        long[] before = filter.beforeWrite();
+        CSVUtil.appendRow(table, key(ROWS) + ",Appended");
+        filter.added(before, key(ROWS));
+        assertTrue(filter.mightContain(key(ROWS)));
+
+        Files.writeString(Path.of(table.getFilePath()), key(ROWS + 1) + ",Appended\n", StandardOpenOption.APPEND);
+        assertTrue(filter.mightContain(key(ROWS + 1)));
+        assertTrue(filter.mightContain(key(0)));
+    }
+
+    @Test
+    void findsKeysOfARewrittenFile() throws IOException {
+        CsvTable table = table("Rewritten.csv", 10);
+        BloomFilter filter = BloomFilter.forTable(table);
+        filter.mightContain(key(0));
+
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = ROWS; i < 2 * ROWS; i++) {
+            csv.append(key(i)).append(",Row\n");
+        }
+        Files.writeString(Path.of(table.getFilePath()), csv);
+
+        for (int i = ROWS; i < 2 * ROWS; i++) {
+            assertTrue(filter.mightContain(key(i)), key(i));
+        }
+    }
+
+    private CsvTable table(String name, int rows) throws IOException {
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(key(i)).append(",Row\n");
+        }
+        Path file = directory.resolve(name);
+        Files.writeString(file, csv);
+        return CsvTable.forFile(file.toString());
+    }
+
+    private static String key(int i) {
+        return String.format("K%06d", i);
+    }
+}
@@ -0,0 +1,68 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a binary copy is only used while its CSV file is unchanged.
+ */
+class ColumnarSnapshotTest {
+    private static final int ROWS = 1200; // above the default hms.snapshot.minRows
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheCopyOfAnUnchangedFile() throws IOException {
+        Path csv = directory.resolve("Unchanged.csv");
+        Files.writeString(csv, table("Confirmed"));
+        CsvTable table = CsvTable.forFile(csv.toString());
+
+        List<String[]> parsed = ColumnarSnapshot.readRows(table, ColumnarSnapshot.Splitter.PLAIN);
+        assertTrue(Files.exists(Path.of(csv + ColumnarSnapshot.FILE_SUFFIX)));
+        List<String[]> copied = ColumnarSnapshot.readRows(table, ColumnarSnapshot.Splitter.PLAIN);
+
+        assertEquals(ROWS, copied.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertArrayEquals(parsed.get(i), copied.get(i));
+        }
+    }
+
+    @Test
+    void ignoresTheCopyWhenTheFileIsRewrittenToTheSameLength() throws IOException {
+        Path csv = directory.resolve("Rewritten.csv");
+        Files.writeString(csv, table("Confirmed"));
+        CsvTable table = CsvTable.forFile(csv.toString());
+        ColumnarSnapshot.readRows(table, ColumnarSnapshot.Splitter.PLAIN);
+        FileTime modified = Files.getLastModifiedTime(csv);
+        long size = Files.size(csv);
+
+        // Another program rewrites the file to the same length and keeps its modification time
+        Files.writeString(csv, table("Cancelled"));
+        Files.setLastModifiedTime(csv, modified);
+        assertEquals(size, Files.size(csv));
+
+        List<String[]> rows = ColumnarSnapshot.readRows(table, ColumnarSnapshot.Splitter.PLAIN);
+        assertEquals(ROWS, rows.size());
+        for (String[] row : rows) {
+            assertEquals("Cancelled", row[1]);
+        }
+    }
+
+    private static String table(String status) {
+        StringBuilder csv = new StringBuilder("Appointment ID,Status,Date\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(String.format("A%05d,%s,2025-01-%02d%n", i, status, i % 28 + 1));
+        }
+        return csv.toString();
+    }
+}
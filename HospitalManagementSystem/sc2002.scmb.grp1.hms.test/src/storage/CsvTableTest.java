@@ -0,0 +1,39 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that every path naming a file gives the same table, and so the same lock.
+ */
+class CsvTableTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void returnsOneTableForEverySpellingOfAPath() throws IOException {
+        Path file = directory.resolve("Spelled.csv");
+        Files.writeString(file, "Id\n");
+        CsvTable table = CsvTable.forFile(file.toString());
+
+        assertSame(table, CsvTable.forFile(directory + "//Spelled.csv"));
+        assertSame(table, CsvTable.forFile(directory.resolve(".").resolve("Spelled.csv").toString()));
+        assertSame(table, CsvTable.forFile(directory.resolve("sub").resolve("..").resolve("Spelled.csv").toString()));
+        assertSame(table, CsvTable.forFile(Path.of("").toAbsolutePath().relativize(file).toString(), "Other"));
+        assertSame(table, CsvTable.forPath(file));
+        assertEquals("Spelled", table.getName());
+        assertEquals(file.toString(), table.getFilePath());
+
+        // A second spelling takes the same lock instead of locking the file a second time
+        try (TableLock lock = table.lockExclusive();
+                TableLock again = CsvTable.forFile(directory + "/./Spelled.csv").lockExclusive()) {
+            assertSame(table, CsvTable.forPath(file));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests what the row cache keeps, and that writes drop the rows they change.
+ */
+class EntityCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void returnsAnOfferedRowUntilTheTableChanges() throws IOException {
+        CsvTable table = table("Cached", "A,1\nB,2\n");
+        EntityCache cache = EntityCache.forTable(table);
+
+        EntityCache.Lookup miss = cache.lookup("A");
+        assertNull(miss.row());
+        miss.offer(new String[] {"A", "1"});
+
+        String[] row = cache.lookup("A").row();
+        assertArrayEquals(new String[] {"A", "1"}, row);
+        row[1] = "changed by the caller";
+        assertArrayEquals(new String[] {"A", "1"}, cache.lookup("A").row());
+
+        // Another program rewrites the file
+        Files.writeString(Path.of(table.getFilePath()), "Id,Value\nA,10\nB,2\n");
+        assertNull(cache.lookup("A").row());
+    }
+
+    @Test
+    void dropsOnlyTheRowAWriteChanged() throws IOException {
+        CsvTable table = table("Invalidated", "A,1\nB,2\n");
+        EntityCache cache = EntityCache.forTable(table);
+        cache.lookup("A").offer(new String[] {"A", "1"});
+        cache.lookup("B").offer(new String[] {"B", "2"});
+
+        try (TableLock lock = table.lockExclusive()) {
+            long[] before = cache.beforeWrite();
+            try (BufferedWriter writer = table.openWriter(false)) {
+                writer.write("Id,Value\nA,10\nB,2\n");
+            }
+            cache.invalidate(before, "A");
+        }
+
+        assertNull(cache.lookup("A").row());
+        assertArrayEquals(new String[] {"B", "2"}, cache.lookup("B").row());
+    }
+
+    @Test
+    void doesNotKeepARowReadBeforeTheTableChanged() throws IOException {
+        CsvTable table = table("Stale", "A,1\n");
+        EntityCache cache = EntityCache.forTable(table);
+
+        EntityCache.Lookup miss = cache.lookup("A");
+        Files.writeString(Path.of(table.getFilePath()), "Id,Value\nA,100\n");
+        miss.offer(new String[] {"A", "1"});
+
+        assertNull(cache.lookup("A").row());
+    }
+
+    @Test
+    void admitsANewRowOnlyIfItIsAskedForMoreOftenThanTheOneItReplaces() throws IOException {
+        System.setProperty("hms.cache.Bounded.capacity", "2");
+        CsvTable table = table("Bounded", "A,1\nB,2\nC,3\nD,4\n");
+        EntityCache cache = EntityCache.forTable(table);
+        for (int i = 0; i < 5; i++) {
+            cache.lookup("A").offer(new String[] {"A", "1"});
+            cache.lookup("B").offer(new String[] {"B", "2"});
+        }
+
+        // A key asked for once does not push out the keys in steady use
+        cache.lookup("C").offer(new String[] {"C", "3"});
+        assertNull(cache.lookup("C").row());
+        assertNotNull(cache.lookup("A").row());
+        assertNotNull(cache.lookup("B").row());
+
+        // A key asked for more often than the least recently used one replaces it
+        for (int i = 0; i < 10; i++) {
+            cache.lookup("D");
+        }
+        cache.lookup("D").offer(new String[] {"D", "4"});
+        assertArrayEquals(new String[] {"D", "4"}, cache.lookup("D").row());
+        assertNull(cache.lookup("A").row());
+        assertNotNull(cache.lookup("B").row());
+    }
+
+    @Test
+    void dropsRowsWhenAnyPartitionOrTheCatalogChanges() throws IOException {
+        CsvTable table = table("Months", "A,03-01-2025\nB,04-02-2025\n");
+        PartitionedTable months = PartitionedTable.monthly(table, 1, "Id,Value");
+        months.partition();
+        EntityCache cache = EntityCache.forTable(table);
+        cache.lookup("A").offer(new String[] {"A", "03-01-2025"});
+        assertNotNull(cache.lookup("A").row());
+
+        // Another program rewrites February; A, in January, was cached from the same table
+        Files.writeString(directory.resolve("Months").resolve("Months-2025-02.csv"),
+                "Id,Value\nB,05-02-2025\nD,06-02-2025\n");
+        assertNull(cache.lookup("A").row());
+
+        // A row for a new month adds a partition to the catalog
+        cache.lookup("A").offer(new String[] {"A", "03-01-2025"});
+        try (BufferedWriter writer = months.partitionFor("01-03-2025").openWriter(true)) {
+            writer.write("C,01-03-2025\n");
+        }
+        assertEquals(3, months.partitions().size());
+        assertNull(cache.lookup("A").row());
+        cache.lookup("A").offer(new String[] {"A", "03-01-2025"});
+
+        // The new partition is stamped too
+        Files.writeString(directory.resolve("Months").resolve("Months-2025-03.csv"), "Id,Value\nC,02-03-2025\n");
+        assertNull(cache.lookup("A").row());
+    }
+
+    @Test
+    void dropsRowsOfAWatchedTableWhenTheWatcherSeesItChange() throws IOException, InterruptedException {
+        CsvTable table = table("Watched", "A,1\n");
+        EntityCache cache = EntityCache.forTable(table);
+        TableWatcher.start(directory.toString());
+        try {
+            cache.lookup("A").offer(new String[] {"A", "1"});
+            assertNotNull(cache.lookup("A").row());
+
+            Files.writeString(Path.of(table.getFilePath()), "Id,Value\nA,10\n");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (cache.lookup("A").row() != null && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNull(cache.lookup("A").row());
+        } finally {
+            TableWatcher.stop();
+        }
+    }
+
+    private CsvTable table(String name, String rows) throws IOException {
+        Path file = directory.resolve(name + ".csv");
+        Files.writeString(file, "Id,Value\n" + rows);
+        return CsvTable.forFile(file.toString());
+    }
+}
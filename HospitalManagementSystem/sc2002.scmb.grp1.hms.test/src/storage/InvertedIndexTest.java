@@ -0,0 +1,125 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the full-text index's queries and that it follows rows being added, changed and removed.
+ */
+class InvertedIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void answersTermAndBooleanQueries() {
+        InvertedIndex index = index("Queries");
+        Rows rows = new Rows("Asthma; Inhaler", "fever and cough", "Rash, cream", "rash ointment", "fever");
+
+        assertArrayEquals(new int[] {0}, index.search("asthma AND inhaler", null, rows));
+        assertArrayEquals(new int[] {0}, index.search("ASTHMA inhaler", null, rows));
+        assertArrayEquals(new int[] {1, 4}, index.search("fever OR cough", null, rows));
+        assertArrayEquals(new int[] {4}, index.search("fever AND NOT cough", null, rows));
+        assertArrayEquals(new int[] {}, index.search("rash AND NOT (cream OR ointment)", null, rows));
+        assertArrayEquals(new int[] {0, 1, 4}, index.search("NOT rash", null, rows));
+        assertArrayEquals(new int[] {2}, index.search("rash-cream", null, rows));
+        assertArrayEquals(new int[] {}, index.search("malaria", null, rows));
+    }
+
+    @Test
+    void followsRowsAddedChangedAndRemoved() {
+        InvertedIndex index = index("Updates");
+        Rows rows = new Rows("flu rest", "sprain ice", "flu fluids");
+        assertArrayEquals(new int[] {0, 2}, index.search("flu", null, rows));
+
+        rows.texts.add("migraine rest");
+        assertArrayEquals(new int[] {0, 3}, index.search("rest", null, rows));
+
+        rows.texts.set(0, "cold rest");
+        assertArrayEquals(new int[] {2}, index.search("flu", null, rows));
+        assertArrayEquals(new int[] {0}, index.search("cold", null, rows));
+
+        // Removing a row moves the ones after it up
+        rows.texts.remove(1);
+        assertArrayEquals(new int[] {}, index.search("sprain", null, rows));
+        assertArrayEquals(new int[] {1}, index.search("flu", null, rows));
+        assertArrayEquals(new int[] {0, 2}, index.search("rest", null, rows));
+    }
+
+    @Test
+    void foldsManyChangesIntoThePostingLists() {
+        InvertedIndex index = index("Folded");
+        Rows rows = new Rows();
+        for (int i = 0; i < 10000; i++) {
+            rows.texts.add(i % 2 == 0 ? "even row " + i : "odd row " + i);
+        }
+        assertEquals(5000, index.search("even", null, rows).length);
+
+        // Fewer than an eighth of the rows, but more than are held unfolded
+        for (int i = 0; i < 1200; i++) {
+            rows.texts.set(i * 5, "changed row " + i * 5);
+        }
+        assertEquals(1200, index.search("changed", null, rows).length);
+        assertEquals(4400, index.search("even", null, rows).length);
+        assertArrayEquals(new int[] {7}, index.search("odd AND 7", null, rows));
+    }
+
+    @Test
+    void skipsTheComparisonWhenTheVersionIsUnchanged() {
+        InvertedIndex index = index("Versioned");
+        Rows rows = new Rows("flu");
+        Object version = new Object();
+        assertArrayEquals(new int[] {0}, index.search("flu", version, rows));
+
+        rows.texts.set(0, "cold");
+        assertArrayEquals(new int[] {0}, index.search("flu", version, rows));
+        assertArrayEquals(new int[] {0}, index.search("cold", new Object(), rows));
+    }
+
+    @Test
+    void rejectsMalformedQueries() {
+        InvertedIndex index = index("Malformed");
+        Rows rows = new Rows("flu");
+
+        assertThrows(IllegalArgumentException.class, () -> index.search("(flu", null, rows));
+        assertThrows(IllegalArgumentException.class, () -> index.search("flu AND", null, rows));
+    }
+
+    @Test
+    void splitsTextIntoLowerCaseTerms() {
+        assertEquals(List.of("eye", "drops", "x2", "daily"), InvertedIndex.tokenize("Eye-drops, x2 DAILY."));
+    }
+
+    private InvertedIndex index(String name) {
+        return InvertedIndex.forTable(CsvTable.forFile(directory.resolve(name + ".csv").toString()));
+    }
+
+    private static final class Rows implements InvertedIndex.Documents {
+        private final List<String> texts = new ArrayList<>();
+
+        private Rows(String... texts) {
+            this.texts.addAll(List.of(texts));
+        }
+
+        @Override
+        public int size() {
+            return texts.size();
+        }
+
+        @Override
+        public long fingerprint(int row) {
+            return InvertedIndex.fingerprint(texts.get(row));
+        }
+
+        @Override
+        public String text(int row) {
+            return texts.get(row);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.MetricsRegistry;
+
+/**
+ * Tests reading a table off-heap, and that extending a copy with appended lines leaves the
+ * copies made before as they were.
+ */
+class OffHeapTableTest {
+    private static final String HEADER = "RecordID,Diagnosis,Notes";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendingLeavesEarlierCopiesAsTheyWere() throws IOException {
+        CsvTable table = table("Appended", 3);
+        OffHeapTable first = OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED);
+        assertSame(first, OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED));
+        long builds = MetricsRegistry.operation("OffHeapTable.build").getCalls();
+
+        // Far more rows than the first copy's header region holds, and more text than its chunk
+        append(table, 3, 203);
+        OffHeapTable second = OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED);
+        // A line longer than the next chunk would be gets a chunk of its own
+        try (BufferedWriter writer = table.openWriter(true)) {
+            writer.write("R9999,Long," + "x".repeat(20000));
+            writer.newLine();
+        }
+        append(table, 203, 223);
+        OffHeapTable third = OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED);
+
+        assertEquals(builds, MetricsRegistry.operation("OffHeapTable.build").getCalls()); // Extended, not rebuilt
+        assertNotSame(first, second);
+        assertTrue(second.offHeapBytes() > first.offHeapBytes());
+        assertRows(rows(0, 3), first);
+        assertRows(rows(0, 203), second);
+        List<String[]> all = rows(0, 203);
+        all.add(new String[] {"R9999", "Long", "x".repeat(20000)});
+        all.addAll(rows(203, 223).subList(1, 21));
+        assertRows(all, third);
+        assertThrows(IndexOutOfBoundsException.class, () -> first.get(4, 0));
+    }
+
+    @Test
+    void buildsANewCopyWhenALineIsChangedInPlace() throws IOException {
+        CsvTable table = table("Rewritten", 3);
+        OffHeapTable first = OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED);
+
+        List<String> lines = Files.readAllLines(Path.of(table.getFilePath()));
+        lines.set(2, "R0001,Changed,\"notes, changed\"");
+        try (BufferedWriter writer = table.openWriter(false)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        OffHeapTable second = OffHeapTable.load(table, 3, ColumnarSnapshot.Splitter.QUOTED);
+
+        assertEquals("Changed", second.get(2, 1));
+        assertEquals("\"notes, changed\"", second.get(2, 2));
+        assertRows(rows(0, 3), first);
+    }
+
+    @Test
+    void matchesAndFingerprintsAgreeWithTheDecodedFields() throws IOException {
+        // Multi-byte characters, whatever the platform charset reads them as
+        Path file = directory.resolve("Fields.csv");
+        Files.writeString(file, HEADER + "\nR1,ab,c\nR1,a,bc\nR1,ab,c\nR2,Z\u00f6liakie,\"na\u00efve, \u65e5\u672c\"\nR3,,\n");
+        OffHeapTable table = OffHeapTable.load(CsvTable.forFile(file.toString()), 3,
+                ColumnarSnapshot.Splitter.QUOTED);
+
+        assertEquals(6, table.size());
+        assertEquals("R2", table.get(4, 0)); // The text is decoded as the table's reader decodes it
+        assertEquals("", table.get(5, 1));
+        for (int row = 0; row < table.size(); row++) {
+            for (int column = 0; column < table.columns(); column++) {
+                String field = table.get(row, column);
+                assertTrue(table.matches(row, column, field.getBytes(StandardCharsets.UTF_8)));
+                assertFalse(table.matches(row, column, (field + "x").getBytes(StandardCharsets.UTF_8)));
+                if (!field.isEmpty()) {
+                    byte[] changed = field.getBytes(StandardCharsets.UTF_8);
+                    changed[changed.length - 1]++;
+                    assertFalse(table.matches(row, column, changed));
+                }
+            }
+            assertEquals(fingerprint(table, row), table.fingerprint(row));
+        }
+        assertEquals(table.fingerprint(1), table.fingerprint(3));
+        assertNotEquals(table.fingerprint(1), table.fingerprint(2)); // The same bytes split differently
+        assertTrue(table.matches(3, 1, "ab".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private CsvTable table(String name, int rows) throws IOException {
+        Path file = directory.resolve(name + ".csv");
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (String[] row : rows(0, rows).subList(1, rows + 1)) {
+            csv.append(row[0]).append(',').append(row[1]).append(',').append(row[2]).append('\n');
+        }
+        Files.writeString(file, csv.toString());
+        return CsvTable.forFile(file.toString());
+    }
+
+    private static void append(CsvTable table, int from, int to) throws IOException {
+        try (BufferedWriter writer = table.openWriter(true)) {
+            for (String[] row : rows(from, to).subList(1, to - from + 1)) {
+                writer.write(row[0] + "," + row[1] + "," + row[2]);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * The header row followed by rows {@code from} to {@code to - 1}.
+     */
+    private static List<String[]> rows(int from, int to) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(HEADER.split(","));
+        for (int i = from; i < to; i++) {
+            rows.add(new String[] {String.format("R%04d", i), "Diagnosis " + i,
+                    "\"Notes, line " + i + " more".repeat(i % 7) + "\""}); // Quotes are kept
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<String[]> expected, OffHeapTable table) {
+        assertEquals(expected.size(), table.size());
+        for (int row = 0; row < expected.size(); row++) {
+            for (int column = 0; column < table.columns(); column++) {
+                assertEquals(expected.get(row)[column], table.get(row, column));
+            }
+        }
+    }
+
+    /**
+     * The fingerprint as documented, computed from the decoded fields.
+     */
+    private static long fingerprint(OffHeapTable table, int row) {
+        long hash = 0xcbf29ce484222325L;
+        for (int column = 0; column < table.columns(); column++) {
+            for (byte b : table.get(row, column).getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0x100) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,104 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that parsing a file in byte ranges on several threads gives the rows a line-by-line
+ * read gives, wherever the ranges are cut.
+ */
+class ParallelCsvParserTest {
+    private static final String HEADER = "RecordID,Notes,Quantity";
+    private static final int BYTES = 5 << 20; // several ranges of the default 1 MB
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void splitsQuotedFieldsAcrossRangesAsALineByLineReadDoes() throws IOException {
+        assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1, "needs a common pool of two or more threads");
+        Path csv = directory.resolve("Quoted.csv");
+        Files.writeString(csv, table(new Random(42), "\n", true));
+        CsvTable table = CsvTable.forFile(csv.toString());
+
+        String[] header = new String[1];
+        List<String[]> rows = ParallelCsvParser.parse(table, ColumnarSnapshot.Splitter.QUOTED, header);
+
+        assertNotNull(rows);
+        assertEquals(HEADER, header[0]);
+        assertRows(readLines(csv, ColumnarSnapshot.Splitter.QUOTED), rows);
+    }
+
+    @Test
+    void readsLinesEndingInCarriageReturnsAndALastLineWithoutABreak() throws IOException {
+        assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1, "needs a common pool of two or more threads");
+        Path csv = directory.resolve("Windows.csv");
+        Files.writeString(csv, table(new Random(7), "\r\n", false));
+        CsvTable table = CsvTable.forFile(csv.toString());
+
+        List<String[]> rows = ParallelCsvParser.parse(table, ColumnarSnapshot.Splitter.PLAIN, null);
+
+        assertNotNull(rows);
+        assertRows(readLines(csv, ColumnarSnapshot.Splitter.PLAIN), rows);
+    }
+
+    @Test
+    void leavesSmallFilesToTheSingleThreadedReader() throws IOException {
+        Path csv = directory.resolve("Small.csv");
+        Files.writeString(csv, HEADER + "\nR1,\"a, b\",1\n");
+
+        assertNull(ParallelCsvParser.parse(CsvTable.forFile(csv.toString()), ColumnarSnapshot.Splitter.QUOTED, null));
+        assertNull(ParallelCsvParser.parse(CsvTable.forFile(directory.resolve("Missing.csv").toString()),
+                ColumnarSnapshot.Splitter.QUOTED, null));
+    }
+
+    private static void assertRows(List<String[]> expected, List<String[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static List<String[]> readLines(Path csv, ColumnarSnapshot.Splitter splitter) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                rows.add(splitter.split(line));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of varying length, so range cuts land at every offset within a line, with quoted
+     * fields holding commas and escaped quotes.
+     */
+    private static String table(Random random, String lineBreak, boolean endsWithBreak) {
+        StringBuilder csv = new StringBuilder(HEADER).append(lineBreak);
+        for (int i = 0; csv.length() < BYTES; i++) {
+            StringBuilder notes = new StringBuilder("\"");
+            for (int words = random.nextInt(12); words >= 0; words--) {
+                notes.append(random.nextInt(4) == 0 ? "said \"\"rest\"\", " : "fever, ");
+            }
+            notes.append("end\"");
+            csv.append(String.format("R%07d", i)).append(',').append(notes).append(',').append(random.nextInt(500));
+            csv.append(lineBreak);
+        }
+        return endsWithBreak ? csv.toString() : csv.substring(0, csv.length() - lineBreak.length());
+    }
+}
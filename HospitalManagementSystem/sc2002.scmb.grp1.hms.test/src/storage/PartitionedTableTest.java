@@ -0,0 +1,115 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests splitting a table by month, the catalog of months, and reading back only some months.
+ */
+class PartitionedTableTest {
+    private static final String HEADER = "VisitId,Date";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void treatsAnUnsplitTableAsItsOnlyPartition() throws IOException {
+        CsvTable table = table("Unsplit", "V1,03-01-2025\n");
+        PartitionedTable visits = PartitionedTable.monthly(table, 1, HEADER);
+
+        assertFalse(visits.isPartitioned());
+        assertEquals(List.of(table), visits.partitions());
+        assertEquals(List.of(table), visits.partitions(LocalDate.of(2030, 1, 1), null));
+        assertSame(table, visits.findPartition("03-01-2025"));
+        assertSame(table, visits.partitionFor("03-01-2030"));
+    }
+
+    @Test
+    void splitsRowsIntoOneFilePerMonth() throws IOException {
+        CsvTable table = table("Visits", "V1,03-01-2025\nV2,28-02-2025\nV3,15-01-2025\nV4,not a date\n");
+        PartitionedTable visits = PartitionedTable.monthly(table, 1, HEADER);
+
+        assertEquals(3, visits.partition());
+        assertTrue(visits.isPartitioned());
+        assertEquals(HEADER + System.lineSeparator(), Files.readString(Path.of(table.getFilePath())));
+
+        Path months = directory.resolve("Visits");
+        assertEquals(List.of(HEADER, "V1,03-01-2025", "V3,15-01-2025"),
+                Files.readAllLines(months.resolve("Visits-2025-01.csv")));
+        assertEquals(List.of(HEADER, "V2,28-02-2025"), Files.readAllLines(months.resolve("Visits-2025-02.csv")));
+        assertEquals(List.of(HEADER, "V4,not a date"),
+                Files.readAllLines(months.resolve("Visits-" + PartitionedTable.UNDATED + ".csv")));
+        assertEquals(List.of("Partition,File", "2025-01,Visits-2025-01.csv", "2025-02,Visits-2025-02.csv",
+                "undated,Visits-undated.csv"), Files.readAllLines(months.resolve(PartitionedTable.CATALOG_FILE)));
+
+        // Splitting again does nothing
+        assertEquals(3, visits.partition());
+        assertEquals(List.of("V1", "V3", "V2", "V4"), ids(visits.partitions()));
+    }
+
+    @Test
+    void readsOnlyTheMonthsInARange() throws IOException {
+        CsvTable table = table("Pruned", "V1,03-01-2025\nV2,28-02-2025\nV3,10-04-2025\nV4,\n");
+        PartitionedTable visits = PartitionedTable.monthly(table, 1, HEADER);
+        visits.partition();
+
+        assertEquals(List.of("V2"), ids(visits.partitions(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 31))));
+        assertEquals(List.of("V2", "V3"), ids(visits.partitions(LocalDate.of(2025, 2, 28), null)));
+        assertEquals(List.of("V1"), ids(visits.partitions(null, LocalDate.of(2025, 1, 31))));
+        assertEquals(List.of("V1", "V2", "V3", "V4"), ids(visits.partitions()));
+        assertNull(visits.findPartition("01-03-2025"));
+    }
+
+    @Test
+    void addsAMonthToTheCatalogWhenARowNeedsIt() throws IOException {
+        CsvTable table = table("Grown", "V1,03-01-2025\n");
+        PartitionedTable visits = PartitionedTable.monthly(table, 1, HEADER);
+        visits.partition();
+
+        CsvTable march = visits.partitionFor("09-03-2025");
+        assertEquals(directory.resolve("Grown").resolve("Grown-2025-03.csv").toString(), march.getFilePath());
+        assertSame(march, visits.partitionFor("20-03-2025"));
+        assertSame(march, visits.findPartition("31-03-2025"));
+        assertEquals(List.of(HEADER), Files.readAllLines(Path.of(march.getFilePath())));
+        assertEquals(2, visits.partitions().size());
+        assertEquals(List.of(march), visits.partitions(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)));
+    }
+
+    @Test
+    void namesEachCatalogAfterItsTable() throws IOException {
+        PartitionedTable first = PartitionedTable.monthly(table("First", ""), 1, HEADER);
+        PartitionedTable second = PartitionedTable.monthly(table("Second", ""), 1, HEADER);
+
+        assertEquals("First/catalog", first.getCatalog().getName());
+        assertEquals("Second/catalog", second.getCatalog().getName());
+    }
+
+    private CsvTable table(String name, String rows) throws IOException {
+        Path file = directory.resolve(name + ".csv");
+        Files.writeString(file, HEADER + "\n" + rows);
+        return CsvTable.forFile(file.toString());
+    }
+
+    private static List<String> ids(List<CsvTable> partitions) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (CsvTable partition : partitions) {
+            List<String> lines = Files.readAllLines(Path.of(partition.getFilePath()));
+            for (String line : lines.subList(1, lines.size())) {
+                ids.add(line.split(",")[0]);
+            }
+        }
+        return ids;
+    }
+}
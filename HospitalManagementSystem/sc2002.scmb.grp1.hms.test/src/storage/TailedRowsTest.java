@@ -0,0 +1,95 @@
+package storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.CSVUtil;
+
+/**
+ * Tests that reading only the appended lines of a table never hides an edit to the lines
+ * before them.
+ */
+class TailedRowsTest {
+    private static final int ROWS = 2000; // long enough that the middle is far from either end
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOnlyTheAppendedLines() throws IOException {
+        Path csv = directory.resolve("Appended.csv");
+        Files.writeString(csv, table());
+        CsvTable table = CsvTable.forFile(csv.toString());
+        assertEquals(ROWS, read(table).size());
+
+        Files.writeString(csv, "R99999,Appended,1\n", StandardOpenOption.APPEND);
+        CSVUtil.appendRow(table, "R99998,Appended,2");
+
+        List<String[]> rows = read(table);
+        assertEquals(ROWS + 2, rows.size());
+        assertArrayEquals(new String[] {"R99999", "Appended", "1"}, rows.get(ROWS));
+        assertArrayEquals(new String[] {"R99998", "Appended", "2"}, rows.get(ROWS + 1));
+    }
+
+    @Test
+    void seesAnEditToTheMiddleOfTheFileBeforeAnotherProgramAppends() throws IOException {
+        Path csv = directory.resolve("EditedThenAppended.csv");
+        Files.writeString(csv, table());
+        CsvTable table = CsvTable.forFile(csv.toString());
+        read(table);
+
+        // Another program rewrites a middle row to the same length, then appends a row
+        editMiddleRow(csv);
+        Files.writeString(csv, "R99999,Appended,1\n", StandardOpenOption.APPEND);
+
+        List<String[]> rows = read(table);
+        assertEquals(ROWS + 1, rows.size());
+        assertEquals("Cancelled", rows.get(ROWS / 2)[1]);
+        assertEquals("Appended", rows.get(ROWS)[1]);
+    }
+
+    @Test
+    void seesAnEditToTheMiddleOfTheFileBeforeThisProcessAppends() throws IOException {
+        Path csv = directory.resolve("EditedThenAppendedHere.csv");
+        Files.writeString(csv, table());
+        CsvTable table = CsvTable.forFile(csv.toString());
+        CSVUtil.appendRow(table, "R99998,Appended,2");
+        read(table);
+
+        // Only appends by this process follow, apart from the edit made in between
+        editMiddleRow(csv);
+        CSVUtil.appendRow(table, "R99999,Appended,1");
+
+        List<String[]> rows = read(table);
+        assertEquals(ROWS + 2, rows.size());
+        assertEquals("Cancelled", rows.get(ROWS / 2)[1]);
+        assertEquals("R99999", rows.get(ROWS + 1)[0]);
+    }
+
+    private static List<String[]> read(CsvTable table) throws IOException {
+        return TailedRows.readRows(table, ColumnarSnapshot.Splitter.PLAIN);
+    }
+
+    private static void editMiddleRow(Path csv) throws IOException {
+        String contents = Files.readString(csv);
+        String row = String.format("R%05d,Confirmed,", ROWS / 2);
+        long size = Files.size(csv);
+        Files.writeString(csv, contents.replace(row, String.format("R%05d,Cancelled,", ROWS / 2)));
+        assertEquals(size, Files.size(csv));
+    }
+
+    private static String table() {
+        StringBuilder csv = new StringBuilder("RowId,Status,Quantity\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(String.format("R%05d,Confirmed,%d%n", i, i % 100));
+        }
+        return csv.toString();
+    }
+}
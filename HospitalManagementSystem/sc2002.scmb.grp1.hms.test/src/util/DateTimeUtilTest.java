@@ -0,0 +1,85 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the fixed-format date and time parsers against {@code java.time}.
+ */
+class DateTimeUtilTest {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-uuuu")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    @Test
+    void readsEveryDayAsLocalDateDoes() {
+        // Spans leap years, including 2000, and the non-leap 1900 and 2100
+        for (LocalDate date = LocalDate.of(1896, 1, 1); date.getYear() <= 2104; date = date.plusDays(1)) {
+            String text = DATE.format(date);
+            assertEquals(date.toEpochDay(), DateTimeUtil.parseEpochDay(text), text);
+            assertEquals(date, DateTimeUtil.parseDate(text));
+            assertEquals(text, DateTimeUtil.formatEpochDay((int) date.toEpochDay()));
+        }
+        assertEquals(LocalDate.of(0, 1, 1).toEpochDay(), DateTimeUtil.parseEpochDay("01-01-0000"));
+        assertEquals(LocalDate.of(9999, 12, 31).toEpochDay(), DateTimeUtil.parseEpochDay("31-12-9999"));
+    }
+
+    @Test
+    void rejectsTheDaysLocalDateRejects() {
+        for (int year : new int[] {1900, 2000, 2023, 2024, 2100}) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++) {
+                    String text = String.format("%02d-%02d-%04d", day, month, year);
+                    boolean valid;
+                    try {
+                        LocalDate.of(year, month, day);
+                        valid = true;
+                    } catch (DateTimeException e) {
+                        valid = false;
+                    }
+                    assertEquals(valid, DateTimeUtil.parseEpochDay(text) != DateTimeUtil.INVALID, text);
+                }
+            }
+        }
+        assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parseEpochDay("29-02-2023"));
+        assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parseEpochDay("29-02-1900"));
+        assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parseEpochDay("31-04-2024"));
+    }
+
+    @Test
+    void rejectsMalformedDatesWithoutThrowing() {
+        for (String text : new String[] {null, "", "1-01-2024", "01-01-24", "01-01-20245", "01/01/2024",
+                "01-01-2O24", "0a-01-2024", "01-+1-2024", "-1-01-2024", " 01-01-2024", "01-01-2024 ", "2024-01-01"}) {
+            assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parseEpochDay(text), String.valueOf(text));
+            assertNull(DateTimeUtil.parseDate(text));
+        }
+    }
+
+    @Test
+    void readsEveryMinuteAsLocalTimeDoes() {
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            LocalTime time = LocalTime.ofSecondOfDay(minute * 60L);
+            String text = time.toString(); // HH:mm when there are no seconds
+            assertEquals(minute, DateTimeUtil.parseMinuteOfDay(text), text);
+            assertEquals(time, DateTimeUtil.parseTime(text));
+            assertEquals(text, DateTimeUtil.formatMinuteOfDay(minute));
+        }
+        assertEquals(0, DateTimeUtil.parseMinuteOfDay("00:00"));
+        assertEquals(23 * 60 + 59, DateTimeUtil.parseMinuteOfDay("23:59"));
+    }
+
+    @Test
+    void rejectsMalformedTimesWithoutThrowing() {
+        for (String text : new String[] {null, "", "24:00", "23:60", "9:30", "09:3", "09:300", "09-30", "0a:30",
+                "09:3b", "-1:30", "09:-1", " 9:30", "09:30:00"}) {
+            assertEquals(DateTimeUtil.INVALID, DateTimeUtil.parseMinuteOfDay(text), String.valueOf(text));
+            assertNull(DateTimeUtil.parseTime(text));
+        }
+    }
+}
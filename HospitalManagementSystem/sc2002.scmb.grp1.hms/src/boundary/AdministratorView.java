@@ -14,11 +14,13 @@ import entity.User;
 import entity.MedicationInventory;
 import entity.ReplenishmentRequests;
 import entity.Appointment;
+import util.MetricsRegistry;
 
 /**
  * The AdministratorView class provides the user interface for administrators
  * in the Hospital Management System. It allows administrators to manage
- * hospital staff, appointments, medication inventory, and security questions.
+ * hospital staff, appointments, medication inventory, and security questions,
+ * and to view per-operation performance metrics.
  * This class implements the MenuInterface.
  */
 
@@ -30,7 +32,8 @@ public class AdministratorView implements MenuInterface {
 
     /**
      * Displays the main menu for administrators and handles user input.
-     * Administrators can view/manage staff, appointments, inventory, and set security questions.
+     * Administrators can view/manage staff, appointments, inventory, set security questions,
+     * and view performance metrics.
      * 
      * @param user The User object representing the logged-in administrator.
      * @throws IOException if there is an error in I/O operations.
@@ -47,7 +50,8 @@ public class AdministratorView implements MenuInterface {
             System.out.println("| 2. View Appointment Details                    |");
             System.out.println("| 3. View and Manage Inventory                   |");
             System.out.println("| 4. Set Security Question for Recovery          |");
-            System.out.println("| 5. Logout                                      |");
+            System.out.println("| 5. View Performance Metrics                    |");
+            System.out.println("| 6. Logout                                      |");
             System.out.println("+------------------------------------------------+");
             System.out.println();
 
@@ -444,6 +448,17 @@ public class AdministratorView implements MenuInterface {
                     }
                     break;
                 case 5:
+                    System.out.println();
+                    System.out.println("+------------------------------------------------+");
+                    System.out.println("|              Performance Metrics               |");
+                    System.out.println("+------------------------------------------------+");
+                    if (MetricsRegistry.getOperations().isEmpty()) {
+                        System.out.println("No operations have been recorded yet.");
+                    } else {
+                        System.out.print(MetricsRegistry.report());
+                    }
+                    break;
+                case 6:
                     System.out.println("Logging out...");
                     return;
                 default:
@@ -132,7 +132,9 @@ public class DoctorView implements MenuInterface{
 			System.out.println("Medical Record Options:");
 			System.out.println("1. Create New Medical Record");
 			System.out.println("2. Update Existing Medical Record");
-			System.out.println("3. Back to Doctor Menu");
+			System.out.println("3. Search Medical Records");
+			System.out.println("4. View Medical Record History");
+			System.out.println("5. Back to Doctor Menu");
 			System.out.println();
 
 			int choice = -1; // Default value for invalid input
@@ -141,7 +143,7 @@ public class DoctorView implements MenuInterface{
 				System.out.print("Enter your choice: ");
 				choice = Integer.parseInt(scanner.nextLine().trim()); // Read and parse input
 			} catch (NumberFormatException e) {
-				System.out.println("Invalid input. Please enter a number between 1 and 3.");
+				System.out.println("Invalid input. Please enter a number between 1 and 5.");
 				continue; // Restart the loop
 			}
 
@@ -159,9 +161,21 @@ public class DoctorView implements MenuInterface{
 					e.printStackTrace();
 				}
 			} else if (choice == 3) {
+				try {
+					medicalrecordcontroller.searchMedicalRecords();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			} else if (choice == 4) {
+				try {
+					medicalrecordcontroller.viewMedicalRecordHistory();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			} else if (choice == 5) {
 				break; // Exit the loop to go back to the main doctor menu
 			} else {
-				System.out.println("Invalid choice. Please enter a number between 1 and 3.");
+				System.out.println("Invalid choice. Please enter a number between 1 and 5.");
 			}
 		}
 	}
@@ -261,13 +275,9 @@ public class DoctorView implements MenuInterface{
 						return;
 					}
 
-					// Create the appointment outcome
+					// Create the appointment outcome, which also completes and bills the appointment
 					outcomecontroller.createAppointmentOutcome(apptID);
-					System.out.println("Appointment outcome created successfully for Appointment ID: " + apptID);
-					appointmentcontroller.updateAppointmentStatus(apptID, "Completed");
 					valid = true;
-					PaymentController pc = new PaymentController();
-					pc.recalculatePaymentsCSV(apptID);
 				} else {
 					System.out.println("The Appointment ID is not valid.");
 					System.out.print("Would you like to re-enter the Appointment ID? (y/n): ");
@@ -1,6 +1,14 @@
 package boundary;
 
 import controller.AuthenticationController;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import server.HmsServer;
+import service.WarmUpService;
+import storage.TableWatcher;
+import util.DataDirectory;
+import util.MetricsRegistry;
 
 
 /**
@@ -11,14 +19,45 @@ import controller.AuthenticationController;
 public class HMSmain {
 	/**
      * The main method that serves as the entry point of the application.
-     * It initializes the AuthenticationController and begins the sign-in process.
+     * It starts the periodic metrics dump if {@code hms.metrics.file} is set and watches the
+     * data directory for files changed by others unless {@code hms.watch} is {@code false}. If
+     * {@code hms.warmup} is {@code true} it loads every table before going on. It then either
+     * initializes the AuthenticationController and begins the sign-in process, or, when started
+     * with {@code --server [port]}, serves the HTTP API until the process is stopped.
      *
      * @param args Command-line arguments.
      */
 
 	public static void main(String[] args) {
+		MetricsRegistry.startPeriodicDumpFromSystemProperties();
+		TableWatcher.startFromSystemProperties(DataDirectory.getPath());
+		WarmUpService.warmUpFromSystemProperties();
+		if (args.length > 0 && args[0].equals("--server")) {
+			startServer(args.length > 1 ? Integer.parseInt(args[1]) : HmsServer.DEFAULT_PORT);
+			return;
+		}
 		AuthenticationController authenticationController = new AuthenticationController();
 		authenticationController.startSignIn(); 
     }
 
-}
\ No newline at end of file
+	/**
+     * Starts the HTTP API. The repositories still print their console boxes, which nobody reads
+     * in server mode, so standard output is discarded unless {@code hms.server.console} is
+     * {@code true}; server messages go to standard error.
+     *
+     * @param port The port to listen on.
+     */
+	private static void startServer(int port) {
+		try {
+			HmsServer server = HmsServer.start(port);
+			if (!Boolean.getBoolean("hms.server.console")) {
+				System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			}
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+			System.err.println("HMS server listening on http://localhost:" + server.getPort() + "/api/");
+		} catch (IOException e) {
+			System.err.println("Could not start the HMS server: " + e.getMessage());
+		}
+	}
+
+}
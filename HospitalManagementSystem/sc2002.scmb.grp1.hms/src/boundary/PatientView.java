@@ -20,11 +20,17 @@ public class PatientView implements MenuInterface {
     private final PatientController patientcontroller = new PatientController();
 
     /**
-     * Displays the Patient Menu and processes user input for various patient-related actions.
+     * Shows the patient's timeline, then displays the Patient Menu and processes user input for
+     * various patient-related actions.
      *
      * @param user The logged-in patient user.
      */
     public void Menu(User user) {
+        try {
+            patientcontroller.viewTimeline(user.getUserId());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         while (true) {
             System.out.println();
             System.out.println("+-------------------------------------------+");
@@ -40,7 +46,8 @@ public class PatientView implements MenuInterface {
             System.out.println("| 8. View Past Appointment Outcome Records  |");
             System.out.println("| 9. Make Outstanding Payments              |");
             System.out.println("| 10. Set Security Questions for Recovery   |");
-            System.out.println("| 11. Logout                                |");
+            System.out.println("| 11. View My Timeline                      |");
+            System.out.println("| 12. Logout                                |");
             System.out.println("+-------------------------------------------+");
             System.out.print("Select an option: ");
             System.out.println();
@@ -48,7 +55,7 @@ public class PatientView implements MenuInterface {
             int choice = scanner.nextInt();
             scanner.nextLine();
 
-            if (choice == 11) {
+            if (choice == 12) {
                 System.out.println("Logging out...");
                 break;
             } else if (choice == 1) {
@@ -139,6 +146,13 @@ public class PatientView implements MenuInterface {
                 }
             
         }
+            else if (choice == 11) {
+                try {
+                    patientcontroller.viewTimeline(user.getUserId());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
 
@@ -11,24 +11,21 @@ import entity.MedicationInventory;
 import entity.Patient;
 import entity.Appointment;
 import entity.ReplenishmentRequests;
-import controller.MedicationInventoryController;
-import controller.AppointmentController;
-import repository.AdministratorRepository;
-import repository.ReplenishmentRequestRepository;
-import repository.DoctorRepository;
-import repository.PharmacistRepository;
+import service.InventoryService;
+import service.ServiceResult;
+import service.StaffService;
 /**
  * Controller class for managing administrator-related operations.
  * Handles inventory, staff, and replenishment request functionalities.
+ * The staff and inventory rules live in {@link StaffService} and {@link InventoryService};
+ * this class handles console input and output.
  */
 
 @SuppressWarnings("unused")
 public class AdministratorController {
     private final Scanner scanner = new Scanner(System.in);
-    private AdministratorRepository administratorRepository = new AdministratorRepository();
-    private DoctorRepository doctorRepository = new DoctorRepository();
-    private PharmacistRepository pharmacistRepository = new PharmacistRepository();
-    private ReplenishmentRequestRepository requestRepository = new ReplenishmentRequestRepository();
+    private final StaffService staffService = new StaffService();
+    private final InventoryService inventoryService = new InventoryService();
     private MedicationInventoryController inventoryController = new MedicationInventoryController();
     private AppointmentController appointmentController = new AppointmentController();
     /**
@@ -60,14 +57,8 @@ public class AdministratorController {
      */
 
     public void replenishStock(int requestID) throws IOException {
-        ReplenishmentRequests request = requestRepository.getRequestById(requestID);
-        if (request == null){
-            System.out.println("Invalid request ID");
-            return;
-        }
-        inventoryController.replenishInventory(request.getMedicationName(), request.getQuantity());
-        requestRepository.updateRequestStatus(requestID, "Completed");
-        System.out.println("Approving replenishment request...");
+        ServiceResult<ReplenishmentRequests> result = inventoryService.approveRequest(requestID);
+        System.out.println(result.getMessage());
     }
     /**
      * Changes the alert level for a specific medicine.
@@ -96,7 +87,7 @@ public class AdministratorController {
      * @throws IOException if an I/O error occurs.
      */
     public List<ReplenishmentRequests> viewRequests() throws IOException {
-        return requestRepository.pendingRequests();
+        return inventoryService.getPendingRequests();
     }
 
     /**
@@ -167,103 +158,13 @@ public class AdministratorController {
  * @throws IOException if an I/O error occurs.
  */
     public List<User> viewStaff(String filter) throws IOException {
-        List<Administrator> administrators = administratorRepository.loadAdministrators();
-        List<Doctor> doctors = doctorRepository.loadDoctors();
-        List<Pharmacist> pharmacists = pharmacistRepository.loadPharmacists();
-
-        List<User> combined = new ArrayList<>();
-        List<User> filtered = new ArrayList<>();
-
-        combined.addAll(administrators);
-        combined.addAll(doctors);
-        combined.addAll(pharmacists);
-
         switch (filter) {
-            case "All":
-                return combined;
-            case "Doctor":
-                for (User user : combined) {
-                    if (user instanceof Doctor) {
-                        filtered.add(user);
-                    }
-                }
-                break;
-            case "Pharmacist":
-                for (User user : combined) {
-                    if (user instanceof Pharmacist) {
-                        filtered.add(user);
-                    }
-                }
-                break;
-            case "Admin":
-                for (User user : combined) {
-                    if (user instanceof Administrator) {
-                        filtered.add(user);
-                    }
-                }
-                break;
-            case "Male":
-                for (User user : combined) {
-                    if ("Male".equalsIgnoreCase(user.getGender())) {
-                        filtered.add(user);
-                    }
-                }
-                break;
-            case "Female":
-                for (User user : combined) {
-                    if ("Female".equalsIgnoreCase(user.getGender())) {
-                        filtered.add(user);
-                    }
-                }
-                break;
-            case "20":
-                for (User user : combined) {
-                    String ageString = user.getAge().trim(); // Remove any leading/trailing whitespace
-
-                    // Check if age is numeric before parsing
-                    if (ageString.matches("\\d+")) { // Ensures the age string is fully numeric
-                        int age = Integer.parseInt(ageString);
-                        if (age >= 20 && age < 30) {
-                            filtered.add(user);
-                        }
-                    }
-                    // If age is not numeric, skip to the next user
-                }
-                break;
-
-            case "30":
-                for (User user : combined) {
-                    String ageString = user.getAge().trim();
-
-                    if (ageString.matches("\\d+")) {
-                        int age = Integer.parseInt(ageString);
-                        if (age >= 30 && age < 40) {
-                            filtered.add(user);
-                        }
-                    }
-                    // Skip if age is not numeric
-                }
-                break;
-
-            case "40":
-                for (User user : combined) {
-                    String ageString = user.getAge().trim();
-
-                    if (ageString.matches("\\d+")) {
-                        int age = Integer.parseInt(ageString);
-                        if (age >= 40 && age <= 50) {
-                            filtered.add(user);
-                        }
-                    }
-                    // Skip if age is not numeric
-                }
+            case "All", "Doctor", "Pharmacist", "Admin", "Male", "Female", "20", "30", "40":
                 break;
             default:
                 System.err.println("Unrecognized filter: " + filter + ". Returning all staff.");
-                return combined; // Default to returning the full list
         }
-        return filtered;
-
+        return staffService.getStaff(filter);
     }
     /**
  * Adds a new administrator to the system.
@@ -295,7 +196,7 @@ public class AdministratorController {
                 staffemail,
                 staffcontact);
 
-        administratorRepository.writeAdmin(newAdmin);
+        System.out.println(staffService.addAdministrator(newAdmin).getMessage());
     }
 /**
  * Removes an administrator from the system by their user ID.
@@ -304,12 +205,7 @@ public class AdministratorController {
  * @throws IOException if an I/O error occurs.
  */
     public void removeAdmin(String userID) throws IOException {
-        if (administratorRepository.hasAdministrator(userID)) {
-            administratorRepository.removeAdministratorById(userID);
-            System.out.println("Administrator with ID " + userID + " removed successfully.");
-        } else {
-            System.out.println("Administrator with ID " + userID + " does not exist.");
-        }
+        System.out.println(staffService.removeAdministrator(userID).getMessage());
     }
 /**
  * Adds a new doctor to the system.
@@ -344,8 +240,7 @@ public class AdministratorController {
                 specialization,
                 staffemail,
                 staffcontact);
-        doctorRepository.writeDoctor(newDoctor);
-        return;
+        System.out.println(staffService.addDoctor(newDoctor).getMessage());
     }
     /**
  * Removes a doctor from the system by their user ID.
@@ -355,12 +250,7 @@ public class AdministratorController {
  */
 
     public void removeDoctor(String userID) throws IOException {
-        if (doctorRepository.hasDoctor(userID)) {
-            doctorRepository.removeDoctorById(userID);
-            System.out.println("Doctor with ID " + userID + " removed successfully.");
-        } else {
-            System.out.println("Doctor with ID " + userID + " does not exist.");
-        }
+        System.out.println(staffService.removeDoctor(userID).getMessage());
     }
     /**
  * Removes a pharmacist from the system by their user ID.
@@ -370,12 +260,7 @@ public class AdministratorController {
  */
 
     public void removePharmacist(String userID) throws IOException {
-        if (pharmacistRepository.hasPharmacist(userID)) {
-            pharmacistRepository.removePharmacistById(userID);
-            System.out.println("Pharmacist with ID " + userID + " removed successfully.");
-        } else {
-            System.out.println("Pharmacist with ID " + userID + " does not exist.");
-        }
+        System.out.println(staffService.removePharmacist(userID).getMessage());
     }
     /**
  * Adds a new pharmacist to the system.
@@ -406,8 +291,7 @@ public class AdministratorController {
                 age,
                 staffemail,
                 staffcontact);
-        pharmacistRepository.writePharmacist(newPharmacist);
-        return;
+        System.out.println(staffService.addPharmacist(newPharmacist).getMessage());
     }
 /**
  * Updates the contact information of a staff member based on their role and ID.
@@ -417,16 +301,7 @@ public class AdministratorController {
  * @throws IOException if an I/O error occurs.
  */
     public void updateStaffInfo(String role, String staffId) throws IOException {
-        User staff = null;
-
-        // Retrieve the appropriate user based on their role
-        if (role.equalsIgnoreCase("Admin")) {
-            staff = administratorRepository.findAdminById(staffId);
-        } else if (role.equalsIgnoreCase("Doctor")) {
-            staff = doctorRepository.findDoctorById(staffId);
-        } else if (role.equalsIgnoreCase("Pharmacist")) {
-            staff = pharmacistRepository.findPharmacistById(staffId);
-        }
+        User staff = staffService.getStaffMember(role, staffId);
 
         if (staff == null) {
             System.out.println("Staff member not found!");
@@ -448,44 +323,11 @@ public class AdministratorController {
         System.out.print("Enter new email (leave blank to keep current): ");
         String newEmail = scanner.nextLine();
 
-        if (!newEmail.isEmpty()) {
-            if (staff instanceof Administrator) {
-                ((Administrator) staff).setStaffEmail(newEmail);
-            } else if (staff instanceof Doctor) {
-                ((Doctor) staff).setStaffEmail(newEmail);
-            } else if (staff instanceof Pharmacist) {
-                ((Pharmacist) staff).setStaffEmail(newEmail);
-            }
-        }
-
         System.out.print("Enter new phone number (leave blank to keep current): ");
         String newPhoneNumber = scanner.nextLine();
 
-        if (!newPhoneNumber.isEmpty()) {
-            if (staff instanceof Administrator) {
-                ((Administrator) staff).setStaffContact(newPhoneNumber);
-            } else if (staff instanceof Doctor) {
-                ((Doctor) staff).setStaffContact(newPhoneNumber);
-            } else if (staff instanceof Pharmacist) {
-                ((Pharmacist) staff).setStaffContact(newPhoneNumber);
-            }
-        }
-
-        // Save the updated information
-        boolean success = false;
-        if (role.equalsIgnoreCase("Admin")) {
-            success = administratorRepository.updateAdministrator((Administrator) staff);
-        } else if (role.equalsIgnoreCase("Doctor")) {
-            success = doctorRepository.updateDoctor((Doctor) staff);
-        } else if (role.equalsIgnoreCase("Pharmacist")) {
-            success = pharmacistRepository.updatePharmacist((Pharmacist) staff);
-        }
-
-        if (success) {
-            System.out.println("Contact information updated successfully.");
-        } else {
-            System.out.println("Failed to update contact information.");
-        }
+        ServiceResult<User> result = staffService.updateContact(role, staffId, newEmail, newPhoneNumber);
+        System.out.println(result.getMessage());
     }
 
 }
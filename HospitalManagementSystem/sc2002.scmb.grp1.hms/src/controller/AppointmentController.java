@@ -1,26 +1,24 @@
 package controller;
 
 import entity.Appointment;
-import entity.Availability;
 import entity.Doctor;
 import entity.Patient;
 import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
-import repository.AppointmentRepository;
-import repository.AvailabilityRepository;
 import repository.DoctorRepository;
 import repository.PatientRepository;
+import service.AppointmentService;
+import service.ServiceResult;
 /**
  * Controller class for managing appointments, including creation, cancellation, rescheduling, 
  * and listing of appointments.
+ * The appointment rules live in {@link AppointmentService}; this class handles console input and output.
  */
 public class AppointmentController {
-    private AppointmentRepository appointmentRepository = new AppointmentRepository();
-    private AvailabilityRepository availabilityRepository = new AvailabilityRepository();
+    private AppointmentService appointmentService = new AppointmentService();
     private PatientRepository patientrepository = new PatientRepository();
     private DoctorRepository doctorrepository = new DoctorRepository();
-    private AvailabilityController availabilitycontroller = new AvailabilityController();
 /**
      * Creates a new appointment for a given patient.
      *
@@ -45,33 +43,13 @@ public class AppointmentController {
                 continue;
             }
 
-            Availability availslot = availabilityRepository.getAvailabilityById(AvailID);
-            if (availslot == null) {
-                System.out.println("The Availability ID you entered cannot be found. Please try again.");
+            ServiceResult<Appointment> result = appointmentService.bookAppointment(PatientID, AvailID);
+            if (!result.isSuccess()) {
+                System.out.println(result.getMessage() + " Please try again.");
                 continue;
             }
 
-            String ApptId = generateNextApptId();
-
-            String patientId = PatientID;
-
-            String doctorId = availslot.getDoctorId();
-
-            String date = availslot.getDate();
-
-            String starttime = availslot.getStartTime();
-
-            String endtime = availslot.getEndTime();
-
-            String Status = "Pending";
-
-            Appointment newAppointment = new Appointment(ApptId, patientId, doctorId, date, starttime, endtime, Status);
-
-            appointmentRepository.createNewAppointment(newAppointment);
-
-            availabilityRepository.deleteAvailabilityById(AvailID);
-
-            System.out.println("Appointment Pending Approver.");
+            System.out.println(result.getMessage());
 
             break;
         }
@@ -84,13 +62,7 @@ public class AppointmentController {
      */
     // generate new appointmentid
     public String generateNextApptId() throws IOException {
-        String lastApptId = appointmentRepository.getLastApptId();
-        if (lastApptId == "AP000") {
-            return "AP000";
-        }
-        String numberPart = lastApptId.substring(2);
-        int nextNumber = Integer.parseInt(numberPart) + 1;
-        return "AP" + String.format("%03d", nextNumber);
+        return appointmentService.nextAppointmentId();
     }
     /**
      * Lists all pending appointments for a specific doctor.
@@ -100,7 +72,7 @@ public class AppointmentController {
      * @throws IOException if an I/O error occurs.
      */
     public boolean listPendingAppointments(String doctorId) throws IOException {
-        List<Appointment> pendingAppointments = appointmentRepository.getPendingAppointmentsByDoctorId(doctorId);
+        List<Appointment> pendingAppointments = appointmentService.getPendingForDoctor(doctorId);
     
         if (pendingAppointments.isEmpty()) {
             System.out.println("+---------------------------------------------------+");
@@ -150,9 +122,7 @@ public class AppointmentController {
      */
     // Method to update the status of an appointment
     public void updateAppointmentStatus(String Appt, String newstatus) throws IOException {
-        Appointment appointment = appointmentRepository.getAppointmentById(Appt);
-        appointment.setStatus(newstatus);
-        appointmentRepository.updateAppointment(appointment);
+        appointmentService.updateStatus(Appt, newstatus);
     }
 /**
      * Checks if an appointment ID is valid for a given doctor.
@@ -164,13 +134,7 @@ public class AppointmentController {
      */
     // check if the appointment is valid
     public boolean isValidAppointmentId(String appointmentId, String doctorId) throws IOException {
-        List<Appointment> pendingAppointments = appointmentRepository.getPendingAppointmentsByDoctorId(doctorId);
-        for (Appointment appointment : pendingAppointments) {
-            if (appointment.getAppointmentId().equals(appointmentId)) {
-                return true;
-            }
-        }
-        return false;
+        return appointmentService.isPendingForDoctor(appointmentId, doctorId);
     }
  /**
      * Checks if an appointment ID is valid for rescheduling by a patient.
@@ -182,14 +146,7 @@ public class AppointmentController {
      */
     // check if the appointment is valid
     public boolean isValidRescheduleAppointmentId(String appointmentId, String patientId) throws IOException {
-        List<Appointment> pendingAppointments = appointmentRepository
-                .getConfirmedOrPendingAppointmentsByDoctorId(patientId);
-        for (Appointment appointment : pendingAppointments) {
-            if (appointment.getAppointmentId().equals(appointmentId)) {
-                return true;
-            }
-        }
-        return false;
+        return appointmentService.isScheduledForPatient(appointmentId, patientId);
     }
 /**
      * Lists all confirmed appointments for a specific doctor.
@@ -199,7 +156,7 @@ public class AppointmentController {
      * @throws IOException if an I/O error occurs.
      */
     public boolean listConfirmedAppointments(String doctorId) throws IOException {
-        List<Appointment> confirmedAppointments = appointmentRepository.getConfirmedAppointmentsByDoctorId(doctorId);
+        List<Appointment> confirmedAppointments = appointmentService.getConfirmedForDoctor(doctorId);
     
         if (confirmedAppointments.isEmpty()) {
             System.out.println("+-----------------------------------------------------------------------------------------------------------+");
@@ -246,8 +203,7 @@ public class AppointmentController {
      * @throws IOException if an I/O error occurs.
      */
     public void listofScheduledAppointments(String patientId) throws IOException {
-        List<Appointment> scheduleAppointments = appointmentRepository
-                .getConfirmedOrPendingAppointmentsByDoctorId(patientId);
+        List<Appointment> scheduleAppointments = appointmentService.getScheduledForPatient(patientId);
 
         if (scheduleAppointments.isEmpty()) {
             System.out.println("No Schediuled Appointments");
@@ -282,11 +238,10 @@ public class AppointmentController {
      */
     // reshedule appointment
     public void ScheduleAppointment(String oldAppointmentID, String availID, String patientId) throws IOException {
-        Appointment oldappt = appointmentRepository.getAppointmentById(oldAppointmentID);
-        availabilitycontroller.createNewRescheduleAvailability(oldappt);
-        appointmentRepository.removeAppointmentById(oldappt.getAppointmentId());
-        createRescheduleAppointment(patientId, availID);
-
+        ServiceResult<Appointment> result = appointmentService.rescheduleAppointment(patientId, oldAppointmentID, availID);
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
+        }
     }
   /**
      * Cancels an appointment and makes the slot available for rescheduling.
@@ -296,10 +251,12 @@ public class AppointmentController {
      */
     // cancel appointment
     public void CancelAppointment(String oldAppointmentID) throws IOException {
-        Appointment oldappt = appointmentRepository.getAppointmentById(oldAppointmentID);
-        availabilitycontroller.createNewRescheduleAvailability(oldappt);
-        appointmentRepository.removeAppointmentById(oldappt.getAppointmentId());
-
+        Appointment oldappt = appointmentService.getAppointment(oldAppointmentID);
+        if (oldappt == null) {
+            System.out.println("Invalid Appointment ID");
+            return;
+        }
+        appointmentService.cancelAppointment(oldappt.getPatientId(), oldAppointmentID);
     }
 /**
      * Creates a new rescheduled appointment for a patient.
@@ -310,30 +267,8 @@ public class AppointmentController {
      */
     // create new appointment base on user new choice
     public void createRescheduleAppointment(String PatientID, String AvailID) throws IOException {
-
-        Availability availslot = availabilityRepository.getAvailabilityById(AvailID);
-
-        String ApptId = generateNextApptId();
-
-        String patientId = PatientID;
-
-        String doctorId = availslot.getDoctorId();
-
-        String date = availslot.getDate();
-
-        String starttime = availslot.getStartTime();
-
-        String endtime = availslot.getEndTime();
-
-        String Status = "Pending";
-
-        Appointment newAppointment = new Appointment(ApptId, patientId, doctorId, date, starttime, endtime, Status);
-
-        appointmentRepository.createNewAppointment(newAppointment);
-
-        availabilityRepository.deleteAvailabilityById(AvailID);
-
-        System.out.println("Appointment Pending Approval.");
+        ServiceResult<Appointment> result = appointmentService.bookAppointment(PatientID, AvailID);
+        System.out.println(result.getMessage());
     }
  /**
      * Checks if an appointment ID is valid and confirmed.
@@ -343,16 +278,7 @@ public class AppointmentController {
      * @throws IOException if an I/O error occurs.
      */
     public boolean isAppointmentIdValidAndConfirmed(String appointmentId) throws IOException {
-        List<Appointment> allAppointments = appointmentRepository.loadAllAppointments();
-
-        for (Appointment appointment : allAppointments) {
-            if (appointment.getAppointmentId().equals(appointmentId) && appointment.getStatus().equals("Confirmed")) {
-                return true;
-            }
-        }
-
-        // Return false if no matching appointment is found or status is not confirmed
-        return false;
+        return appointmentService.isConfirmed(appointmentId);
     }
 /**
      * Retrieves all appointments from the repository.
@@ -362,7 +288,6 @@ public class AppointmentController {
      */
     public List<Appointment> viewAppointments() throws IOException
     {
-        List<Appointment> allAppointments = appointmentRepository.loadAllAppointments();
-        return allAppointments;
+        return appointmentService.getAllAppointments();
     }
 }
@@ -1,11 +1,8 @@
 package controller;
 
-import entity.Appointment;
 import entity.AppointmentOutcome;
-import entity.MedicationInventory;
-import repository.AppointmentOutcomeRepository;
-import repository.AppointmentRepository;
-import repository.MedicationInventoryRepository;
+import service.OutcomeService;
+import service.ServiceResult;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -14,28 +11,23 @@ import java.util.Scanner;
 /**
  * Controller class for managing appointment outcomes.
  * Provides functionality for creating, viewing, and updating appointment outcomes, including medication prescriptions.
+ * The outcome rules live in {@link OutcomeService}; this class handles console input and output.
  */
 public class AppointmentOutcomeController implements AppointmentOutcomeService {
-    private AppointmentOutcomeRepository outcomeRepository = new AppointmentOutcomeRepository();
-    private AppointmentRepository appointmentRepository = new AppointmentRepository();
-    private MedicationInventoryRepository medicationInventoryRepository = new MedicationInventoryRepository();
+    private OutcomeService outcomeService = new OutcomeService();
     Scanner scanner = new Scanner(System.in);
   /**
-     * Creates a new appointment outcome for a specific appointment.
+     * Creates a new appointment outcome for a specific appointment, marks the appointment as
+     * completed and bills the patient for it.
      *
      * @param ApptID the ID of the appointment for which the outcome is being created.
      * @throws IOException if an I/O error occurs.
      */
     public void createAppointmentOutcome(String ApptID) throws IOException {
-        Appointment appt = appointmentRepository.getAppointmentById(ApptID);
-
-        String outcomeID = generateNextAppointmentOutcomeId();
-        String date = appt.getAppointmentDate();
-
         System.out.print("Please enter Service type: ");
         String servicetype = scanner.nextLine();
 
-        StringBuilder medicationNamesBuilder = new StringBuilder();
+        List<String> medications = new ArrayList<>();
         String medicationName;
         String exactMedicationName;
 
@@ -46,8 +38,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
             medicationName = scanner.nextLine();
 
             if ("nil".equalsIgnoreCase(medicationName)) {
-                medicationNamesBuilder.setLength(0); // Clear any entered medications
-                medicationNamesBuilder.append("nil");
+                medications.clear(); // Clear any entered medications
                 break;
             } else if ("done".equalsIgnoreCase(medicationName)) {
                 break;
@@ -57,25 +48,16 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
             if (exactMedicationName == null) {
                 System.out.println("Invalid medication name. Please enter again.");
             } else {
-                if (medicationNamesBuilder.length() > 0) {
-                    medicationNamesBuilder.append(", ");
-                }
-                medicationNamesBuilder.append(exactMedicationName);
+                medications.add(exactMedicationName);
             }
         }
 
-        String medicationNames = "\"" + medicationNamesBuilder.toString() + "\"";
-        String medicationStatus = "nil".equalsIgnoreCase(medicationNames) ? "nil" : "Pending";
-
         System.out.print("Please enter Consultation Notes: ");
         String consultationNotes = scanner.nextLine();
 
-        AppointmentOutcome newOutcome = new AppointmentOutcome(outcomeID, ApptID, date, servicetype, medicationNames,
-                medicationStatus, consultationNotes);
-
-        outcomeRepository.createNewAppointmentOutcome(newOutcome);
-
-        System.out.println("Appointment Outcome has been created.");
+        ServiceResult<AppointmentOutcome> result = outcomeService.recordOutcome(ApptID, servicetype, medications,
+                consultationNotes);
+        System.out.println(result.getMessage());
     }
 /**
      * Generates the next appointment outcome ID in sequence.
@@ -86,13 +68,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
     @Override
     // Generate next AppointmentOutcome ID
     public String generateNextAppointmentOutcomeId() throws IOException {
-        String lastOutcomeId = outcomeRepository.getLastAppointmentOutcomeId();
-        if (lastOutcomeId.equals("AO000")) {
-            return "AO000";
-        }
-        String numberPart = lastOutcomeId.substring(2);
-        int nextNumber = Integer.parseInt(numberPart) + 1;
-        return "AO" + String.format("%03d", nextNumber);
+        return outcomeService.nextOutcomeId();
     }
  /**
      * Retrieves and displays all appointment outcomes for a specific patient.
@@ -102,16 +78,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
      */
     @Override
     public void getAllAppointmentOutcomesForPatient(String patientId) throws IOException {
-        List<AppointmentOutcome> patientOutcomes = new ArrayList<>();
-        List<AppointmentOutcome> allAppointmentOutcomes = outcomeRepository.loadAllAppointmentOutcomes();
-
-        // Check if there are no appointment outcomes
-        if (allAppointmentOutcomes == null || allAppointmentOutcomes.isEmpty()) {
-            System.out.println("No appointment outcomes found.");
-            return;
-        }
-
-        boolean found = false;
+        List<AppointmentOutcome> patientOutcomes = outcomeService.getOutcomesForPatient(patientId);
 
         System.out.println("+------------------------------------------------------------------------------------------------------------------------------------+");
         System.out.println("|                                               Appointment Outcomes for Patient                                                     |");
@@ -121,20 +88,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
                 "Consultation Notes");
         System.out.println("+------------------------------------------------------------------------------------------------------------------------------------+");
 
-        // Loop through all appointment outcomes
-        for (AppointmentOutcome outcome : allAppointmentOutcomes) {
-            String appointmentId = outcome.getAppointmentId();
-
-            // Retrieve the appointment associated with this outcome
-            Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
-
-            // Check if appointment is valid and if patientId matches
-            if (appointment != null && appointment.getPatientId().equals(patientId)) {
-                // If the patientId matches, add this outcome to the patient's list
-                patientOutcomes.add(outcome);
-                found = true;
-
-                // Display the outcome details
+        for (AppointmentOutcome outcome : patientOutcomes) {
                 System.out.printf("| %-10s | %-15s | %-12s | %-15s | %-30s | %-10s | %-20s |\n",
                 outcome.getOutcomeId(),
                 outcome.getAppointmentId(),
@@ -144,11 +98,10 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
                 outcome.getMedicationStatus(),
                 outcome.getConsultationNotes());
             }
-        }
         System.out.println("+------------------------------------------------------------------------------------------------------------------------------------+");
 
         // If no outcomes are found for the patient, print a message
-        if (!found) {
+        if (patientOutcomes.isEmpty()) {
             System.out.println("No appointment outcomes found for patient ID: " + patientId);
         }
     }
@@ -160,7 +113,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
     @Override
     // get all appointmentoutcome
     public void viewAppointmentOutcomes() throws IOException {
-        List<AppointmentOutcome> allAppointmentOutcomes = outcomeRepository.loadAllAppointmentOutcomes();
+        List<AppointmentOutcome> allAppointmentOutcomes = outcomeService.getAllOutcomes();
 
         System.out.println("+------------------------------------------------+");
         System.out.println("|       Appointment Outcomes for Processing      |");
@@ -192,20 +145,13 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
     @Override
     // Method to display all Appointment Outcomes with a "Pending" medication status
     public void displayPendingAppointmentOutcomes() throws IOException {
-        List<AppointmentOutcome> allOutcomes = outcomeRepository.loadAllAppointmentOutcomes();
+        List<AppointmentOutcome> pendingOutcomes = outcomeService.getPendingOutcomes();
 
         System.out.println("+------------------------------------------------+");
         System.out.println("|       Pending Appointment Outcomes             |");
         System.out.println("+------------------------------------------------+");
 
-        // Check if there are any pending outcomes
-        boolean hasPendingOutcomes = false;
-
-        // Loop through all outcomes and check for "Pending" medication status
-        for (AppointmentOutcome outcome : allOutcomes) {
-            if ("Pending".equalsIgnoreCase(outcome.getMedicationStatus())) {
-                hasPendingOutcomes = true;
-                // Display outcome details
+        for (AppointmentOutcome outcome : pendingOutcomes) {
                 System.out.println("| Outcome ID:            " + outcome.getOutcomeId());
                 System.out.println("| Appointment ID:        " + outcome.getAppointmentId());
                 System.out.println("| Date:                  " + outcome.getDate());
@@ -215,9 +161,8 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
                 System.out.println("| Consultation Notes:    " + outcome.getConsultationNotes());
                 System.out.println("+------------------------------------------------+");
             }
-        }
 
-        if (!hasPendingOutcomes) {
+        if (pendingOutcomes.isEmpty()) {
             System.out.println("|       No pending appointment outcomes found.   |");
             System.out.println("+------------------------------------------------+");
         }
@@ -232,26 +177,7 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
      */
     @Override
     public void changePrescriptionStatusToDispensed(String outcomeId) throws IOException {
-        List<AppointmentOutcome> allOutcomes = outcomeRepository.loadAllAppointmentOutcomes();
-
-        // Validate and update the outcome status
-        AppointmentOutcome selectedOutcome = null;
-        for (AppointmentOutcome outcome : allOutcomes) {
-            if (outcome.getOutcomeId().equalsIgnoreCase(outcomeId)) {
-                selectedOutcome = outcome;
-                break;
-            }
-        }
-
-        // If the Outcome ID is valid, update its status to "Dispensed"
-        if (selectedOutcome != null && "Pending".equalsIgnoreCase(selectedOutcome.getMedicationStatus())) {
-            selectedOutcome.setMedicationStatus("Dispensed");
-            outcomeRepository.updateAppointmentOutcome(selectedOutcome);
-            System.out.println(
-                    "Prescription status updated to 'Dispensed' for Outcome ID: " + selectedOutcome.getOutcomeId());
-        } else {
-            System.out.println("Invalid Outcome ID or the prescription is already dispensed.");
-        }
+        System.out.println(outcomeService.dispenseMedication(outcomeId).getMessage());
     }
  /**
      * Validates a medication name against the medication inventory.
@@ -261,14 +187,6 @@ public class AppointmentOutcomeController implements AppointmentOutcomeService {
      * @throws IOException if an I/O error occurs.
      */
     public String isValidMedication(String medicationName) throws IOException {
-        List<MedicationInventory> allMedications = medicationInventoryRepository.loadAllMedications();
-
-        for (MedicationInventory medication : allMedications) {
-            if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
-                // Return the exact name from the inventory
-                return medication.getMedicationName();
-            }
-        }
-        return null;
+        return outcomeService.resolveMedication(medicationName);
     }
 }
@@ -10,7 +10,8 @@ import java.io.IOException;
  */
 public interface AppointmentOutcomeService {
 /**
-     * Creates a new appointment outcome for a specific appointment.
+     * Creates a new appointment outcome for a specific appointment, marks the appointment as
+     * completed and bills the patient for it.
      *
      * @param appointmentId the ID of the appointment for which the outcome is being created.
      * @throws IOException if an I/O error occurs during the operation.
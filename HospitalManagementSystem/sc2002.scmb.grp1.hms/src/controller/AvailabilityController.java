@@ -3,20 +3,20 @@ package controller;
 import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
-import util.DateTimeUtil;
 import entity.Appointment;
 import entity.Availability;
 import entity.Doctor;
-import repository.AvailabilityRepository;
 import repository.DoctorRepository;
+import service.AvailabilityService;
+import service.ServiceResult;
 /**
  * Controller class for managing doctor availability.
  * Handles tasks such as creating new availability slots, viewing available slots, and generating IDs.
+ * The availability rules live in {@link AvailabilityService}; this class handles console input and output.
  */
 public class AvailabilityController {
-	private final static AvailabilityRepository availabilityRepository =  new AvailabilityRepository();
+	private final static AvailabilityService availabilityService =  new AvailabilityService();
 	private final static DoctorRepository doctorRepository =  new DoctorRepository();
-	DateTimeUtil datetimeutil =  new DateTimeUtil();
 	/**
      * Loads and displays availability slots for a specific doctor.
      *
@@ -24,7 +24,7 @@ public class AvailabilityController {
      * @throws IOException if an I/O error occurs during the operation.
      */
 	public void loadAvailabilityByDoctor(String doctorId) throws IOException {
-	    List<Availability> availabilityList = availabilityRepository.getAvailabilityByDoctorId(doctorId);
+		List<Availability> availabilityList = availabilityService.getSlotsForDoctor(doctorId);
 
 	    if (availabilityList.isEmpty()) {
 	        System.out.println();
@@ -54,10 +54,7 @@ public class AvailabilityController {
      */
 	//generate new availabilityid
 	public String generateNextAvailId() throws IOException {
-	    String lastRecordId = availabilityRepository.getLastAvailId();
-	    String numberPart = lastRecordId.substring(2);
-	    int nextNumber = Integer.parseInt(numberPart) + 1;
-	    return "AV" + String.format("%03d", nextNumber);
+		return availabilityService.nextAvailabilityId();
 	}
 	
 	
@@ -72,10 +69,6 @@ public class AvailabilityController {
         @SuppressWarnings("resource")
         Scanner scanner = new Scanner(System.in);
 
-        // Gather necessary details from user
-        String doctorId = DoctorId;
-        String availabilityId = generateNextAvailId();
-
         System.out.print("Enter Date (DD-MM-YYYY): ");
         String date = scanner.nextLine();
 
@@ -85,29 +78,9 @@ public class AvailabilityController {
         System.out.print("Enter End Time (HH:MM): ");
         String endTime = scanner.nextLine();
 
-        // Validate the inputs (e.g., valid date and time format)
-        if (!DateTimeUtil.isValidDate(date)) {
-            System.out.println("Invalid date format. Please use DD-MM-YYYY.");
-            return;
-        }
-        
-        if (!DateTimeUtil.isValidTime(startTime)) {
-            System.out.println("Invalid start time format. Please use HH:MM.");
-            return;
-        }
-        
-        if (!DateTimeUtil.isValidTime(endTime)) {
-            System.out.println("Invalid end time format. Please use HH:MM.");
-            return;
-        }
-
-        // Create a new Availability object
-        Availability newAvailability = new Availability(availabilityId, doctorId, date, startTime, endTime);
-
-        // Save the availability to the CSV file
-        availabilityRepository.createNewAvailability(newAvailability);
-
-        System.out.println("New availability added successfully.");
+        // The service validates the date and time formats before saving the slot
+        ServiceResult<Availability> result = availabilityService.addSlot(DoctorId, date, startTime, endTime);
+        System.out.println(result.getMessage());
     }
     /**
      * Creates a new availability slot based on a rescheduled appointment.
@@ -117,22 +90,7 @@ public class AvailabilityController {
      */
     // create new availability from reschedule appointment
     public void createNewRescheduleAvailability(Appointment appointment) throws IOException {
-
-        // Gather necessary details from user
-        String doctorId = appointment.getDoctorId();
-        String availabilityId = generateNextAvailId();
-
-        String date = appointment.getAppointmentDate();
-
-        String startTime = appointment.getStartTime();
-
-        String endTime = appointment.getEndTime();
-
-        // Create a new Availability object
-        Availability newAvailability = new Availability(availabilityId, doctorId, date, startTime, endTime);
-
-        // Save the availability to the CSV file
-        availabilityRepository.createNewAvailability(newAvailability);
+        availabilityService.releaseSlot(appointment);
     }
     
     
@@ -142,7 +100,7 @@ public class AvailabilityController {
      * @throws IOException if an I/O error occurs during the operation.
      */
     public void viewAvailableAppointmentSlotsForPatient() throws IOException {
-        List<Availability> availabilityList = availabilityRepository.loadAllAvailabilities();
+        List<Availability> availabilityList = availabilityService.getAllSlots();
 
         if (availabilityList.isEmpty()) {
             System.out.println("No available appointment slots");
@@ -176,13 +134,7 @@ public class AvailabilityController {
      * @throws IOException if an I/O error occurs during the operation.
      */
     public boolean isAvailabilityIdExist(String availabilityId) throws IOException {
-        List<Availability> allAvailabilities = availabilityRepository.loadAllAvailabilities();  // You would load all availability records here
-        for (Availability availability : allAvailabilities) {
-            if (availability.getAvailabilityId().equals(availabilityId)) {
-                return true; // Return true if the ID matches
-            }
-        }
-        return false; // Return false if no match is found
+        return availabilityService.getSlot(availabilityId) != null;
     }
 
 
@@ -3,10 +3,13 @@ package controller;
 import entity.User;
 import java.io.IOException;
 import java.util.Scanner;
+import service.AuthService;
+import service.ServiceResult;
 /**
  * Controller class for managing user login functionality.
  * Validates user credentials, handles password changes for new users, 
  * and directs authenticated users to their respective menus.
+ * The credential checks live in {@link AuthService}; this class handles console input and output.
  */
 public class LoginController {
  /**
@@ -21,33 +24,27 @@ public class LoginController {
      */
     public boolean login(String hospitalID, String password){
         String role = extractPrefix(hospitalID);
-        RepositoryController repositoryController = new RepositoryController();
-        ValidationInterface repository = (ValidationInterface) repositoryController.getRepository(role);
-        if(repository == null){
+        AuthService authService = new AuthService();
+        ServiceResult<User> result = authService.authenticate(hospitalID, password);
+        if(!result.isSuccess()){
             System.out.println("Invalid ID or password. Returning to main menu.");
             System.out.println();
             return false;
         }
-        User user = repository.validateCredentials(hospitalID, password);
-        if(user == null){
-            System.out.println("Invalid ID or password. Returning to main menu.");
-            System.out.println();
-            return false;
-        }
-        else if (user != null && password.equals("Password")){
+        User user = result.getValue();
+        if (AuthService.isDefaultPassword(password)){
             System.out.println("You are a new user with the default password, please change it");
-            PasswordController pc = new PasswordController();
             System.out.println("Please enter a new password");
             @SuppressWarnings("resource")
             Scanner scanner = new Scanner(System.in);
             String newPassword;
             do {
                 newPassword = scanner.nextLine();
-                if (newPassword.equals("Password")) {
+                if (AuthService.isDefaultPassword(newPassword)) {
                     System.out.println("The password cannot be the default 'Password'. Please enter a new password:");
                 }
-            } while (newPassword.equals("Password"));
-            if(!pc.changePassword(hospitalID, newPassword)){
+            } while (AuthService.isDefaultPassword(newPassword));
+            if(!authService.changePassword(hospitalID, newPassword).isSuccess()){
                 System.out.println("Something went wrong, please contact an administrator");
             }
             System.out.println("Your password has been successfully changed, proceeding to login...");
@@ -126,16 +123,7 @@ public class LoginController {
      * @return the extracted prefix or {@code "NULL"} if no valid prefix is found.
      */
     private static String extractPrefix(String hospitalId) {
-        if (hospitalId.startsWith("PH")) {
-            return "PH"; // Return "Ph" if the ID starts with "Ph"
-        } else if (hospitalId.startsWith("P")) {
-            return "P"; // Return "P" if the ID starts with "P"
-        } else if (hospitalId.startsWith("A")) {
-            return "A";
-        } else if (hospitalId.startsWith("D")) {
-            return "D";
-        }
-        return "NULL"; // Return an empty string if there's no matching prefix
+        return AuthService.roleOf(hospitalId);
     }
 //
 //    private boolean signInDoctor() {
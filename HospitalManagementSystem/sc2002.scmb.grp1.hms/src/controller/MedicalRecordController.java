@@ -1,21 +1,24 @@
 package controller;
 
 import entity.MedicalRecord;
+import entity.MedicalRecordVersion;
 import entity.Patient;
 import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 import repository.DoctorRepository;
-import repository.MedicalRecordRepository;
 import repository.PatientRepository;
+import service.MedicalRecordService;
+import service.ServiceResult;
 
 /**
  * The {@code MedicalRecordController} class provides methods for managing medical records.
  * It allows viewing, creating, and updating medical records, and checking the existence
  * of patients and records. It serves both patient and doctor views.
+ * The record rules live in {@link MedicalRecordService}; this class handles console input and output.
  */
 public class MedicalRecordController {
-    private final MedicalRecordRepository medicalrecordrepository = new MedicalRecordRepository();
+    private final MedicalRecordService medicalRecordService = new MedicalRecordService();
     private final DoctorRepository doctorrepository = new DoctorRepository();
     private final PatientRepository patientrepository = new PatientRepository();
 
@@ -26,7 +29,7 @@ public class MedicalRecordController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public void loadMedicalRecordsForPatient(String patientID) throws IOException {
-        List<MedicalRecord> records = medicalrecordrepository.findRecordsByPatientId(patientID);
+        List<MedicalRecord> records = medicalRecordService.getRecordsForPatient(patientID);
         Patient temp = patientrepository.findPatientById(patientID);
         
         if (records.isEmpty()) {
@@ -75,7 +78,7 @@ public class MedicalRecordController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public void loadMedicalRecordsForDoctor(String doctorID) throws IOException {
-        List<MedicalRecord> records = medicalrecordrepository.findRecordsByDoctorId(doctorID);
+        List<MedicalRecord> records = medicalRecordService.getRecordsForDoctor(doctorID);
 
         if (records.isEmpty()) {
             System.out.println("| No medical records found for Doctor ID: " + doctorID + " |");
@@ -99,6 +102,81 @@ public class MedicalRecordController {
         }
     }
 
+    /**
+     * Prompts for a search query and displays the medical records whose diagnosis, treatment
+     * or prescription match it.
+     *
+     * @throws IOException if an error occurs while accessing the repository
+     */
+    public void searchMedicalRecords() throws IOException {
+        @SuppressWarnings("resource")
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Enter search terms (e.g. asthma AND inhaler): ");
+        String query = scanner.nextLine();
+
+        ServiceResult<List<MedicalRecord>> result = medicalRecordService.searchRecords(query);
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
+            return;
+        }
+        List<MedicalRecord> records = result.getValue();
+
+        if (records.isEmpty()) {
+            System.out.println("No medical records match \"" + query + "\".");
+        } else {
+            System.out.println("+-----------+------------+----------------+------------------+----------------+-----------------+");
+            System.out.println("| Record ID | Patient ID | Patient Name   | Diagnosis        | Treatment      | Prescription    |");
+            System.out.println("+-----------+------------+----------------+------------------+----------------+-----------------+");
+
+            for (MedicalRecord record : records) {
+                Patient temp = patientrepository.findPatientById(record.getPatientId());
+                System.out.printf("| %-9s | %-10s | %-14s | %-16s | %-14s | %-15s |\n",
+                        record.getRecordId(),
+                        record.getPatientId(),
+                        temp == null ? "" : temp.getName(),
+                        record.getDiagnosis(),
+                        record.getTreatment(),
+                        record.getPrescription());
+            }
+
+            System.out.println("+-----------+------------+----------------+------------------+----------------+-----------------+");
+            System.out.println(records.size() + " record(s) found.");
+        }
+    }
+
+    /**
+     * Prompts for a record ID and displays every version of that medical record.
+     *
+     * @throws IOException if an error occurs while accessing the repository
+     */
+    public void viewMedicalRecordHistory() throws IOException {
+        @SuppressWarnings("resource")
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Enter Record ID: ");
+        String recordId = scanner.nextLine();
+
+        ServiceResult<List<MedicalRecordVersion>> result = medicalRecordService.getRecordHistory(recordId);
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
+            return;
+        }
+
+        System.out.println("+---------+----------------------+------------------+----------------+-----------------+");
+        System.out.println("| Version | Changed At           | Diagnosis        | Treatment      | Prescription    |");
+        System.out.println("+---------+----------------------+------------------+----------------+-----------------+");
+        for (MedicalRecordVersion version : result.getValue()) {
+            System.out.printf("| %-7d | %-20s | %-16s | %-14s | %-15s |\n",
+                    version.getVersion(),
+                    version.getChangedAt() == null ? "Created" : version.getChangedAt(),
+                    version.getDiagnosis(),
+                    version.getTreatment(),
+                    version.getPrescription());
+        }
+        System.out.println("+---------+----------------------+------------------+----------------+-----------------+");
+    }
+
     /**
      * Generates a new unique record ID for a medical record.
      *
@@ -106,10 +184,7 @@ public class MedicalRecordController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public String generateNextRecordId() throws IOException {
-        String lastRecordId = medicalrecordrepository.getLastRecordId();
-        String numberPart = lastRecordId.substring(1); // Remove the 'R' prefix
-        int nextNumber = Integer.parseInt(numberPart) + 1; // Increment the number
-        return "R" + String.format("%03d", nextNumber);
+        return medicalRecordService.nextRecordId();
     }
 
     /**
@@ -121,7 +196,6 @@ public class MedicalRecordController {
     public void createMedicalRecord(String doctorID) throws IOException {
         @SuppressWarnings("resource")
         Scanner scanner = new Scanner(System.in);
-        String recordId = generateNextRecordId();
 
         System.out.print("Enter Patient ID: ");
         String patientId = scanner.nextLine();
@@ -140,9 +214,9 @@ public class MedicalRecordController {
         System.out.print("Enter Prescription: ");
         String prescription = scanner.nextLine();
 
-        MedicalRecord newRecord = new MedicalRecord(recordId, patientId, doctorID, diagnosis, treatment, prescription);
-        medicalrecordrepository.addMedicalRecord(newRecord);
-        System.out.println("Medical record added successfully.");
+        ServiceResult<MedicalRecord> result = medicalRecordService.createRecord(doctorID, patientId, diagnosis,
+                treatment, prescription);
+        System.out.println(result.getMessage());
     }
 
     /**
@@ -173,13 +247,9 @@ public class MedicalRecordController {
         System.out.print("Enter new Prescription: ");
         String newPrescription = scanner.nextLine();
 
-        boolean success = medicalrecordrepository.updateMedicalRecord(recordId, newDiagnosis, newTreatment, newPrescription);
-
-        if (success) {
-            System.out.println("Medical record updated successfully.");
-        } else {
-            System.out.println("An error occurred. Update failed.");
-        }
+        ServiceResult<Void> result = medicalRecordService.updateRecord(recordId, newDiagnosis, newTreatment,
+                newPrescription);
+        System.out.println(result.getMessage());
     }
 
     /**
@@ -190,9 +260,7 @@ public class MedicalRecordController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public boolean doesPatientExist(String patientId) throws IOException {
-        List<Patient> patients = patientrepository.loadPatients();
-        return patients.stream()
-                .anyMatch(patient -> patient.getUserId().equalsIgnoreCase(patientId));
+        return medicalRecordService.patientExists(patientId);
     }
 
     /**
@@ -203,8 +271,6 @@ public class MedicalRecordController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public boolean doesRecordExist(String recordId) throws IOException {
-        List<MedicalRecord> medicalrecords = medicalrecordrepository.loadMedicalRecords();
-        return medicalrecords.stream()
-                .anyMatch(record -> record.getRecordId().equalsIgnoreCase(recordId));
+        return medicalRecordService.recordExists(recordId);
     }
 }
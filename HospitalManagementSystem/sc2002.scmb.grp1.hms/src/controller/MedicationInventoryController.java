@@ -1,7 +1,8 @@
 package controller;
 
 import entity.MedicationInventory;
-import repository.MedicationInventoryRepository;
+import service.InventoryService;
+import service.ServiceResult;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,9 +11,10 @@ import java.util.List;
  * The {@code MedicationInventoryController} class manages medication inventory operations.
  * It allows for adding, removing, updating, and retrieving medication information 
  * from the inventory, as well as setting alerts for low stock levels.
+ * The inventory rules live in {@link InventoryService}; this class reports failures to the console.
  */
 public class MedicationInventoryController {
-    private MedicationInventoryRepository medicationinventoryRepository = new MedicationInventoryRepository();
+    private final InventoryService inventoryService = new InventoryService();
 
     /**
      * Retrieves a list of all unique medication names from the inventory.
@@ -21,7 +23,7 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while loading the medication data
      */
     public List<String> getAllMedicationNames() throws IOException {
-        List<MedicationInventory> medications = medicationinventoryRepository.loadAllMedications();
+        List<MedicationInventory> medications = inventoryService.getInventory();
         List<String> medicationNames = new ArrayList<>();
 
         for (MedicationInventory medication : medications) {
@@ -40,7 +42,7 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while adding the medication to the inventory
      */
     public void addMedicine(String medicineName, int stockQuantity, int stockLevel) throws IOException {
-        medicationinventoryRepository.addMedication(medicineName, stockLevel, stockLevel);
+        printIfFailed(inventoryService.addMedication(medicineName, stockQuantity, stockLevel));
     }
 
     /**
@@ -50,7 +52,7 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while removing the medication from the inventory
      */
     public void removeMedicine(String medicineName) throws IOException {
-        medicationinventoryRepository.removeMedication(medicineName);
+        printIfFailed(inventoryService.removeMedication(medicineName));
     }
 
     /**
@@ -61,7 +63,7 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while updating the stock level
      */
     public void replenishInventory(String medication, int quantity) throws IOException {
-        medicationinventoryRepository.updateStockLevel(medication, quantity);
+        printIfFailed(inventoryService.addStock(medication, quantity));
     }
 
     /**
@@ -72,7 +74,7 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while updating the alert level
      */
     public void updateAlert(String medication, int level) throws IOException {
-        medicationinventoryRepository.updateStockAlert(medication, level);
+        System.out.println(inventoryService.updateAlertLevel(medication, level).getMessage());
     }
 
     /**
@@ -82,6 +84,12 @@ public class MedicationInventoryController {
      * @throws IOException if an error occurs while loading the medication data
      */
     public List<MedicationInventory> inventory() throws IOException {
-        return medicationinventoryRepository.loadAllMedications();
+        return inventoryService.getInventory();
+    }
+
+    private static void printIfFailed(ServiceResult<?> result) {
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
+        }
     }
 }
@@ -2,6 +2,7 @@ package controller;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import service.AuthService;
 
 /**
  * The {@code PasswordController} class provides methods for hashing passwords and 
@@ -52,45 +53,12 @@ public class PasswordController {
      *         the user ID is invalid or an error occurs
      */
     public boolean changePassword(String hospitalID, String newPassword) {
-        String hashedPassword = hashPassword(newPassword);
-        String role = extractPrefix(hospitalID);
-        RepositoryController repositoryController = new RepositoryController();
-        PasswordChangerInterface repository = (PasswordChangerInterface) repositoryController.getRepository(role);
-
-        if (repository == null) {
+        if (AuthService.roleOf(hospitalID).equals("NULL")) {
             System.out.println("Invalid ID or password. Returning to main menu.");
             System.out.println();
             return false;
         }
 
-        return repository.changePassword(hospitalID, hashedPassword);
-    }
-
-    /**
-     * Extracts the prefix from the hospital ID to determine the user role associated with it.
-     * <p>
-     * The role is determined based on the prefix of the ID:
-     * <ul>
-     *     <li>"PH" for Pharmacist</li>
-     *     <li>"P" for Patient</li>
-     *     <li>"A" for Administrator</li>
-     *     <li>"D" for Doctor</li>
-     * </ul>
-     * </p>
-     *
-     * @param hospitalId the hospital ID from which to extract the prefix
-     * @return a string representing the role prefix or "NULL" if the prefix does not match a known role
-     */
-    private static String extractPrefix(String hospitalId) {
-        if (hospitalId.startsWith("PH")) {
-            return "PH";
-        } else if (hospitalId.startsWith("P")) {
-            return "P";
-        } else if (hospitalId.startsWith("A")) {
-            return "A";
-        } else if (hospitalId.startsWith("D")) {
-            return "D";
-        }
-        return "NULL"; // Return "NULL" if there's no matching prefix
+        return new AuthService().changePassword(hospitalID, newPassword).isSuccess();
     }
 }
@@ -1,16 +1,20 @@
 package controller;
 
 import entity.Patient;
-import repository.PatientRepository;
+import entity.TimelineEntry;
+import service.PatientService;
+import service.ServiceResult;
+import java.util.List;
 import java.util.Scanner;
 import java.io.IOException;
 
 /**
  * The {@code PatientController} class provides methods to manage and update patient information.
  * It allows retrieving patient details by ID and updating a patient's contact information.
+ * The update rules live in {@link PatientService}; this class handles console input and output.
  */
 public class PatientController {
-    private final PatientRepository patientRepository = new PatientRepository();
+    private final PatientService patientService = new PatientService();
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -21,7 +25,7 @@ public class PatientController {
      * @throws IOException if an error occurs while accessing the repository
      */
     public Patient getPatientById(String patientId) throws IOException {
-        return patientRepository.findPatientById(patientId);
+        return patientService.getPatient(patientId);
     }
 
     /**
@@ -48,24 +52,42 @@ public class PatientController {
 
             System.out.println("Enter new email (leave blank to keep current email): ");
             String newEmail = scanner.nextLine();
-            if (!newEmail.isEmpty()) {
-                patient.setEmail(newEmail);
-            }
 
             System.out.println("Enter new phone number (leave blank to keep current number): ");
             String newPhoneNumber = scanner.nextLine();
-            if (!newPhoneNumber.isEmpty()) {
-                patient.setPhoneNumber(newPhoneNumber);
-            }
 
-            boolean success = patientRepository.updatePatient(patient);
-            if (success) {
-                System.out.println("Contact information updated successfully.");
-            } else {
-                System.out.println("Failed to update contact information.");
-            }
+            ServiceResult<Patient> result = patientService.updateContact(patientId, newEmail, newPhoneNumber);
+            System.out.println(result.getMessage());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Displays a patient's timeline: their appointments, appointment outcomes, charges, medical
+     * records and outstanding balance, in time order.
+     *
+     * @param patientId the ID of the patient whose timeline will be displayed
+     * @throws IOException if an error occurs while accessing the repository
+     */
+    public void viewTimeline(String patientId) throws IOException {
+        List<TimelineEntry> entries = patientService.getTimeline(patientId);
+        if (entries.isEmpty()) {
+            System.out.println("No appointments, records or charges yet.");
+            return;
+        }
+
+        System.out.println("+------------+-------------+----------------+---------+");
+        System.out.println("| Date       | Time        | Type           | ID      |");
+        System.out.println("+------------+-------------+----------------+---------+");
+        for (TimelineEntry entry : entries) {
+            System.out.printf("| %-10s | %-11s | %-14s | %-7s |\n",
+                    entry.getDate() == null ? "" : entry.getDate(),
+                    entry.getTime() == null ? "" : entry.getTime(),
+                    entry.getType(),
+                    entry.getId());
+            System.out.println("|   " + entry.getDetails());
+        }
+        System.out.println("+------------+-------------+----------------+---------+");
+    }
 }
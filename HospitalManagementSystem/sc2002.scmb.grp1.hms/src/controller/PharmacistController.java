@@ -4,19 +4,22 @@ import java.io.IOException;
 import entity.MedicationInventory;
 import repository.MedicationInventoryRepository;
 import repository.ReplenishmentRequestRepository;
+import service.InventoryService;
+import service.ServiceResult;
 import java.util.List;
 import java.util.Scanner;
-import java.util.ArrayList;
 
 /**
  * The {@code PharmacistController} class manages inventory and replenishment requests
  * for medications. It implements both the {@link InventoryManagement} and
  * {@link ReplenishmentRequestService} interfaces, allowing a pharmacist to 
  * check inventory, view low-stock alerts, and submit replenishment requests.
+ * The inventory rules live in {@link InventoryService}; this class handles console input and output.
  */
 public class PharmacistController implements InventoryManagement, ReplenishmentRequestService {
     private final MedicationInventoryRepository inventoryRepository;
     private final ReplenishmentRequestRepository replenishmentRequestRepository;
+    private final InventoryService inventoryService = new InventoryService();
     private final Scanner scanner = new Scanner(System.in);
 
     /**
@@ -55,7 +58,7 @@ public class PharmacistController implements InventoryManagement, ReplenishmentR
      */
     @Override
     public List<MedicationInventory> getAllInventory() throws IOException {
-        return inventoryRepository.loadAllMedications();
+        return inventoryService.getInventory();
     }
 
     /**
@@ -67,14 +70,7 @@ public class PharmacistController implements InventoryManagement, ReplenishmentR
      */
     @Override
     public List<MedicationInventory> lowStockAlert() throws IOException {
-        List<MedicationInventory> lowStockMedications = new ArrayList<>();
-        List<MedicationInventory> allMedications = inventoryRepository.loadAllMedications();
-
-        for (MedicationInventory medication : allMedications) {
-            if (medication.getStockLevel() < 60) {
-                lowStockMedications.add(medication);
-            }
-        }
+        List<MedicationInventory> lowStockMedications = inventoryService.getLowStock();
 
         if (!lowStockMedications.isEmpty()) {
             System.out.println("+------------------------------------------------+");
@@ -107,15 +103,14 @@ public class PharmacistController implements InventoryManagement, ReplenishmentR
         System.out.println("|           Submit Replenishment Request         |");
         System.out.println("+------------------------------------------------+");
 
-        List<MedicationInventory> inventoryList = checkInventory(medicationName);
+        MedicationInventory medication = inventoryService.getMedication(medicationName);
 
-        if (inventoryList == null || inventoryList.isEmpty()) {
+        if (medication == null) {
             System.out.println("| Error: The medication '" + medicationName + "' does not exist in the inventory. |");
             System.out.println("+------------------------------------------------+\n");
             return;
         }
 
-        MedicationInventory medication = inventoryList.get(0); // Assuming only one entry per medication
         System.out.println("| Medication found:                              |");
         System.out.printf("| Name: %-40s |\n", medicationName);
         System.out.printf("| Stock Level: %-33d |\n", medication.getStockLevel());
@@ -138,7 +133,12 @@ public class PharmacistController implements InventoryManagement, ReplenishmentR
             }
         }
 
-        replenishmentRequestRepository.saveReplenishmentRequest(medicationName, quantity);
+        ServiceResult<MedicationInventory> result = inventoryService.submitReplenishmentRequest(medicationName, quantity);
+        if (!result.isSuccess()) {
+            System.out.println("| Error: " + result.getMessage());
+            System.out.println("+------------------------------------------------+\n");
+            return;
+        }
         System.out.println("+------------------------------------------------+");
         System.out.printf("| Replenishment request submitted successfully!  |\n");
         System.out.printf("| Medication: %-35s |\n", medicationName);
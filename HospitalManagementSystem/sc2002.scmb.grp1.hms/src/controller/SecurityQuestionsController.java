@@ -1,6 +1,8 @@
 package controller;
 
 import boundary.PasswordForgetView;
+import service.AuthService;
+import service.ServiceResult;
 
 /**
  * The {@code SecurityQuestionsController} class provides methods for managing security questions 
@@ -16,15 +18,7 @@ public class SecurityQuestionsController {
      * @return {@code true} if security questions are enabled, {@code false} otherwise
      */
     public boolean checkHaveQuestions(String hospitalID) {
-        String role = extractPrefix(hospitalID);
-        RepositoryController repositoryController = new RepositoryController();
-        checkHaveQuestionsInterface repository = (checkHaveQuestionsInterface) repositoryController.getRepository(role);
-
-        if (repository == null) {
-            return false;
-        }
-
-        return repository.checkHaveQuestions(hospitalID);
+        return new AuthService().getSecurityQuestion(hospitalID).isSuccess();
     }
 
     /**
@@ -87,24 +81,9 @@ public class SecurityQuestionsController {
      * @return {@code true} if the security question was successfully changed, {@code false} otherwise
      */
     public boolean changeSecurityQuestionControl(String hospitalID, String question, String answer) {
-        String role = extractPrefix(hospitalID);
-        RepositoryController rc = new RepositoryController();
-        ChangeSecurityQuestionInterface repository = (ChangeSecurityQuestionInterface) rc.getRepository(role);
-
-        if (repository == null) {
-            System.out.println("| Invalid ID or role. Cannot change questions.   |");
-            System.out.println("+------------------------------------------------+\n");
-            return false;
-        }
-
-        boolean isChanged = repository.changeSecurityQuestion(hospitalID, question, answer);
-
-        if (isChanged) {
-            System.out.println("| Security question changed successfully.        |");
-        } else {
-            System.out.println("| Failed to change security question.            |");
-        }
+        ServiceResult<Void> result = new AuthService().setSecurityQuestion(hospitalID, question, answer);
+        System.out.printf("| %-46s |%n", result.getMessage());
         System.out.println("+------------------------------------------------+\n");
-        return isChanged;
+        return result.isSuccess();
     }
 }
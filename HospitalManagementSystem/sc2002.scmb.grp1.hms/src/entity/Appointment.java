@@ -1,5 +1,7 @@
 package entity;
 
+import util.DateTimeUtil;
+
 /**
  * Represents an appointment in the system.
  */
@@ -10,7 +12,12 @@ public class Appointment {
     private String appointmentDate;
     private String startTime;
     private String endTime;
-    private String status;
+    private AppointmentStatus status;
+    private String statusText; // Only kept when the stored text is not exactly a status label
+    private long version;
+    private int epochDay;
+    private int startMinute;
+    private int endMinute;
 
     /**
      * Constructs an Appointment object with the specified details.
@@ -31,7 +38,10 @@ public class Appointment {
         this.appointmentDate = appointmentDate;
         this.startTime = startTime;
         this.endTime = endTime;
-        this.status = status;
+        setStatus(status);
+        this.epochDay = DateTimeUtil.parseEpochDay(appointmentDate);
+        this.startMinute = DateTimeUtil.parseMinuteOfDay(startTime);
+        this.endMinute = DateTimeUtil.parseMinuteOfDay(endTime);
     }
 
     /**
@@ -104,6 +114,17 @@ public class Appointment {
      */
     public void setAppointmentDate(String appointmentDate) {
         this.appointmentDate = appointmentDate;
+        this.epochDay = DateTimeUtil.parseEpochDay(appointmentDate);
+    }
+
+    /**
+     * Retrieves the appointment date as a number of days since 1970-01-01, parsed once when the
+     * appointment date was set.
+     *
+     * @return The epoch day, or {@link DateTimeUtil#INVALID} if the date is malformed.
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
     /**
@@ -122,6 +143,16 @@ public class Appointment {
      */
     public void setStartTime(String startTime) {
         this.startTime = startTime;
+        this.startMinute = DateTimeUtil.parseMinuteOfDay(startTime);
+    }
+
+    /**
+     * Retrieves the start time of the appointment as a number of minutes since midnight.
+     *
+     * @return The minute of the day, or {@link DateTimeUtil#INVALID} if the time is malformed.
+     */
+    public int getStartMinute() {
+        return startMinute;
     }
 
     /**
@@ -140,15 +171,25 @@ public class Appointment {
      */
     public void setEndTime(String endTime) {
         this.endTime = endTime;
+        this.endMinute = DateTimeUtil.parseMinuteOfDay(endTime);
+    }
+
+    /**
+     * Retrieves the end time of the appointment as a number of minutes since midnight.
+     *
+     * @return The minute of the day, or {@link DateTimeUtil#INVALID} if the time is malformed.
+     */
+    public int getEndMinute() {
+        return endMinute;
     }
 
     /**
      * Retrieves the status of the appointment.
      *
-     * @return The status of the appointment.
+     * @return The status of the appointment, as stored.
      */
     public String getStatus() {
-        return status;
+        return status == null || statusText != null ? statusText : status.getLabel();
     }
 
     /**
@@ -157,6 +198,46 @@ public class Appointment {
      * @param status The new status of the appointment.
      */
     public void setStatus(String status) {
+        this.status = AppointmentStatus.fromLabel(status);
+        this.statusText = this.status != null && this.status.getLabel().equals(status) ? null : status;
+    }
+
+    /**
+     * Retrieves the status of the appointment as an {@link AppointmentStatus}. Stored text that
+     * differs from a label only in case still maps to that status.
+     *
+     * @return The status, or {@code null} if the stored text is not a known status.
+     */
+    public AppointmentStatus getAppointmentStatus() {
+        return status;
+    }
+
+    /**
+     * Updates the status of the appointment.
+     *
+     * @param status The new status of the appointment.
+     */
+    public void setAppointmentStatus(AppointmentStatus status) {
         this.status = status;
+        this.statusText = null;
+    }
+
+    /**
+     * Retrieves the version stamp of the appointment. It goes up by one each time the stored
+     * row is updated.
+     *
+     * @return The version of the appointment as last read or written.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Updates the version stamp of the appointment.
+     *
+     * @param version The new version.
+     */
+    public void setVersion(long version) {
+        this.version = version;
     }
-}
\ No newline at end of file
+}
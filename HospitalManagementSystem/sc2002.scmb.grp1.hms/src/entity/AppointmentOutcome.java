@@ -1,5 +1,7 @@
 package entity;
 
+import util.DateTimeUtil;
+
 /**
  * Represents the outcome of an appointment in the system.
  */
@@ -11,6 +13,8 @@ public class AppointmentOutcome {
     private String prescribedMedication;
     private String medicationStatus; // e.g., "Pending", "Dispensed"
     private String consultationNotes;
+    private long version;
+    private int epochDay;
 
     /**
      * Constructs an AppointmentOutcome object with the specified details.
@@ -31,6 +35,7 @@ public class AppointmentOutcome {
         this.prescribedMedication = prescribedMedication;
         this.medicationStatus = medicationStatus;
         this.consultationNotes = consultationNotes;
+        this.epochDay = DateTimeUtil.parseEpochDay(date);
     }
 
     /**
@@ -60,6 +65,16 @@ public class AppointmentOutcome {
         return date;
     }
 
+    /**
+     * Retrieves the outcome date as a number of days since 1970-01-01, parsed once when the
+     * outcome was created.
+     *
+     * @return The epoch day, or {@link DateTimeUtil#INVALID} if the date is malformed.
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
     /**
      * Retrieves the type of service provided during the appointment.
      *
@@ -113,4 +128,23 @@ public class AppointmentOutcome {
     public void setConsultationNotes(String consultationNotes) {
         this.consultationNotes = consultationNotes;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the version stamp of the appointment outcome. It goes up by one each time the stored
+     * row is updated.
+     *
+     * @return The version of the appointment outcome as last read or written.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Updates the version stamp of the appointment outcome.
+     *
+     * @param version The new version.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,59 @@
+package entity;
+
+/**
+ * The statuses an appointment moves through, with the text stored for each in the CSV file.
+ */
+public enum AppointmentStatus {
+    /**
+     * Requested by a patient and waiting for the doctor to answer.
+     */
+    PENDING("Pending"),
+
+    /**
+     * Accepted by the doctor.
+     */
+    CONFIRMED("Confirmed"),
+
+    /**
+     * Held, with its outcome recorded.
+     */
+    COMPLETED("Completed"),
+
+    /**
+     * Declined by the doctor or cancelled by the patient.
+     */
+    CANCELLED("Cancelled");
+
+    private final String label;
+
+    AppointmentStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Retrieves the text stored for this status.
+     *
+     * @return The status text, e.g. "Pending".
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the status written as the given text, ignoring case.
+     *
+     * @param text The status text.
+     * @return The status, or {@code null} if the text is not a known status.
+     */
+    public static AppointmentStatus fromLabel(String text) {
+        if (text == null) {
+            return null;
+        }
+        for (AppointmentStatus status : values()) {
+            if (status.label.equalsIgnoreCase(text)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,7 @@
 package entity;
 
+import util.DateTimeUtil;
+
 /**
  * Represents the availability of a doctor on a specific date and time.
  */
@@ -9,6 +11,9 @@ public class Availability {
     private String date;
     private String startTime;
     private String endTime;
+    private int epochDay;
+    private int startMinute;
+    private int endMinute;
 
     /**
      * Constructs an Availability object with the specified details.
@@ -25,6 +30,9 @@ public class Availability {
         this.date = date;
         this.startTime = startTime;
         this.endTime = endTime;
+        this.epochDay = DateTimeUtil.parseEpochDay(date);
+        this.startMinute = DateTimeUtil.parseMinuteOfDay(startTime);
+        this.endMinute = DateTimeUtil.parseMinuteOfDay(endTime);
     }
 
     /**
@@ -79,6 +87,17 @@ public class Availability {
      */
     public void setDate(String date) {
         this.date = date;
+        this.epochDay = DateTimeUtil.parseEpochDay(date);
+    }
+
+    /**
+     * Retrieves the availability date as a number of days since 1970-01-01, parsed once when the
+     * availability date was set.
+     *
+     * @return The epoch day, or {@link DateTimeUtil#INVALID} if the date is malformed.
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
     /**
@@ -97,6 +116,16 @@ public class Availability {
      */
     public void setStartTime(String startTime) {
         this.startTime = startTime;
+        this.startMinute = DateTimeUtil.parseMinuteOfDay(startTime);
+    }
+
+    /**
+     * Retrieves the start time of the availability as a number of minutes since midnight.
+     *
+     * @return The minute of the day, or {@link DateTimeUtil#INVALID} if the time is malformed.
+     */
+    public int getStartMinute() {
+        return startMinute;
     }
 
     /**
@@ -115,5 +144,15 @@ public class Availability {
      */
     public void setEndTime(String endTime) {
         this.endTime = endTime;
+        this.endMinute = DateTimeUtil.parseMinuteOfDay(endTime);
+    }
+
+    /**
+     * Retrieves the end time of the availability as a number of minutes since midnight.
+     *
+     * @return The minute of the day, or {@link DateTimeUtil#INVALID} if the time is malformed.
+     */
+    public int getEndMinute() {
+        return endMinute;
     }
 }
\ No newline at end of file
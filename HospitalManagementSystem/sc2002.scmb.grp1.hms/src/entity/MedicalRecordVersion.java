@@ -0,0 +1,48 @@
+package entity;
+
+/**
+ * A medical record as it stood at one version, for viewing the record's history.
+ */
+public class MedicalRecordVersion extends MedicalRecord {
+    private final int version;
+    private final String changedAt;
+
+    /**
+     * Constructs a MedicalRecordVersion object with the specified attributes.
+     *
+     * @param recordId     The unique identifier for the medical record.
+     * @param patientId    The unique identifier for the patient.
+     * @param doctorId     The unique identifier for the doctor.
+     * @param diagnosis    The diagnosis at this version.
+     * @param treatment    The treatment plan at this version.
+     * @param prescription The medication prescribed at this version.
+     * @param version      The version number; the record as first written is version 1.
+     * @param changedAt    When the version was saved, as an ISO-8601 instant, or {@code null}
+     *                     for version 1.
+     */
+    public MedicalRecordVersion(String recordId, String patientId, String doctorId, String diagnosis,
+            String treatment, String prescription, int version, String changedAt) {
+        super(recordId, patientId, doctorId, diagnosis, treatment, prescription);
+        this.version = version;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Retrieves the version number.
+     *
+     * @return The version number, starting from 1.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves when the version was saved.
+     *
+     * @return An ISO-8601 instant such as "2024-11-20T09:15:00Z", or {@code null} for the
+     *         record as first written.
+     */
+    public String getChangedAt() {
+        return changedAt;
+    }
+}
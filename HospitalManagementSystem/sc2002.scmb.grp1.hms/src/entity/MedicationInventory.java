@@ -7,6 +7,7 @@ public class MedicationInventory {
     private String medicationName;
     private int stockLevel;
     private int stockAlertLevel;
+    private long version;
 
     /**
      * Constructs a MedicationInventory object with the specified attributes.
@@ -65,4 +66,23 @@ public class MedicationInventory {
     public void setStockAlertLevel(int stockAlertLevel) {
         this.stockAlertLevel = stockAlertLevel;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the version stamp of the medication. It goes up by one each time the stored
+     * row is updated.
+     *
+     * @return The version of the medication as last read or written.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Updates the version stamp of the medication.
+     *
+     * @param version The new version.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
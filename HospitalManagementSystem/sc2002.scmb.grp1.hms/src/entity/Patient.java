@@ -8,6 +8,7 @@ public class Patient extends User {
     private String email;
     private String dob;
     private String bloodtype;
+    private long version;
 
     /**
      * Constructs a Patient object with the specified attributes.
@@ -102,4 +103,23 @@ public class Patient extends User {
     public void setBloodtype(String bloodtype) {
         this.bloodtype = bloodtype;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the version stamp of the patient. It goes up by one each time the stored
+     * row is updated.
+     *
+     * @return The version of the patient as last read or written.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Updates the version stamp of the patient.
+     *
+     * @param version The new version.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
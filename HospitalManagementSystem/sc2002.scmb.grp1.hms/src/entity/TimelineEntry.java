@@ -0,0 +1,76 @@
+package entity;
+
+/**
+ * One item on a patient's timeline: an appointment, an appointment outcome, the charge for it,
+ * a medical record or the patient's outstanding balance.
+ */
+public class TimelineEntry {
+    private final String type;
+    private final String id;
+    private final String date;
+    private final String time;
+    private final String details;
+
+    /**
+     * Constructs a TimelineEntry object with the specified attributes.
+     *
+     * @param type    What the entry is, e.g. "Appointment", "Outcome", "Charge",
+     *                "Medical Record" or "Balance".
+     * @param id      The ID of the appointment, outcome or record the entry describes.
+     * @param date    The date in DD-MM-YYYY format, or {@code null} if the entry is not dated.
+     * @param time    The time or time range, or {@code null} if the entry has no time.
+     * @param details A one-line description of the entry.
+     */
+    public TimelineEntry(String type, String id, String date, String time, String details) {
+        this.type = type;
+        this.id = id;
+        this.date = date;
+        this.time = time;
+        this.details = details;
+    }
+
+    /**
+     * Retrieves what the entry is.
+     *
+     * @return The entry type, e.g. "Appointment".
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the ID of the appointment, outcome or record the entry describes.
+     *
+     * @return The ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieves the date of the entry.
+     *
+     * @return The date in DD-MM-YYYY format, or {@code null} if the entry is not dated.
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Retrieves the time of the entry.
+     *
+     * @return The time or time range, e.g. "09:00-09:30", or {@code null}.
+     */
+    public String getTime() {
+        return time;
+    }
+
+    /**
+     * Retrieves the description of the entry.
+     *
+     * @return The details.
+     */
+    public String getDetails() {
+        return details;
+    }
+}
@@ -5,4 +5,6 @@
  * 
  */
 module sc2002.scmb.grp1.hms {
+    requires jdk.jfr;
+    requires jdk.httpserver;
 }
\ No newline at end of file
@@ -12,6 +12,12 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import storage.BloomFilter;
+import storage.CsvTable;
+import storage.EntityCache;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
 
 /**
  * The AdministratorRepository class provides methods to manage administrators
@@ -19,9 +25,13 @@ import java.util.List;
  * password management, and handling security questions.
  * It interacts with the "Administrator.csv" file for data persistence.
  */
+@SuppressWarnings("try")
 public class AdministratorRepository implements ValidationInterface, checkHaveQuestionsInterface,
         PasswordChangerInterface, ChangeSecurityQuestionInterface {
-    private static final String FILE_PATH_ADMINISTRATOR = "sc2002.scmb.grp1.hms//resource//Administrator.csv";
+    private static final String FILE_PATH_ADMINISTRATOR = DataDirectory.resolve("Administrator.csv");
+    private static final CsvTable ADMINISTRATOR_TABLE = CsvTable.forFile(FILE_PATH_ADMINISTRATOR);
+    private static final BloomFilter ADMINISTRATOR_KEYS = BloomFilter.forTable(ADMINISTRATOR_TABLE);
+    private static final EntityCache ADMINISTRATOR_CACHE = EntityCache.forTable(ADMINISTRATOR_TABLE);
 
     /**
      * Creates an Administrator object from a CSV line.
@@ -44,23 +54,28 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      */
     // Validate doctor credentials
     public User validateCredentials(String id, String password) {
-        PasswordController pc = new PasswordController();
-        String df = "Password";
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
-                    return createAdministratorFromCSV(parts);
-                } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
-                    return createAdministratorFromCSV(parts);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.validateCredentials");
+        try {
+            PasswordController pc = new PasswordController();
+            String df = "Password";
+            try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
+                        return createAdministratorFromCSV(parts);
+                    } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
+                        return createAdministratorFromCSV(parts);
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
         }
-        return null;
     }
 
     /**
@@ -70,19 +85,24 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @return true if a security question exists, false otherwise.
      */
     public boolean checkHaveQuestions(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 8 && parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.checkHaveQuestions");
+        try {
+            try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length > 8 && parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -92,19 +112,24 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @return The security question or "Error" if not found.
      */
     public String returnQuestion(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
-                    return parts[8];
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.returnQuestion");
+        try {
+            try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
+                        return parts[8];
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return "Error";
+        } finally {
+            timer.stop();
         }
-        return "Error";
     }
 
     /**
@@ -115,19 +140,24 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @return true if the answer is correct, false otherwise.
      */
     public boolean questionVerification(String hospitalID, String answer) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && parts[9].equals(answer.toLowerCase())) { // Match ID and Answer
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.questionVerification");
+        try {
+            try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && parts[9].equals(answer.toLowerCase())) { // Match ID and Answer
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -138,37 +168,49 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @return true if the password was updated successfully, false otherwise.
      */
     public boolean changePassword(String hospitalID, String newHashedPassword) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean passwordUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.changePassword");
+        try {
+            try (TableLock lock = ADMINISTRATOR_TABLE.lockExclusive()) {
+                long[] cached = ADMINISTRATOR_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean passwordUpdated = false;
 
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID)) {
-                    parts[3] = newHashedPassword; // Update password
-                    passwordUpdated = true;
+                // Load all records from the file
+                try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts[0].equals(hospitalID)) {
+                            parts[3] = newHashedPassword; // Update password
+                            passwordUpdated = true;
+                        }
+                        allRecords.add(parts);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_ADMINISTRATOR))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file
+                try (BufferedWriter writer = ADMINISTRATOR_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                ADMINISTRATOR_CACHE.invalidate(cached, hospitalID);
+
+                return passwordUpdated;
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return passwordUpdated;
     }
 
     /**
@@ -180,48 +222,60 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @return true if updated successfully, false otherwise.
      */
     public boolean changeSecurityQuestion(String hospitalID, String question, String answer) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean questionUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.changeSecurityQuestion");
+        try {
+            try (TableLock lock = ADMINISTRATOR_TABLE.lockExclusive()) {
+                long[] cached = ADMINISTRATOR_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean questionUpdated = false;
 
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
+                // Load all records from the file
+                try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
 
-                // Check if the record matches the hospitalID
-                if (parts[0].equals(hospitalID)) {
-                    // Ensure the CSV has enough columns for Question and Answer
-                    if (parts.length <= 8) {
-                        // Add blank placeholders if Question and Answer columns are missing
-                        parts = Arrays.copyOf(parts, 10);
-                        parts[8] = ""; // Question placeholder
-                        parts[9] = ""; // Answer placeholder
+                        // Check if the record matches the hospitalID
+                        if (parts[0].equals(hospitalID)) {
+                            // Ensure the CSV has enough columns for Question and Answer
+                            if (parts.length <= 8) {
+                                // Add blank placeholders if Question and Answer columns are missing
+                                parts = Arrays.copyOf(parts, 10);
+                                parts[8] = ""; // Question placeholder
+                                parts[9] = ""; // Answer placeholder
+                            }
+                            // Update Question and Answer
+                            parts[8] = question;
+                            parts[9] = answer;
+                            questionUpdated = true;
+                        }
+                        allRecords.add(parts); // Add the record to the list
                     }
-                    // Update Question and Answer
-                    parts[8] = question;
-                    parts[9] = answer;
-                    questionUpdated = true;
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts); // Add the record to the list
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file with updated records
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_ADMINISTRATOR))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file with updated records
+                try (BufferedWriter writer = ADMINISTRATOR_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                ADMINISTRATOR_CACHE.invalidate(cached, hospitalID);
+
+                return questionUpdated; // Return true if the question was updated
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return questionUpdated; // Return true if the question was updated
     }
 
     /**
@@ -231,20 +285,25 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @throws IOException if an error occurs during file reading.
      */
     public List<Administrator> loadAdministrators() throws IOException {
-        List<Administrator> administrators = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            br.readLine(); // Skip header row
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length >= 8) { // Ensure minimum required fields
-                    administrators.add(createAdministratorFromCSV(data));
-                } else {
-                    System.err.println("Skipped invalid line: " + line);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.loadAdministrators");
+        try {
+            List<Administrator> administrators = new ArrayList<>();
+            try (BufferedReader br = ADMINISTRATOR_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 8) { // Ensure minimum required fields
+                        administrators.add(createAdministratorFromCSV(data));
+                    } else {
+                        System.err.println("Skipped invalid line: " + line);
+                    }
                 }
             }
+            return administrators;
+        } finally {
+            timer.stop();
         }
-        return administrators;
     }
     
     /**
@@ -255,25 +314,34 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      */
     public void writeAdmin(Administrator newAdmin) throws IOException
     {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_ADMINISTRATOR, true))) {
-            // Convert the Administrator object to a CSV line
-            String csvLine = String.join(",",
-                    newAdmin.getUserId(), // Assuming getUserId() returns the administrator's user ID
-                    newAdmin.getName(), // Assuming getName() returns the administrator's name
-                    newAdmin.getRole(), // Assuming getRole() returns the administrator's role
-                    newAdmin.getPassword(), // Assuming getPassword() returns the administrator's password
-                    newAdmin.getGender(), // Assuming getGender() returns the administrator's gender
-                    newAdmin.getAge(), // Assuming getAge() returns the administrator's age as a String
-                    newAdmin.getStaffEmail(), // Assuming getStaffEmail() returns the administrator's email
-                    newAdmin.getStaffContact() // Assuming getStaffContact() returns the administrator's contact number
-            );
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.writeAdmin");
+        try (TableLock lock = ADMINISTRATOR_TABLE.lockExclusive()) {
+            long[] cached = ADMINISTRATOR_CACHE.beforeWrite();
+            long[] before = ADMINISTRATOR_KEYS.beforeWrite();
+            try (BufferedWriter writer = ADMINISTRATOR_TABLE.openWriter(true)) {
+                // Convert the Administrator object to a CSV line
+                String csvLine = String.join(",",
+                        newAdmin.getUserId(), // Assuming getUserId() returns the administrator's user ID
+                        newAdmin.getName(), // Assuming getName() returns the administrator's name
+                        newAdmin.getRole(), // Assuming getRole() returns the administrator's role
+                        newAdmin.getPassword(), // Assuming getPassword() returns the administrator's password
+                        newAdmin.getGender(), // Assuming getGender() returns the administrator's gender
+                        newAdmin.getAge(), // Assuming getAge() returns the administrator's age as a String
+                        newAdmin.getStaffEmail(), // Assuming getStaffEmail() returns the administrator's email
+                        newAdmin.getStaffContact() // Assuming getStaffContact() returns the administrator's contact number
+                );
 
-            // Write the new administrator's CSV line to the file and add a newline
-            writer.write(csvLine);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e; // Re-throw exception to indicate failure
+                // Write the new administrator's CSV line to the file and add a newline
+                writer.write(csvLine);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e; // Re-throw exception to indicate failure
+            }
+            ADMINISTRATOR_CACHE.invalidate(cached, newAdmin.getUserId());
+            ADMINISTRATOR_KEYS.added(before, newAdmin.getUserId());
+        } finally {
+            timer.stop();
         }
     }
 
@@ -285,31 +353,38 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      */
 
     public void removeAdministratorById(String adminID) throws IOException {
-        List<Administrator> administrators = loadAdministrators(); // Load all administrators
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.removeAdministratorById");
+        try (TableLock lock = ADMINISTRATOR_TABLE.lockExclusive()) {
+            long[] cached = ADMINISTRATOR_CACHE.beforeWrite();
+            List<Administrator> administrators = loadAdministrators(); // Load all administrators
     
-        // Remove the administrator with the specified ID
-        administrators.removeIf(admin -> admin.getUserId().equals(adminID));
+            // Remove the administrator with the specified ID
+            administrators.removeIf(admin -> admin.getUserId().equals(adminID));
     
-        // Rewrite the CSV file with the updated list of administrators
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_ADMINISTRATOR))) {
-            writer.write("UserID,Name,Role,Password,Gender,Age,StaffEmail,StaffContact,Question,Answer\n"); // Header
-            for (Administrator admin : administrators) {
-                String csvLine = String.join(",",
-                        admin.getUserId(),
-                        admin.getName(),
-                        admin.getRole(),
-                        admin.getPassword(),
-                        admin.getGender(),
-                        admin.getAge(),
-                        admin.getStaffEmail(),
-                        admin.getStaffContact()
-                );
-                writer.write(csvLine);
-                writer.newLine();
+            // Rewrite the CSV file with the updated list of administrators
+            try (BufferedWriter writer = ADMINISTRATOR_TABLE.openWriter(false)) {
+                writer.write("UserID,Name,Role,Password,Gender,Age,StaffEmail,StaffContact,Question,Answer\n"); // Header
+                for (Administrator admin : administrators) {
+                    String csvLine = String.join(",",
+                            admin.getUserId(),
+                            admin.getName(),
+                            admin.getRole(),
+                            admin.getPassword(),
+                            admin.getGender(),
+                            admin.getAge(),
+                            admin.getStaffEmail(),
+                            admin.getStaffContact()
+                    );
+                    writer.write(csvLine);
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e; // Rethrow the exception for further handling if necessary
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e; // Rethrow the exception for further handling if necessary
+            ADMINISTRATOR_CACHE.invalidate(cached, adminID);
+        } finally {
+            timer.stop();
         }
     }
     
@@ -323,12 +398,31 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      */
     // Find an administrator by their UserID
     public Administrator findAdminById(String adminId) throws IOException {
-        List<Administrator> administrators = loadAdministrators();
-        // Search for the administrator with the given ID
-        return administrators.stream()
-                .filter(admin -> admin.getUserId().equals(adminId))
-                .findFirst()
-                .orElse(null); // Return null if no administrator is found
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.findAdminById");
+        try {
+            EntityCache.Lookup cached = ADMINISTRATOR_CACHE.lookup(adminId);
+            String[] row = cached.row();
+            if (row != null) {
+                return createAdministratorFromCSV(row);
+            }
+            if (!ADMINISTRATOR_KEYS.mightContain(adminId)) {
+                return null;
+            }
+            try (BufferedReader br = ADMINISTRATOR_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 8 && data[0].equals(adminId)) {
+                        cached.offer(data);
+                        return createAdministratorFromCSV(data);
+                    }
+                }
+            }
+            return null; // Return null if no administrator is found
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -340,41 +434,48 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      */
 
     public boolean updateAdministrator(Administrator updatedAdmin) throws IOException {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean isUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.updateAdministrator");
+        try (TableLock lock = ADMINISTRATOR_TABLE.lockExclusive()) {
+            long[] cached = ADMINISTRATOR_CACHE.beforeWrite();
+            List<String[]> allRecords = new ArrayList<>();
+            boolean isUpdated = false;
     
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_ADMINISTRATOR))) {
-            String line;
-            boolean firstLine = true;
+            try (BufferedReader reader = ADMINISTRATOR_TABLE.openReader()) {
+                String line;
+                boolean firstLine = true;
     
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    allRecords.add(line.split(","));
-                    firstLine = false;
-                    continue;
-                }
+                while ((line = reader.readLine()) != null) {
+                    if (firstLine) {
+                        allRecords.add(line.split(","));
+                        firstLine = false;
+                        continue;
+                    }
     
-                String[] parts = line.split(",");
-                // Check if this line corresponds to the administrator we want to update
-                if (parts[0].equals(updatedAdmin.getUserId())) {
-                    parts[6] = updatedAdmin.getStaffEmail(); // Update email
-                    parts[7] = updatedAdmin.getStaffContact(); // Update phone number
-                    isUpdated = true;
+                    String[] parts = line.split(",");
+                    // Check if this line corresponds to the administrator we want to update
+                    if (parts[0].equals(updatedAdmin.getUserId())) {
+                        parts[6] = updatedAdmin.getStaffEmail(); // Update email
+                        parts[7] = updatedAdmin.getStaffContact(); // Update phone number
+                        isUpdated = true;
+                    }
+                    allRecords.add(parts);
                 }
-                allRecords.add(parts);
             }
-        }
     
-        if (isUpdated) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_ADMINISTRATOR))) {
-                for (String[] record : allRecords) {
-                    writer.write(String.join(",", record));
-                    writer.newLine();
+            if (isUpdated) {
+                try (BufferedWriter writer = ADMINISTRATOR_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
                 }
+                ADMINISTRATOR_CACHE.invalidate(cached, updatedAdmin.getUserId());
             }
-        }
     
-        return isUpdated;
+            return isUpdated;
+        } finally {
+            timer.stop();
+        }
     }
     
     /**
@@ -385,9 +486,17 @@ public class AdministratorRepository implements ValidationInterface, checkHaveQu
      * @throws IOException if an error occurs while reading the file.
      */
     public boolean hasAdministrator(String userId) throws IOException {
-        List<Administrator> administrators = loadAdministrators();
-        return administrators.stream()
-                .anyMatch(admin -> admin.getUserId().equals(userId));
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AdministratorRepository.hasAdministrator");
+        try {
+            if (!ADMINISTRATOR_KEYS.mightContain(userId)) {
+                return false;
+            }
+            List<Administrator> administrators = loadAdministrators();
+            return administrators.stream()
+                    .anyMatch(admin -> admin.getUserId().equals(userId));
+        } finally {
+            timer.stop();
+        }
     }
 
 }
@@ -0,0 +1,264 @@
+package repository;
+
+import entity.Appointment;
+import entity.AppointmentStatus;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import util.DateTimeUtil;
+
+/**
+ * A read-only copy of the appointment table laid out column by column in primitive arrays, for
+ * reports that scan every appointment.
+ * <p>
+ * Row {@code i} is described by {@code doctorKeys[i]}, {@code patientKeys[i]},
+ * {@code epochDays[i]}, {@code startMinutes[i]}, {@code endMinutes[i]} and {@code statuses[i]}.
+ * Doctor and patient IDs are replaced by small int keys numbered in order of first appearance
+ * ({@link #getDoctorId(int)} and {@link #getPatientId(int)} turn them back into IDs), dates by
+ * epoch days, times by minutes since midnight and statuses by {@link AppointmentStatus}
+ * ordinals. A scan then walks a few contiguous arrays instead of following a pointer per field
+ * of every {@link Appointment}, and its loops are simple enough for the JIT to unroll and
+ * vectorise.
+ * </p>
+ * <p>
+ * Instances are built by {@link AppointmentRepository#loadAppointmentColumns()}, which keeps
+ * the latest one until the table changes. They are never modified, so any number of threads
+ * may scan one.
+ * </p>
+ */
+public final class AppointmentColumns {
+    /**
+     * The status code of an appointment whose stored status is not an {@link AppointmentStatus}.
+     */
+    public static final byte UNKNOWN_STATUS = -1;
+
+    private final int size;
+    private final int[] doctorKeys;
+    private final int[] patientKeys;
+    private final int[] epochDays;
+    private final short[] startMinutes;
+    private final short[] endMinutes;
+    private final byte[] statuses;
+    private final String[] doctorIds;
+    private final String[] patientIds;
+    private final int firstDay;
+    private final int lastDay;
+
+    private AppointmentColumns(List<Appointment> appointments) {
+        size = appointments.size();
+        doctorKeys = new int[size];
+        patientKeys = new int[size];
+        epochDays = new int[size];
+        startMinutes = new short[size];
+        endMinutes = new short[size];
+        statuses = new byte[size];
+
+        Map<String, Integer> doctors = new HashMap<>();
+        Map<String, Integer> patients = new HashMap<>();
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = appointments.get(i);
+            doctorKeys[i] = doctors.computeIfAbsent(appointment.getDoctorId(), id -> doctors.size());
+            patientKeys[i] = patients.computeIfAbsent(appointment.getPatientId(), id -> patients.size());
+            epochDays[i] = appointment.getEpochDay();
+            startMinutes[i] = toShort(appointment.getStartMinute());
+            endMinutes[i] = toShort(appointment.getEndMinute());
+            AppointmentStatus status = appointment.getAppointmentStatus();
+            statuses[i] = status == null ? UNKNOWN_STATUS : (byte) status.ordinal();
+            if (epochDays[i] != DateTimeUtil.INVALID) {
+                first = Math.min(first, epochDays[i]);
+                last = Math.max(last, epochDays[i]);
+            }
+        }
+        doctorIds = keysInOrder(doctors);
+        patientIds = keysInOrder(patients);
+        firstDay = first;
+        lastDay = last;
+    }
+
+    /**
+     * Builds the columns of a list of appointments.
+     *
+     * @param appointments The appointments, in table order.
+     * @return The columns.
+     */
+    static AppointmentColumns of(List<Appointment> appointments) {
+        return new AppointmentColumns(appointments);
+    }
+
+    /**
+     * Returns the number of appointments.
+     *
+     * @return The row count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct doctors, which is one more than the largest doctor key.
+     *
+     * @return The doctor count.
+     */
+    public int getDoctorCount() {
+        return doctorIds.length;
+    }
+
+    /**
+     * Returns the doctor ID for a doctor key.
+     *
+     * @param doctorKey The key.
+     * @return The doctor ID.
+     */
+    public String getDoctorId(int doctorKey) {
+        return doctorIds[doctorKey];
+    }
+
+    /**
+     * Returns the number of distinct patients, which is one more than the largest patient key.
+     *
+     * @return The patient count.
+     */
+    public int getPatientCount() {
+        return patientIds.length;
+    }
+
+    /**
+     * Returns the patient ID for a patient key.
+     *
+     * @param patientKey The key.
+     * @return The patient ID.
+     */
+    public String getPatientId(int patientKey) {
+        return patientIds[patientKey];
+    }
+
+    /**
+     * Returns the earliest appointment date.
+     *
+     * @return The date, or {@code null} if no appointment has a valid date.
+     */
+    public LocalDate getFirstDate() {
+        return firstDay > lastDay ? null : LocalDate.ofEpochDay(firstDay);
+    }
+
+    /**
+     * Returns the latest appointment date.
+     *
+     * @return The date, or {@code null} if no appointment has a valid date.
+     */
+    public LocalDate getLastDate() {
+        return firstDay > lastDay ? null : LocalDate.ofEpochDay(lastDay);
+    }
+
+    /**
+     * Counts the appointments with a status.
+     *
+     * @param status The status.
+     * @return The number of appointments with the status.
+     */
+    public int count(AppointmentStatus status) {
+        byte code = (byte) status.ordinal();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += statuses[i] == code ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the appointments of each status.
+     *
+     * @return The counts, indexed by {@link AppointmentStatus#ordinal()}; appointments with an
+     *         unknown status are not counted.
+     */
+    public int[] countByStatus() {
+        int[] counts = new int[AppointmentStatus.values().length + 1];
+        for (int i = 0; i < size; i++) {
+            counts[statuses[i] + 1]++; // Slot 0 collects UNKNOWN_STATUS
+        }
+        int[] known = new int[counts.length - 1];
+        System.arraycopy(counts, 1, known, 0, known.length);
+        return known;
+    }
+
+    /**
+     * Counts the appointments of each doctor, optionally only those with one status.
+     *
+     * @param status The status to count, or {@code null} for every appointment.
+     * @return The counts, indexed by doctor key.
+     */
+    public int[] countByDoctor(AppointmentStatus status) {
+        int[] counts = new int[doctorIds.length];
+        if (status == null) {
+            for (int i = 0; i < size; i++) {
+                counts[doctorKeys[i]]++;
+            }
+        } else {
+            byte code = (byte) status.ordinal();
+            for (int i = 0; i < size; i++) {
+                counts[doctorKeys[i]] += statuses[i] == code ? 1 : 0;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the appointments on each day of a range, optionally only those with one status.
+     *
+     * @param from   The first date.
+     * @param to     The last date, not before {@code from}.
+     * @param status The status to count, or {@code null} for every appointment.
+     * @return The counts, where index {@code d} is the day {@code from.plusDays(d)}.
+     * @throws IllegalArgumentException if the range is empty or longer than an int can index.
+     */
+    public int[] countByDay(LocalDate from, LocalDate to, AppointmentStatus status) {
+        long days = to.toEpochDay() - from.toEpochDay() + 1;
+        if (days < 1 || days > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid date range " + from + " to " + to + ".");
+        }
+        int[] counts = new int[(int) days];
+        long start = from.toEpochDay();
+        int code = status == null ? Integer.MIN_VALUE : status.ordinal();
+        for (int i = 0; i < size; i++) {
+            long day = epochDays[i] - start; // INVALID lands far below zero
+            if (day >= 0 && day < days && (code == Integer.MIN_VALUE || statuses[i] == code)) {
+                counts[(int) day]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Adds up the booked minutes of each doctor's appointments with a status, skipping rows
+     * whose times are malformed.
+     *
+     * @param status The status to count.
+     * @return The minutes, indexed by doctor key.
+     */
+    public long[] bookedMinutesByDoctor(AppointmentStatus status) {
+        long[] minutes = new long[doctorIds.length];
+        byte code = (byte) status.ordinal();
+        for (int i = 0; i < size; i++) {
+            int length = endMinutes[i] - startMinutes[i];
+            if (statuses[i] == code && startMinutes[i] >= 0 && endMinutes[i] >= 0 && length > 0) {
+                minutes[doctorKeys[i]] += length;
+            }
+        }
+        return minutes;
+    }
+
+    private static short toShort(int minuteOfDay) {
+        return minuteOfDay == DateTimeUtil.INVALID ? -1 : (short) minuteOfDay;
+    }
+
+    private static String[] keysInOrder(Map<String, Integer> keys) {
+        String[] ids = new String[keys.size()];
+        for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+            ids[entry.getValue()] = entry.getKey();
+        }
+        return ids;
+    }
+}
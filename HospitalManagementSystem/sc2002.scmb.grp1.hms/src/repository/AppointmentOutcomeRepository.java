@@ -2,17 +2,45 @@ package repository;
 
 import entity.AppointmentOutcome;
 import java.io.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import storage.ArchiveStore;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.InvertedIndex;
+import storage.OptimisticLockException;
+import storage.RowVersion;
+import storage.StringDictionary;
+import storage.TableLock;
+import storage.TailedRows;
 import util.CSVUtil;
+import util.DataDirectory;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
 
 /**
  * The AppointmentOutcomeRepository class provides methods to manage
  * appointment outcomes within the Hospital Management System.
  * It reads from and writes to a CSV file for data persistence.
+ * <p>
+ * Outcomes whose medication has been dispensed can be moved to the table's compressed archive
+ * (see {@link #archiveDispensedBefore(LocalDate)}). Archived outcomes are left out of
+ * {@link #loadAllAppointmentOutcomes()}, but are still found by ID and in
+ * {@link #loadAppointmentOutcomeHistory()}.
+ * </p>
  */
+@SuppressWarnings("try")
 public class AppointmentOutcomeRepository {
-    private static final String FILE_PATH_APPOINTMENT_OUTCOME = "sc2002.scmb.grp1.hms//resource//AppointmentOutcome.csv";
+    private static final String FILE_PATH_APPOINTMENT_OUTCOME = DataDirectory.resolve("AppointmentOutcome.csv");
+    private static final CsvTable APPOINTMENT_OUTCOME_TABLE = CsvTable.forFile(FILE_PATH_APPOINTMENT_OUTCOME);
+    private static final ArchiveStore ARCHIVE = ArchiveStore.forTable(APPOINTMENT_OUTCOME_TABLE);
+    private static final StringDictionary VALUES = StringDictionary.forTable(APPOINTMENT_OUTCOME_TABLE);
+    private static final InvertedIndex NOTES_INDEX = InvertedIndex.forTable(APPOINTMENT_OUTCOME_TABLE);
+    private static final String HEADER = "OutcomeID,AppointmentID,Date,ServiceType,PrescribedMedication,MedicationStatus,ConsultationNotes,"
+            + RowVersion.COLUMN;
     // private static final CSVUtil csvutil = new CSVUtil();
 
 
@@ -23,48 +51,205 @@ public class AppointmentOutcomeRepository {
      * @throws IOException if an error occurs while reading the file.
      */
     public List<AppointmentOutcome> loadAllAppointmentOutcomes() throws IOException {
-        List<AppointmentOutcome> appointmentOutcomes = new ArrayList<>();
-        BufferedReader reader = null;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.loadAllAppointmentOutcomes");
+        try {
+            List<AppointmentOutcome> appointmentOutcomes = new ArrayList<>();
 
+            try {
+                for (String[] data : TailedRows.readRows(APPOINTMENT_OUTCOME_TABLE, ColumnarSnapshot.Splitter.QUOTED)) {
+                    addOutcome(data, appointmentOutcomes);
+                }
+            } catch (IOException e) {
+                throw new IOException("Error reading appointment outcome data: " + e.getMessage());
+            }
+
+            return appointmentOutcomes;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Finds the appointment outcomes whose consultation notes match a search query, such as
+     * {@code pain AND NOT chest}. See {@link InvertedIndex#search} for the query syntax.
+     * Archived outcomes are not searched.
+     *
+     * @param query The search query.
+     * @return The matching outcomes, in file order.
+     * @throws IOException if an error occurs while reading the file.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public List<AppointmentOutcome> searchAppointmentOutcomes(String query) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.searchAppointmentOutcomes");
         try {
-            reader = new BufferedReader(new FileReader(FILE_PATH_APPOINTMENT_OUTCOME));
-            String line;
+            // Read before the rows, so the index never takes older rows for newer ones
+            Object version = TailedRows.version(APPOINTMENT_OUTCOME_TABLE);
+            List<String[]> data;
+            try {
+                data = TailedRows.readRows(APPOINTMENT_OUTCOME_TABLE, ColumnarSnapshot.Splitter.QUOTED);
+            } catch (IOException e) {
+                throw new IOException("Error reading appointment outcome data: " + e.getMessage());
+            }
+            int[] rows = NOTES_INDEX.search(query, version, new InvertedIndex.Documents() {
+                @Override
+                public int size() {
+                    return data.size();
+                }
 
-            // Skip the header line if there's one
-            reader.readLine();
+                @Override
+                public long fingerprint(int row) {
+                    return InvertedIndex.fingerprint(text(row));
+                }
 
-            while ((line = reader.readLine()) != null) {
-                // Use regex to properly split the CSV line considering potential commas inside quotes
-                String[] data = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-
-                if (data.length == 7) {
-                    String outcomeId = data[0];
-                    String appointmentId = data[1];
-                    String date = data[2];
-                    String serviceType = data[3];
-                    String prescribedMedication = data[4].replace("\"", ""); // Remove surrounding quotes if any
-                    String medicationStatus = data[5];
-                    String consultationNotes = data[6];
-
-                    // Create an AppointmentOutcome object
-                    AppointmentOutcome appointmentOutcome = new AppointmentOutcome(outcomeId, appointmentId, date,
-                            serviceType, prescribedMedication, medicationStatus, consultationNotes);
-
-                    // Add it to the list
+                @Override
+                public String text(int row) {
+                    String[] fields = data.get(row);
+                    return fields.length == 7 || fields.length == 8 ? fields[6] : null;
+                }
+            });
+            // Only the matching rows are turned into outcomes
+            List<AppointmentOutcome> matches = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                addOutcome(data.get(row), matches);
+            }
+            return matches;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Loads every appointment outcome, including archived ones.
+     *
+     * @return A list of all current and archived AppointmentOutcome objects.
+     * @throws IOException if an error occurs while reading the files.
+     */
+    public List<AppointmentOutcome> loadAppointmentOutcomeHistory() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.loadAppointmentOutcomeHistory");
+        try {
+            List<AppointmentOutcome> appointmentOutcomes = loadAllAppointmentOutcomes();
+            Set<String> currentIds = new HashSet<>();
+            for (AppointmentOutcome appointmentOutcome : appointmentOutcomes) {
+                currentIds.add(appointmentOutcome.getOutcomeId());
+            }
+            for (AppointmentOutcome appointmentOutcome : loadArchivedOutcomes()) {
+                if (!currentIds.contains(appointmentOutcome.getOutcomeId())) {
                     appointmentOutcomes.add(appointmentOutcome);
                 }
             }
-        } catch (IOException e) {
-            throw new IOException("Error reading appointment outcome data: " + e.getMessage());
+            return appointmentOutcomes;
         } finally {
-            if (reader != null) {
-                reader.close();
+            timer.stop();
+        }
+    }
+
+    /**
+     * Moves outcomes whose medication has been dispensed and that are dated before a day into
+     * the archive. The last outcome always stays in the file, so new IDs carry on from it.
+     *
+     * @param cutoff The first day whose outcomes are kept.
+     * @return The number of outcomes archived.
+     * @throws IOException if an error occurs while reading or writing the files.
+     */
+    public int archiveDispensedBefore(LocalDate cutoff) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.archiveDispensedBefore");
+        try (TableLock lock = APPOINTMENT_OUTCOME_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.OUTCOMES);
+            List<AppointmentOutcome> allOutcomes = loadAllAppointmentOutcomes();
+            List<AppointmentOutcome> kept = new ArrayList<>();
+            List<String> archived = new ArrayList<>();
+            long cutoffDay = cutoff.toEpochDay();
+            int firstDay = Integer.MAX_VALUE;
+            int lastDay = Integer.MIN_VALUE;
+
+            for (int i = 0; i < allOutcomes.size(); i++) {
+                AppointmentOutcome outcome = allOutcomes.get(i);
+                int day = outcome.getEpochDay();
+                if (day == DateTimeUtil.INVALID || day >= cutoffDay || !"Dispensed".equalsIgnoreCase(outcome.getMedicationStatus())
+                        || i == allOutcomes.size() - 1) {
+                    kept.add(outcome);
+                    continue;
+                }
+                archived.add(toCsv(outcome));
+                firstDay = Math.min(firstDay, day);
+                lastDay = Math.max(lastDay, day);
             }
+            if (archived.isEmpty()) {
+                return 0;
+            }
+
+            // Archive first: a failure in between leaves the outcome in both places, never in neither
+            ARCHIVE.write(HEADER, archived, LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay));
+            writeAppointmentOutcomesToFile(kept);
+            // Archived outcomes are still part of every patient's history
+            PatientTimelineRepository.unchanged(PatientTimelineRepository.Source.OUTCOMES, before);
+            return archived.size();
+        } finally {
+            timer.stop();
         }
+    }
+
+    /**
+     * Stamps the outcome file and archive: the file's change count, size and modification time
+     * and the number of archive segments.
+     *
+     * @return The stamp, which changes whenever an outcome is written or archived.
+     * @throws IOException if the archive catalog or the file's attributes cannot be read.
+     */
+    static List<Long> stamp() throws IOException {
+        List<Long> stamp = new ArrayList<>();
+        PatientTimelineRepository.addStamp(stamp, APPOINTMENT_OUTCOME_TABLE);
+        stamp.add((long) ARCHIVE.segments().size());
+        return stamp;
+    }
 
+    private List<AppointmentOutcome> loadArchivedOutcomes() throws IOException {
+        List<AppointmentOutcome> appointmentOutcomes = new ArrayList<>();
+        for (ArchiveStore.Segment segment : ARCHIVE.segments()) {
+            try {
+                readOutcomes(segment.openReader(), appointmentOutcomes);
+            } catch (IOException e) {
+                throw new IOException("Error reading archived appointment outcome data: " + e.getMessage());
+            }
+        }
         return appointmentOutcomes;
     }
 
+    private static void readOutcomes(BufferedReader reader, List<AppointmentOutcome> appointmentOutcomes)
+            throws IOException {
+        try (reader) {
+            String line;
+
+            // Skip the header line if there's one
+            reader.readLine();
+
+            while ((line = reader.readLine()) != null) {
+                // Use regex to properly split the CSV line considering potential commas inside quotes
+                addOutcome(ColumnarSnapshot.Splitter.QUOTED.split(line), appointmentOutcomes);
+            }
+        }
+    }
+
+    private static void addOutcome(String[] data, List<AppointmentOutcome> appointmentOutcomes) {
+        if (data.length == 7 || data.length == 8) {
+            String outcomeId = data[0];
+            String appointmentId = data[1];
+            String date = VALUES.intern(data[2]);
+            String serviceType = VALUES.intern(data[3]);
+            String prescribedMedication = VALUES.intern(data[4].replace("\"", "")); // Remove surrounding quotes if any
+            String medicationStatus = VALUES.intern(data[5]);
+            String consultationNotes = data[6];
+
+            // Create an AppointmentOutcome object
+            AppointmentOutcome appointmentOutcome = new AppointmentOutcome(outcomeId, appointmentId, date,
+                    serviceType, prescribedMedication, medicationStatus, consultationNotes);
+            appointmentOutcome.setVersion(RowVersion.parse(data, 7));
+
+            // Add it to the list
+            appointmentOutcomes.add(appointmentOutcome);
+        }
+    }
+
     /**
      * Creates a new appointment outcome and appends it to the CSV file.
      *
@@ -72,15 +257,10 @@ public class AppointmentOutcomeRepository {
      * @throws IOException if an error occurs while writing to the file.
      */
     public void createNewAppointmentOutcome(AppointmentOutcome appointmentOutcome) throws IOException {
-        File file = new File(FILE_PATH_APPOINTMENT_OUTCOME);
-
-
-        // Open the file in append mode
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-            // If the file is not empty, write a newline first
-            if (file.length() > 0) {
-                writer.newLine();
-            }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.createNewAppointmentOutcome");
+        try (TableLock lock = APPOINTMENT_OUTCOME_TABLE.lockExclusive()) {
+            CSVUtil.upgradeHeader(APPOINTMENT_OUTCOME_TABLE, HEADER); // Files from before the Version column
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.OUTCOMES);
 
             // Format the appointment outcome data as CSV
             String appointmentOutcomeData = String.join(",",
@@ -90,36 +270,46 @@ public class AppointmentOutcomeRepository {
                     appointmentOutcome.getServiceType(),
                     appointmentOutcome.getPrescribedMedication(),
                     appointmentOutcome.getMedicationStatus(),
-                    appointmentOutcome.getConsultationNotes()
+                    appointmentOutcome.getConsultationNotes(),
+                    String.valueOf(appointmentOutcome.getVersion())
             );
 
-
-            // Write the new appointment outcome data to the file
-            writer.write(appointmentOutcomeData);
-            writer.flush();
+            // Append the new appointment outcome data on a line of its own
+            CSVUtil.appendRow(APPOINTMENT_OUTCOME_TABLE, appointmentOutcomeData);
+            PatientTimelineRepository.outcomeSaved(before, appointmentOutcome);
+        } finally {
+            timer.stop();
         }
-
-        // Clean up empty rows from the CSV file (if necessary)
-        CSVUtil.removeEmptyRows(FILE_PATH_APPOINTMENT_OUTCOME);
     }
 
     /**
-     * Retrieves an appointment outcome by its ID.
+     * Retrieves an appointment outcome by its ID, looking in the archive if it is not in the file.
      *
      * @param appointmentOutcomeId The ID of the appointment outcome to find.
      * @return The AppointmentOutcome object, or null if not found.
      * @throws IOException if an error occurs while reading the file.
      */
     public AppointmentOutcome getAppointmentOutcomeById(String appointmentOutcomeId) throws IOException {
-        List<AppointmentOutcome> allAppointmentOutcomes = loadAllAppointmentOutcomes();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.getAppointmentOutcomeById");
+        try {
+            List<AppointmentOutcome> allAppointmentOutcomes = loadAllAppointmentOutcomes();
 
-        for (AppointmentOutcome appointmentOutcome : allAppointmentOutcomes) {
-            if (appointmentOutcome.getOutcomeId().equals(appointmentOutcomeId)) {
-                return appointmentOutcome; // Return the appointment outcome that matches the appointmentOutcomeId
+            for (AppointmentOutcome appointmentOutcome : allAppointmentOutcomes) {
+                if (appointmentOutcome.getOutcomeId().equals(appointmentOutcomeId)) {
+                    return appointmentOutcome; // Return the appointment outcome that matches the appointmentOutcomeId
+                }
+            }
+
+            for (AppointmentOutcome appointmentOutcome : loadArchivedOutcomes()) {
+                if (appointmentOutcome.getOutcomeId().equals(appointmentOutcomeId)) {
+                    return appointmentOutcome;
+                }
             }
-        }
 
-        return null; // If no match found, return null
+            return null; // If no match found, return null
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -129,38 +319,60 @@ public class AppointmentOutcomeRepository {
      * @throws IOException if an error occurs while reading the file.
      */
     public String getLastAppointmentOutcomeId() throws IOException {
-        List<AppointmentOutcome> appointmentOutcomes = loadAllAppointmentOutcomes();
-        if (appointmentOutcomes.isEmpty()) {
-            return "AO000"; // Return a default ID if no appointment outcomes exist
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.getLastAppointmentOutcomeId");
+        try {
+            List<AppointmentOutcome> appointmentOutcomes = loadAllAppointmentOutcomes();
+            if (appointmentOutcomes.isEmpty()) {
+                return "AO000"; // Return a default ID if no appointment outcomes exist
+            }
+            String lastAvailableId = appointmentOutcomes.get(appointmentOutcomes.size() - 1).getOutcomeId();
+            return lastAvailableId;
+        } finally {
+            timer.stop();
         }
-        String lastAvailableId = appointmentOutcomes.get(appointmentOutcomes.size() - 1).getOutcomeId();
-        return lastAvailableId;
     }
 
     /**
      * Updates an existing appointment outcome in the CSV file.
+     * <p>
+     * The update only succeeds if {@code updatedOutcome} still has the version stored in the
+     * file; on success its version is advanced to the new stored version.
+     * </p>
      *
      * @param updatedOutcome The updated AppointmentOutcome object.
+     * @throws OptimisticLockException if the outcome was changed since it was read.
      * @throws IOException if an error occurs while reading or writing the file.
      */
     // Method to update an appointment outcome in the CSV file
     public void updateAppointmentOutcome(AppointmentOutcome updatedOutcome) throws IOException {
-        List<AppointmentOutcome> allOutcomes = loadAllAppointmentOutcomes();
-        boolean updated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentOutcomeRepository.updateAppointmentOutcome");
+        try (TableLock lock = APPOINTMENT_OUTCOME_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.OUTCOMES);
+            List<AppointmentOutcome> allOutcomes = loadAllAppointmentOutcomes();
+            boolean updated = false;
 
-        // Update the appointment outcome
-        for (int i = 0; i < allOutcomes.size(); i++) {
-            AppointmentOutcome outcome = allOutcomes.get(i);
-            if (outcome.getOutcomeId().equals(updatedOutcome.getOutcomeId())) {
-                allOutcomes.set(i, updatedOutcome); // Replace with updated outcome
-                updated = true;
-                break;
+            // Update the appointment outcome
+            for (int i = 0; i < allOutcomes.size(); i++) {
+                AppointmentOutcome outcome = allOutcomes.get(i);
+                if (outcome.getOutcomeId().equals(updatedOutcome.getOutcomeId())) {
+                    if (outcome.getVersion() != updatedOutcome.getVersion()) {
+                        throw new OptimisticLockException("AppointmentOutcome", outcome.getOutcomeId(),
+                                updatedOutcome.getVersion(), outcome.getVersion());
+                    }
+                    updatedOutcome.setVersion(outcome.getVersion() + 1);
+                    allOutcomes.set(i, updatedOutcome); // Replace with updated outcome
+                    updated = true;
+                    break;
+                }
             }
-        }
 
-        // If outcome was updated, write changes back to the CSV
-        if (updated) {
-            writeAppointmentOutcomesToFile(allOutcomes);
+            // If outcome was updated, write changes back to the CSV
+            if (updated) {
+                writeAppointmentOutcomesToFile(allOutcomes);
+                PatientTimelineRepository.outcomeSaved(before, updatedOutcome);
+            }
+        } finally {
+            timer.stop();
         }
     }
 
@@ -174,24 +386,11 @@ public class AppointmentOutcomeRepository {
         BufferedWriter writer = null;
     
         try {
-            writer = new BufferedWriter(new FileWriter(FILE_PATH_APPOINTMENT_OUTCOME));
-            writer.write("OutcomeID,AppointmentID,Date,ServiceType,PrescribedMedication,MedicationStatus,ConsultationNotes\n");
+            writer = APPOINTMENT_OUTCOME_TABLE.openWriter(false);
+            writer.write(HEADER + "\n");
     
             for (AppointmentOutcome outcome : allOutcomes) {
-                String prescribedMedication = outcome.getPrescribedMedication();
-    
-                // Ensure medications are quoted correctly
-                if (prescribedMedication.contains(",") && !prescribedMedication.startsWith("\"")) {
-                    prescribedMedication = "\"" + prescribedMedication + "\"";
-                }
-    
-                writer.write(outcome.getOutcomeId() + "," +
-                        outcome.getAppointmentId() + "," +
-                        outcome.getDate() + "," +
-                        outcome.getServiceType() + "," +
-                        prescribedMedication + "," +
-                        outcome.getMedicationStatus() + "," +
-                        outcome.getConsultationNotes() + "\n");
+                writer.write(toCsv(outcome) + "\n");
             }
         } catch (IOException e) {
             throw new IOException("Error writing appointment outcomes: " + e.getMessage());
@@ -201,5 +400,22 @@ public class AppointmentOutcomeRepository {
             }
         }
     }
-}
 
+    private static String toCsv(AppointmentOutcome outcome) {
+        String prescribedMedication = outcome.getPrescribedMedication();
+
+        // Ensure medications are quoted correctly
+        if (prescribedMedication.contains(",") && !prescribedMedication.startsWith("\"")) {
+            prescribedMedication = "\"" + prescribedMedication + "\"";
+        }
+
+        return outcome.getOutcomeId() + "," +
+                outcome.getAppointmentId() + "," +
+                outcome.getDate() + "," +
+                outcome.getServiceType() + "," +
+                prescribedMedication + "," +
+                outcome.getMedicationStatus() + "," +
+                outcome.getConsultationNotes() + "," +
+                outcome.getVersion();
+    }
+}
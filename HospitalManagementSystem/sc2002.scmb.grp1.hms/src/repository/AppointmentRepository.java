@@ -1,17 +1,48 @@
 package repository;
 
 import entity.Appointment;
+import entity.AppointmentStatus;
+import storage.ArchiveStore;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.OptimisticLockException;
+import storage.PartitionedTable;
+import storage.RowVersion;
+import storage.StringDictionary;
+import storage.TableLock;
 import util.CSVUtil;
+import util.DataDirectory;
+import util.DateTimeUtil;
 
 import java.io.*;
+import java.time.LocalDate;
 import java.util.*;
+import util.MetricsRegistry;
 
 /**
  * The AppointmentRepository class provides methods to manage appointments within the Hospital Management System.
  * It reads from and writes to a CSV file for data persistence.
+ * <p>
+ * Once the table has been split by month (see {@link #partitionByMonth()}), date-range queries
+ * only read the months they cover and each change rewrites only the month it touches.
+ * </p>
+ * <p>
+ * Completed and cancelled appointments can be moved to the table's compressed archive (see
+ * {@link #archiveAppointmentsBefore(LocalDate)}). Archived appointments are left out of
+ * {@link #loadAllAppointments()} and the status lists, but are still found by ID, by date range
+ * and in {@link #loadAppointmentHistory()}.
+ * </p>
  */
+@SuppressWarnings("try")
 public class AppointmentRepository {
-    private static final String FILE_PATH_APPOINTMENT = "sc2002.scmb.grp1.hms//resource//Appointment.csv";
+    private static final String FILE_PATH_APPOINTMENT = DataDirectory.resolve("Appointment.csv");
+    private static final CsvTable APPOINTMENT_TABLE = CsvTable.forFile(FILE_PATH_APPOINTMENT);
+    private static final String HEADER = "AppointmentId,PatientId,DoctorId,AppointmentDate,StartTime,EndTime,Status,"
+            + RowVersion.COLUMN;
+    private static final PartitionedTable APPOINTMENTS = PartitionedTable.monthly(APPOINTMENT_TABLE, 3, HEADER);
+    private static final ArchiveStore ARCHIVE = ArchiveStore.forTable(APPOINTMENT_TABLE);
+    private static final StringDictionary VALUES = StringDictionary.forTable(APPOINTMENT_TABLE);
+    private static volatile ColumnsCache columnsCache;
     // private static final CSVUtil csvutil = new CSVUtil(); 
     
     /**
@@ -22,14 +53,11 @@ public class AppointmentRepository {
      */
  // Method to write a new appointment to the CSV file
     public void createNewAppointment(Appointment appointment) throws IOException {
-        File file = new File(FILE_PATH_APPOINTMENT);
-
-        // Open the file in append mode
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-            // If the file is not empty, write a newline first
-            if (file.length() > 0) {
-                writer.newLine();
-            }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.createNewAppointment");
+        try (TableLock lock = APPOINTMENT_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.APPOINTMENTS);
+            CsvTable partition = APPOINTMENTS.partitionFor(appointment.getAppointmentDate());
+            CSVUtil.upgradeHeader(partition, HEADER); // Files from before the Version column
 
             // Format the appointment data as CSV
             String appointmentData = String.join(",",
@@ -39,13 +67,15 @@ public class AppointmentRepository {
                     appointment.getAppointmentDate(),
                     appointment.getStartTime(),
                     appointment.getEndTime(),
-                    appointment.getStatus());
+                    appointment.getStatus(),
+                    String.valueOf(appointment.getVersion()));
 
-            // Write the new appointment data to the file
-            writer.write(appointmentData);
-            writer.flush();
+            // Append the new appointment data on a line of its own
+            CSVUtil.appendRow(partition, appointmentData);
+            PatientTimelineRepository.appointmentSaved(before, appointment);
+        } finally {
+            timer.stop();
         }
-        CSVUtil.removeEmptyRows(FILE_PATH_APPOINTMENT);
     }
 
     /**
@@ -56,43 +86,286 @@ public class AppointmentRepository {
      */
  // Method to load appointment data from the CSV file
     public List<Appointment> loadAllAppointments() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.loadAllAppointments");
+        try {
+            return loadAppointments(null, null);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Loads the appointments dated within a range, including archived ones. Only the months
+     * and archive segments that overlap the range are read.
+     *
+     * @param from The first date, or null for no lower bound.
+     * @param to   The last date, or null for no upper bound.
+     * @return A list of Appointment objects dated from {@code from} to {@code to}, inclusive.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getAppointmentsBetween");
+        try {
+            List<Appointment> appointments = loadAppointments(from, to);
+            appointments.addAll(loadArchivedAppointments(from, to, appointments));
+            return appointments;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Loads every appointment, including archived ones.
+     *
+     * @return A list of all current and archived Appointment objects.
+     * @throws IOException if an error occurs while reading the files.
+     */
+    public List<Appointment> loadAppointmentHistory() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.loadAppointmentHistory");
+        try {
+            List<Appointment> appointments = loadAppointments(null, null);
+            appointments.addAll(loadArchivedAppointments(null, null, appointments));
+            return appointments;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns every appointment, including archived ones, as primitive columns for reports that
+     * scan the whole table. The columns are kept and returned again until a month file or the
+     * archive changes, so repeated reports only pay for the scan.
+     *
+     * @return The appointment history as columns.
+     * @throws IOException if an error occurs while reading the files.
+     */
+    public AppointmentColumns loadAppointmentColumns() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.loadAppointmentColumns");
+        try (TableLock lock = APPOINTMENTS.lockForScan()) {
+            if (lock == null) {
+                // A snapshot view reads its own pinned copy, which the cache knows nothing about
+                return AppointmentColumns.of(loadAppointmentHistory());
+            }
+            List<Long> stamp = stamp();
+            ColumnsCache cached = columnsCache;
+            if (cached != null && cached.stamp.equals(stamp)) {
+                return cached.columns;
+            }
+            AppointmentColumns columns = AppointmentColumns.of(loadAppointmentHistory());
+            columnsCache = new ColumnsCache(stamp, columns);
+            return columns;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Stamps the appointment files: the change count, size and modification time of each month
+     * file and the number of archive segments.
+     *
+     * @return The stamp, which changes whenever an appointment is written or archived.
+     * @throws IOException if the catalog or a file's attributes cannot be read.
+     */
+    static List<Long> stamp() throws IOException {
+        List<Long> stamp = new ArrayList<>();
+        for (CsvTable partition : APPOINTMENTS.partitions()) {
+            PatientTimelineRepository.addStamp(stamp, partition);
+        }
+        stamp.add((long) ARCHIVE.segments().size());
+        return stamp;
+    }
+
+    private static final class ColumnsCache {
+        private final List<Long> stamp;
+        private final AppointmentColumns columns;
+
+        private ColumnsCache(List<Long> stamp, AppointmentColumns columns) {
+            this.stamp = stamp;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Moves completed and cancelled appointments dated before a day into the archive. The
+     * segment records the highest ID it holds, which {@link #getLastApptId()} counts along with
+     * the file, so new IDs never repeat an archived one.
+     *
+     * @param cutoff The first day whose appointments are kept.
+     * @return The number of appointments archived.
+     * @throws IOException if an error occurs while reading or writing the files.
+     */
+    public int archiveAppointmentsBefore(LocalDate cutoff) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.archiveAppointmentsBefore");
+        try (TableLock lock = APPOINTMENT_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.APPOINTMENTS);
+            List<String> archived = new ArrayList<>();
+            long cutoffDay = cutoff.toEpochDay();
+            int firstDay = Integer.MAX_VALUE;
+            int lastDay = Integer.MIN_VALUE;
+            String lastId = null;
+            Map<CsvTable, List<Appointment>> remaining = new LinkedHashMap<>();
+
+            for (CsvTable partition : APPOINTMENTS.partitions(null, cutoff)) {
+                List<Appointment> appointments = readPartition(partition, new ArrayList<>());
+                List<Appointment> kept = new ArrayList<>();
+                for (Appointment appointment : appointments) {
+                    int day = appointment.getEpochDay();
+                    boolean finished = appointment.getAppointmentStatus() == AppointmentStatus.COMPLETED
+                            || appointment.getAppointmentStatus() == AppointmentStatus.CANCELLED;
+                    if (day == DateTimeUtil.INVALID || day >= cutoffDay || !finished) {
+                        kept.add(appointment);
+                        continue;
+                    }
+                    archived.add(toCsv(appointment));
+                    lastId = higherId(lastId, appointment.getAppointmentId());
+                    firstDay = Math.min(firstDay, day);
+                    lastDay = Math.max(lastDay, day);
+                }
+                if (kept.size() < appointments.size()) {
+                    remaining.put(partition, kept);
+                }
+            }
+            if (archived.isEmpty()) {
+                return 0;
+            }
+
+            // The segment is complete before any row leaves the file, so a failure can only
+            // leave a row in both places, and the file's copy wins when they are merged
+            ARCHIVE.write(HEADER, archived, LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay), lastId);
+            for (Map.Entry<CsvTable, List<Appointment>> entry : remaining.entrySet()) {
+                writePartition(entry.getKey(), entry.getValue());
+            }
+            // Archived appointments are still part of every patient's history
+            PatientTimelineRepository.unchanged(PatientTimelineRepository.Source.APPOINTMENTS, before);
+            return archived.size();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Splits the appointment file into one file per month. Does nothing if it is already split.
+     *
+     * @return The number of monthly files.
+     * @throws IOException if an error occurs while reading or writing the files.
+     */
+    public int partitionByMonth() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.partitionByMonth");
+        try {
+            return APPOINTMENTS.partition();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private List<Appointment> loadAppointments(LocalDate from, LocalDate to) throws IOException {
         List<Appointment> appointments = new ArrayList<>();
-        BufferedReader reader = null;
+        try (TableLock lock = APPOINTMENTS.lockForScan()) {
+            for (CsvTable partition : APPOINTMENTS.partitions(from, to)) {
+                readPartition(partition, appointments);
+            }
+        }
+        appointments.removeIf(appointment -> !isBetween(appointment, from, to));
+        return appointments;
+    }
+
+    private static boolean isBetween(Appointment appointment, LocalDate from, LocalDate to) {
+        return from == null && to == null || DateTimeUtil.isWithin(appointment.getEpochDay(), from, to);
+    }
 
+    private List<Appointment> loadArchivedAppointments(LocalDate from, LocalDate to, List<Appointment> current)
+            throws IOException {
+        Set<String> currentIds = new HashSet<>();
+        for (Appointment appointment : current) {
+            currentIds.add(appointment.getAppointmentId());
+        }
+        List<Appointment> archived = new ArrayList<>();
+        for (ArchiveStore.Segment segment : ARCHIVE.segments(from, to)) {
+            readSegment(segment, archived);
+        }
+        archived.removeIf(appointment -> currentIds.contains(appointment.getAppointmentId())
+                || !isBetween(appointment, from, to));
+        return archived;
+    }
+
+    private List<Appointment> readPartition(CsvTable partition, List<Appointment> appointments) throws IOException {
+        try {
+            for (String[] fields : ColumnarSnapshot.readRows(partition, ColumnarSnapshot.Splitter.PLAIN)) {
+                addAppointment(fields, appointments);
+            }
+            return appointments;
+        } catch (IOException e) {
+            throw new IOException("Error reading appointment data: " + e.getMessage());
+        }
+    }
+
+    private List<Appointment> readSegment(ArchiveStore.Segment segment, List<Appointment> appointments)
+            throws IOException {
         try {
-            reader = new BufferedReader(new FileReader(FILE_PATH_APPOINTMENT));
+            return readAppointments(segment.openReader(), appointments);
+        } catch (IOException e) {
+            throw new IOException("Error reading archived appointment data: " + e.getMessage());
+        }
+    }
+
+    private static List<Appointment> readAppointments(BufferedReader reader, List<Appointment> appointments)
+            throws IOException {
+        try (reader) {
             String line;
             // Skip the header line
             reader.readLine();
 
             while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields.length == 7) {
-                    String appointmentId = fields[0];
-                    String patientId = fields[1];
-                    String doctorId = fields[2];
-                    String appointmentDate = fields[3];
-                    String startTime = fields[4];
-                    String endTime = fields[5];
-                    String status = fields[6];
-
-                    Appointment appointment = new Appointment(appointmentId, patientId, doctorId, appointmentDate, startTime, endTime, status);
-                    appointments.add(appointment);
-                }
-            }
-        } catch (IOException e) {
-            throw new IOException("Error reading appointment data: " + e.getMessage());
-        } finally {
-            if (reader != null) {
-                reader.close();
+                addAppointment(line.split(","), appointments);
             }
         }
 
         return appointments;
     }
 
+    private static void addAppointment(String[] fields, List<Appointment> appointments) {
+        if (fields.length == 7 || fields.length == 8) {
+            // Everything but the ID repeats across rows, so one copy of each value is kept
+            String appointmentId = fields[0];
+            String patientId = VALUES.intern(fields[1]);
+            String doctorId = VALUES.intern(fields[2]);
+            String appointmentDate = VALUES.intern(fields[3]);
+            String startTime = VALUES.intern(fields[4]);
+            String endTime = VALUES.intern(fields[5]);
+            String status = fields[6];
+
+            Appointment appointment = new Appointment(appointmentId, patientId, doctorId, appointmentDate, startTime, endTime, status);
+            appointment.setVersion(RowVersion.parse(fields, 7));
+            appointments.add(appointment);
+        }
+    }
+
+    private void writePartition(CsvTable partition, List<Appointment> appointments) throws IOException {
+        try (BufferedWriter writer = partition.openWriter(false)) {
+            writer.write(HEADER); // Write header
+            writer.newLine();
+
+            for (Appointment appointment : appointments) {
+                writer.write(toCsv(appointment));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String toCsv(Appointment appointment) {
+        return String.join(",",
+                appointment.getAppointmentId(),
+                appointment.getPatientId(),
+                appointment.getDoctorId(),
+                appointment.getAppointmentDate(),
+                appointment.getStartTime(),
+                appointment.getEndTime(),
+                appointment.getStatus(),
+                String.valueOf(appointment.getVersion()));
+    }
+
     /**
-     * Retrieves an appointment by its ID.
+     * Retrieves an appointment by its ID, looking in the archive if it is not in the file.
      *
      * @param appointmentId The ID of the appointment to find.
      * @return The Appointment object, or null if not found.
@@ -101,33 +374,76 @@ public class AppointmentRepository {
 
     // Method to get an appointment by appointmentId
     public Appointment getAppointmentById(String appointmentId) throws IOException {
-        List<Appointment> allAppointments = loadAllAppointments();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getAppointmentById");
+        try {
+            List<Appointment> allAppointments = loadAllAppointments();
 
-        for (Appointment appointment : allAppointments) {
-            if (appointment.getAppointmentId().equals(appointmentId)) {
-                return appointment; // Return the appointment record that matches the appointmentId
+            for (Appointment appointment : allAppointments) {
+                if (appointment.getAppointmentId().equals(appointmentId)) {
+                    return appointment; // Return the appointment record that matches the appointmentId
+                }
+            }
+
+            for (ArchiveStore.Segment segment : ARCHIVE.segments()) {
+                for (Appointment appointment : readSegment(segment, new ArrayList<>())) {
+                    if (appointment.getAppointmentId().equals(appointmentId)) {
+                        return appointment;
+                    }
+                }
             }
-        }
 
-        return null; // If no match found, return null
+            return null; // If no match found, return null
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
-     * Retrieves the ID of the last appointment.
+     * Retrieves the ID of the last appointment, which is the highest-numbered one in the file or
+     * the archive. Cancelled and rescheduled appointments leave the file, so the file alone does
+     * not always hold the highest ID handed out. Callers that number a new appointment from it
+     * hold the table's exclusive lock until the appointment is written.
      *
      * @return The last available appointment ID, or "AP000" if none exist.
      * @throws IOException if an error occurs while reading the file.
      */
     // Get the last AppointmentId from the existing records
     public String getLastApptId() throws IOException {
-        List<Appointment> appointment = loadAllAppointments();
-        if (appointment.isEmpty()) {
-            return "AP000";
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getLastApptId");
+        try (TableLock lock = APPOINTMENT_TABLE.lockShared()) {
+            // Months are read in date order, so the last row read is not always the newest
+            String lastAvailableId = null;
+            for (Appointment candidate : loadAllAppointments()) {
+                lastAvailableId = higherId(lastAvailableId, candidate.getAppointmentId());
+            }
+            for (ArchiveStore.Segment segment : ARCHIVE.segments()) {
+                if (segment.getLastKey() != null) {
+                    lastAvailableId = higherId(lastAvailableId, segment.getLastKey());
+                    continue;
+                }
+                // Segments archived before the catalog recorded keys are read in full
+                for (Appointment archived : readSegment(segment, new ArrayList<>())) {
+                    lastAvailableId = higherId(lastAvailableId, archived.getAppointmentId());
+                }
+            }
+            return lastAvailableId == null ? "AP000" : lastAvailableId;
+        } finally {
+            timer.stop();
         }
-        String lastAvailableId = appointment.get(appointment.size() - 1).getAppointmentId();
-        return lastAvailableId;
+    }
+
+    private static String higherId(String current, String candidate) {
+        return current == null || idNumber(candidate) > idNumber(current) ? candidate : current;
     }
     
+    private static int idNumber(String appointmentId) {
+        try {
+            return Integer.parseInt(appointmentId.substring(2));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
     /**
      * Retrieves all pending appointments for a specific doctor.
      *
@@ -137,52 +453,71 @@ public class AppointmentRepository {
      */
  // Method to get all pending appointments for a specific doctor
     public List<Appointment> getPendingAppointmentsByDoctorId(String doctorId) throws IOException {
-        List<Appointment> allAppointments = loadAllAppointments();
-        List<Appointment> pendingAppointments = new ArrayList<>();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getPendingAppointmentsByDoctorId");
+        try {
+            List<Appointment> allAppointments = loadAllAppointments();
+            List<Appointment> pendingAppointments = new ArrayList<>();
 
-        for (Appointment appointment : allAppointments) {
-            if (appointment.getDoctorId().equals(doctorId) && "Pending".equalsIgnoreCase(appointment.getStatus())) {
-                pendingAppointments.add(appointment);
+            for (Appointment appointment : allAppointments) {
+                if (appointment.getDoctorId().equals(doctorId) && appointment.getAppointmentStatus() == AppointmentStatus.PENDING) {
+                    pendingAppointments.add(appointment);
+                }
             }
-        }
 
-        return pendingAppointments;
+            return pendingAppointments;
+        } finally {
+            timer.stop();
+        }
     }
 
 
     /**
      * Updates the status of an appointment in the CSV file.
+     * <p>
+     * The update only succeeds if {@code updatedAppointment} still has the version stored in
+     * the file; on success its version is advanced to the new stored version.
+     * </p>
      *
      * @param updatedAppointment The updated Appointment object.
+     * @throws OptimisticLockException if the appointment was changed or deleted since it was read.
      * @throws IOException if an error occurs while writing to the file.
      */
 	public void updateAppointment(Appointment updatedAppointment)throws IOException {
-		 List<Appointment> allAppointments = loadAllAppointments();
+		MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.updateAppointment");
+		try (TableLock lock = APPOINTMENT_TABLE.lockExclusive()) {
+			 List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.APPOINTMENTS);
+			 // Only the month the appointment is dated in is read and rewritten
+			 CsvTable partition = APPOINTMENTS.findPartition(updatedAppointment.getAppointmentDate());
+			 List<Appointment> allAppointments = partition == null ? new ArrayList<>()
+			         : readPartition(partition, new ArrayList<>());
 
-		    // Find the appointment by ID and update its status
-		    for (Appointment appointment : allAppointments) {
-		        if (appointment.getAppointmentId().equals(updatedAppointment.getAppointmentId())) {
-		            appointment.setStatus(updatedAppointment.getStatus());
-		            break;
-		        }
-		    }
+			    // Find the appointment by ID and update its status if nobody changed it since it was read
+			    Appointment stored = null;
+			    for (Appointment appointment : allAppointments) {
+			        if (appointment.getAppointmentId().equals(updatedAppointment.getAppointmentId())) {
+			            if (appointment.getVersion() != updatedAppointment.getVersion()) {
+			                throw new OptimisticLockException("Appointment", appointment.getAppointmentId(),
+			                        updatedAppointment.getVersion(), appointment.getVersion());
+			            }
+			            appointment.setStatus(updatedAppointment.getStatus());
+			            appointment.setVersion(appointment.getVersion() + 1);
+			            updatedAppointment.setVersion(appointment.getVersion());
+			            stored = appointment;
+			            break;
+			        }
+			    }
+			    if (stored == null) {
+			        // Deleted (cancelled or rescheduled) since it was read
+			        throw new OptimisticLockException("Appointment", updatedAppointment.getAppointmentId(),
+			                updatedAppointment.getVersion(), -1);
+			    }
 
-		    // Rewrite the CSV file with updated appointments
-		    try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_APPOINTMENT))) {
-		        writer.write("AppointmentId,PatientId,DoctorId,AppointmentDate,StartTime,EndTime,Status\n"); // CSV header
-		        for (Appointment appointment : allAppointments) {
-		            String appointmentData = String.join(",",
-		                    appointment.getAppointmentId(),
-		                    appointment.getPatientId(),
-		                    appointment.getDoctorId(),
-		                    appointment.getAppointmentDate(),
-		                    appointment.getStartTime(),
-		                    appointment.getEndTime(),
-		                    appointment.getStatus());
-		            writer.write(appointmentData);
-		            writer.newLine();
-		        }
-		    }
+			    // Rewrite the CSV file with updated appointments
+			    writePartition(partition, allAppointments);
+			    PatientTimelineRepository.appointmentSaved(before, stored);
+		} finally {
+			timer.stop();
+		}
 	}
 	
     /**
@@ -193,17 +528,22 @@ public class AppointmentRepository {
      * @throws IOException if an error occurs while reading the file.
      */
 	public List<Appointment> getConfirmedAppointmentsByDoctorId(String doctorId) throws IOException {
-	    List<Appointment> confirmedAppointments = new ArrayList<>();
-	    List<Appointment> allAppointments = loadAllAppointments();
+		MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getConfirmedAppointmentsByDoctorId");
+		try {
+		    List<Appointment> confirmedAppointments = new ArrayList<>();
+		    List<Appointment> allAppointments = loadAllAppointments();
 
-	    for (Appointment appointment : allAppointments) {
-	        if (appointment.getDoctorId().equalsIgnoreCase(doctorId) && 
-	            appointment.getStatus().equalsIgnoreCase("Confirmed")) {
-	            confirmedAppointments.add(appointment);
-	        }
-	    }
+		    for (Appointment appointment : allAppointments) {
+		        if (appointment.getDoctorId().equalsIgnoreCase(doctorId) && 
+		            appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED) {
+		            confirmedAppointments.add(appointment);
+		        }
+		    }
 
-	    return confirmedAppointments;
+		    return confirmedAppointments;
+		} finally {
+			timer.stop();
+		}
 	}
 	
     /**
@@ -214,16 +554,22 @@ public class AppointmentRepository {
      * @throws IOException if an error occurs while reading the file.
      */
 	public List<Appointment> getConfirmedOrPendingAppointmentsByDoctorId(String patientId) throws IOException {
-	    List<Appointment> filteredAppointments = new ArrayList<>();
-	    List<Appointment> allAppointments = loadAllAppointments();
-
-	    for (Appointment appointment : allAppointments) {
-	        if (appointment.getPatientId().equalsIgnoreCase(patientId) && 
-	            (appointment.getStatus().equalsIgnoreCase("Confirmed") || appointment.getStatus().equalsIgnoreCase("Pending"))) {
-	            filteredAppointments.add(appointment);
-	        }
-	    }
-	    return filteredAppointments;
+		MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.getConfirmedOrPendingAppointmentsByDoctorId");
+		try {
+		    List<Appointment> filteredAppointments = new ArrayList<>();
+		    List<Appointment> allAppointments = loadAllAppointments();
+
+		    for (Appointment appointment : allAppointments) {
+		        if (appointment.getPatientId().equalsIgnoreCase(patientId) && 
+		            (appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED
+		                    || appointment.getAppointmentStatus() == AppointmentStatus.PENDING)) {
+		            filteredAppointments.add(appointment);
+		        }
+		    }
+		    return filteredAppointments;
+		} finally {
+			timer.stop();
+		}
 	}
 	
 	/**
@@ -234,29 +580,27 @@ public class AppointmentRepository {
      * @throws IOException if an error occurs while writing to the file.
      */
 	public boolean removeAppointmentById(String appointmentId) throws IOException {
-	    List<Appointment> allAppointments = loadAllAppointments();
-	    boolean removed = allAppointments.removeIf(appointment -> appointment.getAppointmentId().equalsIgnoreCase(appointmentId));
-
-	    // Rewrite the CSV file without the removed appointment
-	    try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_APPOINTMENT))) {
-	        writer.write("AppointmentId,PatientId,DoctorId,AppointmentDate,StartTime,EndTime,Status"); // Write header
-	        writer.newLine();
-	        
-	        for (Appointment appointment : allAppointments) {
-	            String appointmentData = String.join(",",
-	                    appointment.getAppointmentId(),
-	                    appointment.getPatientId(),
-	                    appointment.getDoctorId(),
-	                    appointment.getAppointmentDate(),
-	                    appointment.getStartTime(),
-	                    appointment.getEndTime(),
-	                    appointment.getStatus());
-	            writer.write(appointmentData);
-	            writer.newLine();
-	        }
-	    }
-
-	    return removed; // Returns true if an appointment was removed, otherwise false
+		MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentRepository.removeAppointmentById");
+		try (TableLock lock = APPOINTMENT_TABLE.lockExclusive()) {
+		    List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.APPOINTMENTS);
+		    for (CsvTable partition : APPOINTMENTS.partitions()) {
+		        List<Appointment> allAppointments = readPartition(partition, new ArrayList<>());
+		        List<Appointment> removed = new ArrayList<>();
+		        allAppointments.removeIf(appointment -> appointment.getAppointmentId().equalsIgnoreCase(appointmentId)
+		                && removed.add(appointment));
+
+		        // Rewrite the CSV file without the removed appointment
+		        if (!removed.isEmpty()) {
+		            writePartition(partition, allAppointments);
+		            PatientTimelineRepository.appointmentsRemoved(before, removed);
+		            return true;
+		        }
+		    }
+
+		    return false; // No appointment had this ID
+		} finally {
+			timer.stop();
+		}
 	}
 }
 
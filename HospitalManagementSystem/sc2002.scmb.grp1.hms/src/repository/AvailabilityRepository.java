@@ -1,16 +1,36 @@
 package repository;
 
 import java.io.*;
+import java.time.LocalDate;
 import java.util.*;
 import entity.Availability;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.EntityCache;
+import storage.PartitionedTable;
+import storage.StringDictionary;
+import storage.TableLock;
 import util.CSVUtil;
+import util.DataDirectory;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
 
 /**
  * The AvailabilityRepository class manages the availability data of doctors.
  * It provides methods to load, filter, add, and delete availabilities from a CSV file.
+ * <p>
+ * Once the table has been split by month (see {@link #partitionByMonth()}), date-range queries
+ * only read the months they cover and each change rewrites only the month it touches.
+ * </p>
  */
+@SuppressWarnings("try")
 public class AvailabilityRepository {
-    private static final String FILE_PATH_AVAILABILITY = "sc2002.scmb.grp1.hms//resource//Availability.csv";
+    private static final String FILE_PATH_AVAILABILITY = DataDirectory.resolve("Availability.csv");
+    private static final CsvTable AVAILABILITY_TABLE = CsvTable.forFile(FILE_PATH_AVAILABILITY);
+    private static final String HEADER = "availabilityId,doctorId,date,startTime,endTime";
+    private static final PartitionedTable AVAILABILITIES = PartitionedTable.monthly(AVAILABILITY_TABLE, 2, HEADER);
+    private static final StringDictionary VALUES = StringDictionary.forTable(AVAILABILITY_TABLE);
+    private static final EntityCache CACHE = EntityCache.forTable(AVAILABILITY_TABLE);
     // private static final CSVUtil csvutil = new CSVUtil(); 
     
     /**
@@ -21,38 +41,81 @@ public class AvailabilityRepository {
      */
  // Method to load availability data from the CSV file
     public List<Availability> loadAllAvailabilities() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.loadAllAvailabilities");
+        try {
+            return loadAvailabilities(null, null);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Loads the availabilities dated within a range. Only the months in the range are read.
+     *
+     * @param from The first date, or null for no lower bound.
+     * @param to   The last date, or null for no upper bound.
+     * @return A list of Availability objects dated from {@code from} to {@code to}, inclusive.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public List<Availability> getAvailabilitiesBetween(LocalDate from, LocalDate to) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.getAvailabilitiesBetween");
+        try {
+            return loadAvailabilities(from, to);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Splits the availability file into one file per month. Does nothing if it is already split.
+     *
+     * @return The number of monthly files.
+     * @throws IOException if an error occurs while reading or writing the files.
+     */
+    public int partitionByMonth() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.partitionByMonth");
+        try {
+            return AVAILABILITIES.partition();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private List<Availability> loadAvailabilities(LocalDate from, LocalDate to) throws IOException {
         List<Availability> availabilities = new ArrayList<>();
-        BufferedReader reader = null;
+        try (TableLock lock = AVAILABILITIES.lockForScan()) {
+            for (CsvTable partition : AVAILABILITIES.partitions(from, to)) {
+                readPartition(partition, availabilities);
+            }
+        }
+        if (from != null || to != null) {
+            availabilities.removeIf(availability -> !DateTimeUtil.isWithin(availability.getEpochDay(), from, to));
+        }
+        return availabilities;
+    }
 
+    private List<Availability> readPartition(CsvTable partition, List<Availability> availabilities) throws IOException {
         try {
-            reader = new BufferedReader(new FileReader(FILE_PATH_AVAILABILITY));
-            String line;
-            // Skip the header line
-            reader.readLine();
-            
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
+            for (String[] fields : ColumnarSnapshot.readRows(partition, ColumnarSnapshot.Splitter.PLAIN)) {
                 if (fields.length == 5) {
-                    String availabilityId = fields[0];
-                    String doctorId = fields[1];
-                    String date = fields[2];
-                    String startTime = fields[3];
-                    String endTime = fields[4];
-
-                    Availability availability = new Availability(availabilityId, doctorId, date, startTime, endTime);
-                    availabilities.add(availability);
+                    availabilities.add(createAvailabilityFromCSV(fields));
                 }
             }
         } catch (IOException e) {
             throw new IOException("Error reading availability data: " + e.getMessage());
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
         }
 
         return availabilities;
     }
+
+    private static Availability createAvailabilityFromCSV(String[] fields) {
+        String availabilityId = fields[0];
+        String doctorId = VALUES.intern(fields[1]);
+        String date = VALUES.intern(fields[2]);
+        String startTime = VALUES.intern(fields[3]);
+        String endTime = VALUES.intern(fields[4]);
+        return new Availability(availabilityId, doctorId, date, startTime, endTime);
+    }
     
     /**
      * Retrieves availabilities for a specific doctor.
@@ -63,16 +126,21 @@ public class AvailabilityRepository {
      */
     // Method to filter availability by doctorId
     public List<Availability> getAvailabilityByDoctorId(String doctorId) throws IOException {
-        List<Availability> allAvailability = loadAllAvailabilities();
-        List<Availability> filteredAvailability = new ArrayList<>();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.getAvailabilityByDoctorId");
+        try {
+            List<Availability> allAvailability = loadAllAvailabilities();
+            List<Availability> filteredAvailability = new ArrayList<>();
 
-        for (Availability availability : allAvailability) {
-            if (availability.getDoctorId().equals(doctorId)) {
-                filteredAvailability.add(availability);
+            for (Availability availability : allAvailability) {
+                if (availability.getDoctorId().equals(doctorId)) {
+                    filteredAvailability.add(availability);
+                }
             }
-        }
 
-        return filteredAvailability;
+            return filteredAvailability;
+        } finally {
+            timer.stop();
+        }
     }
     
 
@@ -84,47 +152,74 @@ public class AvailabilityRepository {
      */
 
     public void createNewAvailability(Availability availability) throws IOException {
-        File file = new File(FILE_PATH_AVAILABILITY);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.createNewAvailability");
+        try (TableLock lock = AVAILABILITY_TABLE.lockExclusive()) {
+            long[] cached = CACHE.beforeWrite();
+            CsvTable partition = AVAILABILITIES.partitionFor(availability.getDate());
+            File file = new File(partition.getFilePath());
 
-        // Open the CSV file in append mode
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-            // If the file is not empty, write a newline first
-            if (file.length() > 0) {
-                writer.newLine();
-            }
+            // Open the CSV file in append mode
+            try (BufferedWriter writer = partition.openWriter(true)) {
+                // If the file is not empty, write a newline first
+                if (file.length() > 0) {
+                    writer.newLine();
+                }
 
-            // Format the availability data as CSV
-            String availabilityData = String.join(",",
-                    availability.getAvailabilityId(),
-                    availability.getDoctorId(),
-                    availability.getDate(),
-                    availability.getStartTime(),
-                    availability.getEndTime());
-
-            // Write the new availability data to the file
-            writer.write(availabilityData);
-            writer.flush();
+                // Format the availability data as CSV
+                String availabilityData = String.join(",",
+                        availability.getAvailabilityId(),
+                        availability.getDoctorId(),
+                        availability.getDate(),
+                        availability.getStartTime(),
+                        availability.getEndTime());
+
+                // Write the new availability data to the file
+                writer.write(availabilityData);
+                writer.flush();
+            }
+            CSVUtil.removeEmptyRows(partition.getFilePath());
+            CACHE.invalidate(cached, availability.getAvailabilityId());
+        } finally {
+            timer.stop();
         }
-        CSVUtil.removeEmptyRows(FILE_PATH_AVAILABILITY);
     }
 
 
     
     
     /**
-     * Retrieves the ID of the last availability record.
+     * Retrieves the ID of the last availability record, which is the highest-numbered one.
      *
      * @return The last available ID, or "AV000" if no records exist.
      * @throws IOException if an error occurs while reading the file.
      */
  // Get the last availabilityId from the existing records
     public String getLastAvailId() throws IOException {
-        List<Availability> available = loadAllAvailabilities();
-        if (available.isEmpty()) {
-            return "AV000";  // Return the base value if no records exist
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.getLastAvailId");
+        try {
+            List<Availability> available = loadAllAvailabilities();
+            if (available.isEmpty()) {
+                return "AV000";  // Return the base value if no records exist
+            }
+            // Months are read in date order, so the last row read is not always the newest
+            String lastAvailableId = available.get(0).getAvailabilityId();
+            for (Availability candidate : available) {
+                if (idNumber(candidate.getAvailabilityId()) > idNumber(lastAvailableId)) {
+                    lastAvailableId = candidate.getAvailabilityId();
+                }
+            }
+            return lastAvailableId;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static int idNumber(String availabilityId) {
+        try {
+            return Integer.parseInt(availabilityId.substring(2));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
         }
-        String lastAvailableId = available.get(available.size() - 1).getAvailabilityId();
-        return lastAvailableId;
     }
     
 
@@ -137,15 +232,29 @@ public class AvailabilityRepository {
      */
  // Method to get availability by availabilityId
     public Availability getAvailabilityById(String availabilityId) throws IOException {
-        List<Availability> allAvailabilities = loadAllAvailabilities();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.getAvailabilityById");
+        try {
+            EntityCache.Lookup cached = CACHE.lookup(availabilityId);
+            String[] row = cached.row();
+            if (row != null) {
+                return createAvailabilityFromCSV(row);
+            }
 
-        for (Availability availability : allAvailabilities) {
-            if (availability.getAvailabilityId().equals(availabilityId)) {
-                return availability; // Return the availability record that matches the availabilityId
+            try (TableLock lock = AVAILABILITIES.lockForScan()) {
+                for (CsvTable partition : AVAILABILITIES.partitions()) {
+                    for (String[] fields : ColumnarSnapshot.readRows(partition, ColumnarSnapshot.Splitter.PLAIN)) {
+                        if (fields.length == 5 && fields[0].equals(availabilityId)) {
+                            cached.offer(fields);
+                            return createAvailabilityFromCSV(fields); // Return the availability record that matches the availabilityId
+                        }
+                    }
+                }
             }
-        }
 
-        return null; // If no match found, return null
+            return null; // If no match found, return null
+        } finally {
+            timer.stop();
+        }
     }
     
      /**
@@ -156,45 +265,51 @@ public class AvailabilityRepository {
      */
  // Method to delete availability by availabilityId
     public void deleteAvailabilityById(String availabilityId) throws IOException {
-        File file = new File(FILE_PATH_AVAILABILITY);
-        List<Availability> allAvailabilities = loadAllAvailabilities();
-        boolean found = false;
-
-        // Filter out the availability with the matching availabilityId
-        List<Availability> updatedAvailabilities = new ArrayList<>();
-        for (Availability availability : allAvailabilities) {
-            if (!availability.getAvailabilityId().equals(availabilityId)) {
-                updatedAvailabilities.add(availability);
-            } else {
-                found = true;
-            }
-        }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityRepository.deleteAvailabilityById");
+        try (TableLock lock = AVAILABILITY_TABLE.lockExclusive()) {
+            long[] cached = CACHE.beforeWrite();
+            for (CsvTable partition : AVAILABILITIES.partitions()) {
+                List<Availability> allAvailabilities = readPartition(partition, new ArrayList<>());
 
-        if (!found) {
-            System.out.println("Availability with ID " + availabilityId + " not found.");
-            return;
-        }
+                // Filter out the availability with the matching availabilityId
+                List<Availability> updatedAvailabilities = new ArrayList<>();
+                for (Availability availability : allAvailabilities) {
+                    if (!availability.getAvailabilityId().equals(availabilityId)) {
+                        updatedAvailabilities.add(availability);
+                    }
+                }
+                if (updatedAvailabilities.size() == allAvailabilities.size()) {
+                    continue;
+                }
 
-        // Write the updated availability list back to the CSV file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
-            // Write the header
-            writer.write("availabilityId,doctorId,date,startTime,endTime");
-            writer.newLine();
+                // Write the updated availability list back to the CSV file
+                try (BufferedWriter writer = partition.openWriter(false)) {
+                    // Write the header
+                    writer.write(HEADER);
+                    writer.newLine();
 
-            // Write each remaining availability record
-            for (Availability availability : updatedAvailabilities) {
-                String availabilityData = String.join(",",
-                        availability.getAvailabilityId(),
-                        availability.getDoctorId(),
-                        availability.getDate(),
-                        availability.getStartTime(),
-                        availability.getEndTime());
-                writer.write(availabilityData);
-                writer.newLine();
+                    // Write each remaining availability record
+                    for (Availability availability : updatedAvailabilities) {
+                        String availabilityData = String.join(",",
+                                availability.getAvailabilityId(),
+                                availability.getDoctorId(),
+                                availability.getDate(),
+                                availability.getStartTime(),
+                                availability.getEndTime());
+                        writer.write(availabilityData);
+                        writer.newLine();
+                    }
+                }
+
+                CSVUtil.removeEmptyRows(partition.getFilePath());
+                CACHE.invalidate(cached, availabilityId);
+                return;
             }
+
+            System.out.println("Availability with ID " + availabilityId + " not found.");
+        } finally {
+            timer.stop();
         }
-        
-        CSVUtil.removeEmptyRows(FILE_PATH_AVAILABILITY);
     }
 
 }
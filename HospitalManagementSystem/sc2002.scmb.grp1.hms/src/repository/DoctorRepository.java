@@ -6,12 +6,18 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import storage.BloomFilter;
+import storage.CsvTable;
+import storage.EntityCache;
+import storage.TableLock;
+import util.DataDirectory;
 
 import controller.PasswordChangerInterface;
 import controller.PasswordController;
 import controller.ValidationInterface;
 import controller.checkHaveQuestionsInterface;
 import controller.ChangeSecurityQuestionInterface;
+import util.MetricsRegistry;
 
 /**
  * Repository class responsible for handling CRUD operations on Doctor data
@@ -20,10 +26,14 @@ import controller.ChangeSecurityQuestionInterface;
  * management,
  * and security questions for doctors.
  */
+@SuppressWarnings("try")
 public class DoctorRepository implements ValidationInterface, checkHaveQuestionsInterface, PasswordChangerInterface,
         ChangeSecurityQuestionInterface {
 
-    private static final String FILE_PATH_DOCTORS = "sc2002.scmb.grp1.hms//resource//Doctor.csv";
+    private static final String FILE_PATH_DOCTORS = DataDirectory.resolve("Doctor.csv");
+    private static final CsvTable DOCTORS_TABLE = CsvTable.forFile(FILE_PATH_DOCTORS);
+    private static final BloomFilter DOCTOR_KEYS = BloomFilter.forTable(DOCTORS_TABLE);
+    private static final EntityCache DOCTOR_CACHE = EntityCache.forTable(DOCTORS_TABLE);
 
     /**
      * Creates a Doctor object from a CSV line.
@@ -46,23 +56,28 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      */
     // Validate doctor credentials
     public User validateCredentials(String id, String password) {
-        PasswordController pc = new PasswordController();
-        String df = "Password";
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
-                    return createDoctorFromCSV(parts);
-                } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
-                    return createDoctorFromCSV(parts);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.validateCredentials");
+        try {
+            PasswordController pc = new PasswordController();
+            String df = "Password";
+            try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
+                        return createDoctorFromCSV(parts);
+                    } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
+                        return createDoctorFromCSV(parts);
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
         }
-        return null;
     }
 
     /**
@@ -72,20 +87,25 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @throws IOException if an error occurs while reading the file.
      */
     public List<Doctor> loadDoctors() throws IOException {
-        List<Doctor> doctors = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            br.readLine(); // Skip header row
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length >= 9) { // Ensure minimum required fields to avoid errors
-                    doctors.add(createDoctorFromCSV(data));
-                } else {
-                    System.err.println("Skipped invalid line: " + line);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.loadDoctors");
+        try {
+            List<Doctor> doctors = new ArrayList<>();
+            try (BufferedReader br = DOCTORS_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 9) { // Ensure minimum required fields to avoid errors
+                        doctors.add(createDoctorFromCSV(data));
+                    } else {
+                        System.err.println("Skipped invalid line: " + line);
+                    }
                 }
             }
+            return doctors;
+        } finally {
+            timer.stop();
         }
-        return doctors;
     }
 
     /**
@@ -97,12 +117,31 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      */
     // Find a doctor by their DoctorID
     public Doctor findDoctorById(String doctorId) throws IOException {
-        List<Doctor> doctors = loadDoctors();
-        // Search for the doctor with the given ID
-        return doctors.stream()
-                .filter(doctor -> doctor.getUserId().equals(doctorId))
-                .findFirst()
-                .orElse(null); // Return null if no doctor is found
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.findDoctorById");
+        try {
+            EntityCache.Lookup cached = DOCTOR_CACHE.lookup(doctorId);
+            String[] row = cached.row();
+            if (row != null) {
+                return createDoctorFromCSV(row);
+            }
+            if (!DOCTOR_KEYS.mightContain(doctorId)) {
+                return null;
+            }
+            try (BufferedReader br = DOCTORS_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 9 && data[0].equals(doctorId)) {
+                        cached.offer(data);
+                        return createDoctorFromCSV(data);
+                    }
+                }
+            }
+            return null; // Return null if no doctor is found
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -113,19 +152,24 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      */
 
     public boolean checkHaveQuestions(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 9 && parts[0].equals(hospitalID) && !parts[9].isEmpty()) { // UserID and Password
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.checkHaveQuestions");
+        try {
+            try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length > 9 && parts[0].equals(hospitalID) && !parts[9].isEmpty()) { // UserID and Password
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -135,19 +179,24 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @return The security question or "Error" if not found.
      */
     public String returnQuestion(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && !parts[9].isEmpty()) { // UserID and Password
-                    return parts[9];
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.returnQuestion");
+        try {
+            try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && !parts[9].isEmpty()) { // UserID and Password
+                        return parts[9];
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return "Error";
+        } finally {
+            timer.stop();
         }
-        return "Error";
     }
 
     /**
@@ -158,19 +207,24 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @return True if the answer matches, otherwise false.
      */
     public boolean questionVerification(String hospitalID, String answer) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && parts[10].equals(answer.toLowerCase())) { // Match ID and Answer
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.questionVerification");
+        try {
+            try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && parts[10].equals(answer.toLowerCase())) { // Match ID and Answer
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -181,37 +235,49 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @return True if successful, otherwise false.
      */
     public boolean changePassword(String hospitalID, String newHashedPassword) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean passwordUpdated = false;
-
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID)) {
-                    parts[3] = newHashedPassword; // Update password
-                    passwordUpdated = true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.changePassword");
+        try {
+            try (TableLock lock = DOCTORS_TABLE.lockExclusive()) {
+                long[] cached = DOCTOR_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean passwordUpdated = false;
+
+                // Load all records from the file
+                try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts[0].equals(hospitalID)) {
+                            parts[3] = newHashedPassword; // Update password
+                            passwordUpdated = true;
+                        }
+                        allRecords.add(parts);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_DOCTORS))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file
+                try (BufferedWriter writer = DOCTORS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                DOCTOR_CACHE.invalidate(cached, hospitalID);
+
+                return passwordUpdated;
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return passwordUpdated;
     }
 
     /**
@@ -224,48 +290,60 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      *         false.
      */
     public boolean changeSecurityQuestion(String hospitalID, String question, String answer) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean questionUpdated = false;
-
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                // Check if the record matches the hospitalID
-                if (parts[0].equals(hospitalID)) {
-                    // Ensure the CSV has enough columns for Question and Answer
-                    if (parts.length <= 9) {
-                        // Add blank placeholders if Question and Answer columns are missing
-                        parts = Arrays.copyOf(parts, 11);
-                        parts[9] = ""; // Question placeholder
-                        parts[10] = ""; // Answer placeholder
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.changeSecurityQuestion");
+        try {
+            try (TableLock lock = DOCTORS_TABLE.lockExclusive()) {
+                long[] cached = DOCTOR_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean questionUpdated = false;
+
+                // Load all records from the file
+                try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+
+                        // Check if the record matches the hospitalID
+                        if (parts[0].equals(hospitalID)) {
+                            // Ensure the CSV has enough columns for Question and Answer
+                            if (parts.length <= 9) {
+                                // Add blank placeholders if Question and Answer columns are missing
+                                parts = Arrays.copyOf(parts, 11);
+                                parts[9] = ""; // Question placeholder
+                                parts[10] = ""; // Answer placeholder
+                            }
+                            // Update Question and Answer
+                            parts[9] = question;
+                            parts[10] = answer;
+                            questionUpdated = true;
+                        }
+                        allRecords.add(parts); // Add the record to the list
                     }
-                    // Update Question and Answer
-                    parts[9] = question;
-                    parts[10] = answer;
-                    questionUpdated = true;
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts); // Add the record to the list
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file with updated records
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_DOCTORS))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file with updated records
+                try (BufferedWriter writer = DOCTORS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                DOCTOR_CACHE.invalidate(cached, hospitalID);
+
+                return questionUpdated; // Return true if the question was updated
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return questionUpdated; // Return true if the question was updated
     }
 
     /**
@@ -275,22 +353,31 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @throws IOException if an error occurs while writing.
      */
     public void writeDoctor(Doctor newDoctor) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_DOCTORS, true))) {
-            String csvLine = String.join(",",
-                    newDoctor.getUserId(),
-                    newDoctor.getName(),
-                    newDoctor.getRole(),
-                    newDoctor.getPassword(),
-                    newDoctor.getGender(),
-                    newDoctor.getAge(),
-                    newDoctor.getSpecialization(),
-                    newDoctor.getStaffEmail(),
-                    newDoctor.getStaffContact());
-            writer.write(csvLine);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.writeDoctor");
+        try (TableLock lock = DOCTORS_TABLE.lockExclusive()) {
+            long[] cached = DOCTOR_CACHE.beforeWrite();
+            long[] before = DOCTOR_KEYS.beforeWrite();
+            try (BufferedWriter writer = DOCTORS_TABLE.openWriter(true)) {
+                String csvLine = String.join(",",
+                        newDoctor.getUserId(),
+                        newDoctor.getName(),
+                        newDoctor.getRole(),
+                        newDoctor.getPassword(),
+                        newDoctor.getGender(),
+                        newDoctor.getAge(),
+                        newDoctor.getSpecialization(),
+                        newDoctor.getStaffEmail(),
+                        newDoctor.getStaffContact());
+                writer.write(csvLine);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e;
+            }
+            DOCTOR_CACHE.invalidate(cached, newDoctor.getUserId());
+            DOCTOR_KEYS.added(before, newDoctor.getUserId());
+        } finally {
+            timer.stop();
         }
     }
 
@@ -301,31 +388,38 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @throws IOException if an error occurs while updating the file.
      */
     public void removeDoctorById(String doctorID) throws IOException {
-        List<Doctor> doctors = loadDoctors(); // Load all doctors
-
-        // Remove the doctor with the specified ID
-        doctors.removeIf(doctor -> doctor.getUserId().equals(doctorID));
-
-        // Rewrite the CSV file with the updated list of doctors
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_DOCTORS))) {
-            writer.write("UserID,Name,Role,Password,Gender,Age,Specialization,StaffEmail,StaffContact\n"); // Header
-            for (Doctor doctor : doctors) {
-                String csvLine = String.join(",",
-                        doctor.getUserId(),
-                        doctor.getName(),
-                        doctor.getRole(),
-                        doctor.getPassword(),
-                        doctor.getGender(),
-                        doctor.getAge(),
-                        doctor.getSpecialization(),
-                        doctor.getStaffEmail(),
-                        doctor.getStaffContact());
-                writer.write(csvLine);
-                writer.newLine();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.removeDoctorById");
+        try (TableLock lock = DOCTORS_TABLE.lockExclusive()) {
+            long[] cached = DOCTOR_CACHE.beforeWrite();
+            List<Doctor> doctors = loadDoctors(); // Load all doctors
+
+            // Remove the doctor with the specified ID
+            doctors.removeIf(doctor -> doctor.getUserId().equals(doctorID));
+
+            // Rewrite the CSV file with the updated list of doctors
+            try (BufferedWriter writer = DOCTORS_TABLE.openWriter(false)) {
+                writer.write("UserID,Name,Role,Password,Gender,Age,Specialization,StaffEmail,StaffContact\n"); // Header
+                for (Doctor doctor : doctors) {
+                    String csvLine = String.join(",",
+                            doctor.getUserId(),
+                            doctor.getName(),
+                            doctor.getRole(),
+                            doctor.getPassword(),
+                            doctor.getGender(),
+                            doctor.getAge(),
+                            doctor.getSpecialization(),
+                            doctor.getStaffEmail(),
+                            doctor.getStaffContact());
+                    writer.write(csvLine);
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e;
+            DOCTOR_CACHE.invalidate(cached, doctorID);
+        } finally {
+            timer.stop();
         }
     }
 
@@ -337,43 +431,50 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @throws IOException if an error occurs while reading or writing the file.
      */
     public boolean updateDoctor(Doctor updatedDoctor) throws IOException {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean isUpdated = false;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_DOCTORS))) {
-            String line;
-            boolean firstLine = true;
-
-            // Read the CSV file line by line
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    allRecords.add(line.split(","));
-                    firstLine = false;
-                    continue;
-                }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.updateDoctor");
+        try (TableLock lock = DOCTORS_TABLE.lockExclusive()) {
+            long[] cached = DOCTOR_CACHE.beforeWrite();
+            List<String[]> allRecords = new ArrayList<>();
+            boolean isUpdated = false;
+
+            try (BufferedReader reader = DOCTORS_TABLE.openReader()) {
+                String line;
+                boolean firstLine = true;
+
+                // Read the CSV file line by line
+                while ((line = reader.readLine()) != null) {
+                    if (firstLine) {
+                        allRecords.add(line.split(","));
+                        firstLine = false;
+                        continue;
+                    }
 
-                String[] parts = line.split(",");
-                // Check if this line corresponds to the doctor we want to update
-                if (parts[0].equals(updatedDoctor.getUserId())) {
-                    parts[7] = updatedDoctor.getStaffEmail(); // Update email
-                    parts[8] = updatedDoctor.getStaffContact(); // Update phone number
-                    isUpdated = true;
+                    String[] parts = line.split(",");
+                    // Check if this line corresponds to the doctor we want to update
+                    if (parts[0].equals(updatedDoctor.getUserId())) {
+                        parts[7] = updatedDoctor.getStaffEmail(); // Update email
+                        parts[8] = updatedDoctor.getStaffContact(); // Update phone number
+                        isUpdated = true;
+                    }
+                    allRecords.add(parts);
                 }
-                allRecords.add(parts);
             }
-        }
 
-        // If we made an update, rewrite the CSV
-        if (isUpdated) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_DOCTORS))) {
-                for (String[] record : allRecords) {
-                    writer.write(String.join(",", record));
-                    writer.newLine();
+            // If we made an update, rewrite the CSV
+            if (isUpdated) {
+                try (BufferedWriter writer = DOCTORS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
                 }
+                DOCTOR_CACHE.invalidate(cached, updatedDoctor.getUserId());
             }
-        }
 
-        return isUpdated;
+            return isUpdated;
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -384,9 +485,17 @@ public class DoctorRepository implements ValidationInterface, checkHaveQuestions
      * @throws IOException if an error occurs while reading the file.
      */
     public boolean hasDoctor(String userId) throws IOException {
-        List<Doctor> doctors = loadDoctors();
-        return doctors.stream()
-                .anyMatch(doctor -> doctor.getUserId().equals(userId));
+        MetricsRegistry.Timer timer = MetricsRegistry.start("DoctorRepository.hasDoctor");
+        try {
+            if (!DOCTOR_KEYS.mightContain(userId)) {
+                return false;
+            }
+            List<Doctor> doctors = loadDoctors();
+            return doctors.stream()
+                    .anyMatch(doctor -> doctor.getUserId().equals(userId));
+        } finally {
+            timer.stop();
+        }
     }
 
 }
@@ -0,0 +1,201 @@
+package repository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import storage.CsvTable;
+import storage.TableLock;
+import util.DataDirectory;
+
+/**
+ * The changes made to medical records since they were first written.
+ * <p>
+ * {@code MedicalRecord.csv} keeps every record as it was created, which is version 1. Each
+ * later update is appended to {@code MedicalRecordHistory.csv} as one line per field it
+ * changed: {@code RecordID,Version,ChangedAt,Field,Value}, where the field is
+ * {@code Diagnosis}, {@code Treatment} or {@code Prescription} and the value runs to the end of
+ * the line. Nothing is ever rewritten, so an update costs a short append and every earlier
+ * version can be rebuilt by replaying the lines of one record in order.
+ * </p>
+ * <p>
+ * {@link #latest()} reads the log into a map of the newest value of each changed field and
+ * keeps it until the log changes, so that readers see current values without replaying it.
+ * </p>
+ */
+@SuppressWarnings("try")
+final class MedicalRecordHistory {
+    static final String HEADER = "RecordID,Version,ChangedAt,Field,Value";
+    static final CsvTable TABLE = CsvTable.forFile(DataDirectory.resolve("MedicalRecordHistory.csv"));
+
+    private static final String[] FIELDS = {"Diagnosis", "Treatment", "Prescription"};
+    private static volatile Latest latest;
+
+    private MedicalRecordHistory() {
+    }
+
+    /**
+     * One change from the log.
+     *
+     * @param recordId  The record that changed.
+     * @param version   The version the change belongs to.
+     * @param changedAt When the version was saved.
+     * @param column    The changed column, {@link OffHeapMedicalRecord#DIAGNOSIS} to
+     *                  {@link OffHeapMedicalRecord#PRESCRIPTION}.
+     * @param value     The new value.
+     */
+    record Change(String recordId, int version, String changedAt, int column, String value) {
+    }
+
+    /**
+     * The newest version and field values of every record that has changed. Instances are
+     * never modified.
+     */
+    static final class Latest {
+        private final Map<String, String[]> values;
+        private final Map<String, Integer> versions;
+        private final long[] stamp;
+
+        private Latest(Map<String, String[]> values, Map<String, Integer> versions, long[] stamp) {
+            this.values = values;
+            this.versions = versions;
+            this.stamp = stamp;
+        }
+
+        /**
+         * Returns whether no record has changed.
+         *
+         * @return {@code true} if the log is empty.
+         */
+        boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        /**
+         * Returns the newest value of a field.
+         *
+         * @param recordId The record ID.
+         * @param column   The column, {@link OffHeapMedicalRecord#DIAGNOSIS} to
+         *                 {@link OffHeapMedicalRecord#PRESCRIPTION}.
+         * @return The value, or {@code null} if the field has not changed since version 1.
+         */
+        String value(String recordId, int column) {
+            String[] fields = values.get(recordId);
+            return fields == null ? null : fields[column - OffHeapMedicalRecord.DIAGNOSIS];
+        }
+
+        /**
+         * Returns the newest version of a record.
+         *
+         * @param recordId The record ID.
+         * @return The version, 1 if the record has never changed.
+         */
+        int version(String recordId) {
+            return versions.getOrDefault(recordId, 1);
+        }
+    }
+
+    /**
+     * Returns the newest values of the changed records, reading the log again only if it has
+     * changed since the last call.
+     *
+     * @return The newest values.
+     * @throws IOException if the log cannot be read.
+     */
+    static Latest latest() throws IOException {
+        try (TableLock lock = TABLE.lockShared()) {
+            long[] stamp;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Path.of(TABLE.getFilePath()),
+                        BasicFileAttributes.class);
+                stamp = new long[] {TABLE.getChangeCount(), attributes.size(),
+                        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)};
+            } catch (NoSuchFileException e) {
+                stamp = new long[] {TABLE.getChangeCount(), -1, -1};
+            }
+            Latest cached = latest;
+            if (cached != null && Arrays.equals(cached.stamp, stamp)) {
+                return cached;
+            }
+
+            Map<String, String[]> values = new HashMap<>();
+            Map<String, Integer> versions = new HashMap<>();
+            for (Change change : changes(null)) {
+                values.computeIfAbsent(change.recordId(), key -> new String[FIELDS.length])
+                        [change.column() - OffHeapMedicalRecord.DIAGNOSIS] = change.value();
+                versions.merge(change.recordId(), change.version(), Math::max);
+            }
+            cached = new Latest(values, versions, stamp);
+            latest = cached;
+            return cached;
+        }
+    }
+
+    /**
+     * Reads the changes in the log, in the order they were made.
+     *
+     * @param recordId The record whose changes to return, or {@code null} for every record.
+     * @return The changes.
+     * @throws IOException if the log cannot be read.
+     */
+    static List<Change> changes(String recordId) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        if (!Files.exists(Path.of(TABLE.getFilePath()))) {
+            return changes;
+        }
+        try (BufferedReader reader = TABLE.openReader()) {
+            String line = reader.readLine(); // Skip the header
+            while ((line = reader.readLine()) != null) {
+                String[] data = line.split(",", 5);
+                if (data.length < 5 || recordId != null && !recordId.equals(data[0])) {
+                    continue;
+                }
+                int column = Arrays.asList(FIELDS).indexOf(data[3]);
+                try {
+                    if (column >= 0) {
+                        changes.add(new Change(data[0], Integer.parseInt(data[1]), data[2],
+                                OffHeapMedicalRecord.DIAGNOSIS + column, data[4]));
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a change line; skip it
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Appends a new version of a record to the log.
+     *
+     * @param recordId The record ID.
+     * @param version  The new version number.
+     * @param values   The new diagnosis, treatment and prescription, with {@code null} for the
+     *                 fields that did not change.
+     * @throws IOException if the log cannot be written.
+     */
+    static void append(String recordId, int version, String[] values) throws IOException {
+        String changedAt = Instant.now().toString();
+        try (BufferedWriter writer = TABLE.openWriter(true)) {
+            if (Files.size(Path.of(TABLE.getFilePath())) == 0) {
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            for (int i = 0; i < FIELDS.length; i++) {
+                if (values[i] != null) {
+                    writer.write(recordId + "," + version + "," + changedAt + "," + FIELDS[i] + "," + values[i]);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
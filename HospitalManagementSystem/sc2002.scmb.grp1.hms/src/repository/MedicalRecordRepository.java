@@ -1,10 +1,19 @@
 package repository;
 
 import entity.MedicalRecord;
+import entity.MedicalRecordVersion;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import storage.BloomFilter;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.InvertedIndex;
+import storage.OffHeapTable;
+import storage.TableLock;
 import util.CSVUtil;
+import util.DataDirectory;
+import util.MetricsRegistry;
 //Ignore
 
 /**
@@ -12,26 +21,45 @@ import util.CSVUtil;
  * It provides functionality to load, search, add, and update medical records while maintaining
  * the integrity of the underlying data storage.
  */
+@SuppressWarnings("try")
 public class MedicalRecordRepository {
-	private static final String FILE_PATH_MEDICALRECORD = "sc2002.scmb.grp1.hms//resource//MedicalRecord.csv";
+	private static final String FILE_PATH_MEDICALRECORD = DataDirectory.resolve("MedicalRecord.csv");
+	private static final CsvTable MEDICALRECORD_TABLE = CsvTable.forFile(FILE_PATH_MEDICALRECORD);
+	private static final InvertedIndex TEXT_INDEX = InvertedIndex.forTable(MEDICALRECORD_TABLE);
+	private static final BloomFilter RECORD_KEYS = BloomFilter.forTable(MEDICALRECORD_TABLE);
 	// private static final CSVUtil csvutil = new CSVUtil(); 
 	
 	/**
      * Load all medical records from the CSV file.
+     * <p>
+     * The records are read-only views of an {@link OffHeapTable}, which keeps the file's text
+     * outside the heap; each getter decodes its field when called. Fields changed by
+     * {@link #updateMedicalRecord} show their newest values. The list cannot be modified.
+     * </p>
      *
      * @return A list of MedicalRecord objects representing all medical records in the CSV file.
      * @throws IOException If there is an error reading the CSV file.
      */
     public List<MedicalRecord> loadMedicalRecords() throws IOException {
-        List<MedicalRecord> records = new ArrayList<>();
-        BufferedReader br = new BufferedReader(new FileReader(FILE_PATH_MEDICALRECORD));
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] data = line.split(",");
-            records.add(new MedicalRecord(data[0], data[1], data[2], data[3], data[4], data[5]));
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.loadMedicalRecords");
+        try {
+            OffHeapTable table = loadTable();
+            MedicalRecordHistory.Latest latest = MedicalRecordHistory.latest();
+            return new AbstractList<MedicalRecord>() {
+                @Override
+                public MedicalRecord get(int index) {
+                    Objects.checkIndex(index, table.size());
+                    return new OffHeapMedicalRecord(table, index, latest);
+                }
+
+                @Override
+                public int size() {
+                    return table.size();
+                }
+            };
+        } finally {
+            timer.stop();
         }
-        br.close();
-        return records;
     }
     
 	/**
@@ -42,11 +70,12 @@ public class MedicalRecordRepository {
      * @throws IOException If there is an error reading the CSV file.
      */
     public List<MedicalRecord> findRecordsByPatientId(String patientID) throws IOException {
-        List<MedicalRecord> records = loadMedicalRecords();
-        // Filter the records based on the PatientID
-        return records.stream()
-                .filter(record -> record.getPatientId().equals(patientID))
-                .collect(Collectors.toList());
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.findRecordsByPatientId");
+        try {
+            return findRecords(OffHeapMedicalRecord.PATIENT_ID, patientID);
+        } finally {
+            timer.stop();
+        }
     }
     
     /**
@@ -57,13 +86,63 @@ public class MedicalRecordRepository {
      * @throws IOException If there is an error reading the CSV file.
      */
     public List<MedicalRecord> findRecordsByDoctorId(String doctorID) throws IOException {
-        List<MedicalRecord> records = loadMedicalRecords();
-        // Filter the records based on the DoctorID
-        return records.stream()
-                .filter(record -> record.getDoctorId().equals(doctorID))
-                .collect(Collectors.toList());
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.findRecordsByDoctorId");
+        try {
+            return findRecords(OffHeapMedicalRecord.DOCTOR_ID, doctorID);
+        } finally {
+            timer.stop();
+        }
     }
     
+    /**
+     * Find the medical records whose diagnosis, treatment or prescription match a search query,
+     * such as {@code asthma AND inhaler}. See {@link InvertedIndex#search} for the query syntax.
+     * The header row is not searched.
+     *
+     * @param query The search query.
+     * @return The matching records, in file order.
+     * @throws IOException If there is an error reading the CSV file.
+     * @throws IllegalArgumentException If the query is malformed.
+     */
+    public List<MedicalRecord> searchMedicalRecords(String query) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.searchMedicalRecords");
+        try {
+            OffHeapTable table = loadTable();
+            MedicalRecordHistory.Latest latest = MedicalRecordHistory.latest();
+            int[] rows = TEXT_INDEX.search(query, List.of(table, latest), new InvertedIndex.Documents() {
+                @Override
+                public int size() {
+                    return table.size();
+                }
+
+                @Override
+                public long fingerprint(int row) {
+                    long fingerprint = table.fingerprint(row);
+                    if (!latest.isEmpty() && latest.version(table.get(row, OffHeapMedicalRecord.RECORD_ID)) > 1) {
+                        fingerprint ^= InvertedIndex.fingerprint(text(row));
+                    }
+                    return fingerprint;
+                }
+
+                @Override
+                public String text(int row) {
+                    if (row == 0) {
+                        return null;
+                    }
+                    MedicalRecord record = new OffHeapMedicalRecord(table, row, latest);
+                    return record.getDiagnosis() + " " + record.getTreatment() + " " + record.getPrescription();
+                }
+            });
+            List<MedicalRecord> records = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                records.add(new OffHeapMedicalRecord(table, row, latest));
+            }
+            return records;
+        } finally {
+            timer.stop();
+        }
+    }
+
     /**
      * Add a new medical record to the CSV file.
      *
@@ -71,21 +150,20 @@ public class MedicalRecordRepository {
      * @throws IOException If there is an error writing to the CSV file.
      */
     public void addMedicalRecord(MedicalRecord newRecord) throws IOException {
-        File file = new File(FILE_PATH_MEDICALRECORD);
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-            // If the file is not empty, write a newline first
-            if (file.length() > 0) {
-                writer.newLine();
-            }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.addMedicalRecord");
+        try (TableLock lock = MEDICALRECORD_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.RECORDS);
+            long[] keysBefore = RECORD_KEYS.beforeWrite();
 
-            // Write the new record
-            writer.write(newRecord.getRecordId() + "," + newRecord.getPatientId() + "," + newRecord.getDoctorId() + ","
-                    + newRecord.getDiagnosis() + "," + newRecord.getTreatment() + "," + newRecord.getPrescription());
-            
-            writer.flush();
+            // Write the new record on a line of its own
+            CSVUtil.appendRow(MEDICALRECORD_TABLE, newRecord.getRecordId() + "," + newRecord.getPatientId() + ","
+                    + newRecord.getDoctorId() + "," + newRecord.getDiagnosis() + "," + newRecord.getTreatment() + ","
+                    + newRecord.getPrescription());
+            PatientTimelineRepository.recordAdded(before, newRecord.getPatientId());
+            RECORD_KEYS.added(keysBefore, newRecord.getRecordId());
+        } finally {
+            timer.stop();
         }
-        CSVUtil.removeEmptyRows(FILE_PATH_MEDICALRECORD);
     }
 
     /**
@@ -95,16 +173,52 @@ public class MedicalRecordRepository {
      * @throws IOException If there is an error reading the CSV file.
      */
     public String getLastRecordId() throws IOException {
-        List<MedicalRecord> records = loadMedicalRecords();
-        if (records.isEmpty()) {
-            return "R000";  // Return the base value if no records exist
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.getLastRecordId");
+        try {
+            OffHeapTable table = loadTable();
+            if (table.size() == 0) {
+                return "R000";  // Return the base value if no records exist
+            }
+            String lastRecordId = table.get(table.size() - 1, OffHeapMedicalRecord.RECORD_ID);
+            return lastRecordId;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Checks whether a medical record exists, ignoring the case of the ID. Most IDs that are not
+     * on file are ruled out by the table's {@link BloomFilter} without reading the file.
+     *
+     * @param recordId The record ID.
+     * @return true if the record exists, false otherwise.
+     * @throws IOException If there is an error reading the CSV file.
+     */
+    public boolean hasRecord(String recordId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.hasRecord");
+        try {
+            if (!RECORD_KEYS.mightContain(recordId)) {
+                return false;
+            }
+            OffHeapTable table = loadTable();
+            for (int row = 1; row < table.size(); row++) { // The header row is not a record
+                if (table.get(row, OffHeapMedicalRecord.RECORD_ID).equalsIgnoreCase(recordId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            timer.stop();
         }
-        String lastRecordId = records.get(records.size() - 1).getRecordId();
-        return lastRecordId;
     }
     
     /**
      * Update the diagnosis, treatment, and prescription of a medical record based on the record ID.
+     * <p>
+     * The record in the CSV file is left as it is. The fields that differ from the current
+     * values are appended to the record's history as its next version; an update that changes
+     * nothing adds no version.
+     * </p>
      *
      * @param recordId        The ID of the record to be updated.
      * @param newDiagnosis    The new diagnosis to set.
@@ -114,32 +228,125 @@ public class MedicalRecordRepository {
      * @throws IOException If there is an error reading or writing to the CSV file.
      */
     public boolean updateMedicalRecord(String recordId, String newDiagnosis, String newTreatment, String newPrescription) throws IOException {
-        List<MedicalRecord> records = loadMedicalRecords();
-        boolean recordFound = false;
-
-        for (MedicalRecord record : records) {
-            if (record.getRecordId().equals(recordId)) {
-                // Update the medical record fields
-                record.setDiagnosis(newDiagnosis);
-                record.setTreatment(newTreatment);
-                record.setPrescription(newPrescription);
-                recordFound = true;
-                break; // Exit the loop once the record is found and updated
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.updateMedicalRecord");
+        try (TableLock lock = MEDICALRECORD_TABLE.lockExclusive()) {
+            List<Long> before = PatientTimelineRepository.before(PatientTimelineRepository.Source.RECORDS);
+            OffHeapTable table = loadTable();
+            int row = findRow(table, recordId);
+            if (row < 0) {
+                return false;
             }
+
+            MedicalRecord current = new OffHeapMedicalRecord(table, row, MedicalRecordHistory.latest());
+            String[] values = {String.valueOf(newDiagnosis), String.valueOf(newTreatment), String.valueOf(newPrescription)};
+            String[] currentValues = {current.getDiagnosis(), current.getTreatment(), current.getPrescription()};
+            boolean changed = false;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i].equals(currentValues[i])) {
+                    values[i] = null; // Only changed fields are stored
+                } else {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                MedicalRecordHistory.append(recordId, MedicalRecordHistory.latest().version(recordId) + 1, values);
+                // Timelines read the new values from the history
+                PatientTimelineRepository.unchanged(PatientTimelineRepository.Source.RECORDS, before);
+            }
+            return true;
+        } finally {
+            timer.stop();
         }
+    }
+
+    /**
+     * Rebuild every version of a medical record, from the record as first written to its
+     * current state.
+     *
+     * @param recordId The ID of the record.
+     * @return The versions, oldest first, or an empty list if the record does not exist.
+     * @throws IOException If there is an error reading the CSV files.
+     */
+    public List<MedicalRecordVersion> loadRecordHistory(String recordId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordRepository.loadRecordHistory");
+        try {
+            List<MedicalRecordVersion> versions = new ArrayList<>();
+            OffHeapTable table = loadTable();
+            int row = findRow(table, recordId);
+            if (row < 0) {
+                return versions;
+            }
 
-        if (recordFound) {
-            // Write the updated records back to the file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_MEDICALRECORD))) {
-                for (MedicalRecord record : records) {
-                    writer.write(record.getRecordId() + "," + record.getPatientId() + "," + record.getDoctorId() + ","
-                            + record.getDiagnosis() + "," + record.getTreatment() + "," + record.getPrescription());
-                    writer.newLine();
+            String[] fields = new String[OffHeapMedicalRecord.COLUMNS];
+            for (int column = 0; column < fields.length; column++) {
+                fields[column] = table.get(row, column);
+            }
+            versions.add(version(fields, 1, null));
+            List<MedicalRecordHistory.Change> changes = MedicalRecordHistory.changes(recordId);
+            for (int i = 0; i < changes.size(); i++) {
+                MedicalRecordHistory.Change change = changes.get(i);
+                fields[change.column()] = change.value();
+                if (i == changes.size() - 1 || changes.get(i + 1).version() != change.version()) {
+                    versions.add(version(fields, change.version(), change.changedAt()));
                 }
             }
+            return versions;
+        } finally {
+            timer.stop();
         }
+    }
 
-        return recordFound;
+    private static MedicalRecordVersion version(String[] fields, int version, String changedAt) {
+        return new MedicalRecordVersion(fields[OffHeapMedicalRecord.RECORD_ID], fields[OffHeapMedicalRecord.PATIENT_ID],
+                fields[OffHeapMedicalRecord.DOCTOR_ID], fields[OffHeapMedicalRecord.DIAGNOSIS],
+                fields[OffHeapMedicalRecord.TREATMENT], fields[OffHeapMedicalRecord.PRESCRIPTION], version, changedAt);
+    }
+
+    private static int findRow(OffHeapTable table, String recordId) {
+        if (recordId == null) {
+            return -1;
+        }
+        byte[] key = recordId.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < table.size(); row++) {
+            if (table.matches(row, OffHeapMedicalRecord.RECORD_ID, key)) {
+                return row; // The first record with the ID
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stamps the record file and its history: the change count, size and modification time of
+     * each.
+     *
+     * @return The stamp, which changes whenever a record is added or updated.
+     * @throws IOException if a file's attributes cannot be read.
+     */
+    static List<Long> stamp() throws IOException {
+        List<Long> stamp = new ArrayList<>();
+        PatientTimelineRepository.addStamp(stamp, MEDICALRECORD_TABLE);
+        PatientTimelineRepository.addStamp(stamp, MedicalRecordHistory.TABLE);
+        return stamp;
+    }
+
+    static OffHeapTable loadTable() throws IOException {
+        return OffHeapTable.load(MEDICALRECORD_TABLE, OffHeapMedicalRecord.COLUMNS, ColumnarSnapshot.Splitter.PLAIN);
+    }
+
+    private static List<MedicalRecord> findRecords(int column, String value) throws IOException {
+        OffHeapTable table = loadTable();
+        MedicalRecordHistory.Latest latest = MedicalRecordHistory.latest();
+        List<MedicalRecord> records = new ArrayList<>();
+        if (value == null) {
+            return records;
+        }
+        byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < table.size(); row++) {
+            if (table.matches(row, column, key)) {
+                records.add(new OffHeapMedicalRecord(table, row, latest));
+            }
+        }
+        return records;
     }
     
 }
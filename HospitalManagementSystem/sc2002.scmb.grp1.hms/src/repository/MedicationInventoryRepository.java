@@ -4,14 +4,25 @@ import entity.MedicationInventory;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import storage.BloomFilter;
+import storage.CsvTable;
+import storage.OptimisticLockException;
+import storage.RowVersion;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
 
 /**
  * Repository class for managing medication inventory and replenishment requests.
  * Handles loading, updating, and saving medication data in CSV files.
  */
+@SuppressWarnings("try")
 public class MedicationInventoryRepository {
-    private static final String FILE_PATH_MEDICATION_INVENTORY = "sc2002.scmb.grp1.hms//resource//MedicationInventory.csv";
-    private static final String FILE_PATH_REPLENISHMENT_REQUESTS = "sc2002.scmb.grp1.hms//resource//ReplenishmentRequests.csv";
+    private static final String FILE_PATH_MEDICATION_INVENTORY = DataDirectory.resolve("MedicationInventory.csv");
+    private static final CsvTable MEDICATION_INVENTORY_TABLE = CsvTable.forFile(FILE_PATH_MEDICATION_INVENTORY);
+    private static final BloomFilter MEDICATION_KEYS = BloomFilter.forTable(MEDICATION_INVENTORY_TABLE);
+    private static final String FILE_PATH_REPLENISHMENT_REQUESTS = DataDirectory.resolve("ReplenishmentRequests.csv");
+    private static final CsvTable REPLENISHMENT_REQUESTS_TABLE = CsvTable.forFile(FILE_PATH_REPLENISHMENT_REQUESTS);
     // private static final CSVUtil csvUtil = new CSVUtil();
 
     /**
@@ -19,26 +30,33 @@ public class MedicationInventoryRepository {
      * Handles loading, updating, and saving medication data in CSV files.
      */
     public List<MedicationInventory> loadAllMedications() throws IOException {
-        List<MedicationInventory> medications = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_MEDICATION_INVENTORY))) {
-            String line;
-            reader.readLine(); // Skip the header row
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields.length == 3) {
-                    String medicationName = fields[0];
-                    int stockLevel = Integer.parseInt(fields[1]);
-                    int stockAlertLevel = Integer.parseInt(fields[2]);
-                    medications.add(new MedicationInventory(medicationName, stockLevel, stockAlertLevel));
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.loadAllMedications");
+        try {
+            List<MedicationInventory> medications = new ArrayList<>();
+
+            try (BufferedReader reader = MEDICATION_INVENTORY_TABLE.openReader()) {
+                String line;
+                reader.readLine(); // Skip the header row
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",");
+                    if (fields.length == 3 || fields.length == 4) {
+                        String medicationName = fields[0];
+                        int stockLevel = Integer.parseInt(fields[1]);
+                        int stockAlertLevel = Integer.parseInt(fields[2]);
+                        MedicationInventory medication = new MedicationInventory(medicationName, stockLevel, stockAlertLevel);
+                        medication.setVersion(RowVersion.parse(fields, 3));
+                        medications.add(medication);
+                    }
                 }
+            } catch (IOException e) {
+                System.out.printf("| Error: %-40s |\n", e.getMessage());
+                System.out.println("+------------------------------------------------+");
+                throw new IOException("Error reading medication inventory data: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.out.printf("| Error: %-40s |\n", e.getMessage());
-            System.out.println("+------------------------------------------------+");
-            throw new IOException("Error reading medication inventory data: " + e.getMessage());
+            return medications;
+        } finally {
+            timer.stop();
         }
-        return medications;
     }
 
     /**
@@ -48,30 +66,35 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be read.
      */
     public List<MedicationInventory> getMedicationByName(String medicationName) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|            Searching Medication by Name        |");
-        System.out.println("+------------------------------------------------+");
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.getMedicationByName");
+        try {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|            Searching Medication by Name        |");
+            System.out.println("+------------------------------------------------+");
 
-        List<MedicationInventory> allMedications = loadAllMedications();
-        List<MedicationInventory> filteredMedications = new ArrayList<>();
+            List<MedicationInventory> allMedications = loadAllMedications();
+            List<MedicationInventory> filteredMedications = new ArrayList<>();
 
-        for (MedicationInventory medication : allMedications) {
-            if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
-                filteredMedications.add(medication);
+            for (MedicationInventory medication : allMedications) {
+                if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
+                    filteredMedications.add(medication);
+                }
             }
-        }
 
-        if (filteredMedications.isEmpty()) {
-            System.out.println("| Error: Medication not found in the inventory.  |");
-        } else {
-            System.out.println("| Medication found:                              |");
-            for (MedicationInventory medication : filteredMedications) {
-                System.out.printf("| Name: %-35s | Stock Level: %3d |\n",
-                        medication.getMedicationName(), medication.getStockLevel());
+            if (filteredMedications.isEmpty()) {
+                System.out.println("| Error: Medication not found in the inventory.  |");
+            } else {
+                System.out.println("| Medication found:                              |");
+                for (MedicationInventory medication : filteredMedications) {
+                    System.out.printf("| Name: %-35s | Stock Level: %3d |\n",
+                            medication.getMedicationName(), medication.getStockLevel());
+                }
             }
+            System.out.println("+------------------------------------------------+\n");
+            return filteredMedications;
+        } finally {
+            timer.stop();
         }
-        System.out.println("+------------------------------------------------+\n");
-        return filteredMedications;
     }
 
     /**
@@ -82,21 +105,29 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be written to.
      */
     public void addMedication(String name, int stockLevel, int alertLevel) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|               Adding New Medication            |");
-        System.out.println("+------------------------------------------------+");
-
-        MedicationInventory newMedicine = new MedicationInventory(name, stockLevel, alertLevel);
-        try (FileWriter writer = new FileWriter(FILE_PATH_MEDICATION_INVENTORY, true)) {
-            writer.append(newMedicine.getMedicationName()).append(",");
-            writer.append(String.valueOf(newMedicine.getStockLevel())).append(",");
-            writer.append(String.valueOf(newMedicine.getStockAlertLevel())).append("\n");
-            System.out.println("| New medication added successfully!             |");
-        } catch (IOException e) {
-            System.out.printf("| Error: %-40s |\n", e.getMessage());
-            throw new IOException("Error writing new medication to file: " + e.getMessage());
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.addMedication");
+        try (TableLock lock = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|               Adding New Medication            |");
+            System.out.println("+------------------------------------------------+");
+
+            MedicationInventory newMedicine = new MedicationInventory(name, stockLevel, alertLevel);
+            long[] before = MEDICATION_KEYS.beforeWrite();
+            try (BufferedWriter writer = MEDICATION_INVENTORY_TABLE.openWriter(true)) {
+                writer.append(newMedicine.getMedicationName()).append(",");
+                writer.append(String.valueOf(newMedicine.getStockLevel())).append(",");
+                writer.append(String.valueOf(newMedicine.getStockAlertLevel())).append(",");
+                writer.append(String.valueOf(newMedicine.getVersion())).append("\n");
+                System.out.println("| New medication added successfully!             |");
+            } catch (IOException e) {
+                System.out.printf("| Error: %-40s |\n", e.getMessage());
+                throw new IOException("Error writing new medication to file: " + e.getMessage());
+            }
+            MEDICATION_KEYS.added(before, newMedicine.getMedicationName());
+            System.out.println("+------------------------------------------------+\n");
+        } finally {
+            timer.stop();
         }
-        System.out.println("+------------------------------------------------+\n");
     }
 
     /**
@@ -105,16 +136,21 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be read or written to.
      */
     public void removeMedication(String name) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|               Removing Medication              |");
-        System.out.println("+------------------------------------------------+");
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.removeMedication");
+        try (TableLock lock = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|               Removing Medication              |");
+            System.out.println("+------------------------------------------------+");
 
-        List<MedicationInventory> medications = loadAllMedications();
-        medications.removeIf(medication -> medication.getMedicationName().equalsIgnoreCase(name));
+            List<MedicationInventory> medications = loadAllMedications();
+            medications.removeIf(medication -> medication.getMedicationName().equalsIgnoreCase(name));
 
-        saveAllMedication(medications);
-        System.out.println("| Medication removed successfully!               |");
-        System.out.println("+------------------------------------------------+\n");
+            saveAllMedication(medications);
+            System.out.println("| Medication removed successfully!               |");
+            System.out.println("+------------------------------------------------+\n");
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -124,21 +160,27 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be read or written to.
      */
     public void updateStockLevel(String name, int level) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|             Updating Stock Level               |");
-        System.out.println("+------------------------------------------------+");
-
-        List<MedicationInventory> medications = loadAllMedications();
-        for (MedicationInventory medication : medications) {
-            if (medication.getMedicationName().equalsIgnoreCase(name)) {
-                int increase = medication.getStockLevel() + level;
-                medication.setStockLevel(increase);
-                break;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.updateStockLevel");
+        try (TableLock lock = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|             Updating Stock Level               |");
+            System.out.println("+------------------------------------------------+");
+
+            List<MedicationInventory> medications = loadAllMedications();
+            for (MedicationInventory medication : medications) {
+                if (medication.getMedicationName().equalsIgnoreCase(name)) {
+                    int increase = medication.getStockLevel() + level;
+                    medication.setStockLevel(increase);
+                    medication.setVersion(medication.getVersion() + 1);
+                    break;
+                }
             }
+            saveAllMedication(medications);
+            System.out.println("| Stock level updated successfully!              |");
+            System.out.println("+------------------------------------------------+\n");
+        } finally {
+            timer.stop();
         }
-        saveAllMedication(medications);
-        System.out.println("| Stock level updated successfully!              |");
-        System.out.println("+------------------------------------------------+\n");
     }
 
     /**
@@ -148,20 +190,59 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be read or written to.
      */
     public void updateStockAlert(String name, int level) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|           Updating Stock Alert Level           |");
-        System.out.println("+------------------------------------------------+");
-
-        List<MedicationInventory> medications = loadAllMedications();
-        for (MedicationInventory medication : medications) {
-            if (medication.getMedicationName().equalsIgnoreCase(name)) {
-                medication.setStockAlertLevel(level);
-                break;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.updateStockAlert");
+        try (TableLock lock = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|           Updating Stock Alert Level           |");
+            System.out.println("+------------------------------------------------+");
+
+            List<MedicationInventory> medications = loadAllMedications();
+            for (MedicationInventory medication : medications) {
+                if (medication.getMedicationName().equalsIgnoreCase(name)) {
+                    medication.setStockAlertLevel(level);
+                    medication.setVersion(medication.getVersion() + 1);
+                    break;
+                }
+            }
+            saveAllMedication(medications);
+            System.out.println("| Stock alert level updated successfully!        |");
+            System.out.println("+------------------------------------------------+\n");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Writes the stock level and stock alert level of a medication, provided nobody changed
+     * the medication since {@code updatedMedication} was read. On success its version is
+     * advanced to the new stored version.
+     * @param updatedMedication the medication with its new levels and the version it was read at.
+     * @return {@code true} if the medication was found and updated, {@code false} if it does not exist.
+     * @throws OptimisticLockException if the medication was changed since it was read.
+     * @throws IOException if the file cannot be read or written to.
+     */
+    public boolean updateMedication(MedicationInventory updatedMedication) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.updateMedication");
+        try (TableLock lock = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            List<MedicationInventory> medications = loadAllMedications();
+            for (MedicationInventory medication : medications) {
+                if (medication.getMedicationName().equalsIgnoreCase(updatedMedication.getMedicationName())) {
+                    if (medication.getVersion() != updatedMedication.getVersion()) {
+                        throw new OptimisticLockException("MedicationInventory", medication.getMedicationName(),
+                                updatedMedication.getVersion(), medication.getVersion());
+                    }
+                    medication.setStockLevel(updatedMedication.getStockLevel());
+                    medication.setStockAlertLevel(updatedMedication.getStockAlertLevel());
+                    medication.setVersion(medication.getVersion() + 1);
+                    updatedMedication.setVersion(medication.getVersion());
+                    saveAllMedication(medications);
+                    return true;
+                }
             }
+            return false;
+        } finally {
+            timer.stop();
         }
-        saveAllMedication(medications);
-        System.out.println("| Stock alert level updated successfully!        |");
-        System.out.println("+------------------------------------------------+\n");
     }
 
     /**
@@ -170,12 +251,13 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be written to.
      */
     private void saveAllMedication(List<MedicationInventory> medications) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_MEDICATION_INVENTORY))) {
-            writer.write("MedicationName,StockLevel,StockAlertLevel\n");
+        try (BufferedWriter writer = MEDICATION_INVENTORY_TABLE.openWriter(false)) {
+            writer.write("MedicationName,StockLevel,StockAlertLevel," + RowVersion.COLUMN + "\n");
             for (MedicationInventory medication : medications) {
                 writer.write(medication.getMedicationName() + ","
                         + medication.getStockLevel() + ","
-                        + medication.getStockAlertLevel() + "\n");
+                        + medication.getStockAlertLevel() + ","
+                        + medication.getVersion() + "\n");
             }
         }
     }
@@ -187,18 +269,23 @@ public class MedicationInventoryRepository {
      * @param status the status of the replenishment request.
      */
     public void saveReplenishmentRequest(String medicationName, String requestId, String status) {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|           Saving Replenishment Request         |");
-        System.out.println("+------------------------------------------------+");
-        try (FileWriter writer = new FileWriter(FILE_PATH_REPLENISHMENT_REQUESTS, true)) {
-            writer.append(medicationName).append(",");
-            writer.append(requestId).append(",");
-            writer.append(status).append("\n");
-            System.out.println("| Replenishment request saved successfully!      |");
-        } catch (IOException e) {
-            System.out.printf("| Error: %-40s |\n", e.getMessage());
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.saveReplenishmentRequest");
+        try {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|           Saving Replenishment Request         |");
+            System.out.println("+------------------------------------------------+");
+            try (BufferedWriter writer = REPLENISHMENT_REQUESTS_TABLE.openWriter(true)) {
+                writer.append(medicationName).append(",");
+                writer.append(requestId).append(",");
+                writer.append(status).append("\n");
+                System.out.println("| Replenishment request saved successfully!      |");
+            } catch (IOException e) {
+                System.out.printf("| Error: %-40s |\n", e.getMessage());
+            }
+            System.out.println("+------------------------------------------------+\n");
+        } finally {
+            timer.stop();
         }
-        System.out.println("+------------------------------------------------+\n");
     }
     
     /**
@@ -208,20 +295,27 @@ public class MedicationInventoryRepository {
      * @throws IOException if the file cannot be read.
      */
     public boolean medicationExists(String medicationName) throws IOException {
-        System.out.println("+------------------------------------------------+");
-        System.out.println("|          Checking Medication Existence         |");
-        System.out.println("+------------------------------------------------+");
-
-        List<MedicationInventory> medications = loadAllMedications();
-        for (MedicationInventory medication : medications) {
-            if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
-                System.out.println("| Medication exists in inventory.                |");
-                System.out.println("+------------------------------------------------+\n");
-                return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicationInventoryRepository.medicationExists");
+        try {
+            System.out.println("+------------------------------------------------+");
+            System.out.println("|          Checking Medication Existence         |");
+            System.out.println("+------------------------------------------------+");
+
+            if (MEDICATION_KEYS.mightContain(medicationName)) {
+                List<MedicationInventory> medications = loadAllMedications();
+                for (MedicationInventory medication : medications) {
+                    if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
+                        System.out.println("| Medication exists in inventory.                |");
+                        System.out.println("+------------------------------------------------+\n");
+                        return true;
+                    }
+                }
             }
+            System.out.println("| Medication does not exist in inventory.        |");
+            System.out.println("+------------------------------------------------+\n");
+            return false;
+        } finally {
+            timer.stop();
         }
-        System.out.println("| Medication does not exist in inventory.        |");
-        System.out.println("+------------------------------------------------+\n");
-        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package repository;
+
+import entity.MedicalRecord;
+import storage.OffHeapTable;
+
+/**
+ * A {@link MedicalRecord} that reads its fields from a row of an {@link OffHeapTable} each time
+ * a getter is called, so a list of records keeps no strings of its own on the heap. Fields
+ * changed since the row was written are taken from the {@link MedicalRecordHistory}.
+ * <p>
+ * The first call to a setter copies the editable fields onto the record, which from then on
+ * behaves as an ordinary {@code MedicalRecord}; the table itself is never changed.
+ * </p>
+ */
+final class OffHeapMedicalRecord extends MedicalRecord {
+    static final int RECORD_ID = 0;
+    static final int PATIENT_ID = 1;
+    static final int DOCTOR_ID = 2;
+    static final int DIAGNOSIS = 3;
+    static final int TREATMENT = 4;
+    static final int PRESCRIPTION = 5;
+    static final int COLUMNS = 6;
+
+    private final OffHeapTable table;
+    private final int row;
+    private final MedicalRecordHistory.Latest latest;
+    private boolean detached;
+
+    OffHeapMedicalRecord(OffHeapTable table, int row, MedicalRecordHistory.Latest latest) {
+        super(null, null, null, null, null, null);
+        this.table = table;
+        this.row = row;
+        this.latest = latest;
+    }
+
+    @Override
+    public String getRecordId() {
+        return table.get(row, RECORD_ID);
+    }
+
+    @Override
+    public String getPatientId() {
+        return table.get(row, PATIENT_ID);
+    }
+
+    @Override
+    public String getDoctorId() {
+        return table.get(row, DOCTOR_ID);
+    }
+
+    @Override
+    public String getDiagnosis() {
+        return detached ? super.getDiagnosis() : current(DIAGNOSIS);
+    }
+
+    @Override
+    public void setDiagnosis(String diagnosis) {
+        detach();
+        super.setDiagnosis(diagnosis);
+    }
+
+    @Override
+    public String getTreatment() {
+        return detached ? super.getTreatment() : current(TREATMENT);
+    }
+
+    @Override
+    public void setTreatment(String treatment) {
+        detach();
+        super.setTreatment(treatment);
+    }
+
+    @Override
+    public String getPrescription() {
+        return detached ? super.getPrescription() : current(PRESCRIPTION);
+    }
+
+    @Override
+    public void setPrescription(String prescription) {
+        detach();
+        super.setPrescription(prescription);
+    }
+
+    @Override
+    public String toString() {
+        return copy().toString();
+    }
+
+    @Override
+    public String patientMRToString() {
+        return copy().patientMRToString();
+    }
+
+    private MedicalRecord copy() {
+        return new MedicalRecord(getRecordId(), getPatientId(), getDoctorId(), getDiagnosis(), getTreatment(),
+                getPrescription());
+    }
+
+    private void detach() {
+        if (!detached) {
+            super.setDiagnosis(current(DIAGNOSIS));
+            super.setTreatment(current(TREATMENT));
+            super.setPrescription(current(PRESCRIPTION));
+            detached = true;
+        }
+    }
+
+    private String current(int column) {
+        String changed = latest.isEmpty() ? null : latest.value(getRecordId(), column);
+        return changed != null ? changed : table.get(row, column);
+    }
+}
@@ -12,6 +12,15 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import storage.BloomFilter;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.EntityCache;
+import storage.OptimisticLockException;
+import storage.RowVersion;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
 /**
  * The PatientRepository class handles all operations related to the storage and retrieval
  * of patient data in a CSV file. It provides functionality for authentication, 
@@ -26,9 +35,14 @@ import java.util.List;
  * The class ensures that patient data can be effectively managed while adhering to 
  * proper file handling practices.
  */
+@SuppressWarnings("try")
 public class PatientRepository implements ValidationInterface, checkHaveQuestionsInterface, PasswordChangerInterface, ChangeSecurityQuestionInterface{
 
-	private static final String FILE_PATH_PATIENT = "sc2002.scmb.grp1.hms//resource//Patient.csv";
+	private static final String FILE_PATH_PATIENT = DataDirectory.resolve("Patient.csv");
+	private static final CsvTable PATIENT_TABLE = CsvTable.forFile(FILE_PATH_PATIENT);
+	private static final BloomFilter PATIENT_KEYS = BloomFilter.forTable(PATIENT_TABLE);
+	private static final EntityCache PATIENT_CACHE = EntityCache.forTable(PATIENT_TABLE);
+	private static final int VERSION_COLUMN = 12; // After the optional Question and Answer columns
 
     /**
      * Creates a Patient object from a CSV line split into parts.
@@ -37,7 +51,30 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      */
     private Patient createPatientFromCSV(String[] parts) {
         // Create a Patient using the CSV parts in the exact order of columns
-        return new Patient(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6], parts[7], parts[8], parts[9]);
+        Patient patient = new Patient(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6], parts[7], parts[8], parts[9]);
+        patient.setVersion(RowVersion.parse(parts, VERSION_COLUMN));
+        return patient;
+    }
+
+    /**
+     * Returns a CSV row with its version advanced by one.
+     * @param parts Array of strings representing columns of a CSV row.
+     * @return The row with the new version, padded with blank Question and Answer columns if needed.
+     */
+    private static String[] nextVersion(String[] parts) {
+        return RowVersion.withVersion(parts, VERSION_COLUMN, RowVersion.parse(parts, VERSION_COLUMN) + 1);
+    }
+
+    /**
+     * Adds the Version column to the header row of a rewritten file if it is missing.
+     * @param allRecords All rows of the file, header first.
+     */
+    private static void addVersionHeader(List<String[]> allRecords) {
+        if (!allRecords.isEmpty() && allRecords.get(0).length <= VERSION_COLUMN) {
+            String[] header = RowVersion.withVersion(allRecords.get(0), VERSION_COLUMN, 0);
+            header[VERSION_COLUMN] = RowVersion.COLUMN;
+            allRecords.set(0, header);
+        }
     }
 
     /**
@@ -47,25 +84,30 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return A User object if credentials are valid, or null if invalid.
      */
     public User validateCredentials(String id, String password) {
-        PasswordController pc = new PasswordController();
-        String df = "Password";
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if(parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)){
-                    return createPatientFromCSV(parts);
-                }
-                else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
-                    return createPatientFromCSV(parts);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.validateCredentials");
+        try {
+            PasswordController pc = new PasswordController();
+            String df = "Password";
+            try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if(parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)){
+                        return createPatientFromCSV(parts);
+                    }
+                    else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
+                        return createPatientFromCSV(parts);
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
         }
-        return null;
-	}
+    }
 
     /**
      * Checks if the user with the given hospital ID has set a security question.
@@ -73,19 +115,24 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return true if a security question is set, false otherwise.
      */
     public boolean checkHaveQuestions(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 10 && parts[0].equals(hospitalID) && !parts[10].isEmpty()) { // UserID and Password
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.checkHaveQuestions");
+        try {
+            try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length > 10 && parts[0].equals(hospitalID) && !parts[10].isEmpty()) { // UserID and Password
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -94,19 +141,24 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return The security question as a String, or "Error" if not found.
      */
     public String returnQuestion(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && !parts[10].isEmpty()) { // UserID and Password
-                    return parts[10];
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.returnQuestion");
+        try {
+            try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && !parts[10].isEmpty()) { // UserID and Password
+                        return parts[10];
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return "Error";
+        } finally {
+            timer.stop();
         }
-        return "Error";
     }
 
     /**
@@ -116,19 +168,24 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return true if the answer matches, false otherwise.
      */
     public boolean questionVerification(String hospitalID, String answer) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && parts[11].equals(answer.toLowerCase())) { // Match ID and Answer
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.questionVerification");
+        try {
+            try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && parts[11].equals(answer.toLowerCase())) { // Match ID and Answer
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
 
     /**
@@ -138,37 +195,51 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return true if the password was successfully updated, false otherwise.
      */
     public boolean changePassword(String hospitalID, String newHashedPassword) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean passwordUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.changePassword");
+        try {
+            try (TableLock lock = PATIENT_TABLE.lockExclusive()) {
+                long[] cached = PATIENT_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean passwordUpdated = false;
     
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID)) {
-                    parts[3] = newHashedPassword; // Update password
-                    passwordUpdated = true;
+                // Load all records from the file
+                try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts[0].equals(hospitalID)) {
+                            parts[3] = newHashedPassword; // Update password
+                            parts = nextVersion(parts);
+                            passwordUpdated = true;
+                        }
+                        allRecords.add(parts);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
     
-        // Rewrite the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PATIENT))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file
+                addVersionHeader(allRecords);
+                try (BufferedWriter writer = PATIENT_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                PATIENT_CACHE.invalidate(cached, hospitalID);
+    
+                return passwordUpdated;
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-    
-        return passwordUpdated;
     }
 	
     /**
@@ -177,22 +248,18 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @throws IOException If an error occurs during file reading.
      */
 	public List<Patient> loadPatients() throws IOException {
-        List<Patient> patients = new ArrayList<>();
-        BufferedReader br = new BufferedReader(new FileReader(FILE_PATH_PATIENT));
-        String line;
-        boolean isFirstLine = true;
-        while ((line = br.readLine()) != null) {
-            if (isFirstLine){
-                isFirstLine = false; //skips the first line
-                continue;
-            }
-            String[] data = line.split(",");
-            
-            patients.add(createPatientFromCSV(data));
-        }
-        br.close();
-        return patients;
-    }
+		MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.loadPatients");
+		try {
+	        List<Patient> patients = new ArrayList<>();
+	        // The header row is left out
+	        for (String[] data : ColumnarSnapshot.readRows(PATIENT_TABLE, ColumnarSnapshot.Splitter.PLAIN)) {
+	            patients.add(createPatientFromCSV(data));
+	        }
+	        return patients;
+		} finally {
+			timer.stop();
+		}
+	}
 
     /**
      * Finds a patient by their hospital ID.
@@ -201,54 +268,106 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @throws IOException If an error occurs during file reading.
      */
     public Patient findPatientById(String patientId) throws IOException {
-        List<Patient> patients = loadPatients();    
-        return patients.stream()
-                .filter(patient -> patient.getUserId().equals(patientId))
-                .findFirst()
-                .orElse(null);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.findPatientById");
+        try {
+            EntityCache.Lookup cached = PATIENT_CACHE.lookup(patientId);
+            String[] row = cached.row();
+            if (row != null) {
+                return createPatientFromCSV(row);
+            }
+            if (!PATIENT_KEYS.mightContain(patientId)) {
+                return null;
+            }
+            for (String[] data : ColumnarSnapshot.readRows(PATIENT_TABLE, ColumnarSnapshot.Splitter.PLAIN)) {
+                if (data[0].equals(patientId)) {
+                    cached.offer(data);
+                    return createPatientFromCSV(data);
+                }
+            }
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Checks if a patient exists, ignoring the case of the ID. Most IDs that are not on file
+     * are ruled out by the table's {@link BloomFilter} without reading the file.
+     * @param patientId The hospital ID of the patient.
+     * @return true if the patient exists, false otherwise.
+     * @throws IOException If an error occurs during file reading.
+     */
+    public boolean hasPatient(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.hasPatient");
+        try {
+            if (!PATIENT_KEYS.mightContain(patientId)) {
+                return false;
+            }
+            return loadPatients().stream()
+                    .anyMatch(patient -> patient.getUserId().equalsIgnoreCase(patientId));
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
-     * Updates a patient's email and phone number in the CSV file.
+     * Updates a patient's email and phone number in the CSV file. The update only succeeds if
+     * the patient's row still has the version of {@code updatedPatient}; on success its version
+     * is advanced to the new stored version.
      * @param updatedPatient The Patient object containing updated information.
      * @return true if the patient's information was successfully updated, false otherwise.
+     * @throws OptimisticLockException If the patient was changed since it was read.
      * @throws IOException If an error occurs during file reading or writing.
      */
     public boolean updatePatient(Patient updatedPatient) throws IOException {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean isUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.updatePatient");
+        try (TableLock lock = PATIENT_TABLE.lockExclusive()) {
+            long[] cached = PATIENT_CACHE.beforeWrite();
+            List<String[]> allRecords = new ArrayList<>();
+            boolean isUpdated = false;
     
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-            String line;
-            boolean firstLine = true;
+            try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                String line;
+                boolean firstLine = true;
     
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    allRecords.add(line.split(","));
-                    firstLine = false; 
-                    continue;
-                }
+                while ((line = reader.readLine()) != null) {
+                    if (firstLine) {
+                        allRecords.add(line.split(","));
+                        firstLine = false; 
+                        continue;
+                    }
     
-                String[] parts = line.split(",");
-                if (parts[0].equals(updatedPatient.getUserId())) {
-                    parts[7] = updatedPatient.getEmail();  //update email
-                    parts[6] = updatedPatient.getPhoneNumber();  //update phone number 
-                    isUpdated = true;
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(updatedPatient.getUserId())) {
+                        long storedVersion = RowVersion.parse(parts, VERSION_COLUMN);
+                        if (storedVersion != updatedPatient.getVersion()) {
+                            throw new OptimisticLockException("Patient", parts[0], updatedPatient.getVersion(), storedVersion);
+                        }
+                        parts[7] = updatedPatient.getEmail();  //update email
+                        parts[6] = updatedPatient.getPhoneNumber();  //update phone number 
+                        parts = nextVersion(parts);
+                        updatedPatient.setVersion(storedVersion + 1);
+                        isUpdated = true;
+                    }
+                    allRecords.add(parts);
                 }
-                allRecords.add(parts);
             }
-        }
     
-        if (isUpdated) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PATIENT))) {
-                for (String[] record : allRecords) {
-                    writer.write(String.join(",", record));
-                    writer.newLine();
+            if (isUpdated) {
+                addVersionHeader(allRecords);
+                try (BufferedWriter writer = PATIENT_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
                 }
+                PATIENT_CACHE.invalidate(cached, updatedPatient.getUserId());
             }
-        }
     
-        return isUpdated;
+            return isUpdated;
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -259,47 +378,61 @@ public class PatientRepository implements ValidationInterface, checkHaveQuestion
      * @return true if the security question was successfully updated, false otherwise.
      */
     public boolean changeSecurityQuestion(String hospitalID, String question, String answer) {
-    List<String[]> allRecords = new ArrayList<>();
-    boolean questionUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientRepository.changeSecurityQuestion");
+        try {
+            try (TableLock lock = PATIENT_TABLE.lockExclusive()) {
+                long[] cached = PATIENT_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean questionUpdated = false;
 
-    // Load all records from the file
-    try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PATIENT))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split(",");
+                // Load all records from the file
+                try (BufferedReader reader = PATIENT_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
 
-            // Check if the record matches the hospitalID
-            if (parts[0].equals(hospitalID)) {
-                // Ensure the CSV has enough columns for Question and Answer
-                if (parts.length <= 10) {
-                    // Add blank placeholders if Question and Answer columns are missing
-                    parts = Arrays.copyOf(parts, 12);
-                    parts[10] = ""; // Question placeholder
-                    parts[11] = ""; // Answer placeholder
+                        // Check if the record matches the hospitalID
+                        if (parts[0].equals(hospitalID)) {
+                            // Ensure the CSV has enough columns for Question and Answer
+                            if (parts.length <= 10) {
+                                // Add blank placeholders if Question and Answer columns are missing
+                                parts = Arrays.copyOf(parts, 12);
+                                parts[10] = ""; // Question placeholder
+                                parts[11] = ""; // Answer placeholder
+                            }
+                            // Update Question and Answer
+                            parts[10] = question;
+                            parts[11] = answer;
+                            parts = nextVersion(parts);
+                            questionUpdated = true;
+                        }
+                        allRecords.add(parts); // Add the record to the list
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                // Update Question and Answer
-                parts[10] = question;
-                parts[11] = answer;
-                questionUpdated = true;
-            }
-            allRecords.add(parts); // Add the record to the list
-        }
-    } catch (IOException e) {
-        System.err.println("Error reading the file: " + e.getMessage());
-        return false; // Indicate failure
-    }
 
-    // Rewrite the file with updated records
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PATIENT))) {
-        for (String[] record : allRecords) {
-            writer.write(String.join(",", record));
-            writer.newLine();
-        }
-    } catch (IOException e) {
-        System.err.println("Error writing to the file: " + e.getMessage());
-        return false; // Indicate failure
-    }
+                // Rewrite the file with updated records
+                addVersionHeader(allRecords);
+                try (BufferedWriter writer = PATIENT_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                PATIENT_CACHE.invalidate(cached, hospitalID);
 
-        return questionUpdated; // Return true if the question was updated
+                return questionUpdated; // Return true if the question was updated
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            timer.stop();
+        }
     }
 }
@@ -0,0 +1,518 @@
+package repository;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.AppointmentStatus;
+import entity.MedicalRecord;
+import entity.TimelineEntry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import storage.CsvTable;
+import storage.OffHeapTable;
+import util.DataDirectory;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
+
+/**
+ * A materialized timeline of every patient: their appointments, the outcome of each completed
+ * appointment and the charge for it, their medical records and their outstanding balance.
+ * <p>
+ * Putting a patient's full picture together otherwise takes a scan of the appointment files,
+ * the outcome files, the medical records and the payment file. Here each of them is read once
+ * into a map keyed by patient ID, and the repositories apply their own writes to the map as
+ * they make them: a booked or changed appointment or outcome replaces its entry, a cancelled
+ * appointment is dropped and a new medical record is added. {@link #getTimeline(String, int)}
+ * is then a single lookup.
+ * </p>
+ * <p>
+ * Each source is stamped with the change count, size and modification time of its files, like
+ * the other caches. A write is only applied if the map was current just before it was made;
+ * a change made by another process, or a file edited by hand, leaves the stamp behind and the
+ * next read reloads that source alone. The payment file has one short row per patient and is
+ * simply reloaded when it changes. Medical records are kept as row numbers of the off-heap
+ * record table, so the map holds none of their text.
+ * </p>
+ */
+public class PatientTimelineRepository {
+    private static final CsvTable PAYMENT_TABLE = CsvTable.forFile(DataDirectory.resolve("Payment.csv"));
+    private static final Object LOCK = new Object();
+    private static View view; // guarded by LOCK
+
+    /**
+     * The files the timeline is built from.
+     */
+    enum Source {
+        APPOINTMENTS, OUTCOMES, RECORDS, PAYMENTS
+    }
+
+    /**
+     * Returns a patient's timeline. Dated entries come first, oldest first, with each
+     * appointment followed by its outcome and, if the appointment is completed, its charge;
+     * medical records, which carry no date, follow in the order they were written, and the
+     * outstanding balance comes last.
+     *
+     * @param patientId       The patient ID.
+     * @param consultationFee The amount charged for each completed appointment.
+     * @return The patient's entries, empty if the patient has none.
+     * @throws IOException if one of the files has changed and cannot be read again.
+     */
+    public List<TimelineEntry> getTimeline(String patientId, int consultationFee) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientTimelineRepository.getTimeline");
+        try {
+            for (int attempt = 0; ; attempt++) {
+                refresh();
+                List<Appointment> appointments;
+                List<AppointmentOutcome> outcomes;
+                int[] recordRows;
+                int unpaid;
+                int paid;
+                synchronized (LOCK) {
+                    Node node = view.patients.get(patientId);
+                    if (node == null) {
+                        node = new Node();
+                    }
+                    appointments = new ArrayList<>(node.appointments);
+                    outcomes = new ArrayList<>(node.outcomes);
+                    recordRows = Arrays.copyOf(node.recordRows, node.recordCount);
+                    unpaid = node.unpaid;
+                    paid = node.paid;
+                }
+
+                List<MedicalRecord> records = records(patientId, recordRows);
+                if (records == null) {
+                    if (attempt == 0) {
+                        // The record file was rewritten under the row numbers; read it again
+                        markStale(Source.RECORDS);
+                        continue;
+                    }
+                    records = new MedicalRecordRepository().findRecordsByPatientId(patientId);
+                }
+                return entries(patientId, appointments, outcomes, records, unpaid, paid, consultationFee);
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // ---------------------------------------------------------------- writes
+
+    /**
+     * Stamps a source before a repository writes to it. Must be called while the writer holds
+     * the source's exclusive lock, and the result passed to the matching hook after the write.
+     *
+     * @param source The source about to change.
+     * @return The stamp, or {@code null} if no timeline has been built or the files could not
+     *         be stamped, in which case the hooks do nothing.
+     */
+    static List<Long> before(Source source) {
+        synchronized (LOCK) {
+            if (view == null) {
+                return null;
+            }
+        }
+        try {
+            return stamp(source);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies a new or changed appointment.
+     *
+     * @param before      The stamp taken by {@link #before(Source)}.
+     * @param appointment The appointment as written; a copy is kept.
+     */
+    static void appointmentSaved(List<Long> before, Appointment appointment) {
+        Appointment copy = new Appointment(appointment.getAppointmentId(), appointment.getPatientId(),
+                appointment.getDoctorId(), appointment.getAppointmentDate(), appointment.getStartTime(),
+                appointment.getEndTime(), appointment.getStatus());
+        copy.setVersion(appointment.getVersion());
+        apply(Source.APPOINTMENTS, before, view -> view.putAppointment(copy));
+    }
+
+    /**
+     * Applies the removal of cancelled or rescheduled appointments.
+     *
+     * @param before       The stamp taken by {@link #before(Source)}.
+     * @param appointments The removed appointments.
+     */
+    static void appointmentsRemoved(List<Long> before, List<Appointment> appointments) {
+        apply(Source.APPOINTMENTS, before, view -> {
+            for (Appointment appointment : appointments) {
+                view.removeAppointment(appointment.getAppointmentId());
+            }
+        });
+    }
+
+    /**
+     * Applies a new or changed appointment outcome.
+     *
+     * @param before  The stamp taken by {@link #before(Source)}.
+     * @param outcome The outcome as written; a copy is kept.
+     */
+    static void outcomeSaved(List<Long> before, AppointmentOutcome outcome) {
+        AppointmentOutcome copy = new AppointmentOutcome(outcome.getOutcomeId(), outcome.getAppointmentId(),
+                outcome.getDate(), outcome.getServiceType(), outcome.getPrescribedMedication().replace("\"", ""),
+                outcome.getMedicationStatus(), outcome.getConsultationNotes());
+        copy.setVersion(outcome.getVersion());
+        apply(Source.OUTCOMES, before, view -> view.putOutcome(copy));
+    }
+
+    /**
+     * Applies a medical record appended as the last row of the record file.
+     *
+     * @param before    The stamp taken by {@link #before(Source)}.
+     * @param patientId The patient the record belongs to.
+     */
+    static void recordAdded(List<Long> before, String patientId) {
+        apply(Source.RECORDS, before, view -> view.node(patientId).addRecordRow(view.recordRows++));
+    }
+
+    /**
+     * Records a write that leaves every timeline as it was, such as moving rows into the
+     * archive or appending a medical record's next version, which is read from the history.
+     *
+     * @param source The source that was written.
+     * @param before The stamp taken by {@link #before(Source)}.
+     */
+    static void unchanged(Source source, List<Long> before) {
+        apply(source, before, view -> {
+        });
+    }
+
+    /**
+     * Adds the change count, size and modification time of a table's file to a stamp.
+     *
+     * @param stamp The stamp being built.
+     * @param table The table.
+     * @throws IOException if the file's attributes cannot be read.
+     */
+    static void addStamp(List<Long> stamp, CsvTable table) throws IOException {
+        stamp.add(table.getChangeCount());
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(table.getFilePath()),
+                    BasicFileAttributes.class);
+            stamp.add(attributes.size());
+            stamp.add(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        } catch (NoSuchFileException e) {
+            stamp.add(-1L);
+            stamp.add(-1L);
+        }
+    }
+
+    private static void apply(Source source, List<Long> before, Consumer<View> change) {
+        if (before == null) {
+            return;
+        }
+        List<Long> after;
+        try {
+            after = stamp(source);
+        } catch (IOException e) {
+            after = null; // leaves the source to be reloaded
+        }
+        synchronized (LOCK) {
+            if (view == null || !before.equals(view.stamps.get(source))) {
+                return; // Already behind; the next read reloads the source
+            }
+            change.accept(view);
+            view.stamps.put(source, after);
+        }
+    }
+
+    private static void markStale(Source source) {
+        synchronized (LOCK) {
+            if (view != null) {
+                view.stamps.remove(source);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- loading
+
+    private static List<Long> stamp(Source source) throws IOException {
+        switch (source) {
+            case APPOINTMENTS:
+                return AppointmentRepository.stamp();
+            case OUTCOMES:
+                return AppointmentOutcomeRepository.stamp();
+            case RECORDS:
+                return MedicalRecordRepository.stamp();
+            default:
+                List<Long> stamp = new ArrayList<>();
+                addStamp(stamp, PAYMENT_TABLE);
+                return stamp;
+        }
+    }
+
+    private static void refresh() throws IOException {
+        Map<Source, List<Long>> current = new EnumMap<>(Source.class);
+        for (Source source : Source.values()) {
+            current.put(source, stamp(source));
+        }
+        EnumSet<Source> stale = EnumSet.noneOf(Source.class);
+        synchronized (LOCK) {
+            for (Source source : Source.values()) {
+                if (view == null || !current.get(source).equals(view.stamps.get(source))) {
+                    stale.add(source);
+                }
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        if (stale.contains(Source.APPOINTMENTS)) {
+            stale.add(Source.OUTCOMES); // Outcomes reach their patient through their appointment
+        }
+
+        // The files are read outside the lock, because writers apply their changes while
+        // holding their table's lock
+        List<Appointment> appointments = stale.contains(Source.APPOINTMENTS)
+                ? new AppointmentRepository().loadAppointmentHistory() : null;
+        List<AppointmentOutcome> outcomes = stale.contains(Source.OUTCOMES)
+                ? new AppointmentOutcomeRepository().loadAppointmentOutcomeHistory() : null;
+        OffHeapTable records = stale.contains(Source.RECORDS) ? MedicalRecordRepository.loadTable() : null;
+        Map<String, int[]> payments = stale.contains(Source.PAYMENTS) ? loadPayments() : null;
+
+        synchronized (LOCK) {
+            if (view == null) {
+                view = new View();
+            }
+            if (appointments != null) {
+                view.setAppointments(appointments);
+            }
+            if (outcomes != null) {
+                view.setOutcomes(outcomes);
+            }
+            if (records != null) {
+                view.setRecords(records);
+            }
+            if (payments != null) {
+                view.setPayments(payments);
+            }
+            for (Source source : stale) {
+                // The stamps were taken before reading, so a write made meanwhile is read again
+                view.stamps.put(source, current.get(source));
+            }
+        }
+    }
+
+    private static Map<String, int[]> loadPayments() throws IOException {
+        Map<String, int[]> payments = new HashMap<>();
+        if (!Files.exists(Path.of(PAYMENT_TABLE.getFilePath()))) {
+            return payments;
+        }
+        try (BufferedReader reader = PAYMENT_TABLE.openReader()) {
+            String line = reader.readLine(); // Skip the header
+            while ((line = reader.readLine()) != null) {
+                String[] data = line.split(",");
+                try {
+                    if (data.length >= 3) {
+                        payments.put(data[0], new int[] {Integer.parseInt(data[1]), Integer.parseInt(data[2])});
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a payment row; skip it
+                }
+            }
+        }
+        return payments;
+    }
+
+    private static List<MedicalRecord> records(String patientId, int[] rows) throws IOException {
+        List<MedicalRecord> records = new ArrayList<>(rows.length);
+        if (rows.length == 0) {
+            return records;
+        }
+        OffHeapTable table = MedicalRecordRepository.loadTable();
+        MedicalRecordHistory.Latest latest = MedicalRecordHistory.latest();
+        byte[] key = patientId.getBytes(StandardCharsets.UTF_8);
+        for (int row : rows) {
+            if (row >= table.size() || !table.matches(row, OffHeapMedicalRecord.PATIENT_ID, key)) {
+                return null;
+            }
+            records.add(new OffHeapMedicalRecord(table, row, latest));
+        }
+        return records;
+    }
+
+    // ---------------------------------------------------------------- entries
+
+    private static List<TimelineEntry> entries(String patientId, List<Appointment> appointments,
+            List<AppointmentOutcome> outcomes, List<MedicalRecord> records, int unpaid, int paid,
+            int consultationFee) {
+        List<Item> items = new ArrayList<>();
+        Set<String> billed = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            if (appointment.getAppointmentStatus() == AppointmentStatus.COMPLETED) {
+                billed.add(appointment.getAppointmentId());
+            }
+            items.add(new Item(day(appointment.getEpochDay()), minute(appointment.getStartMinute()), 0,
+                    new TimelineEntry("Appointment", appointment.getAppointmentId(), appointment.getAppointmentDate(),
+                            appointment.getStartTime() + "-" + appointment.getEndTime(),
+                            "Doctor " + appointment.getDoctorId() + ", " + appointment.getStatus())));
+        }
+        for (AppointmentOutcome outcome : outcomes) {
+            String medication = outcome.getPrescribedMedication();
+            String details = outcome.getServiceType()
+                    + ("nil".equalsIgnoreCase(medication) ? ", no medication"
+                            : ", " + medication + " (" + outcome.getMedicationStatus() + ")")
+                    + ", notes: " + outcome.getConsultationNotes();
+            int day = day(outcome.getEpochDay());
+            items.add(new Item(day, Integer.MAX_VALUE, 1,
+                    new TimelineEntry("Outcome", outcome.getOutcomeId(), outcome.getDate(), null, details)));
+            if (billed.contains(outcome.getAppointmentId())) {
+                // Only completed appointments are charged (see PaymentService.chargeForAppointment)
+                items.add(new Item(day, Integer.MAX_VALUE, 2,
+                        new TimelineEntry("Charge", outcome.getAppointmentId(), outcome.getDate(), null,
+                                "Consultation fee $" + consultationFee)));
+            }
+        }
+        for (MedicalRecord record : records) {
+            items.add(new Item(Integer.MAX_VALUE, Integer.MAX_VALUE, 3,
+                    new TimelineEntry("Medical Record", record.getRecordId(), null, null,
+                            "Diagnosis: " + record.getDiagnosis() + ", treatment: " + record.getTreatment()
+                                    + ", prescription: " + record.getPrescription())));
+        }
+        if (unpaid >= 0) {
+            items.add(new Item(Integer.MAX_VALUE, Integer.MAX_VALUE, 4,
+                    new TimelineEntry("Balance", patientId, null, null, "Amount due $" + unpaid * consultationFee
+                            + " (" + unpaid + " unpaid, " + paid + " paid consultations)")));
+        }
+
+        // Stable, so records keep the order they were written in
+        items.sort(Comparator.comparingInt(Item::day).thenComparingInt(Item::minute).thenComparingInt(Item::rank));
+        List<TimelineEntry> entries = new ArrayList<>(items.size());
+        for (Item item : items) {
+            entries.add(item.entry());
+        }
+        return entries;
+    }
+
+    private static int day(int epochDay) {
+        return epochDay == DateTimeUtil.INVALID ? Integer.MAX_VALUE : epochDay;
+    }
+
+    private static int minute(int minuteOfDay) {
+        return minuteOfDay == DateTimeUtil.INVALID ? Integer.MAX_VALUE : minuteOfDay;
+    }
+
+    private record Item(int day, int minute, int rank, TimelineEntry entry) {
+    }
+
+    // ---------------------------------------------------------------- state
+
+    private static final class View {
+        private final Map<String, Node> patients = new HashMap<>();
+        private final Map<String, String> appointmentPatients = new HashMap<>();
+        private final Map<Source, List<Long>> stamps = new EnumMap<>(Source.class);
+        private int recordRows;
+
+        private Node node(String patientId) {
+            return patients.computeIfAbsent(patientId, key -> new Node());
+        }
+
+        private void setAppointments(List<Appointment> appointments) {
+            for (Node node : patients.values()) {
+                node.appointments.clear();
+            }
+            appointmentPatients.clear();
+            for (Appointment appointment : appointments) {
+                putAppointment(appointment);
+            }
+        }
+
+        private void putAppointment(Appointment appointment) {
+            String previous = appointmentPatients.put(appointment.getAppointmentId(), appointment.getPatientId());
+            if (previous != null) {
+                node(previous).appointments.removeIf(
+                        existing -> existing.getAppointmentId().equals(appointment.getAppointmentId()));
+            }
+            node(appointment.getPatientId()).appointments.add(appointment);
+        }
+
+        private void removeAppointment(String appointmentId) {
+            String patientId = appointmentPatients.remove(appointmentId);
+            if (patientId != null) {
+                Node node = node(patientId);
+                node.appointments.removeIf(existing -> existing.getAppointmentId().equals(appointmentId));
+                node.outcomes.removeIf(existing -> existing.getAppointmentId().equals(appointmentId));
+            }
+        }
+
+        private void setOutcomes(List<AppointmentOutcome> outcomes) {
+            for (Node node : patients.values()) {
+                node.outcomes.clear();
+            }
+            for (AppointmentOutcome outcome : outcomes) {
+                putOutcome(outcome);
+            }
+        }
+
+        private void putOutcome(AppointmentOutcome outcome) {
+            String patientId = appointmentPatients.get(outcome.getAppointmentId());
+            if (patientId == null) {
+                return; // Not one of any patient's appointments
+            }
+            List<AppointmentOutcome> outcomes = node(patientId).outcomes;
+            outcomes.removeIf(existing -> existing.getOutcomeId().equals(outcome.getOutcomeId()));
+            outcomes.add(outcome);
+        }
+
+        private void setRecords(OffHeapTable table) {
+            for (Node node : patients.values()) {
+                node.recordCount = 0;
+            }
+            for (int row = 1; row < table.size(); row++) { // Row 0 is the header
+                node(table.get(row, OffHeapMedicalRecord.PATIENT_ID)).addRecordRow(row);
+            }
+            recordRows = table.size();
+        }
+
+        private void setPayments(Map<String, int[]> payments) {
+            for (Node node : patients.values()) {
+                node.unpaid = -1;
+                node.paid = 0;
+            }
+            for (Map.Entry<String, int[]> payment : payments.entrySet()) {
+                Node node = node(payment.getKey());
+                node.unpaid = payment.getValue()[0];
+                node.paid = payment.getValue()[1];
+            }
+        }
+    }
+
+    private static final class Node {
+        private static final int[] NO_ROWS = new int[0];
+
+        private final List<Appointment> appointments = new ArrayList<>(2);
+        private final List<AppointmentOutcome> outcomes = new ArrayList<>(1);
+        private int[] recordRows = NO_ROWS;
+        private int recordCount;
+        private int unpaid = -1;
+        private int paid;
+
+        private void addRecordRow(int row) {
+            if (recordCount == recordRows.length) {
+                recordRows = Arrays.copyOf(recordRows, Math.max(2, recordCount * 2));
+            }
+            recordRows[recordCount++] = row;
+        }
+    }
+}
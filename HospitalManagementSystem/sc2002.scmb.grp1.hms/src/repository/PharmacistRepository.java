@@ -16,11 +16,21 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import storage.BloomFilter;
+import storage.CsvTable;
+import storage.EntityCache;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
 
+@SuppressWarnings("try")
 public class PharmacistRepository implements ValidationInterface, checkHaveQuestionsInterface, PasswordChangerInterface,
         ChangeSecurityQuestionInterface {
 
-    private static final String FILE_PATH_PHARMACISTS = "sc2002.scmb.grp1.hms//resource//Pharmacist.csv";
+    private static final String FILE_PATH_PHARMACISTS = DataDirectory.resolve("Pharmacist.csv");
+    private static final CsvTable PHARMACISTS_TABLE = CsvTable.forFile(FILE_PATH_PHARMACISTS);
+    private static final BloomFilter PHARMACIST_KEYS = BloomFilter.forTable(PHARMACISTS_TABLE);
+    private static final EntityCache PHARMACIST_CACHE = EntityCache.forTable(PHARMACISTS_TABLE);
 
      /**
      * Creates a Pharmacist object from a CSV line.
@@ -41,23 +51,28 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return A User object if credentials are valid, null otherwise.
      */
     public User validateCredentials(String id, String password) {
-        PasswordController pc = new PasswordController();
-        String df = "Password";
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
-                    return createPharmacistFromCSV(parts);
-                } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
-                    return createPharmacistFromCSV(parts);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.validateCredentials");
+        try {
+            PasswordController pc = new PasswordController();
+            String df = "Password";
+            try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(id) && parts[3].equals(df) && parts[3].equals(password)) {
+                        return createPharmacistFromCSV(parts);
+                    } else if (parts[0].equals(id) && parts[3].equals(pc.hashPassword(password))) { // UserID and Password
+                        return createPharmacistFromCSV(parts);
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
         }
-        return null;
     }
 
     /**
@@ -67,19 +82,24 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return True if a security question exists, false otherwise.
      */
     public boolean checkHaveQuestions(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length > 8 && parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.checkHaveQuestions");
+        try {
+            try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length > 8 && parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
     /**
      * Returns the security question for a given pharmacist ID.
@@ -88,19 +108,24 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return The security question if found, or "Error" otherwise.
      */
     public String returnQuestion(String hospitalID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
-                    return parts[8];
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.returnQuestion");
+        try {
+            try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && !parts[8].isEmpty()) { // UserID and Password
+                        return parts[8];
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return "Error";
+        } finally {
+            timer.stop();
         }
-        return "Error";
     }
     /**
      * Verifies the answer to a security question for a given pharmacist ID.
@@ -110,19 +135,24 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return True if the answer is correct, false otherwise.
      */
     public boolean questionVerification(String hospitalID, String answer) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            reader.readLine(); // Skip header
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID) && parts[9].equals(answer.toLowerCase())) { // Match ID and Answer
-                    return true;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.questionVerification");
+        try {
+            try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                reader.readLine(); // Skip header
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts[0].equals(hospitalID) && parts[9].equals(answer.toLowerCase())) { // Match ID and Answer
+                        return true;
+                    }
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
-        return false;
     }
     /**
      * Changes the password for a given pharmacist ID.
@@ -132,37 +162,49 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return True if the password was updated, false otherwise.
      */
     public boolean changePassword(String hospitalID, String newHashedPassword) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean passwordUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.changePassword");
+        try {
+            try (TableLock lock = PHARMACISTS_TABLE.lockExclusive()) {
+                long[] cached = PHARMACIST_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean passwordUpdated = false;
 
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(hospitalID)) {
-                    parts[3] = newHashedPassword; // Update password
-                    passwordUpdated = true;
+                // Load all records from the file
+                try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
+                        if (parts[0].equals(hospitalID)) {
+                            parts[3] = newHashedPassword; // Update password
+                            passwordUpdated = true;
+                        }
+                        allRecords.add(parts);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PHARMACISTS))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file
+                try (BufferedWriter writer = PHARMACISTS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                PHARMACIST_CACHE.invalidate(cached, hospitalID);
+
+                return passwordUpdated;
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return passwordUpdated;
     }
     /**
      * Changes the security question and answer for a given pharmacist ID.
@@ -173,48 +215,60 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @return True if the security question was updated, false otherwise.
      */
     public boolean changeSecurityQuestion(String hospitalID, String question, String answer) {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean questionUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.changeSecurityQuestion");
+        try {
+            try (TableLock lock = PHARMACISTS_TABLE.lockExclusive()) {
+                long[] cached = PHARMACIST_CACHE.beforeWrite();
+                List<String[]> allRecords = new ArrayList<>();
+                boolean questionUpdated = false;
 
-        // Load all records from the file
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
+                // Load all records from the file
+                try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(",");
 
-                // Check if the record matches the hospitalID
-                if (parts[0].equals(hospitalID)) {
-                    // Ensure the CSV has enough columns for Question and Answer
-                    if (parts.length <= 8) {
-                        // Add blank placeholders if Question and Answer columns are missing
-                        parts = Arrays.copyOf(parts, 10);
-                        parts[8] = ""; // Question placeholder
-                        parts[9] = ""; // Answer placeholder
+                        // Check if the record matches the hospitalID
+                        if (parts[0].equals(hospitalID)) {
+                            // Ensure the CSV has enough columns for Question and Answer
+                            if (parts.length <= 8) {
+                                // Add blank placeholders if Question and Answer columns are missing
+                                parts = Arrays.copyOf(parts, 10);
+                                parts[8] = ""; // Question placeholder
+                                parts[9] = ""; // Answer placeholder
+                            }
+                            // Update Question and Answer
+                            parts[8] = question;
+                            parts[9] = answer;
+                            questionUpdated = true;
+                        }
+                        allRecords.add(parts); // Add the record to the list
                     }
-                    // Update Question and Answer
-                    parts[8] = question;
-                    parts[9] = answer;
-                    questionUpdated = true;
+                } catch (IOException e) {
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    return false; // Indicate failure
                 }
-                allRecords.add(parts); // Add the record to the list
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading the file: " + e.getMessage());
-            return false; // Indicate failure
-        }
 
-        // Rewrite the file with updated records
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PHARMACISTS))) {
-            for (String[] record : allRecords) {
-                writer.write(String.join(",", record));
-                writer.newLine();
+                // Rewrite the file with updated records
+                try (BufferedWriter writer = PHARMACISTS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the file: " + e.getMessage());
+                    return false; // Indicate failure
+                }
+                PHARMACIST_CACHE.invalidate(cached, hospitalID);
+
+                return questionUpdated; // Return true if the question was updated
+            } catch (IOException e) {
+                System.err.println("Error locking the file: " + e.getMessage());
+                return false;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            return false; // Indicate failure
+        } finally {
+            timer.stop();
         }
-
-        return questionUpdated; // Return true if the question was updated
     }
 
     /**
@@ -224,20 +278,25 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while reading the file.
      */
     public List<Pharmacist> loadPharmacists() throws IOException {  
-        List<Pharmacist> pharmacists = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            br.readLine(); // Skip header row
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length >= 8) { // Ensure minimum required fields to avoid errors
-                    pharmacists.add(createPharmacistFromCSV(data));
-                } else {
-                    System.err.println("Skipped invalid line: " + line);
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.loadPharmacists");
+        try {
+            List<Pharmacist> pharmacists = new ArrayList<>();
+            try (BufferedReader br = PHARMACISTS_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 8) { // Ensure minimum required fields to avoid errors
+                        pharmacists.add(createPharmacistFromCSV(data));
+                    } else {
+                        System.err.println("Skipped invalid line: " + line);
+                    }
                 }
             }
+            return pharmacists;
+        } finally {
+            timer.stop();
         }
-        return pharmacists;
     }
     /**
      * Adds a new pharmacist to the CSV file.
@@ -246,22 +305,31 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while writing to the file.
      */
     public void writePharmacist(Pharmacist newPharmacist) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PHARMACISTS, true))) {
-            String csvLine = String.join(",",
-                    newPharmacist.getUserId(),
-                    newPharmacist.getName(),
-                    newPharmacist.getRole(),
-                    newPharmacist.getPassword(),
-                    newPharmacist.getGender(),
-                    newPharmacist.getAge(),
-                    newPharmacist.getStaffEmail(),
-                    newPharmacist.getStaffContact()
-            );
-            writer.write(csvLine);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.writePharmacist");
+        try (TableLock lock = PHARMACISTS_TABLE.lockExclusive()) {
+            long[] cached = PHARMACIST_CACHE.beforeWrite();
+            long[] before = PHARMACIST_KEYS.beforeWrite();
+            try (BufferedWriter writer = PHARMACISTS_TABLE.openWriter(true)) {
+                String csvLine = String.join(",",
+                        newPharmacist.getUserId(),
+                        newPharmacist.getName(),
+                        newPharmacist.getRole(),
+                        newPharmacist.getPassword(),
+                        newPharmacist.getGender(),
+                        newPharmacist.getAge(),
+                        newPharmacist.getStaffEmail(),
+                        newPharmacist.getStaffContact()
+                );
+                writer.write(csvLine);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e;
+            }
+            PHARMACIST_CACHE.invalidate(cached, newPharmacist.getUserId());
+            PHARMACIST_KEYS.added(before, newPharmacist.getUserId());
+        } finally {
+            timer.stop();
         }
     }
 
@@ -272,31 +340,38 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while writing to the file.
      */
     public void removePharmacistById(String pharmacistID) throws IOException {
-        List<Pharmacist> pharmacists = loadPharmacists(); // Load all pharmacists
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.removePharmacistById");
+        try (TableLock lock = PHARMACISTS_TABLE.lockExclusive()) {
+            long[] cached = PHARMACIST_CACHE.beforeWrite();
+            List<Pharmacist> pharmacists = loadPharmacists(); // Load all pharmacists
 
-        // Remove the pharmacist with the specified ID
-        pharmacists.removeIf(pharmacist -> pharmacist.getUserId().equals(pharmacistID));
+            // Remove the pharmacist with the specified ID
+            pharmacists.removeIf(pharmacist -> pharmacist.getUserId().equals(pharmacistID));
 
-        // Rewrite the CSV file with the updated list of pharmacists
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PHARMACISTS))) {
-            writer.write("UserID,Name,Role,Password,Gender,Age,StaffEmail,StaffContact\n"); // Header
-            for (Pharmacist pharmacist : pharmacists) {
-                String csvLine = String.join(",",
-                        pharmacist.getUserId(),
-                        pharmacist.getName(),
-                        pharmacist.getRole(),
-                        pharmacist.getPassword(),
-                        pharmacist.getGender(),
-                        pharmacist.getAge(),
-                        pharmacist.getStaffEmail(),
-                        pharmacist.getStaffContact()
-                );
-                writer.write(csvLine);
-                writer.newLine();
+            // Rewrite the CSV file with the updated list of pharmacists
+            try (BufferedWriter writer = PHARMACISTS_TABLE.openWriter(false)) {
+                writer.write("UserID,Name,Role,Password,Gender,Age,StaffEmail,StaffContact\n"); // Header
+                for (Pharmacist pharmacist : pharmacists) {
+                    String csvLine = String.join(",",
+                            pharmacist.getUserId(),
+                            pharmacist.getName(),
+                            pharmacist.getRole(),
+                            pharmacist.getPassword(),
+                            pharmacist.getGender(),
+                            pharmacist.getAge(),
+                            pharmacist.getStaffEmail(),
+                            pharmacist.getStaffContact()
+                    );
+                    writer.write(csvLine);
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to the file: " + e.getMessage());
+                throw e;
             }
-        } catch (IOException e) {
-            System.err.println("Error writing to the file: " + e.getMessage());
-            throw e;
+            PHARMACIST_CACHE.invalidate(cached, pharmacistID);
+        } finally {
+            timer.stop();
         }
     }
 
@@ -308,12 +383,31 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while reading the file.
      */
     public Pharmacist findPharmacistById(String pharmacistId) throws IOException {
-        List<Pharmacist> pharmacists = loadPharmacists();
-        // Search for the pharmacist with the given ID
-        return pharmacists.stream()
-                .filter(pharmacist -> pharmacist.getUserId().equals(pharmacistId))
-                .findFirst()
-                .orElse(null); // Return null if no pharmacist is found
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.findPharmacistById");
+        try {
+            EntityCache.Lookup cached = PHARMACIST_CACHE.lookup(pharmacistId);
+            String[] row = cached.row();
+            if (row != null) {
+                return createPharmacistFromCSV(row);
+            }
+            if (!PHARMACIST_KEYS.mightContain(pharmacistId)) {
+                return null;
+            }
+            try (BufferedReader br = PHARMACISTS_TABLE.openReader()) {
+                br.readLine(); // Skip header row
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] data = line.split(",");
+                    if (data.length >= 8 && data[0].equals(pharmacistId)) {
+                        cached.offer(data);
+                        return createPharmacistFromCSV(data);
+                    }
+                }
+            }
+            return null; // Return null if no pharmacist is found
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -324,43 +418,50 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while writing to the file.
      */
     public boolean updatePharmacist(Pharmacist updatedPharmacist) throws IOException {
-        List<String[]> allRecords = new ArrayList<>();
-        boolean isUpdated = false;
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.updatePharmacist");
+        try (TableLock lock = PHARMACISTS_TABLE.lockExclusive()) {
+            long[] cached = PHARMACIST_CACHE.beforeWrite();
+            List<String[]> allRecords = new ArrayList<>();
+            boolean isUpdated = false;
     
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_PHARMACISTS))) {
-            String line;
-            boolean firstLine = true;
+            try (BufferedReader reader = PHARMACISTS_TABLE.openReader()) {
+                String line;
+                boolean firstLine = true;
     
-            // Read the CSV file line by line
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    allRecords.add(line.split(","));
-                    firstLine = false;
-                    continue;
-                }
+                // Read the CSV file line by line
+                while ((line = reader.readLine()) != null) {
+                    if (firstLine) {
+                        allRecords.add(line.split(","));
+                        firstLine = false;
+                        continue;
+                    }
     
-                String[] parts = line.split(",");
-                // Check if this line corresponds to the pharmacist we want to update
-                if (parts[0].equals(updatedPharmacist.getUserId())) {
-                    parts[6] = updatedPharmacist.getStaffEmail(); // Update email
-                    parts[7] = updatedPharmacist.getStaffContact(); // Update phone number
-                    isUpdated = true;
+                    String[] parts = line.split(",");
+                    // Check if this line corresponds to the pharmacist we want to update
+                    if (parts[0].equals(updatedPharmacist.getUserId())) {
+                        parts[6] = updatedPharmacist.getStaffEmail(); // Update email
+                        parts[7] = updatedPharmacist.getStaffContact(); // Update phone number
+                        isUpdated = true;
+                    }
+                    allRecords.add(parts);
                 }
-                allRecords.add(parts);
             }
-        }
     
-        // If we made an update, rewrite the CSV
-        if (isUpdated) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_PHARMACISTS))) {
-                for (String[] record : allRecords) {
-                    writer.write(String.join(",", record));
-                    writer.newLine();
+            // If we made an update, rewrite the CSV
+            if (isUpdated) {
+                try (BufferedWriter writer = PHARMACISTS_TABLE.openWriter(false)) {
+                    for (String[] record : allRecords) {
+                        writer.write(String.join(",", record));
+                        writer.newLine();
+                    }
                 }
+                PHARMACIST_CACHE.invalidate(cached, updatedPharmacist.getUserId());
             }
-        }
     
-        return isUpdated;
+            return isUpdated;
+        } finally {
+            timer.stop();
+        }
     }
     /**
      * Checks if a pharmacist exists by their ID.
@@ -370,9 +471,17 @@ public class PharmacistRepository implements ValidationInterface, checkHaveQuest
      * @throws IOException If an error occurs while reading the file.
      */
     public boolean hasPharmacist(String userId) throws IOException {
-        List<Pharmacist> pharmacists = loadPharmacists();
-        return pharmacists.stream()
-                .anyMatch(pharmacist -> pharmacist.getUserId().equals(userId));
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PharmacistRepository.hasPharmacist");
+        try {
+            if (!PHARMACIST_KEYS.mightContain(userId)) {
+                return false;
+            }
+            List<Pharmacist> pharmacists = loadPharmacists();
+            return pharmacists.stream()
+                    .anyMatch(pharmacist -> pharmacist.getUserId().equals(userId));
+        } finally {
+            timer.stop();
+        }
     }
 }
 
@@ -4,28 +4,45 @@ import entity.ReplenishmentRequests;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import storage.ArchiveStore;
+import storage.ColumnarSnapshot;
+import storage.CsvTable;
+import storage.TableLock;
+import storage.TailedRows;
+import util.CSVUtil;
+import util.DataDirectory;
+import util.MetricsRegistry;
 /**
  * Repository class for managing replenishment requests.
  * Provides functionality to save, load, and update replenishment requests stored in a CSV file.
+ * <p>
+ * Completed requests can be moved to the table's compressed archive (see
+ * {@link #archiveCompleted(int)}). Archived requests are left out of {@link #loadAllRequests()}
+ * but are still found by {@link #getRequestById(int)}.
+ * </p>
  */
+@SuppressWarnings("try")
 public class ReplenishmentRequestRepository {
-    private static final String FILE_PATH_REPLENISHMENT_REQUESTS = "sc2002.scmb.grp1.hms/resource/ReplenishmentRequests.csv";
-    private static int nextRequestId = -1; // Uninitialized marker
+    private static final String FILE_PATH_REPLENISHMENT_REQUESTS = DataDirectory.resolve("ReplenishmentRequests.csv");
+    private static final CsvTable REPLENISHMENT_REQUESTS_TABLE = CsvTable.forFile(FILE_PATH_REPLENISHMENT_REQUESTS);
+    private static final ArchiveStore ARCHIVE = ArchiveStore.forTable(REPLENISHMENT_REQUESTS_TABLE);
+    private static final String HEADER = "RequestId,MedicationName,Quantity,Status";
+
     /**
-     * Initializes the request ID by reading the highest existing ID from the CSV file.
-     * If the file does not exist or is empty, starts the ID at 1.
+     * Reads the next request ID from the highest existing ID in the CSV file. If the file does
+     * not exist or is empty, starts the ID at 1. Other processes may have added requests since
+     * this one last looked, so call it while holding the table's exclusive lock and write the
+     * request before releasing it. Archiving keeps the highest ID in the file and requests are
+     * never deleted, so the file alone is enough.
      *
+     * @return the ID to give the next request.
      * @throws IOException if an error occurs while reading the file.
      */
-    private void initializeRequestId() throws IOException {
+    private int nextRequestId() throws IOException {
         int highestId = 0;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_REPLENISHMENT_REQUESTS))) {
-            String line;
-            reader.readLine(); // Skip the header row if present
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
+        try {
+            for (String[] fields : TailedRows.readRows(REPLENISHMENT_REQUESTS_TABLE, ColumnarSnapshot.Splitter.PLAIN)) {
                 if (fields.length > 0) {
                     try {
                         int currentId = Integer.parseInt(fields[0]); // Read the first field as ID
@@ -39,7 +56,7 @@ public class ReplenishmentRequestRepository {
             // File not found means this is the first request
         }
 
-        nextRequestId = highestId + 1; // Start with the next ID
+        return highestId + 1; // Start with the next ID
     }
 
     // Save a replenishment request to the CSV file
@@ -51,26 +68,25 @@ public class ReplenishmentRequestRepository {
      * @throws IOException if an error occurs while saving the request.
      */
     public void saveReplenishmentRequest(String medicationName, int quantity) throws IOException {
-        if (nextRequestId == -1) { // Initialize only if not already initialized
-            initializeRequestId();
-        }
-
-        String status = "Pending";
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.saveReplenishmentRequest");
+        try (TableLock lock = REPLENISHMENT_REQUESTS_TABLE.lockExclusive()) {
+            // Read under the lock, so requests saved by another process are counted
+            int requestId = nextRequestId();
 
-        try (FileWriter writer = new FileWriter(FILE_PATH_REPLENISHMENT_REQUESTS, true)) {
-            // Convert int `nextRequestId` to String when writing to the file
-            writer.append(String.valueOf(nextRequestId)).append(",") // Use String.valueOf for conversion
-                    .append(medicationName).append(",")
-                    .append(String.valueOf(quantity)).append(",")
-                    .append(status).append("\n");
+            String status = "Pending";
 
-            System.out.println("+------------------------------------------------+");
-            System.out.printf("| Replenishment request ID %-20d saved. |\n", nextRequestId);
-            System.out.println("+------------------------------------------------+\n");
+            try {
+                CSVUtil.appendRow(REPLENISHMENT_REQUESTS_TABLE, toCsv(
+                        new ReplenishmentRequests(requestId, medicationName, quantity, status)));
 
-            nextRequestId++; // Increment the static counter after saving
-        } catch (IOException e) {
-            throw new IOException("Error saving replenishment request: " + e.getMessage(), e);
+                System.out.println("+------------------------------------------------+");
+                System.out.printf("| Replenishment request ID %-20d saved. |\n", requestId);
+                System.out.println("+------------------------------------------------+\n");
+            } catch (IOException e) {
+                throw new IOException("Error saving replenishment request: " + e.getMessage(), e);
+            }
+        } finally {
+            timer.stop();
         }
     }
 
@@ -82,36 +98,104 @@ public class ReplenishmentRequestRepository {
      * @throws IOException if an error occurs while reading the file.
      */
     public List<ReplenishmentRequests> loadAllRequests() throws IOException {
-        List<ReplenishmentRequests> requests = new ArrayList<>();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.loadAllRequests");
+        try {
+            List<ReplenishmentRequests> requests = new ArrayList<>();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_REPLENISHMENT_REQUESTS))) {
-            String line;
-            reader.readLine(); // Skip the header row if there is one
+            try {
+                for (String[] fields : TailedRows.readRows(REPLENISHMENT_REQUESTS_TABLE, ColumnarSnapshot.Splitter.PLAIN)) {
+                    addRequest(fields, requests);
+                }
+            } catch (FileNotFoundException e) {
+                // If the file does not exist, return an empty list
+                System.err.println("Replenishment requests file not found. Returning an empty list.");
+            } catch (IOException e) {
+                throw new IOException("Error reading replenishment requests: " + e.getMessage(), e);
+            }
 
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
+            return requests;
+        } finally {
+            timer.stop();
+        }
+    }
 
-                if (fields.length == 4) { // Ensure all fields are present
-                    try {
-                        int requestId = Integer.parseInt(fields[0]); // Parse ID as int
-                        String medicationName = fields[1];
-                        int quantity = Integer.parseInt(fields[2]); // Parse quantity as int
-                        String status = fields[3].trim();
+    /**
+     * Moves completed requests into the archive, apart from the most recent ones. Requests
+     * carry no date, so their age is measured in requests: the newest {@code keepLatest}
+     * requests stay in the file whatever their status, and so does the highest ID, which new
+     * IDs carry on from.
+     *
+     * @param keepLatest the number of most recent requests to keep in the file.
+     * @return the number of requests archived.
+     * @throws IOException if an error occurs while reading or writing the files.
+     */
+    public int archiveCompleted(int keepLatest) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.archiveCompleted");
+        try (TableLock lock = REPLENISHMENT_REQUESTS_TABLE.lockExclusive()) {
+            List<ReplenishmentRequests> allRequests = loadAllRequests();
+            List<Integer> ids = new ArrayList<>();
+            for (ReplenishmentRequests request : allRequests) {
+                ids.add(request.getRequestId());
+            }
+            ids.sort(null);
+            int oldestKept = ids.isEmpty() ? 0 : ids.get(Math.max(0, ids.size() - Math.max(1, keepLatest)));
 
-                        requests.add(new ReplenishmentRequests(requestId, medicationName, quantity, status));
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error parsing row: " + line);
-                    }
+            List<ReplenishmentRequests> kept = new ArrayList<>();
+            List<String> archived = new ArrayList<>();
+            for (ReplenishmentRequests request : allRequests) {
+                if (request.getRequestId() < oldestKept && "Completed".equalsIgnoreCase(request.getStatus())) {
+                    archived.add(toCsv(request));
+                } else {
+                    kept.add(request);
                 }
             }
-        } catch (FileNotFoundException e) {
-            // If the file does not exist, return an empty list
-            System.err.println("Replenishment requests file not found. Returning an empty list.");
-        } catch (IOException e) {
-            throw new IOException("Error reading replenishment requests: " + e.getMessage(), e);
+            if (archived.isEmpty()) {
+                return 0;
+            }
+
+            // Archive first: a failure in between leaves the request in both places, never in neither
+            ARCHIVE.write(HEADER, archived, null, null);
+            try (BufferedWriter writer = REPLENISHMENT_REQUESTS_TABLE.openWriter(false)) {
+                writer.write(HEADER + "\n");
+                for (ReplenishmentRequests request : kept) {
+                    writer.write(toCsv(request) + "\n");
+                }
+            }
+            return archived.size();
+        } finally {
+            timer.stop();
         }
+    }
 
-        return requests;
+    private static void readRequests(BufferedReader reader, List<ReplenishmentRequests> requests) throws IOException {
+        String line;
+        reader.readLine(); // Skip the header row if there is one
+
+        while ((line = reader.readLine()) != null) {
+            addRequest(line.split(","), requests);
+        }
+    }
+
+    private static void addRequest(String[] fields, List<ReplenishmentRequests> requests) {
+        if (fields.length == 4) { // Ensure all fields are present
+            try {
+                int requestId = Integer.parseInt(fields[0]); // Parse ID as int
+                String medicationName = fields[1];
+                int quantity = Integer.parseInt(fields[2]); // Parse quantity as int
+                String status = fields[3].trim();
+
+                requests.add(new ReplenishmentRequests(requestId, medicationName, quantity, status));
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing row: " + String.join(",", fields));
+            }
+        }
+    }
+
+    private static String toCsv(ReplenishmentRequests request) {
+        return request.getRequestId() + "," +
+                request.getMedicationName() + "," +
+                request.getQuantity() + "," +
+                request.getStatus();
     }
 
     /**
@@ -121,57 +205,78 @@ public class ReplenishmentRequestRepository {
      * @throws IOException if an error occurs while loading the requests.
      */
     public List<ReplenishmentRequests> pendingRequests() throws IOException {
-        List<ReplenishmentRequests> allRequests = loadAllRequests();
-        List<ReplenishmentRequests> pending = new ArrayList<>();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.pendingRequests");
+        try {
+            List<ReplenishmentRequests> allRequests = loadAllRequests();
+            List<ReplenishmentRequests> pending = new ArrayList<>();
 
-        for (ReplenishmentRequests request : allRequests) {
-            if ("Pending".equalsIgnoreCase(request.getStatus())) {
-                pending.add(request);
+            for (ReplenishmentRequests request : allRequests) {
+                if ("Pending".equalsIgnoreCase(request.getStatus())) {
+                    pending.add(request);
+                }
             }
-        }
 
-        return pending;
+            return pending;
+        } finally {
+            timer.stop();
+        }
     }
     /**
-     * Retrieves a specific replenishment request by its ID.
+     * Retrieves a specific replenishment request by its ID, looking in the archive if it is
+     * not in the file.
      *
      * @param requestId the ID of the request to retrieve.
      * @return the replenishment request with the given ID, or null if not found.
      * @throws IOException if an error occurs while reading the file.
      */
     public ReplenishmentRequests getRequestById(int requestId) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH_REPLENISHMENT_REQUESTS))) {
-            String line;
-            reader.readLine(); // Skip the header row if there is one
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.getRequestById");
+        try {
+            try {
+                for (String[] fields : TailedRows.readRows(REPLENISHMENT_REQUESTS_TABLE, ColumnarSnapshot.Splitter.PLAIN)) {
+                    if (fields.length == 4) { // Ensure all fields are present
+                        try {
+                            int currentRequestId = Integer.parseInt(fields[0]); // Parse ID as int
+                            if (currentRequestId == requestId) {
+                                String medicationName = fields[1];
+                                int quantity = Integer.parseInt(fields[2]); // Parse quantity as int
+                                String status = fields[3].trim();
 
-                if (fields.length == 4) { // Ensure all fields are present
-                    try {
-                        int currentRequestId = Integer.parseInt(fields[0]); // Parse ID as int
-                        if (currentRequestId == requestId) {
-                            String medicationName = fields[1];
-                            int quantity = Integer.parseInt(fields[2]); // Parse quantity as int
-                            String status = fields[3].trim();
-
-                            // Return the matching request
-                            return new ReplenishmentRequests(currentRequestId, medicationName, quantity, status);
+                                // Return the matching request
+                                return new ReplenishmentRequests(currentRequestId, medicationName, quantity, status);
+                            }
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error parsing row: " + String.join(",", fields));
                         }
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error parsing row: " + line);
+                    }
+                }
+            } catch (FileNotFoundException e) {
+                System.err.println("Replenishment requests file not found.");
+                return null; // Return null if the file does not exist
+            } catch (IOException e) {
+                throw new IOException("Error reading replenishment requests: " + e.getMessage(), e);
+            }
+
+            // Archived requests are read only when the ID is not in the file
+            for (ArchiveStore.Segment segment : ARCHIVE.segments()) {
+                List<ReplenishmentRequests> archived = new ArrayList<>();
+                try (BufferedReader reader = segment.openReader()) {
+                    readRequests(reader, archived);
+                } catch (IOException e) {
+                    throw new IOException("Error reading archived replenishment requests: " + e.getMessage(), e);
+                }
+                for (ReplenishmentRequests request : archived) {
+                    if (request.getRequestId() == requestId) {
+                        return request;
                     }
                 }
             }
-        } catch (FileNotFoundException e) {
-            System.err.println("Replenishment requests file not found.");
-            return null; // Return null if the file does not exist
-        } catch (IOException e) {
-            throw new IOException("Error reading replenishment requests: " + e.getMessage(), e);
-        }
 
-        // Return null if no matching request was found
-        return null;
+            // Return null if no matching request was found
+            return null;
+        } finally {
+            timer.stop();
+        }
     }
     /**
      * Updates the status of a replenishment request by its ID.
@@ -181,44 +286,46 @@ public class ReplenishmentRequestRepository {
      * @throws IOException if an error occurs while updating the request.
      */
     public void updateRequestStatus(int requestId, String newStatus) throws IOException {
-        // Load all requests from the CSV file
-        List<ReplenishmentRequests> allRequests = loadAllRequests();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("ReplenishmentRequestRepository.updateRequestStatus");
+        try (TableLock lock = REPLENISHMENT_REQUESTS_TABLE.lockExclusive()) {
+            // Load all requests from the CSV file
+            List<ReplenishmentRequests> allRequests = loadAllRequests();
     
-        // Flag to check if a request with the given ID was found
-        boolean found = false;
+            // Flag to check if a request with the given ID was found
+            boolean found = false;
     
-        // Find the request by requestId and update its status
-        for (ReplenishmentRequests request : allRequests) {
-            if (request.getRequestId() == requestId) {
-                request.setStatus(newStatus); // Update the status using a setter method
-                found = true;
-                break; // Exit loop once the correct request is found and updated
+            // Find the request by requestId and update its status
+            for (ReplenishmentRequests request : allRequests) {
+                if (request.getRequestId() == requestId) {
+                    request.setStatus(newStatus); // Update the status using a setter method
+                    found = true;
+                    break; // Exit loop once the correct request is found and updated
+                }
             }
-        }
     
-        // If no matching request was found, log and exit the method
-        if (!found) {
-            System.err.println("Request with ID " + requestId + " not found. Status not updated.");
-            return;
-        }
+            // If no matching request was found, log and exit the method
+            if (!found) {
+                System.err.println("Request with ID " + requestId + " not found. Status not updated.");
+                return;
+            }
     
-        // Rewrite the entire list of requests back to the CSV file, including the updated status
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH_REPLENISHMENT_REQUESTS))) {
-            // Write the header row if necessary
-            writer.write("RequestId,MedicationName,Quantity,Status\n");
+            // Rewrite the entire list of requests back to the CSV file, including the updated status
+            try (BufferedWriter writer = REPLENISHMENT_REQUESTS_TABLE.openWriter(false)) {
+                // Write the header row if necessary
+                writer.write(HEADER + "\n");
     
-            // Write each request back to the file
-            for (ReplenishmentRequests request : allRequests) {
-                writer.write(request.getRequestId() + "," +
-                             request.getMedicationName() + "," +
-                             request.getQuantity() + "," +
-                             request.getStatus() + "\n");
+                // Write each request back to the file
+                for (ReplenishmentRequests request : allRequests) {
+                    writer.write(toCsv(request) + "\n");
+                }
+            } catch (IOException e) {
+                throw new IOException("Error updating request status: " + e.getMessage(), e);
             }
-        } catch (IOException e) {
-            throw new IOException("Error updating request status: " + e.getMessage(), e);
-        }
     
-        System.out.println("Request ID " + requestId + " status updated to " + newStatus);
+            System.out.println("Request ID " + requestId + " status updated to " + newStatus);
+        } finally {
+            timer.stop();
+        }
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package server;
+
+/**
+ * Thrown by request handlers to reject a request with a specific HTTP status, such as a
+ * missing field (400), a missing session (401) or an operation the user's role may not
+ * perform (403).
+ */
+public class ApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * Creates an exception.
+     *
+     * @param status  The HTTP status code to respond with.
+     * @param message The error message returned to the client.
+     */
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status code.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+}
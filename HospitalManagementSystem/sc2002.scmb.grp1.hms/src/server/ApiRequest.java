@@ -0,0 +1,198 @@
+package server;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import util.DateTimeUtil;
+
+/**
+ * A parsed API request: the query parameters, the JSON body and the caller's session.
+ * <p>
+ * The accessors look a field up in the body first and then in the query string, and throw an
+ * {@link ApiException} with status 400 when a required field is missing or has the wrong type.
+ * </p>
+ */
+public class ApiRequest {
+    private final Map<String, String> query;
+    private final Map<String, Object> body;
+    private final SessionStore.Session session;
+
+    ApiRequest(String rawQuery, Map<String, Object> body, SessionStore.Session session) {
+        this.query = parseQuery(rawQuery);
+        this.body = body;
+        this.session = session;
+    }
+
+    /**
+     * Returns the caller's session.
+     *
+     * @return The session, or {@code null} for requests that do not need one.
+     */
+    public SessionStore.Session getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the hospital ID of the caller.
+     *
+     * @return The hospital ID.
+     */
+    public String userId() {
+        return session.getUserId();
+    }
+
+    /**
+     * Returns whether the caller has a role.
+     *
+     * @param role The role prefix ("P", "D", "PH" or "A").
+     * @return {@code true} if the caller has the role.
+     */
+    public boolean hasRole(String role) {
+        return session != null && session.getRole().equals(role);
+    }
+
+    /**
+     * Returns a required string field.
+     *
+     * @param name The field name.
+     * @return The value.
+     * @throws ApiException if the field is missing.
+     */
+    public String string(String name) {
+        String value = optionalString(name);
+        if (value == null) {
+            throw new ApiException(400, "Missing field '" + name + "'");
+        }
+        return value;
+    }
+
+    /**
+     * Returns an optional string field. Numbers and booleans are returned as text.
+     *
+     * @param name The field name.
+     * @return The value, or {@code null} if it is missing.
+     */
+    public String optionalString(String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            return query.get(name);
+        }
+        if (value instanceof Map || value instanceof List) {
+            throw new ApiException(400, "Field '" + name + "' must be a string");
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns a required whole-number field.
+     *
+     * @param name The field name.
+     * @return The value.
+     * @throws ApiException if the field is missing or not a whole number.
+     */
+    public int integer(String name) {
+        Object value = body.get(name);
+        if (value instanceof Long number) {
+            return Math.toIntExact(number);
+        }
+        String text = string(name);
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Field '" + name + "' must be a whole number");
+        }
+    }
+
+    /**
+     * Returns an optional whole-number field.
+     *
+     * @param name The field name.
+     * @return The value, or {@code null} if it is missing.
+     * @throws ApiException if the field is not a whole number.
+     */
+    public Long optionalLong(String name) {
+        Object value = body.get(name);
+        if (value instanceof Long number) {
+            return number;
+        }
+        String text = optionalString(name);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Field '" + name + "' must be a whole number");
+        }
+    }
+
+    /**
+     * Returns an optional date field, in DD-MM-YYYY format.
+     *
+     * @param name The field name.
+     * @return The value, or {@code null} if it is missing.
+     * @throws ApiException if the field is not a valid date.
+     */
+    public LocalDate optionalDate(String name) {
+        String text = optionalString(name);
+        if (text == null) {
+            return null;
+        }
+        LocalDate date = DateTimeUtil.parseDate(text.trim());
+        if (date == null) {
+            throw new ApiException(400, "Field '" + name + "' must be a date in DD-MM-YYYY format");
+        }
+        return date;
+    }
+
+    /**
+     * Returns an optional boolean field.
+     *
+     * @param name         The field name.
+     * @param defaultValue The value used when the field is missing.
+     * @return The value.
+     */
+    public boolean bool(String name, boolean defaultValue) {
+        String text = optionalString(name);
+        return text == null ? defaultValue : Boolean.parseBoolean(text);
+    }
+
+    /**
+     * Returns an optional list of strings. A single string is returned as a one-item list.
+     *
+     * @param name The field name.
+     * @return The values, empty if the field is missing.
+     */
+    public List<String> stringList(String name) {
+        Object value = body.get(name);
+        List<String> values = new ArrayList<>();
+        if (value instanceof List<?> items) {
+            for (Object item : items) {
+                if (item != null) {
+                    values.add(item.toString());
+                }
+            }
+        } else if (value != null) {
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
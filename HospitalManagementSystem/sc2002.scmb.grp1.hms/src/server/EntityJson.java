@@ -0,0 +1,183 @@
+package server;
+
+import entity.Administrator;
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.Availability;
+import entity.Doctor;
+import entity.MedicalRecord;
+import entity.MedicalRecordVersion;
+import entity.MedicationInventory;
+import entity.Patient;
+import entity.Pharmacist;
+import entity.ReplenishmentRequests;
+import entity.TimelineEntry;
+import entity.User;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts entities into the maps and lists written as JSON by the HTTP API. Passwords and
+ * security answers are never included.
+ */
+final class EntityJson {
+    private EntityJson() {
+    }
+
+    /**
+     * Converts a value for JSON output. Entities become maps of their fields, lists and maps
+     * are converted item by item and anything else is returned unchanged.
+     *
+     * @param value The value to convert.
+     * @return A value {@link Json#write(Object)} can write.
+     */
+    static Object toJson(Object value) {
+        if (value instanceof List<?> items) {
+            List<Object> converted = new ArrayList<>(items.size());
+            for (Object item : items) {
+                converted.add(toJson(item));
+            }
+            return converted;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> converted = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                converted.put(entry.getKey(), toJson(entry.getValue()));
+            }
+            return converted;
+        }
+        if (value instanceof Appointment appointment) {
+            return appointment(appointment);
+        }
+        if (value instanceof Availability availability) {
+            return availability(availability);
+        }
+        if (value instanceof AppointmentOutcome outcome) {
+            return outcome(outcome);
+        }
+        if (value instanceof MedicalRecord record) {
+            return record(record);
+        }
+        if (value instanceof MedicationInventory medication) {
+            return medication(medication);
+        }
+        if (value instanceof ReplenishmentRequests request) {
+            return request(request);
+        }
+        if (value instanceof User user) {
+            return user(user);
+        }
+        if (value instanceof TimelineEntry entry) {
+            return timelineEntry(entry);
+        }
+        return value;
+    }
+
+    private static Map<String, Object> appointment(Appointment appointment) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("appointmentId", appointment.getAppointmentId());
+        json.put("patientId", appointment.getPatientId());
+        json.put("doctorId", appointment.getDoctorId());
+        json.put("date", appointment.getAppointmentDate());
+        json.put("startTime", appointment.getStartTime());
+        json.put("endTime", appointment.getEndTime());
+        json.put("status", appointment.getStatus());
+        json.put("version", appointment.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> timelineEntry(TimelineEntry entry) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("type", entry.getType());
+        json.put("id", entry.getId());
+        json.put("date", entry.getDate());
+        json.put("time", entry.getTime());
+        json.put("details", entry.getDetails());
+        return json;
+    }
+
+    private static Map<String, Object> availability(Availability availability) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("availabilityId", availability.getAvailabilityId());
+        json.put("doctorId", availability.getDoctorId());
+        json.put("date", availability.getDate());
+        json.put("startTime", availability.getStartTime());
+        json.put("endTime", availability.getEndTime());
+        return json;
+    }
+
+    private static Map<String, Object> outcome(AppointmentOutcome outcome) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("outcomeId", outcome.getOutcomeId());
+        json.put("appointmentId", outcome.getAppointmentId());
+        json.put("date", outcome.getDate());
+        json.put("serviceType", outcome.getServiceType());
+        json.put("prescribedMedication", outcome.getPrescribedMedication());
+        json.put("medicationStatus", outcome.getMedicationStatus());
+        json.put("consultationNotes", outcome.getConsultationNotes());
+        json.put("version", outcome.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> record(MedicalRecord record) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("recordId", record.getRecordId());
+        json.put("patientId", record.getPatientId());
+        json.put("doctorId", record.getDoctorId());
+        json.put("diagnosis", record.getDiagnosis());
+        json.put("treatment", record.getTreatment());
+        json.put("prescription", record.getPrescription());
+        if (record instanceof MedicalRecordVersion version) {
+            json.put("version", version.getVersion());
+            json.put("changedAt", version.getChangedAt());
+        }
+        return json;
+    }
+
+    private static Map<String, Object> medication(MedicationInventory medication) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("medicationName", medication.getMedicationName());
+        json.put("stockLevel", medication.getStockLevel());
+        json.put("stockAlertLevel", medication.getStockAlertLevel());
+        json.put("version", medication.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> request(ReplenishmentRequests request) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("requestId", request.getRequestId());
+        json.put("medicationName", request.getMedicationName());
+        json.put("quantity", request.getQuantity());
+        json.put("status", request.getStatus());
+        return json;
+    }
+
+    private static Map<String, Object> user(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("userId", user.getUserId());
+        json.put("name", user.getName());
+        json.put("role", user.getRole());
+        json.put("gender", user.getGender());
+        json.put("age", user.getAge());
+        if (user instanceof Patient patient) {
+            json.put("dateOfBirth", patient.getDob());
+            json.put("bloodType", patient.getBloodtype());
+            json.put("email", patient.getEmail());
+            json.put("phoneNumber", patient.getPhoneNumber());
+            json.put("version", patient.getVersion());
+        } else if (user instanceof Doctor doctor) {
+            json.put("specialization", doctor.getSpecialization());
+            json.put("email", doctor.getStaffEmail());
+            json.put("phoneNumber", doctor.getStaffContact());
+        } else if (user instanceof Pharmacist pharmacist) {
+            json.put("email", pharmacist.getStaffEmail());
+            json.put("phoneNumber", pharmacist.getStaffContact());
+        } else if (user instanceof Administrator administrator) {
+            json.put("email", administrator.getStaffEmail());
+            json.put("phoneNumber", administrator.getStaffContact());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,486 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entity.Appointment;
+import entity.AppointmentStatus;
+import entity.User;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import service.AppointmentService;
+import service.AuthService;
+import service.AvailabilityService;
+import service.InventoryService;
+import service.MedicalRecordService;
+import service.OutcomeService;
+import service.PatientService;
+import service.PaymentService;
+import service.RetentionService;
+import service.ServiceResult;
+import service.StaffService;
+import storage.OptimisticLockException;
+import util.MetricsRegistry;
+
+/**
+ * Embedded HTTP server exposing the service layer as a JSON API, so many clinicians can use
+ * one process instead of running a console session each.
+ * <p>
+ * Requests run on a fixed pool of {@code hms.server.threads} threads (default eight per
+ * processor, since most of a request's time is spent waiting on the data files); further
+ * requests wait for a free thread. All requests share one set of services, which lock only
+ * the tables they touch (see {@link storage.CsvTable}), so requests on different tables run
+ * in parallel and admin reports read pinned snapshots without holding up changes.
+ * </p>
+ * <p>
+ * Clients log in with {@code POST /api/login} and send the returned token as
+ * {@code Authorization: Bearer <token>}. Successful responses are
+ * {@code {"message": ..., "data": ...}}; failures are {@code {"error": ...}} with status 400
+ * (bad request), 401 (not logged in), 403 (not allowed), 404 (unknown endpoint), 409 (the row
+ * was changed by someone else), 422 (refused by the hospital rules) or 500 (data files could
+ * not be read or written, or the request failed unexpectedly).
+ * </p>
+ * <p>
+ * Appointments, outcomes, medications and patients carry a {@code version}. Endpoints that
+ * change one of them accept the version the client last showed; if the row has changed since,
+ * the change is refused with 409 and the client should reload it. Without a version the
+ * change applies to the row as it is stored now.
+ * </p>
+ */
+public class HmsServer {
+    /**
+     * The port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The system property giving the number of threads that handle requests.
+     */
+    public static final String THREADS_PROPERTY = "hms.server.threads";
+
+    private static final String PATIENT = "P";
+    private static final String DOCTOR = "D";
+    private static final String PHARMACIST = "PH";
+    private static final String ADMIN = "A";
+    private static final Set<String> ANY_USER = Set.of();
+    private static final Set<String> BEFORE_PASSWORD_CHANGE = Set.of("/api/password", "/api/logout");
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final long SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Handles a request once the session and role have been checked.
+     */
+    private interface Handler {
+        Object handle(ApiRequest request) throws IOException;
+    }
+
+    private static class Route {
+        final String path;
+        final String metricName;
+        final Set<String> roles;
+        final Handler handler;
+
+        Route(String method, String path, Set<String> roles, Handler handler) {
+            this.path = path;
+            this.metricName = "HTTP " + method + " " + path;
+            this.roles = roles;
+            this.handler = handler;
+        }
+    }
+
+    private final AuthService authService = new AuthService();
+    private final AppointmentService appointmentService = new AppointmentService();
+    private final AvailabilityService availabilityService = new AvailabilityService();
+    private final OutcomeService outcomeService = new OutcomeService();
+    private final MedicalRecordService medicalRecordService = new MedicalRecordService();
+    private final InventoryService inventoryService = new InventoryService();
+    private final PaymentService paymentService = new PaymentService();
+    private final PatientService patientService = new PatientService();
+    private final StaffService staffService = new StaffService();
+    private final RetentionService retentionService = new RetentionService();
+
+    private final SessionStore sessions = new SessionStore(SESSION_IDLE_MILLIS);
+    private final Map<String, Route> routes = new HashMap<>();
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    private HmsServer(int port) throws IOException {
+        registerRoutes();
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, 8 * Runtime.getRuntime().availableProcessors()));
+        AtomicInteger next = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "hms-http-" + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/api/", this::dispatch);
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param port The TCP port to listen on, or 0 to pick a free port.
+     * @return The running server.
+     * @throws IOException if the port cannot be opened.
+     */
+    public static HmsServer start(int port) throws IOException {
+        HmsServer server = new HmsServer(port);
+        server.httpServer.start();
+        return server;
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given time for running requests to finish and
+     * shuts the server down.
+     *
+     * @param delaySeconds The longest time to wait for running requests.
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private void registerRoutes() {
+        Set<String> patient = Set.of(PATIENT);
+        Set<String> doctor = Set.of(DOCTOR);
+        Set<String> pharmacist = Set.of(PHARMACIST);
+        Set<String> admin = Set.of(ADMIN);
+        Set<String> staff = Set.of(DOCTOR, PHARMACIST, ADMIN);
+
+        route("POST", "/api/login", null, this::login);
+        route("POST", "/api/logout", ANY_USER, this::logout);
+        route("POST", "/api/password", ANY_USER, this::changePassword);
+
+        route("GET", "/api/patient", patient, request -> patientService.getPatient(request.userId()));
+        route("GET", "/api/timeline", Set.of(PATIENT, DOCTOR, ADMIN), request -> patientService.getTimeline(
+                request.hasRole(PATIENT) ? request.userId() : request.string("patientId")));
+        route("POST", "/api/patient/contact", patient, request -> patientService.updateContact(
+                request.userId(), request.optionalString("email"), request.optionalString("phoneNumber"),
+                request.optionalLong("version")));
+
+        route("GET", "/api/availability", ANY_USER, this::listAvailability);
+        route("POST", "/api/availability", doctor, request -> availabilityService.addSlot(
+                request.userId(), request.string("date"), request.string("startTime"), request.string("endTime")));
+
+        route("GET", "/api/appointments", Set.of(PATIENT, DOCTOR, ADMIN), this::listAppointments);
+        route("POST", "/api/appointments", patient, request -> appointmentService.bookAppointment(
+                request.userId(), request.string("availabilityId")));
+        route("POST", "/api/appointments/reschedule", patient, request -> appointmentService.rescheduleAppointment(
+                request.userId(), request.string("appointmentId"), request.string("availabilityId")));
+        route("POST", "/api/appointments/cancel", patient, request -> appointmentService.cancelAppointment(
+                request.userId(), request.string("appointmentId"), request.optionalLong("version")));
+        route("POST", "/api/appointments/respond", doctor, request -> appointmentService.respondToRequest(
+                request.userId(), request.string("appointmentId"), request.bool("accept", false),
+                request.optionalLong("version")));
+
+        route("GET", "/api/outcomes", ANY_USER, this::listOutcomes);
+        route("POST", "/api/outcomes", doctor, this::recordOutcome);
+        route("GET", "/api/outcomes/search", Set.of(DOCTOR, ADMIN),
+                request -> outcomeService.searchOutcomes(request.string("q")));
+        route("POST", "/api/outcomes/dispense", pharmacist, request -> outcomeService.dispenseMedication(
+                request.string("outcomeId"), request.optionalLong("version")));
+
+        route("GET", "/api/records", Set.of(PATIENT, DOCTOR, ADMIN), this::listRecords);
+        route("GET", "/api/records/history", Set.of(DOCTOR, ADMIN),
+                request -> medicalRecordService.getRecordHistory(request.string("recordId")));
+        route("GET", "/api/records/search", Set.of(DOCTOR, ADMIN),
+                request -> medicalRecordService.searchRecords(request.string("q")));
+        route("POST", "/api/records", doctor, request -> medicalRecordService.createRecord(
+                request.userId(), request.string("patientId"), request.string("diagnosis"),
+                request.string("treatment"), request.string("prescription")));
+        route("POST", "/api/records/update", doctor, request -> medicalRecordService.updateRecord(
+                request.string("recordId"), request.string("diagnosis"),
+                request.string("treatment"), request.string("prescription")));
+
+        route("GET", "/api/inventory", staff, request -> request.bool("lowStock", false)
+                ? inventoryService.getLowStock() : inventoryService.getInventory());
+        route("POST", "/api/inventory/alert", admin, request -> inventoryService.updateAlertLevel(
+                request.string("medicationName"), request.integer("alertLevel"), request.optionalLong("version")));
+        route("GET", "/api/inventory/requests", Set.of(PHARMACIST, ADMIN),
+                request -> inventoryService.getPendingRequests());
+        route("POST", "/api/inventory/requests", pharmacist, request -> inventoryService.submitReplenishmentRequest(
+                request.string("medicationName"), request.integer("quantity")));
+        route("POST", "/api/inventory/requests/approve", admin, request -> inventoryService.approveRequest(
+                request.integer("requestId")));
+
+        route("GET", "/api/payments", patient, request -> paymentService.getAmountDue(request.userId()));
+        route("POST", "/api/payments", patient, request -> paymentService.pay(
+                request.userId(), request.string("cardNumber"), request.string("cardName")));
+
+        route("GET", "/api/staff", admin, request -> {
+            String filter = request.optionalString("filter");
+            return staffService.getStaff(filter == null ? "All" : filter);
+        });
+        route("GET", "/api/reports/appointments", admin, this::appointmentReport);
+        route("GET", "/api/metrics", admin, request -> Map.of("report", MetricsRegistry.report()));
+        route("POST", "/api/archive", admin, request -> retentionService.archive());
+    }
+
+    private void route(String method, String path, Set<String> roles, Handler handler) {
+        routes.put(method + " " + path, new Route(method, path, roles, handler));
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            Route route = routes.get(exchange.getRequestMethod() + " " + path);
+            if (route == null) {
+                respond(exchange, 404, error("No endpoint " + exchange.getRequestMethod() + " " + path));
+                return;
+            }
+            MetricsRegistry.Timer timer = MetricsRegistry.start(route.metricName);
+            try {
+                int status;
+                Object body;
+                try {
+                    ApiRequest request = new ApiRequest(exchange.getRequestURI().getRawQuery(),
+                            Json.parseObject(readBody(exchange)), authorize(exchange, route));
+                    Object result = route.handler.handle(request);
+                    if (result instanceof ServiceResult<?> serviceResult && !serviceResult.isSuccess()) {
+                        status = 422;
+                        body = error(serviceResult.getMessage());
+                    } else {
+                        status = 200;
+                        body = success(result);
+                    }
+                } catch (ApiException e) {
+                    status = e.getStatus();
+                    body = error(e.getMessage());
+                } catch (OptimisticLockException e) {
+                    status = 409;
+                    body = error(e.getMessage());
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    status = 400;
+                    body = error(e.getMessage());
+                } catch (IOException e) {
+                    status = 500;
+                    body = error("Data files could not be read or written (error " + logFailure(path, e) + ").");
+                } catch (RuntimeException e) {
+                    status = 500;
+                    body = error("The request failed unexpectedly (error " + logFailure(path, e) + ").");
+                }
+                respond(exchange, status, body);
+            } finally {
+                timer.stop();
+            }
+        }
+    }
+
+    private SessionStore.Session authorize(HttpExchange exchange, Route route) {
+        if (route.roles == null) {
+            return null;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String token = header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+        SessionStore.Session session = sessions.get(token);
+        if (session == null) {
+            throw new ApiException(401, "Please log in.");
+        }
+        if (session.isPasswordChangeRequired() && !BEFORE_PASSWORD_CHANGE.contains(route.path)) {
+            throw new ApiException(403, "You are a new user with the default password, please change it.");
+        }
+        if (!route.roles.isEmpty() && !route.roles.contains(session.getRole())) {
+            throw new ApiException(403, "Your role may not use this endpoint.");
+        }
+        return session;
+    }
+
+    private Object login(ApiRequest request) {
+        sessions.removeExpired();
+        String userId = request.string("userId");
+        String password = request.string("password");
+        ServiceResult<User> result = authService.authenticate(userId, password);
+        if (!result.isSuccess()) {
+            throw new ApiException(401, result.getMessage());
+        }
+        boolean mustChange = AuthService.isDefaultPassword(password);
+        SessionStore.Session session = sessions.create(userId, AuthService.roleOf(userId), mustChange);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("token", session.getToken());
+        data.put("user", result.getValue());
+        data.put("passwordChangeRequired", mustChange);
+        return ServiceResult.ok(data, result.getMessage());
+    }
+
+    private Object logout(ApiRequest request) {
+        sessions.remove(request.getSession().getToken());
+        return ServiceResult.ok(null, "Logged out.");
+    }
+
+    private Object changePassword(ApiRequest request) {
+        ServiceResult<Void> result = authService.changePassword(request.userId(), request.string("newPassword"));
+        if (result.isSuccess()) {
+            request.getSession().passwordChanged();
+        }
+        return result;
+    }
+
+    private Object listAvailability(ApiRequest request) throws IOException {
+        String doctorId = request.optionalString("doctorId");
+        if (request.hasRole(DOCTOR) && doctorId == null) {
+            doctorId = request.userId();
+        }
+        if (request.optionalString("from") != null || request.optionalString("to") != null) {
+            return availabilityService.getSlotsBetween(doctorId, fromDate(request), request.optionalDate("to"));
+        }
+        return doctorId == null ? availabilityService.getAllSlots() : availabilityService.getSlotsForDoctor(doctorId);
+    }
+
+    private Object listAppointments(ApiRequest request) throws IOException {
+        if (request.hasRole(PATIENT)) {
+            return appointmentService.getScheduledForPatient(request.userId());
+        }
+        boolean window = request.optionalString("from") != null || request.optionalString("to") != null;
+        if (request.hasRole(DOCTOR)) {
+            if (window) {
+                return appointmentService.getScheduleForDoctor(request.userId(), fromDate(request),
+                        request.optionalDate("to"));
+            }
+            String status = request.optionalString("status");
+            if ("pending".equalsIgnoreCase(status)) {
+                return appointmentService.getPendingForDoctor(request.userId());
+            }
+            if ("confirmed".equalsIgnoreCase(status)) {
+                return appointmentService.getConfirmedForDoctor(request.userId());
+            }
+            List<Appointment> appointments = new ArrayList<>(appointmentService.getPendingForDoctor(request.userId()));
+            appointments.addAll(appointmentService.getConfirmedForDoctor(request.userId()));
+            return appointments;
+        }
+        if (window) {
+            return appointmentService.getAppointmentsBetween(fromDate(request), request.optionalDate("to"));
+        }
+        return appointmentService.getAllAppointments();
+    }
+
+    private static LocalDate fromDate(ApiRequest request) {
+        LocalDate from = request.optionalDate("from");
+        // A window with only an end date runs from today
+        return from != null ? from : LocalDate.now();
+    }
+
+    private Object listOutcomes(ApiRequest request) throws IOException {
+        if (request.hasRole(PATIENT)) {
+            return outcomeService.getOutcomesForPatient(request.userId());
+        }
+        if ("pending".equalsIgnoreCase(request.optionalString("status"))) {
+            return outcomeService.getPendingOutcomes();
+        }
+        return outcomeService.getAllOutcomes();
+    }
+
+    private Object recordOutcome(ApiRequest request) throws IOException {
+        String appointmentId = request.string("appointmentId");
+        Appointment appointment = appointmentService.getAppointment(appointmentId);
+        if (appointment == null || !appointment.getDoctorId().equals(request.userId())) {
+            return ServiceResult.fail("Appointment " + appointmentId + " is not one of your appointments.");
+        }
+        return outcomeService.recordOutcome(appointmentId, request.string("serviceType"),
+                request.stringList("medications"), request.string("consultationNotes"));
+    }
+
+    private Object appointmentReport(ApiRequest request) throws IOException {
+        String statusText = request.optionalString("status");
+        AppointmentStatus status = AppointmentStatus.fromLabel(statusText);
+        if (statusText != null && status == null) {
+            throw new ApiException(400, "Unknown status '" + statusText + "'");
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("byStatus", appointmentService.countByStatus());
+        report.put("byDoctor", appointmentService.countByDoctor(status));
+        report.put("byDay", appointmentService.countByDay(request.optionalDate("from"), request.optionalDate("to"), status));
+        report.put("bookedMinutesByDoctor", appointmentService.bookedMinutesByDoctor(
+                status != null ? status : AppointmentStatus.CONFIRMED));
+        return report;
+    }
+
+    private Object listRecords(ApiRequest request) throws IOException {
+        if (request.hasRole(PATIENT)) {
+            return medicalRecordService.getRecordsForPatient(request.userId());
+        }
+        String patientId = request.optionalString("patientId");
+        if (patientId != null) {
+            return medicalRecordService.getRecordsForPatient(patientId);
+        }
+        if (request.hasRole(DOCTOR)) {
+            return medicalRecordService.getRecordsForDoctor(request.userId());
+        }
+        throw new ApiException(400, "Missing field 'patientId'");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body is too large.");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, Object> success(Object result) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (result instanceof ServiceResult<?> serviceResult) {
+            body.put("message", serviceResult.getMessage());
+            body.put("data", EntityJson.toJson(serviceResult.getValue()));
+        } else {
+            body.put("message", "");
+            body.put("data", EntityJson.toJson(result));
+        }
+        return body;
+    }
+
+    /**
+     * Prints a failure to standard error, which is kept in server mode, under a new error ID.
+     * Clients are only given the ID, as the exception may name files or quote rows.
+     */
+    private static String logFailure(String path, Exception e) {
+        String errorId = UUID.randomUUID().toString().substring(0, 8);
+        System.err.println("Error " + errorId + " handling " + path + ":");
+        e.printStackTrace();
+        return errorId;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return body;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
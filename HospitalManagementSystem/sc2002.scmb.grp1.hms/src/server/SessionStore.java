@@ -0,0 +1,147 @@
+package server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bearer-token sessions for the HTTP API.
+ * <p>
+ * A token is issued at login and sent by the client in an {@code Authorization: Bearer}
+ * header. Sessions that have not been used for the idle timeout are discarded.
+ * </p>
+ */
+public class SessionStore {
+    /**
+     * A logged-in user.
+     */
+    public static class Session {
+        private final String token;
+        private final String userId;
+        private final String role;
+        private volatile boolean passwordChangeRequired;
+        private volatile long lastUsedMillis;
+
+        Session(String token, String userId, String role, boolean passwordChangeRequired) {
+            this.token = token;
+            this.userId = userId;
+            this.role = role;
+            this.passwordChangeRequired = passwordChangeRequired;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the session token.
+         *
+         * @return The token.
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the hospital ID of the logged-in user.
+         *
+         * @return The hospital ID.
+         */
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Returns the role prefix of the logged-in user ("P", "D", "PH" or "A").
+         *
+         * @return The role prefix.
+         */
+        public String getRole() {
+            return role;
+        }
+
+        /**
+         * Returns whether the user logged in with the default password and has not changed it yet.
+         *
+         * @return {@code true} if the password must be changed before anything else.
+         */
+        public boolean isPasswordChangeRequired() {
+            return passwordChangeRequired;
+        }
+
+        /**
+         * Records that the user has changed their password.
+         */
+        public void passwordChanged() {
+            passwordChangeRequired = false;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutMillis;
+
+    /**
+     * Creates a session store.
+     *
+     * @param idleTimeoutMillis How long a session stays valid without being used.
+     */
+    public SessionStore(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Starts a session for a user.
+     *
+     * @param userId                 The hospital ID.
+     * @param role                   The role prefix.
+     * @param passwordChangeRequired Whether the user must change their password first.
+     * @return The new session.
+     */
+    public Session create(String userId, String role, boolean passwordChangeRequired) {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, userId, role, passwordChangeRequired);
+        sessions.put(token, session);
+        return session;
+    }
+
+    /**
+     * Returns the session for a token and marks it as used.
+     *
+     * @param token The token sent by the client.
+     * @return The session, or {@code null} if the token is unknown or has expired.
+     */
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastUsedMillis > idleTimeoutMillis) {
+            sessions.remove(token);
+            return null;
+        }
+        session.lastUsedMillis = now;
+        return session;
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token The session token.
+     */
+    public void remove(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * Discards every session that has passed the idle timeout.
+     */
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> now - session.lastUsedMillis > idleTimeoutMillis);
+    }
+}
@@ -0,0 +1,533 @@
+package service;
+
+import entity.Appointment;
+import entity.AppointmentStatus;
+import entity.Availability;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import repository.AppointmentColumns;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+import storage.CsvTable;
+import storage.OptimisticLockException;
+import storage.SnapshotView;
+import storage.TableLock;
+import util.DataDirectory;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
+
+/**
+ * Headless appointment operations: booking, accepting or declining, rescheduling and
+ * cancelling, and the appointment lists shown to patients, doctors and administrators.
+ * <p>
+ * A booking takes an availability slot out of the availability table; cancelling or
+ * rescheduling puts the old slot back.
+ * </p>
+ * <p>
+ * Status changes are optimistic: the appointment is read without holding its table and the
+ * write only lands if nobody changed it in between, otherwise the change is re-checked
+ * against the fresh row. Callers that show an appointment to a user can pass the version
+ * they showed to have a concurrent change reported instead of overwritten.
+ * </p>
+ */
+@SuppressWarnings("try")
+public class AppointmentService {
+    private static final CsvTable AVAILABILITY_TABLE = CsvTable.forFile(DataDirectory.resolve("Availability.csv"));
+    private static final CsvTable APPOINTMENT_TABLE = CsvTable.forFile(DataDirectory.resolve("Appointment.csv"));
+
+    private final AppointmentRepository appointmentRepository = new AppointmentRepository();
+    private final AvailabilityRepository availabilityRepository = new AvailabilityRepository();
+    private final AvailabilityService availabilityService = new AvailabilityService();
+
+    /**
+     * Returns the ID the next appointment will be given. The ID follows the highest one in the
+     * appointment file and its archive; it is only reserved while the caller holds the
+     * appointment table's exclusive lock, as {@link #bookAppointment} does.
+     *
+     * @return The next appointment ID, e.g. "AP012".
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public String nextAppointmentId() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.nextAppointmentId");
+        try (TableLock lock = APPOINTMENT_TABLE.lockExclusive()) {
+            String lastId = appointmentRepository.getLastApptId();
+            if (lastId.equals("AP000")) {
+                return "AP000";
+            }
+            int nextNumber = Integer.parseInt(lastId.substring(2)) + 1;
+            return "AP" + String.format("%03d", nextNumber);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns an appointment by its ID.
+     *
+     * @param appointmentId The appointment ID.
+     * @return The appointment, or {@code null} if it does not exist.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public Appointment getAppointment(String appointmentId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getAppointment");
+        try {
+            return appointmentRepository.getAppointmentById(appointmentId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns every appointment, as of one version of the appointment table. Bookings and
+     * status changes made while the list is read carry on and are not included.
+     *
+     * @return All appointments.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getAllAppointments() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getAllAppointments");
+        try (SnapshotView view = SnapshotView.open(APPOINTMENT_TABLE)) {
+            return appointmentRepository.loadAllAppointments();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Counts every appointment, archived ones included, by status.
+     *
+     * @return The number of appointments with each status, in the order of {@link AppointmentStatus}.
+     * @throws IOException if the appointment files cannot be read.
+     */
+    public Map<String, Integer> countByStatus() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.countByStatus");
+        try {
+            int[] counts = appointmentRepository.loadAppointmentColumns().countByStatus();
+            Map<String, Integer> byStatus = new LinkedHashMap<>();
+            for (AppointmentStatus status : AppointmentStatus.values()) {
+                byStatus.put(status.getLabel(), counts[status.ordinal()]);
+            }
+            return byStatus;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Counts every appointment, archived ones included, by doctor.
+     *
+     * @param status The status to count, or {@code null} for all appointments.
+     * @return The number of appointments of each doctor who has any, by doctor ID.
+     * @throws IOException if the appointment files cannot be read.
+     */
+    public Map<String, Integer> countByDoctor(AppointmentStatus status) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.countByDoctor");
+        try {
+            AppointmentColumns columns = appointmentRepository.loadAppointmentColumns();
+            int[] counts = columns.countByDoctor(status);
+            Map<String, Integer> byDoctor = new TreeMap<>();
+            for (int key = 0; key < counts.length; key++) {
+                if (counts[key] > 0) {
+                    byDoctor.put(columns.getDoctorId(key), counts[key]);
+                }
+            }
+            return byDoctor;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Counts the appointments on each day of a range, archived ones included.
+     *
+     * @param from   The first date, or {@code null} to start at the earliest appointment.
+     * @param to     The last date, or {@code null} to end at the latest appointment.
+     * @param status The status to count, or {@code null} for all appointments.
+     * @return The number of appointments on each day that has any, by date in DD-MM-YYYY format,
+     *         in date order.
+     * @throws IOException if the appointment files cannot be read.
+     */
+    public Map<String, Integer> countByDay(LocalDate from, LocalDate to, AppointmentStatus status)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.countByDay");
+        try {
+            AppointmentColumns columns = appointmentRepository.loadAppointmentColumns();
+            LocalDate first = from != null ? from : columns.getFirstDate();
+            LocalDate last = to != null ? to : columns.getLastDate();
+            Map<String, Integer> byDay = new LinkedHashMap<>();
+            if (first == null || last == null || last.isBefore(first)) {
+                return byDay;
+            }
+            int[] counts = columns.countByDay(first, last, status);
+            for (int day = 0; day < counts.length; day++) {
+                if (counts[day] > 0) {
+                    byDay.put(DateTimeUtil.formatEpochDay((int) (first.toEpochDay() + day)), counts[day]);
+                }
+            }
+            return byDay;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds up the length of each doctor's appointments with a status, archived ones included.
+     *
+     * @param status The status to count.
+     * @return The booked minutes of each doctor who has any, by doctor ID.
+     * @throws IOException if the appointment files cannot be read.
+     */
+    public Map<String, Long> bookedMinutesByDoctor(AppointmentStatus status) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.bookedMinutesByDoctor");
+        try {
+            AppointmentColumns columns = appointmentRepository.loadAppointmentColumns();
+            long[] minutes = columns.bookedMinutesByDoctor(status);
+            Map<String, Long> byDoctor = new TreeMap<>();
+            for (int key = 0; key < minutes.length; key++) {
+                if (minutes[key] > 0) {
+                    byDoctor.put(columns.getDoctorId(key), minutes[key]);
+                }
+            }
+            return byDoctor;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the appointment requests waiting for a doctor's answer.
+     *
+     * @param doctorId The doctor ID.
+     * @return The doctor's pending appointments.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getPendingForDoctor(String doctorId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getPendingForDoctor");
+        try {
+            return appointmentRepository.getPendingAppointmentsByDoctorId(doctorId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a doctor's confirmed appointments.
+     *
+     * @param doctorId The doctor ID.
+     * @return The doctor's confirmed appointments.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getConfirmedForDoctor(String doctorId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getConfirmedForDoctor");
+        try {
+            return appointmentRepository.getConfirmedAppointmentsByDoctorId(doctorId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the appointments dated within a range. Once the appointment table is split by
+     * month only the months in the range are read.
+     *
+     * @param from The first date, or {@code null} for no lower bound.
+     * @param to   The last date, or {@code null} for no upper bound.
+     * @return The appointments in the range.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getAppointmentsBetween");
+        try {
+            return appointmentRepository.getAppointmentsBetween(from, to);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a doctor's pending and confirmed appointments dated within a range.
+     *
+     * @param doctorId The doctor ID.
+     * @param from     The first date, or {@code null} for no lower bound.
+     * @param to       The last date, or {@code null} for no upper bound.
+     * @return The doctor's scheduled appointments in the range.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getScheduleForDoctor(String doctorId, LocalDate from, LocalDate to) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getScheduleForDoctor");
+        try {
+            List<Appointment> appointments = appointmentRepository.getAppointmentsBetween(from, to);
+            appointments.removeIf(appointment -> !appointment.getDoctorId().equalsIgnoreCase(doctorId)
+                    || !(appointment.getAppointmentStatus() == AppointmentStatus.PENDING
+                            || appointment.getAppointmentStatus() == AppointmentStatus.CONFIRMED));
+            return appointments;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a patient's pending and confirmed appointments.
+     *
+     * @param patientId The patient ID.
+     * @return The patient's scheduled appointments.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public List<Appointment> getScheduledForPatient(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.getScheduledForPatient");
+        try {
+            return appointmentRepository.getConfirmedOrPendingAppointmentsByDoctorId(patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns whether an appointment is waiting for the given doctor's answer.
+     *
+     * @param appointmentId The appointment ID.
+     * @param doctorId      The doctor ID.
+     * @return {@code true} if the appointment is pending with that doctor.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public boolean isPendingForDoctor(String appointmentId, String doctorId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.isPendingForDoctor");
+        try {
+            for (Appointment appointment : getPendingForDoctor(doctorId)) {
+                if (appointment.getAppointmentId().equals(appointmentId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns whether an appointment is a pending or confirmed appointment of the given patient,
+     * and so may be rescheduled or cancelled by them.
+     *
+     * @param appointmentId The appointment ID.
+     * @param patientId     The patient ID.
+     * @return {@code true} if the patient may change the appointment.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public boolean isScheduledForPatient(String appointmentId, String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.isScheduledForPatient");
+        try {
+            for (Appointment appointment : getScheduledForPatient(patientId)) {
+                if (appointment.getAppointmentId().equals(appointmentId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns whether an appointment exists and has been confirmed.
+     *
+     * @param appointmentId The appointment ID.
+     * @return {@code true} if the appointment is confirmed.
+     * @throws IOException if the appointment file cannot be read.
+     */
+    public boolean isConfirmed(String appointmentId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.isConfirmed");
+        try {
+            Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+            return appointment != null && appointment.getStatus().equals("Confirmed");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Books an availability slot for a patient. The appointment starts as "Pending" until the
+     * doctor accepts or declines it.
+     *
+     * @param patientId      The patient ID.
+     * @param availabilityId The availability slot to book.
+     * @return The new appointment, or a failed result if the slot does not exist.
+     * @throws IOException if the appointment or availability file cannot be read or written.
+     */
+    public ServiceResult<Appointment> bookAppointment(String patientId, String availabilityId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.bookAppointment");
+        try (TableLock slots = AVAILABILITY_TABLE.lockExclusive();
+                TableLock appointments = APPOINTMENT_TABLE.lockExclusive()) {
+            Availability slot = availabilityRepository.getAvailabilityById(availabilityId);
+            if (slot == null) {
+                return ServiceResult.fail("The Availability ID you entered cannot be found.");
+            }
+
+            Appointment appointment = new Appointment(nextAppointmentId(), patientId, slot.getDoctorId(),
+                    slot.getDate(), slot.getStartTime(), slot.getEndTime(), AppointmentStatus.PENDING.getLabel());
+            appointmentRepository.createNewAppointment(appointment);
+            availabilityRepository.deleteAvailabilityById(availabilityId);
+            return ServiceResult.ok(appointment, "Appointment Pending Approval.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Accepts or declines an appointment request on behalf of a doctor.
+     *
+     * @param doctorId      The doctor answering the request.
+     * @param appointmentId The appointment ID.
+     * @param accept        {@code true} to confirm the appointment, {@code false} to cancel it.
+     * @return The updated appointment, or a failed result if it is not pending with the doctor.
+     * @throws IOException if the appointment file cannot be read or written.
+     */
+    public ServiceResult<Appointment> respondToRequest(String doctorId, String appointmentId, boolean accept)
+            throws IOException {
+        return respondToRequest(doctorId, appointmentId, accept, null);
+    }
+
+    /**
+     * Accepts or declines an appointment request on behalf of a doctor, provided the
+     * appointment has not changed since the doctor saw it.
+     *
+     * @param doctorId        The doctor answering the request.
+     * @param appointmentId   The appointment ID.
+     * @param accept          {@code true} to confirm the appointment, {@code false} to cancel it.
+     * @param expectedVersion The version of the appointment the doctor saw, or {@code null} to
+     *                        answer the request as it is stored now.
+     * @return The updated appointment, or a failed result if it is not pending with the doctor.
+     * @throws OptimisticLockException if the appointment changed after the doctor saw it.
+     * @throws IOException if the appointment file cannot be read or written.
+     */
+    public ServiceResult<Appointment> respondToRequest(String doctorId, String appointmentId, boolean accept,
+            Long expectedVersion) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.respondToRequest");
+        try {
+            return OptimisticRetry.run("AppointmentService.respondToRequest", expectedVersion, () -> {
+                Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+                if (appointment != null) {
+                    OptimisticRetry.expect("Appointment", appointmentId, expectedVersion, appointment.getVersion());
+                }
+                if (appointment == null || !appointment.getDoctorId().equals(doctorId)
+                        || appointment.getAppointmentStatus() != AppointmentStatus.PENDING) {
+                    return ServiceResult.fail("Invalid Appointment ID.");
+                }
+                AppointmentStatus status = accept ? AppointmentStatus.CONFIRMED : AppointmentStatus.CANCELLED;
+                appointment.setAppointmentStatus(status);
+                appointmentRepository.updateAppointment(appointment);
+                return ServiceResult.ok(appointment, "Appointment status updated to " + status.getLabel());
+            });
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sets the status of an appointment.
+     *
+     * @param appointmentId The appointment ID.
+     * @param status        The new status, e.g. "Confirmed", "Cancelled" or "Completed".
+     * @return The updated appointment, or a failed result if it does not exist.
+     * @throws IOException if the appointment file cannot be read or written.
+     */
+    public ServiceResult<Appointment> updateStatus(String appointmentId, String status) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.updateStatus");
+        try {
+            return OptimisticRetry.run("AppointmentService.updateStatus", null, () -> {
+                Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+                if (appointment == null) {
+                    return ServiceResult.fail("Invalid Appointment ID.");
+                }
+                appointment.setStatus(status);
+                appointmentRepository.updateAppointment(appointment);
+                return ServiceResult.ok(appointment, "Appointment status updated to " + status);
+            });
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Moves a patient's appointment to another availability slot. The old slot is released
+     * and the new appointment starts as "Pending".
+     *
+     * @param patientId      The patient ID.
+     * @param appointmentId  The appointment to move.
+     * @param availabilityId The new availability slot.
+     * @return The new appointment, or a failed result if the appointment or slot is not valid.
+     * @throws IOException if the appointment or availability file cannot be read or written.
+     */
+    public ServiceResult<Appointment> rescheduleAppointment(String patientId, String appointmentId,
+            String availabilityId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.rescheduleAppointment");
+        try (TableLock slots = AVAILABILITY_TABLE.lockExclusive();
+                TableLock appointments = APPOINTMENT_TABLE.lockExclusive()) {
+            if (!isScheduledForPatient(appointmentId, patientId)) {
+                return ServiceResult.fail("Invalid Appointment ID or the appointment cannot be rescheduled.");
+            }
+            if (availabilityRepository.getAvailabilityById(availabilityId) == null) {
+                return ServiceResult.fail("Invalid Availability ID.");
+            }
+
+            Appointment oldAppointment = appointmentRepository.getAppointmentById(appointmentId);
+            availabilityService.releaseSlot(oldAppointment);
+            appointmentRepository.removeAppointmentById(appointmentId);
+            ServiceResult<Appointment> booked = bookAppointment(patientId, availabilityId);
+            if (!booked.isSuccess()) {
+                return booked;
+            }
+            return ServiceResult.ok(booked.getValue(), "You have successfully rescheduled your appointment!");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Cancels a patient's appointment and releases its slot.
+     *
+     * @param patientId     The patient ID.
+     * @param appointmentId The appointment to cancel.
+     * @return The cancelled appointment, or a failed result if the patient cannot cancel it.
+     * @throws IOException if the appointment or availability file cannot be read or written.
+     */
+    public ServiceResult<Appointment> cancelAppointment(String patientId, String appointmentId) throws IOException {
+        return cancelAppointment(patientId, appointmentId, null);
+    }
+
+    /**
+     * Cancels a patient's appointment and releases its slot, provided the appointment has not
+     * changed since the patient saw it.
+     *
+     * @param patientId       The patient ID.
+     * @param appointmentId   The appointment to cancel.
+     * @param expectedVersion The version of the appointment the patient saw, or {@code null} to
+     *                        cancel it as it is stored now.
+     * @return The cancelled appointment, or a failed result if the patient cannot cancel it.
+     * @throws OptimisticLockException if the appointment changed after the patient saw it.
+     * @throws IOException if the appointment or availability file cannot be read or written.
+     */
+    public ServiceResult<Appointment> cancelAppointment(String patientId, String appointmentId, Long expectedVersion)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AppointmentService.cancelAppointment");
+        try (TableLock slots = AVAILABILITY_TABLE.lockExclusive();
+                TableLock appointments = APPOINTMENT_TABLE.lockExclusive()) {
+            Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+            if (appointment != null) {
+                OptimisticRetry.expect("Appointment", appointmentId, expectedVersion, appointment.getVersion());
+            }
+            if (!isScheduledForPatient(appointmentId, patientId)) {
+                return ServiceResult.fail("Invalid Appointment ID");
+            }
+
+            availabilityService.releaseSlot(appointment);
+            appointmentRepository.removeAppointmentById(appointmentId);
+            return ServiceResult.ok(appointment, "You have successfully cancelled your appointment!");
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package service;
+
+import controller.ChangeSecurityQuestionInterface;
+import controller.PasswordChangerInterface;
+import controller.PasswordController;
+import controller.RepositoryController;
+import controller.ValidationInterface;
+import controller.checkHaveQuestionsInterface;
+import entity.User;
+import util.MetricsRegistry;
+
+/**
+ * Headless authentication operations: credential checks, password changes and
+ * security-question recovery.
+ * <p>
+ * The role of a user is taken from the prefix of their hospital ID ("PH" pharmacist,
+ * "P" patient, "A" administrator, "D" doctor), as in the rest of the system.
+ * </p>
+ */
+public class AuthService {
+    /**
+     * The password every new account starts with. Users logging in with it must change it.
+     */
+    public static final String DEFAULT_PASSWORD = "Password";
+
+    private final RepositoryController repositoryController = new RepositoryController();
+    private final PasswordController passwordController = new PasswordController();
+
+    /**
+     * Returns the role prefix of a hospital ID.
+     *
+     * @param hospitalId The hospital ID.
+     * @return "PH", "P", "A" or "D", or "NULL" if the ID has no known prefix.
+     */
+    public static String roleOf(String hospitalId) {
+        if (hospitalId.startsWith("PH")) {
+            return "PH";
+        } else if (hospitalId.startsWith("P")) {
+            return "P";
+        } else if (hospitalId.startsWith("A")) {
+            return "A";
+        } else if (hospitalId.startsWith("D")) {
+            return "D";
+        }
+        return "NULL";
+    }
+
+    /**
+     * Returns whether a password is the default one that must be changed on first login.
+     *
+     * @param password The password entered by the user.
+     * @return {@code true} if it is the default password.
+     */
+    public static boolean isDefaultPassword(String password) {
+        return DEFAULT_PASSWORD.equals(password);
+    }
+
+    /**
+     * Checks a hospital ID and password.
+     *
+     * @param hospitalId The hospital ID.
+     * @param password   The plain text password.
+     * @return The authenticated user, or a failed result if the ID or password is wrong.
+     */
+    public ServiceResult<User> authenticate(String hospitalId, String password) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.authenticate");
+        try {
+            Object repository = repositoryController.getRepository(roleOf(hospitalId));
+            if (!(repository instanceof ValidationInterface)) {
+                return ServiceResult.fail("Invalid ID or password.");
+            }
+            User user = ((ValidationInterface) repository).validateCredentials(hospitalId, password);
+            if (user == null) {
+                return ServiceResult.fail("Invalid ID or password.");
+            }
+            if (isDefaultPassword(password)) {
+                return ServiceResult.ok(user, "Password change required.");
+            }
+            return ServiceResult.ok(user, "Welcome, " + user.getName() + ".");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sets a new password for a user. The default password is not accepted.
+     *
+     * @param hospitalId  The hospital ID.
+     * @param newPassword The new plain text password.
+     * @return A successful result if the password was stored.
+     */
+    public ServiceResult<Void> changePassword(String hospitalId, String newPassword) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.changePassword");
+        try {
+            if (newPassword == null || newPassword.isEmpty()) {
+                return ServiceResult.fail("The password cannot be empty.");
+            }
+            if (isDefaultPassword(newPassword)) {
+                return ServiceResult.fail("The password cannot be the default 'Password'.");
+            }
+            Object repository = repositoryController.getRepository(roleOf(hospitalId));
+            if (!(repository instanceof PasswordChangerInterface)) {
+                return ServiceResult.fail("Invalid ID.");
+            }
+            String hashedPassword = passwordController.hashPassword(newPassword);
+            if (!((PasswordChangerInterface) repository).changePassword(hospitalId, hashedPassword)) {
+                return ServiceResult.fail("Password could not be changed.");
+            }
+            return ServiceResult.ok(null, "Password successfully changed.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the security question a user has set.
+     *
+     * @param hospitalId The hospital ID.
+     * @return The question, or a failed result if none is set.
+     */
+    public ServiceResult<String> getSecurityQuestion(String hospitalId) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.getSecurityQuestion");
+        try {
+            Object repository = repositoryController.getRepository(roleOf(hospitalId));
+            if (!(repository instanceof checkHaveQuestionsInterface)
+                    || !((checkHaveQuestionsInterface) repository).checkHaveQuestions(hospitalId)) {
+                return ServiceResult.fail("No security question has been set for this ID.");
+            }
+            return ServiceResult.ok(((checkHaveQuestionsInterface) repository).returnQuestion(hospitalId));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Checks the answer to a user's security question.
+     *
+     * @param hospitalId The hospital ID.
+     * @param answer     The answer given.
+     * @return {@code true} if a question is set and the answer matches.
+     */
+    public boolean verifySecurityAnswer(String hospitalId, String answer) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.verifySecurityAnswer");
+        try {
+            Object repository = repositoryController.getRepository(roleOf(hospitalId));
+            if (!(repository instanceof checkHaveQuestionsInterface)) {
+                return false;
+            }
+            checkHaveQuestionsInterface questions = (checkHaveQuestionsInterface) repository;
+            return questions.checkHaveQuestions(hospitalId) && questions.questionVerification(hospitalId, answer);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sets a new password after the security question has been answered correctly.
+     *
+     * @param hospitalId  The hospital ID.
+     * @param answer      The answer to the security question.
+     * @param newPassword The new plain text password.
+     * @return A successful result if the answer was correct and the password was stored.
+     */
+    public ServiceResult<Void> resetPassword(String hospitalId, String answer, String newPassword) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.resetPassword");
+        try {
+            if (!verifySecurityAnswer(hospitalId, answer)) {
+                return ServiceResult.fail("The answer to the security question is incorrect.");
+            }
+            return changePassword(hospitalId, newPassword);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sets the security question and answer used to recover a user's password.
+     *
+     * @param hospitalId The hospital ID.
+     * @param question   The security question.
+     * @param answer     The answer.
+     * @return A successful result if the question was stored.
+     */
+    public ServiceResult<Void> setSecurityQuestion(String hospitalId, String question, String answer) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AuthService.setSecurityQuestion");
+        try {
+            Object repository = repositoryController.getRepository(roleOf(hospitalId));
+            if (!(repository instanceof ChangeSecurityQuestionInterface)) {
+                return ServiceResult.fail("Invalid ID or role. Cannot change questions.");
+            }
+            if (!((ChangeSecurityQuestionInterface) repository).changeSecurityQuestion(hospitalId, question, answer)) {
+                return ServiceResult.fail("Failed to change security question.");
+            }
+            return ServiceResult.ok(null, "Security question changed successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package service;
+
+import entity.Appointment;
+import entity.Availability;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import repository.AvailabilityRepository;
+import storage.CsvTable;
+import storage.TableLock;
+import util.DataDirectory;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on the availability slots doctors publish for appointments.
+ */
+@SuppressWarnings("try")
+public class AvailabilityService {
+    private static final CsvTable AVAILABILITY_TABLE = CsvTable.forFile(DataDirectory.resolve("Availability.csv"));
+
+    private final AvailabilityRepository availabilityRepository = new AvailabilityRepository();
+
+    /**
+     * Returns the ID the next availability slot will be given.
+     *
+     * @return The next availability ID, e.g. "AV012".
+     * @throws IOException if the availability file cannot be read.
+     */
+    public String nextAvailabilityId() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.nextAvailabilityId");
+        try {
+            String lastId = availabilityRepository.getLastAvailId();
+            int nextNumber = Integer.parseInt(lastId.substring(2)) + 1;
+            return "AV" + String.format("%03d", nextNumber);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns all open availability slots.
+     *
+     * @return The availability slots.
+     * @throws IOException if the availability file cannot be read.
+     */
+    public List<Availability> getAllSlots() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.getAllSlots");
+        try {
+            return availabilityRepository.loadAllAvailabilities();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the open availability slots of one doctor.
+     *
+     * @param doctorId The doctor ID.
+     * @return The doctor's availability slots.
+     * @throws IOException if the availability file cannot be read.
+     */
+    public List<Availability> getSlotsForDoctor(String doctorId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.getSlotsForDoctor");
+        try {
+            return availabilityRepository.getAvailabilityByDoctorId(doctorId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the open availability slots dated within a range, optionally for one doctor.
+     * Once the availability table is split by month only the months in the range are read.
+     *
+     * @param doctorId The doctor ID, or {@code null} for every doctor.
+     * @param from     The first date, or {@code null} for no lower bound.
+     * @param to       The last date, or {@code null} for no upper bound.
+     * @return The availability slots in the range.
+     * @throws IOException if the availability file cannot be read.
+     */
+    public List<Availability> getSlotsBetween(String doctorId, LocalDate from, LocalDate to) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.getSlotsBetween");
+        try {
+            List<Availability> slots = availabilityRepository.getAvailabilitiesBetween(from, to);
+            if (doctorId != null) {
+                slots.removeIf(slot -> !slot.getDoctorId().equals(doctorId));
+            }
+            return slots;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns an availability slot by its ID.
+     *
+     * @param availabilityId The availability ID.
+     * @return The slot, or {@code null} if it does not exist.
+     * @throws IOException if the availability file cannot be read.
+     */
+    public Availability getSlot(String availabilityId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.getSlot");
+        try {
+            return availabilityRepository.getAvailabilityById(availabilityId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Publishes a new availability slot for a doctor.
+     *
+     * @param doctorId  The doctor ID.
+     * @param date      The date, in DD-MM-YYYY format.
+     * @param startTime The start time, in HH:MM format.
+     * @param endTime   The end time, in HH:MM format.
+     * @return The new slot, or a failed result if the date or a time is malformed.
+     * @throws IOException if the availability file cannot be read or written.
+     */
+    public ServiceResult<Availability> addSlot(String doctorId, String date, String startTime, String endTime)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.addSlot");
+        try (TableLock slots = AVAILABILITY_TABLE.lockExclusive()) {
+            if (!DateTimeUtil.isValidDate(date)) {
+                return ServiceResult.fail("Invalid date format. Please use DD-MM-YYYY.");
+            }
+            if (!DateTimeUtil.isValidTime(startTime)) {
+                return ServiceResult.fail("Invalid start time format. Please use HH:MM.");
+            }
+            if (!DateTimeUtil.isValidTime(endTime)) {
+                return ServiceResult.fail("Invalid end time format. Please use HH:MM.");
+            }
+
+            Availability availability = new Availability(nextAvailabilityId(), doctorId, date, startTime, endTime);
+            availabilityRepository.createNewAvailability(availability);
+            return ServiceResult.ok(availability, "New availability added successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Turns the time slot of a cancelled or rescheduled appointment back into an open slot.
+     *
+     * @param appointment The appointment giving up its slot.
+     * @return The new availability slot.
+     * @throws IOException if the availability file cannot be read or written.
+     */
+    public Availability releaseSlot(Appointment appointment) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("AvailabilityService.releaseSlot");
+        try {
+            Availability availability = new Availability(nextAvailabilityId(), appointment.getDoctorId(),
+                    appointment.getAppointmentDate(), appointment.getStartTime(), appointment.getEndTime());
+            availabilityRepository.createNewAvailability(availability);
+            return availability;
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package service;
+
+import entity.MedicationInventory;
+import entity.ReplenishmentRequests;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import repository.MedicationInventoryRepository;
+import repository.ReplenishmentRequestRepository;
+import storage.CsvTable;
+import storage.OptimisticLockException;
+import storage.SnapshotView;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on the medication inventory and the replenishment requests raised by
+ * pharmacists and approved by administrators.
+ */
+@SuppressWarnings("try")
+public class InventoryService {
+    /**
+     * Medications with fewer units than this in stock are reported as low.
+     */
+    public static final int LOW_STOCK_THRESHOLD = 60;
+
+    private static final CsvTable MEDICATION_INVENTORY_TABLE = CsvTable.forFile(DataDirectory.resolve("MedicationInventory.csv"));
+    private static final CsvTable REPLENISHMENT_REQUESTS_TABLE = CsvTable.forFile(DataDirectory.resolve("ReplenishmentRequests.csv"));
+
+    private final MedicationInventoryRepository inventoryRepository = new MedicationInventoryRepository();
+    private final ReplenishmentRequestRepository requestRepository = new ReplenishmentRequestRepository();
+
+    /**
+     * Returns every medication in the inventory, read from a snapshot so that stock updates
+     * are not held up while it is listed.
+     *
+     * @return The inventory.
+     * @throws IOException if the inventory file cannot be read.
+     */
+    public List<MedicationInventory> getInventory() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.getInventory");
+        try (SnapshotView view = SnapshotView.open(MEDICATION_INVENTORY_TABLE)) {
+            return inventoryRepository.loadAllMedications();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a medication by name, ignoring case.
+     *
+     * @param medicationName The medication name.
+     * @return The medication, or {@code null} if it is not in the inventory.
+     * @throws IOException if the inventory file cannot be read.
+     */
+    public MedicationInventory getMedication(String medicationName) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.getMedication");
+        try {
+            for (MedicationInventory medication : inventoryRepository.loadAllMedications()) {
+                if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
+                    return medication;
+                }
+            }
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the medications whose stock is below {@link #LOW_STOCK_THRESHOLD}.
+     *
+     * @return The low-stock medications.
+     * @throws IOException if the inventory file cannot be read.
+     */
+    public List<MedicationInventory> getLowStock() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.getLowStock");
+        try {
+            List<MedicationInventory> lowStock = new ArrayList<>();
+            for (MedicationInventory medication : inventoryRepository.loadAllMedications()) {
+                if (medication.getStockLevel() < LOW_STOCK_THRESHOLD) {
+                    lowStock.add(medication);
+                }
+            }
+            return lowStock;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds a medication to the inventory.
+     *
+     * @param medicationName The medication name.
+     * @param stockLevel     The number of units in stock.
+     * @param alertLevel     The stock level at which an alert is raised.
+     * @return A failed result if the medication is already in the inventory.
+     * @throws IOException if the inventory file cannot be read or written.
+     */
+    public ServiceResult<Void> addMedication(String medicationName, int stockLevel, int alertLevel)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.addMedication");
+        try (TableLock inventory = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            if (getMedication(medicationName) != null) {
+                return ServiceResult.fail("Medication " + medicationName + " already exists.");
+            }
+            inventoryRepository.addMedication(medicationName, stockLevel, alertLevel);
+            return ServiceResult.ok(null, "New medication added successfully!");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Removes a medication from the inventory.
+     *
+     * @param medicationName The medication name.
+     * @return A failed result if the medication is not in the inventory.
+     * @throws IOException if the inventory file cannot be read or written.
+     */
+    public ServiceResult<Void> removeMedication(String medicationName) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.removeMedication");
+        try {
+            if (getMedication(medicationName) == null) {
+                return ServiceResult.fail("Medication " + medicationName + " does not exist.");
+            }
+            inventoryRepository.removeMedication(medicationName);
+            return ServiceResult.ok(null, "Medication removed successfully!");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds units to the stock of a medication.
+     *
+     * @param medicationName The medication name.
+     * @param quantity       The number of units to add.
+     * @return A failed result if the medication is not in the inventory.
+     * @throws IOException if the inventory file cannot be read or written.
+     */
+    public ServiceResult<Void> addStock(String medicationName, int quantity) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.addStock");
+        try {
+            if (getMedication(medicationName) == null) {
+                return ServiceResult.fail("Medication " + medicationName + " does not exist.");
+            }
+            inventoryRepository.updateStockLevel(medicationName, quantity);
+            return ServiceResult.ok(null, "Stock level updated successfully!");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Changes the stock level at which an alert is raised for a medication.
+     *
+     * @param medicationName The medication name.
+     * @param alertLevel     The new alert level.
+     * @return A failed result if the medication is not in the inventory.
+     * @throws IOException if the inventory file cannot be read or written.
+     */
+    public ServiceResult<Void> updateAlertLevel(String medicationName, int alertLevel) throws IOException {
+        return updateAlertLevel(medicationName, alertLevel, null);
+    }
+
+    /**
+     * Changes the stock level at which an alert is raised for a medication, provided the
+     * medication has not changed since it was shown.
+     *
+     * @param medicationName  The medication name.
+     * @param alertLevel      The new alert level.
+     * @param expectedVersion The version of the medication that was shown, or {@code null} to
+     *                        update the medication as it is stored now.
+     * @return A failed result if the medication is not in the inventory.
+     * @throws OptimisticLockException if the medication changed after it was shown.
+     * @throws IOException if the inventory file cannot be read or written.
+     */
+    public ServiceResult<Void> updateAlertLevel(String medicationName, int alertLevel, Long expectedVersion)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.updateAlertLevel");
+        try {
+            return OptimisticRetry.run("InventoryService.updateAlertLevel", expectedVersion, () -> {
+                MedicationInventory medication = getMedication(medicationName);
+                if (medication != null) {
+                    OptimisticRetry.expect("MedicationInventory", medicationName, expectedVersion,
+                            medication.getVersion());
+                    medication.setStockAlertLevel(alertLevel);
+                }
+                if (medication == null || !inventoryRepository.updateMedication(medication)) {
+                    return ServiceResult.fail("Medication " + medicationName + " does not exist.");
+                }
+                return ServiceResult.ok(null, "Stock alert level updated successfully!");
+            });
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Raises a replenishment request for a medication.
+     *
+     * @param medicationName The medication name.
+     * @param quantity       The number of units requested, greater than zero.
+     * @return The medication the request was raised for, or a failed result if it is not in
+     *         the inventory or the quantity is not positive.
+     * @throws IOException if the inventory or request file cannot be read or written.
+     */
+    public ServiceResult<MedicationInventory> submitReplenishmentRequest(String medicationName, int quantity)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.submitReplenishmentRequest");
+        try {
+            MedicationInventory medication = getMedication(medicationName);
+            if (medication == null) {
+                return ServiceResult.fail("The medication '" + medicationName + "' does not exist in the inventory.");
+            }
+            if (quantity <= 0) {
+                return ServiceResult.fail("Quantity must be greater than zero.");
+            }
+            requestRepository.saveReplenishmentRequest(medicationName, quantity);
+            return ServiceResult.ok(medication, "Replenishment request submitted successfully!");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the replenishment requests waiting for approval, as of one version of the request
+     * table.
+     *
+     * @return The pending requests.
+     * @throws IOException if the request file cannot be read.
+     */
+    public List<ReplenishmentRequests> getPendingRequests() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.getPendingRequests");
+        try (SnapshotView view = SnapshotView.open(REPLENISHMENT_REQUESTS_TABLE)) {
+            return requestRepository.pendingRequests();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Approves a replenishment request: the requested quantity is added to the stock and the
+     * request is marked as completed.
+     *
+     * @param requestId The request ID.
+     * @return The approved request, or a failed result if it does not exist or is not pending.
+     * @throws IOException if the inventory or request file cannot be read or written.
+     */
+    public ServiceResult<ReplenishmentRequests> approveRequest(int requestId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InventoryService.approveRequest");
+        try (TableLock requests = REPLENISHMENT_REQUESTS_TABLE.lockExclusive();
+                TableLock inventory = MEDICATION_INVENTORY_TABLE.lockExclusive()) {
+            ReplenishmentRequests request = requestRepository.getRequestById(requestId);
+            if (request == null) {
+                return ServiceResult.fail("Invalid request ID");
+            }
+            if (!"Pending".equalsIgnoreCase(request.getStatus())) {
+                return ServiceResult.fail("Request " + requestId + " has already been " + request.getStatus() + ".");
+            }
+            inventoryRepository.updateStockLevel(request.getMedicationName(), request.getQuantity());
+            requestRepository.updateRequestStatus(requestId, "Completed");
+            request.setStatus("Completed");
+            return ServiceResult.ok(request, "Approving replenishment request...");
+        } finally {
+            timer.stop();
+        }
+    }
+}
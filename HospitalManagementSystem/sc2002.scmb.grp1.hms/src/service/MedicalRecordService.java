@@ -0,0 +1,196 @@
+package service;
+
+import entity.MedicalRecord;
+import entity.MedicalRecordVersion;
+import java.io.IOException;
+import java.util.List;
+import repository.MedicalRecordRepository;
+import repository.PatientRepository;
+import storage.CsvTable;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on patients' medical records.
+ */
+@SuppressWarnings("try")
+public class MedicalRecordService {
+    private static final CsvTable MEDICALRECORD_TABLE = CsvTable.forFile(DataDirectory.resolve("MedicalRecord.csv"));
+
+    private final MedicalRecordRepository medicalRecordRepository = new MedicalRecordRepository();
+    private final PatientRepository patientRepository = new PatientRepository();
+
+    /**
+     * Returns the ID the next medical record will be given.
+     *
+     * @return The next record ID, e.g. "R012".
+     * @throws IOException if the medical record file cannot be read.
+     */
+    public String nextRecordId() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.nextRecordId");
+        try {
+            String lastId = medicalRecordRepository.getLastRecordId();
+            int nextNumber = Integer.parseInt(lastId.substring(1)) + 1;
+            return "R" + String.format("%03d", nextNumber);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the medical records of a patient.
+     *
+     * @param patientId The patient ID.
+     * @return The patient's records.
+     * @throws IOException if the medical record file cannot be read.
+     */
+    public List<MedicalRecord> getRecordsForPatient(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.getRecordsForPatient");
+        try {
+            return medicalRecordRepository.findRecordsByPatientId(patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the medical records written by a doctor.
+     *
+     * @param doctorId The doctor ID.
+     * @return The doctor's records.
+     * @throws IOException if the medical record file cannot be read.
+     */
+    public List<MedicalRecord> getRecordsForDoctor(String doctorId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.getRecordsForDoctor");
+        try {
+            return medicalRecordRepository.findRecordsByDoctorId(doctorId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns whether a patient exists, ignoring the case of the ID.
+     *
+     * @param patientId The patient ID.
+     * @return {@code true} if the patient exists.
+     * @throws IOException if the patient file cannot be read.
+     */
+    public boolean patientExists(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.patientExists");
+        try {
+            return patientRepository.hasPatient(patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns whether a medical record exists, ignoring the case of the ID.
+     *
+     * @param recordId The record ID.
+     * @return {@code true} if the record exists.
+     * @throws IOException if the medical record file cannot be read.
+     */
+    public boolean recordExists(String recordId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.recordExists");
+        try {
+            return medicalRecordRepository.hasRecord(recordId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the medical records whose diagnosis, treatment or prescription match a search
+     * query, such as "asthma AND inhaler".
+     *
+     * @param query The search query.
+     * @return The matching records, or a failed result if the query is malformed.
+     * @throws IOException if the medical record file cannot be read.
+     */
+    public ServiceResult<List<MedicalRecord>> searchRecords(String query) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.searchRecords");
+        try {
+            return ServiceResult.ok(medicalRecordRepository.searchMedicalRecords(query));
+        } catch (IllegalArgumentException e) {
+            return ServiceResult.fail(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns every version of a medical record, oldest first.
+     *
+     * @param recordId The record ID.
+     * @return The versions, or a failed result if the record does not exist.
+     * @throws IOException if the medical record files cannot be read.
+     */
+    public ServiceResult<List<MedicalRecordVersion>> getRecordHistory(String recordId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.getRecordHistory");
+        try {
+            List<MedicalRecordVersion> versions = medicalRecordRepository.loadRecordHistory(recordId);
+            if (versions.isEmpty()) {
+                return ServiceResult.fail("Record ID not found.");
+            }
+            return ServiceResult.ok(versions);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds a medical record for a patient.
+     *
+     * @param doctorId     The doctor writing the record.
+     * @param patientId    The patient ID.
+     * @param diagnosis    The diagnosis.
+     * @param treatment    The treatment.
+     * @param prescription The prescription.
+     * @return The new record, or a failed result if the patient does not exist.
+     * @throws IOException if a data file cannot be read or written.
+     */
+    public ServiceResult<MedicalRecord> createRecord(String doctorId, String patientId, String diagnosis,
+            String treatment, String prescription) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.createRecord");
+        try (TableLock records = MEDICALRECORD_TABLE.lockExclusive()) {
+            if (!patientExists(patientId)) {
+                return ServiceResult.fail("Invalid Patient ID.");
+            }
+            MedicalRecord record = new MedicalRecord(nextRecordId(), patientId, doctorId, diagnosis, treatment,
+                    prescription);
+            medicalRecordRepository.addMedicalRecord(record);
+            return ServiceResult.ok(record, "Medical record added successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Replaces the diagnosis, treatment and prescription of a medical record.
+     *
+     * @param recordId     The record ID.
+     * @param diagnosis    The new diagnosis.
+     * @param treatment    The new treatment.
+     * @param prescription The new prescription.
+     * @return A failed result if the record does not exist.
+     * @throws IOException if the medical record file cannot be read or written.
+     */
+    public ServiceResult<Void> updateRecord(String recordId, String diagnosis, String treatment,
+            String prescription) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("MedicalRecordService.updateRecord");
+        try {
+            if (!recordExists(recordId)) {
+                return ServiceResult.fail("Record ID not found.");
+            }
+            if (!medicalRecordRepository.updateMedicalRecord(recordId, diagnosis, treatment, prescription)) {
+                return ServiceResult.fail("An error occurred. Update failed.");
+            }
+            return ServiceResult.ok(null, "Medical record updated successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+}
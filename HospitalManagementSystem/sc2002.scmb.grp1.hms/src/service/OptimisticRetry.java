@@ -0,0 +1,76 @@
+package service;
+
+import java.io.IOException;
+import storage.OptimisticLockException;
+import util.MetricsRegistry;
+
+/**
+ * Runs a read-modify-write of versioned rows, starting again from a fresh read when the write
+ * loses to a concurrent update.
+ * <p>
+ * When the caller supplies the version it last saw, there is no retry: the conflict is
+ * reported straight away so the user can look at the new data before deciding again.
+ * Every conflict is recorded in {@link MetricsRegistry} as {@code <operation>.conflict}.
+ * </p>
+ */
+final class OptimisticRetry {
+    /**
+     * The number of times an operation is tried before the conflict is reported.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * One attempt at a read-modify-write.
+     *
+     * @param <T> The type of the value produced.
+     */
+    @FunctionalInterface
+    interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    private OptimisticRetry() {
+    }
+
+    /**
+     * Checks the version a caller last saw against the stored one.
+     *
+     * @param table           The table holding the row.
+     * @param key             The ID of the row.
+     * @param expectedVersion The version the caller last saw, or {@code null} to skip the check.
+     * @param actualVersion   The stored version.
+     * @throws OptimisticLockException if the versions differ.
+     */
+    static void expect(String table, String key, Long expectedVersion, long actualVersion)
+            throws OptimisticLockException {
+        if (expectedVersion != null && expectedVersion != actualVersion) {
+            throw new OptimisticLockException(table, key, expectedVersion, actualVersion);
+        }
+    }
+
+    /**
+     * Runs an attempt, retrying it on a version conflict unless the caller supplied a version.
+     *
+     * @param operation       The metric name of the operation.
+     * @param expectedVersion The version the caller last saw, or {@code null} to retry on conflict.
+     * @param attempt         The read-modify-write to run.
+     * @param <T>             The type of the value produced.
+     * @return The value produced by the successful attempt.
+     * @throws OptimisticLockException if every attempt lost to a concurrent update.
+     * @throws IOException if the data files cannot be read or written.
+     */
+    static <T> T run(String operation, Long expectedVersion, Attempt<T> attempt) throws IOException {
+        int attempts = expectedVersion == null ? MAX_ATTEMPTS : 1;
+        for (int i = 1; ; i++) {
+            long start = System.nanoTime();
+            try {
+                return attempt.run();
+            } catch (OptimisticLockException e) {
+                MetricsRegistry.record(operation + ".conflict", System.nanoTime() - start);
+                if (i >= attempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package service;
+
+import entity.Appointment;
+import entity.AppointmentOutcome;
+import entity.MedicationInventory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.MedicationInventoryRepository;
+import storage.CsvTable;
+import storage.OptimisticLockException;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on appointment outcomes: recording what happened at a confirmed
+ * appointment and dispensing the prescribed medication.
+ */
+@SuppressWarnings("try")
+public class OutcomeService {
+    private static final CsvTable APPOINTMENT_TABLE = CsvTable.forFile(DataDirectory.resolve("Appointment.csv"));
+    private static final CsvTable APPOINTMENT_OUTCOME_TABLE = CsvTable.forFile(DataDirectory.resolve("AppointmentOutcome.csv"));
+
+    private final AppointmentOutcomeRepository outcomeRepository = new AppointmentOutcomeRepository();
+    private final AppointmentRepository appointmentRepository = new AppointmentRepository();
+    private final MedicationInventoryRepository medicationInventoryRepository = new MedicationInventoryRepository();
+    private final AppointmentService appointmentService = new AppointmentService();
+    private final PaymentService paymentService = new PaymentService();
+
+    /**
+     * Returns the ID the next appointment outcome will be given.
+     *
+     * @return The next outcome ID, e.g. "AO012".
+     * @throws IOException if the outcome file cannot be read.
+     */
+    public String nextOutcomeId() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.nextOutcomeId");
+        try {
+            String lastId = outcomeRepository.getLastAppointmentOutcomeId();
+            if (lastId.equals("AO000")) {
+                return "AO000";
+            }
+            int nextNumber = Integer.parseInt(lastId.substring(2)) + 1;
+            return "AO" + String.format("%03d", nextNumber);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Looks up a medication by name, ignoring case.
+     *
+     * @param medicationName The name entered by the user.
+     * @return The name as stored in the inventory, or {@code null} if there is no such medication.
+     * @throws IOException if the inventory file cannot be read.
+     */
+    public String resolveMedication(String medicationName) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.resolveMedication");
+        try {
+            for (MedicationInventory medication : medicationInventoryRepository.loadAllMedications()) {
+                if (medication.getMedicationName().equalsIgnoreCase(medicationName)) {
+                    return medication.getMedicationName();
+                }
+            }
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Records the outcome of a confirmed appointment, marks the appointment as completed and
+     * bills the patient for it.
+     *
+     * @param appointmentId      The confirmed appointment.
+     * @param serviceType        The type of service provided.
+     * @param medications        The names of the prescribed medications; empty if none.
+     * @param consultationNotes  The consultation notes.
+     * @return The new outcome, or a failed result if the appointment is not confirmed or a
+     *         medication is not in the inventory.
+     * @throws IOException if a data file cannot be read or written.
+     */
+    public ServiceResult<AppointmentOutcome> recordOutcome(String appointmentId, String serviceType,
+            List<String> medications, String consultationNotes) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.recordOutcome");
+        try (TableLock appointments = APPOINTMENT_TABLE.lockExclusive();
+                TableLock outcomes = APPOINTMENT_OUTCOME_TABLE.lockExclusive()) {
+            Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+            if (appointment == null || !appointment.getStatus().equals("Confirmed")) {
+                return ServiceResult.fail("The Appointment ID is not valid.");
+            }
+
+            List<String> prescribed = new ArrayList<>();
+            for (String medication : medications) {
+                String exactName = resolveMedication(medication.trim());
+                if (exactName == null) {
+                    return ServiceResult.fail("Invalid medication name: " + medication);
+                }
+                prescribed.add(exactName);
+            }
+            String medicationNames = prescribed.isEmpty() ? "nil" : String.join(", ", prescribed);
+            String medicationStatus = prescribed.isEmpty() ? "nil" : "Pending";
+
+            // The medication list may contain commas, so it is quoted in the file
+            String outcomeId = nextOutcomeId();
+            outcomeRepository.createNewAppointmentOutcome(new AppointmentOutcome(outcomeId, appointmentId,
+                    appointment.getAppointmentDate(), serviceType, "\"" + medicationNames + "\"",
+                    medicationStatus, consultationNotes));
+            AppointmentOutcome outcome = new AppointmentOutcome(outcomeId, appointmentId,
+                    appointment.getAppointmentDate(), serviceType, medicationNames, medicationStatus,
+                    consultationNotes);
+            appointmentService.updateStatus(appointmentId, "Completed");
+            paymentService.chargeForAppointment(appointmentId);
+            return ServiceResult.ok(outcome,
+                    "Appointment outcome created successfully for Appointment ID: " + appointmentId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns every appointment outcome.
+     *
+     * @return All outcomes.
+     * @throws IOException if the outcome file cannot be read.
+     */
+    public List<AppointmentOutcome> getAllOutcomes() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.getAllOutcomes");
+        try {
+            return outcomeRepository.loadAllAppointmentOutcomes();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the outcomes whose consultation notes match a search query, such as
+     * "pain AND NOT chest".
+     *
+     * @param query The search query.
+     * @return The matching outcomes, or a failed result if the query is malformed.
+     * @throws IOException if the outcome file cannot be read.
+     */
+    public ServiceResult<List<AppointmentOutcome>> searchOutcomes(String query) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.searchOutcomes");
+        try {
+            return ServiceResult.ok(outcomeRepository.searchAppointmentOutcomes(query));
+        } catch (IllegalArgumentException e) {
+            return ServiceResult.fail(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the outcomes of a patient's past appointments.
+     *
+     * @param patientId The patient ID.
+     * @return The patient's outcomes.
+     * @throws IOException if the outcome or appointment file cannot be read.
+     */
+    public List<AppointmentOutcome> getOutcomesForPatient(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.getOutcomesForPatient");
+        try {
+            Set<String> appointmentIds = new HashSet<>();
+            // Past appointments and their outcomes may have been archived
+            for (Appointment appointment : appointmentRepository.loadAppointmentHistory()) {
+                if (appointment.getPatientId().equals(patientId)) {
+                    appointmentIds.add(appointment.getAppointmentId());
+                }
+            }
+
+            List<AppointmentOutcome> outcomes = new ArrayList<>();
+            for (AppointmentOutcome outcome : outcomeRepository.loadAppointmentOutcomeHistory()) {
+                if (appointmentIds.contains(outcome.getAppointmentId())) {
+                    outcomes.add(outcome);
+                }
+            }
+            return outcomes;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the outcomes whose medication has not been dispensed yet.
+     *
+     * @return The outcomes with a "Pending" medication status.
+     * @throws IOException if the outcome file cannot be read.
+     */
+    public List<AppointmentOutcome> getPendingOutcomes() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.getPendingOutcomes");
+        try {
+            List<AppointmentOutcome> pending = new ArrayList<>();
+            for (AppointmentOutcome outcome : outcomeRepository.loadAllAppointmentOutcomes()) {
+                if ("Pending".equalsIgnoreCase(outcome.getMedicationStatus())) {
+                    pending.add(outcome);
+                }
+            }
+            return pending;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Marks the medication of an outcome as dispensed.
+     *
+     * @param outcomeId The outcome ID.
+     * @return The updated outcome, or a failed result if the outcome does not exist or is not pending.
+     * @throws IOException if the outcome file cannot be read or written.
+     */
+    public ServiceResult<AppointmentOutcome> dispenseMedication(String outcomeId) throws IOException {
+        return dispenseMedication(outcomeId, null);
+    }
+
+    /**
+     * Marks the medication of an outcome as dispensed, provided the outcome has not changed
+     * since the pharmacist saw it. Two pharmacists dispensing the same prescription at once
+     * cannot both succeed: the second write loses the version check and, on re-reading, finds
+     * the prescription already dispensed.
+     *
+     * @param outcomeId       The outcome ID.
+     * @param expectedVersion The version of the outcome the pharmacist saw, or {@code null} to
+     *                        dispense it as it is stored now.
+     * @return The updated outcome, or a failed result if the outcome does not exist or is not pending.
+     * @throws OptimisticLockException if the outcome changed after the pharmacist saw it.
+     * @throws IOException if the outcome file cannot be read or written.
+     */
+    public ServiceResult<AppointmentOutcome> dispenseMedication(String outcomeId, Long expectedVersion)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OutcomeService.dispenseMedication");
+        try {
+            return OptimisticRetry.run("OutcomeService.dispenseMedication", expectedVersion, () -> {
+                for (AppointmentOutcome outcome : outcomeRepository.loadAllAppointmentOutcomes()) {
+                    if (outcome.getOutcomeId().equalsIgnoreCase(outcomeId)) {
+                        OptimisticRetry.expect("AppointmentOutcome", outcome.getOutcomeId(), expectedVersion,
+                                outcome.getVersion());
+                        if (!"Pending".equalsIgnoreCase(outcome.getMedicationStatus())) {
+                            break;
+                        }
+                        outcome.setMedicationStatus("Dispensed");
+                        outcomeRepository.updateAppointmentOutcome(outcome);
+                        return ServiceResult.ok(outcome,
+                                "Prescription status updated to 'Dispensed' for Outcome ID: " + outcome.getOutcomeId());
+                    }
+                }
+                return ServiceResult.fail("Invalid Outcome ID or the prescription is already dispensed.");
+            });
+        } finally {
+            timer.stop();
+        }
+    }
+}
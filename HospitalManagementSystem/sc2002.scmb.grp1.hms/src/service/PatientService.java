@@ -0,0 +1,106 @@
+package service;
+
+import entity.Patient;
+import entity.TimelineEntry;
+import java.io.IOException;
+import java.util.List;
+import repository.PatientRepository;
+import repository.PatientTimelineRepository;
+import storage.OptimisticLockException;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on patients' personal information, and the timeline shown on a
+ * patient's home screen.
+ */
+public class PatientService {
+    private final PatientRepository patientRepository = new PatientRepository();
+    private final PatientTimelineRepository timelineRepository = new PatientTimelineRepository();
+
+    /**
+     * Returns a patient by ID.
+     *
+     * @param patientId The patient ID.
+     * @return The patient, or {@code null} if not found.
+     * @throws IOException if the patient file cannot be read.
+     */
+    public Patient getPatient(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientService.getPatient");
+        try {
+            return patientRepository.findPatientById(patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a patient's appointments, appointment outcomes, charges, medical records and
+     * outstanding balance as one timeline, in time order.
+     *
+     * @param patientId The patient ID.
+     * @return The patient's timeline, empty if the patient has no history.
+     * @throws IOException if a data file cannot be read.
+     */
+    public List<TimelineEntry> getTimeline(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientService.getTimeline");
+        try {
+            return timelineRepository.getTimeline(patientId, PaymentService.CONSULTATION_FEE);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Updates a patient's email address and phone number. A {@code null} or blank value keeps
+     * the current one.
+     *
+     * @param patientId   The patient ID.
+     * @param email       The new email address.
+     * @param phoneNumber The new phone number.
+     * @return The updated patient, or a failed result if the patient does not exist.
+     * @throws IOException if the patient file cannot be read or written.
+     */
+    public ServiceResult<Patient> updateContact(String patientId, String email, String phoneNumber)
+            throws IOException {
+        return updateContact(patientId, email, phoneNumber, null);
+    }
+
+    /**
+     * Updates a patient's email address and phone number, provided the patient's record has
+     * not changed since it was shown. A {@code null} or blank value keeps the current one.
+     *
+     * @param patientId       The patient ID.
+     * @param email           The new email address.
+     * @param phoneNumber     The new phone number.
+     * @param expectedVersion The version of the record that was shown, or {@code null} to update
+     *                        the record as it is stored now.
+     * @return The updated patient, or a failed result if the patient does not exist.
+     * @throws OptimisticLockException if the record changed after it was shown.
+     * @throws IOException if the patient file cannot be read or written.
+     */
+    public ServiceResult<Patient> updateContact(String patientId, String email, String phoneNumber,
+            Long expectedVersion) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PatientService.updateContact");
+        try {
+            return OptimisticRetry.run("PatientService.updateContact", expectedVersion, () -> {
+                Patient patient = patientRepository.findPatientById(patientId);
+                if (patient == null) {
+                    return ServiceResult.fail("Patient not found!");
+                }
+                OptimisticRetry.expect("Patient", patientId, expectedVersion, patient.getVersion());
+                if (email != null && !email.isEmpty()) {
+                    patient.setEmail(email);
+                }
+                if (phoneNumber != null && !phoneNumber.isEmpty()) {
+                    patient.setPhoneNumber(phoneNumber);
+                }
+                if (!patientRepository.updatePatient(patient)) {
+                    return ServiceResult.fail("Failed to update contact information.");
+                }
+                return ServiceResult.ok(patient, "Contact information updated successfully.");
+            });
+        } finally {
+            timer.stop();
+        }
+    }
+}
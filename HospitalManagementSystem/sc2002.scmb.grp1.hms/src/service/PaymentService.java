@@ -0,0 +1,161 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import entity.Appointment;
+import repository.AppointmentRepository;
+import storage.CsvTable;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Headless billing operations. Each completed appointment adds one unpaid consultation to the
+ * patient's row in Payment.csv; paying settles all of them at once.
+ */
+@SuppressWarnings("try")
+public class PaymentService {
+    /**
+     * The amount charged for one completed appointment.
+     */
+    public static final int CONSULTATION_FEE = 70;
+
+    private static final String FILE_PATH_PAYMENT = DataDirectory.resolve("Payment.csv");
+    private static final CsvTable PAYMENT_TABLE = CsvTable.forFile(FILE_PATH_PAYMENT);
+    private static final String PAYMENT_HEADER = "PatientID,numberOfUnpaid,numberOfPaid";
+
+    private final AppointmentRepository appointmentRepository = new AppointmentRepository();
+
+    /**
+     * Returns the amount a patient still owes.
+     *
+     * @param patientId The patient ID.
+     * @return The amount due, or a failed result if the patient has no payment record.
+     * @throws IOException if the payment file cannot be read.
+     */
+    public ServiceResult<Integer> getAmountDue(String patientId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PaymentService.getAmountDue");
+        try {
+            for (String[] record : loadPaymentRecords()) {
+                if (record[0].equals(patientId)) {
+                    try {
+                        return ServiceResult.ok(Integer.parseInt(record[1]) * CONSULTATION_FEE);
+                    } catch (NumberFormatException e) {
+                        return ServiceResult.fail("Invalid data format in Payment.csv: " + e.getMessage());
+                    }
+                }
+            }
+            return ServiceResult.fail("No payment record found for hospital ID: " + patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Settles all unpaid consultations of a patient with a credit card.
+     *
+     * @param patientId        The patient ID.
+     * @param creditCardNumber The card number, 12 to 16 characters.
+     * @param creditCardName   The name on the card.
+     * @return The amount paid, or a failed result if the card details are invalid or nothing is owed.
+     * @throws IOException if the payment file cannot be read or written.
+     */
+    public ServiceResult<Integer> pay(String patientId, String creditCardNumber, String creditCardName)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PaymentService.pay");
+        try (TableLock lock = PAYMENT_TABLE.lockExclusive()) {
+            String cardNumber = creditCardNumber == null ? "" : creditCardNumber.trim();
+            String cardName = creditCardName == null ? "" : creditCardName.trim();
+            if (cardNumber.length() < 12 || cardNumber.length() > 16) {
+                return ServiceResult.fail("Invalid credit card number. Payment failed.");
+            }
+            if (cardName.isEmpty()) {
+                return ServiceResult.fail("Invalid credit card name. Payment failed.");
+            }
+
+            List<String[]> records = loadPaymentRecords();
+            int amountPaid = -1;
+            for (String[] record : records) {
+                if (record[0].equals(patientId)) {
+                    int numberOfUnpaid = Integer.parseInt(record[1]);
+                    if (numberOfUnpaid <= 0) {
+                        return ServiceResult.fail("No unpaid medical records to process.");
+                    }
+                    record[1] = "0";
+                    record[2] = String.valueOf(Integer.parseInt(record[2]) + numberOfUnpaid);
+                    amountPaid = numberOfUnpaid * CONSULTATION_FEE;
+                }
+            }
+            if (amountPaid < 0) {
+                return ServiceResult.fail("Payment could not be processed.");
+            }
+
+            writePaymentRecords(records);
+            return ServiceResult.ok(amountPaid, "Payment processed successfully for hospital ID: " + patientId);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds one unpaid consultation to the bill of the patient of a completed appointment,
+     * creating the patient's payment record if needed.
+     *
+     * @param appointmentId The completed appointment.
+     * @return A failed result if the appointment does not exist.
+     * @throws IOException if the appointment or payment file cannot be read or written.
+     */
+    public ServiceResult<Void> chargeForAppointment(String appointmentId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("PaymentService.chargeForAppointment");
+        try (TableLock lock = PAYMENT_TABLE.lockExclusive()) {
+            Appointment appointment = appointmentRepository.getAppointmentById(appointmentId);
+            if (appointment == null) {
+                return ServiceResult.fail("Appointment " + appointmentId + " does not exist.");
+            }
+            String patientId = appointment.getPatientId();
+
+            List<String[]> records = loadPaymentRecords();
+            boolean found = false;
+            for (String[] record : records) {
+                if (record[0].equals(patientId)) {
+                    record[1] = String.valueOf(Integer.parseInt(record[1]) + 1);
+                    found = true;
+                }
+            }
+            if (!found) {
+                records.add(new String[] { patientId, "1", "0" });
+            }
+
+            writePaymentRecords(records);
+            return ServiceResult.ok(null);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private List<String[]> loadPaymentRecords() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        try (BufferedReader reader = PAYMENT_TABLE.openReader()) {
+            String line;
+            reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                records.add(line.split(","));
+            }
+        }
+        return records;
+    }
+
+    private void writePaymentRecords(List<String[]> records) throws IOException {
+        try (BufferedWriter writer = PAYMENT_TABLE.openWriter(false)) {
+            writer.write(PAYMENT_HEADER);
+            writer.newLine();
+            for (String[] record : records) {
+                writer.write(String.join(",", record));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.ReplenishmentRequestRepository;
+import util.MetricsRegistry;
+
+/**
+ * Applies the retention policy: finished history is moved out of the CSV files that are
+ * loaded all the time and into compressed archive segments, where it can still be looked up.
+ * <p>
+ * The policy covers completed and cancelled appointments and dispensed appointment outcomes
+ * dated more than {@code hms.retention.days} days ago (default 365), and completed
+ * replenishment requests older than the newest {@code hms.retention.requests} requests
+ * (default 100), since requests carry no date. Appointments and outcomes still waiting on
+ * someone are never archived, whatever their age.
+ * </p>
+ */
+public class RetentionService {
+    /**
+     * The system property giving the age, in days, after which finished appointments and
+     * outcomes are archived.
+     */
+    public static final String RETENTION_DAYS_PROPERTY = "hms.retention.days";
+
+    /**
+     * The system property giving the number of most recent replenishment requests kept.
+     */
+    public static final String RETAINED_REQUESTS_PROPERTY = "hms.retention.requests";
+
+    /**
+     * The retention age used when none is set.
+     */
+    public static final int DEFAULT_RETENTION_DAYS = 365;
+
+    /**
+     * The number of replenishment requests kept when none is set.
+     */
+    public static final int DEFAULT_RETAINED_REQUESTS = 100;
+
+    private final AppointmentRepository appointmentRepository = new AppointmentRepository();
+    private final AppointmentOutcomeRepository outcomeRepository = new AppointmentOutcomeRepository();
+    private final ReplenishmentRequestRepository requestRepository = new ReplenishmentRequestRepository();
+
+    /**
+     * Archives history using the configured policy.
+     *
+     * @return The number of rows archived from each table.
+     * @throws IOException if a data file cannot be read or written.
+     */
+    public ServiceResult<Map<String, Integer>> archive() throws IOException {
+        return archive(Integer.getInteger(RETENTION_DAYS_PROPERTY, DEFAULT_RETENTION_DAYS),
+                Integer.getInteger(RETAINED_REQUESTS_PROPERTY, DEFAULT_RETAINED_REQUESTS));
+    }
+
+    /**
+     * Archives history older than the given limits.
+     *
+     * @param retentionDays    The age in days after which finished appointments and outcomes are archived.
+     * @param retainedRequests The number of most recent replenishment requests to keep.
+     * @return The number of rows archived from each table, or a failed result if a limit is negative.
+     * @throws IOException if a data file cannot be read or written.
+     */
+    public ServiceResult<Map<String, Integer>> archive(int retentionDays, int retainedRequests) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("RetentionService.archive");
+        try {
+            if (retentionDays < 0 || retainedRequests < 0) {
+                return ServiceResult.fail("Retention limits cannot be negative.");
+            }
+            LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+            Map<String, Integer> archived = new LinkedHashMap<>();
+            archived.put("Appointment", appointmentRepository.archiveAppointmentsBefore(cutoff));
+            archived.put("AppointmentOutcome", outcomeRepository.archiveDispensedBefore(cutoff));
+            archived.put("ReplenishmentRequests", requestRepository.archiveCompleted(retainedRequests));
+            return ServiceResult.ok(archived, "Archived " + archived.get("Appointment") + " appointments, "
+                    + archived.get("AppointmentOutcome") + " appointment outcomes and "
+                    + archived.get("ReplenishmentRequests") + " replenishment requests from before " + cutoff + ".");
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package service;
+
+/**
+ * The outcome of a service operation: whether it succeeded, the value it produced and a
+ * message suitable for showing to the user.
+ * <p>
+ * Services return a failed result for expected business failures (an unknown ID, a slot that
+ * was already taken, an invalid card number) and throw {@link java.io.IOException} only when
+ * the data files cannot be read or written.
+ * </p>
+ *
+ * @param <T> The type of the value produced by the operation.
+ */
+public final class ServiceResult<T> {
+    private final boolean success;
+    private final T value;
+    private final String message;
+
+    private ServiceResult(boolean success, T value, String message) {
+        this.success = success;
+        this.value = value;
+        this.message = message;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param value   The value produced by the operation, may be {@code null}.
+     * @param message A message describing the outcome.
+     * @param <T>     The type of the value.
+     * @return The successful result.
+     */
+    public static <T> ServiceResult<T> ok(T value, String message) {
+        return new ServiceResult<>(true, value, message);
+    }
+
+    /**
+     * Creates a successful result with an empty message.
+     *
+     * @param value The value produced by the operation, may be {@code null}.
+     * @param <T>   The type of the value.
+     * @return The successful result.
+     */
+    public static <T> ServiceResult<T> ok(T value) {
+        return new ServiceResult<>(true, value, "");
+    }
+
+    /**
+     * Creates a failed result.
+     *
+     * @param message A message explaining why the operation failed.
+     * @param <T>     The type of the value the operation would have produced.
+     * @return The failed result.
+     */
+    public static <T> ServiceResult<T> fail(String message) {
+        return new ServiceResult<>(false, null, message);
+    }
+
+    /**
+     * Returns whether the operation succeeded.
+     *
+     * @return {@code true} if the operation succeeded.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the value produced by the operation.
+     *
+     * @return The value, or {@code null} if the operation failed or produced no value.
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the message describing the outcome.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return (success ? "OK" : "FAILED") + (message.isEmpty() ? "" : ": " + message);
+    }
+}
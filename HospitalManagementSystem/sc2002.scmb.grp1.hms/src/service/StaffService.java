@@ -0,0 +1,280 @@
+package service;
+
+import entity.Administrator;
+import entity.Doctor;
+import entity.Pharmacist;
+import entity.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import repository.AdministratorRepository;
+import repository.DoctorRepository;
+import repository.PharmacistRepository;
+import storage.CsvTable;
+import storage.SnapshotView;
+import storage.TableLock;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Headless operations on hospital staff (administrators, doctors and pharmacists).
+ * <p>
+ * Staff roles are named "Admin", "Doctor" and "Pharmacist", matching the administrator menu.
+ * </p>
+ */
+@SuppressWarnings("try")
+public class StaffService {
+    private static final CsvTable ADMINISTRATOR_TABLE = CsvTable.forFile(DataDirectory.resolve("Administrator.csv"));
+    private static final CsvTable DOCTORS_TABLE = CsvTable.forFile(DataDirectory.resolve("Doctor.csv"));
+    private static final CsvTable PHARMACISTS_TABLE = CsvTable.forFile(DataDirectory.resolve("Pharmacist.csv"));
+
+    private final AdministratorRepository administratorRepository = new AdministratorRepository();
+    private final DoctorRepository doctorRepository = new DoctorRepository();
+    private final PharmacistRepository pharmacistRepository = new PharmacistRepository();
+
+    /**
+     * Returns the staff members matching a filter.
+     *
+     * @param filter "All", a role ("Admin", "Doctor", "Pharmacist"), a gender ("Male",
+     *               "Female") or an age band ("20", "30", "40"). Any other value returns all staff.
+     * @return The matching staff members, administrators first, then doctors, then pharmacists.
+     *         Each staff file is read from a snapshot, so listing staff never holds up changes
+     *         to them.
+     * @throws IOException if a staff file cannot be read.
+     */
+    public List<User> getStaff(String filter) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.getStaff");
+        try (SnapshotView view = SnapshotView.open(ADMINISTRATOR_TABLE, DOCTORS_TABLE, PHARMACISTS_TABLE)) {
+            List<User> staff = new ArrayList<>();
+            staff.addAll(administratorRepository.loadAdministrators());
+            staff.addAll(doctorRepository.loadDoctors());
+            staff.addAll(pharmacistRepository.loadPharmacists());
+
+            Predicate<User> matches = switch (filter) {
+                case "Doctor" -> user -> user instanceof Doctor;
+                case "Pharmacist" -> user -> user instanceof Pharmacist;
+                case "Admin" -> user -> user instanceof Administrator;
+                case "Male", "Female" -> user -> filter.equalsIgnoreCase(user.getGender());
+                case "20" -> user -> isAgeBetween(user, 20, 29);
+                case "30" -> user -> isAgeBetween(user, 30, 39);
+                case "40" -> user -> isAgeBetween(user, 40, 50);
+                default -> user -> true;
+            };
+            staff.removeIf(matches.negate());
+            return staff;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns a staff member by role and ID.
+     *
+     * @param role    "Admin", "Doctor" or "Pharmacist", ignoring case.
+     * @param staffId The staff ID.
+     * @return The staff member, or {@code null} if not found.
+     * @throws IOException if the staff file cannot be read.
+     */
+    public User getStaffMember(String role, String staffId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.getStaffMember");
+        try {
+            if (role.equalsIgnoreCase("Admin")) {
+                return administratorRepository.findAdminById(staffId);
+            } else if (role.equalsIgnoreCase("Doctor")) {
+                return doctorRepository.findDoctorById(staffId);
+            } else if (role.equalsIgnoreCase("Pharmacist")) {
+                return pharmacistRepository.findPharmacistById(staffId);
+            }
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds an administrator.
+     *
+     * @param administrator The new administrator.
+     * @return A failed result if the ID is already taken.
+     * @throws IOException if the administrator file cannot be read or written.
+     */
+    public ServiceResult<Void> addAdministrator(Administrator administrator) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.addAdministrator");
+        try (TableLock administrators = ADMINISTRATOR_TABLE.lockExclusive()) {
+            if (administratorRepository.hasAdministrator(administrator.getUserId())) {
+                return ServiceResult.fail("Administrator with ID " + administrator.getUserId() + " already exists.");
+            }
+            administratorRepository.writeAdmin(administrator);
+            return ServiceResult.ok(null, "Administrator with ID " + administrator.getUserId() + " added successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds a doctor.
+     *
+     * @param doctor The new doctor.
+     * @return A failed result if the ID is already taken.
+     * @throws IOException if the doctor file cannot be read or written.
+     */
+    public ServiceResult<Void> addDoctor(Doctor doctor) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.addDoctor");
+        try (TableLock doctors = DOCTORS_TABLE.lockExclusive()) {
+            if (doctorRepository.hasDoctor(doctor.getUserId())) {
+                return ServiceResult.fail("Doctor with ID " + doctor.getUserId() + " already exists.");
+            }
+            doctorRepository.writeDoctor(doctor);
+            return ServiceResult.ok(null, "Doctor with ID " + doctor.getUserId() + " added successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds a pharmacist.
+     *
+     * @param pharmacist The new pharmacist.
+     * @return A failed result if the ID is already taken.
+     * @throws IOException if the pharmacist file cannot be read or written.
+     */
+    public ServiceResult<Void> addPharmacist(Pharmacist pharmacist) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.addPharmacist");
+        try (TableLock pharmacists = PHARMACISTS_TABLE.lockExclusive()) {
+            if (pharmacistRepository.hasPharmacist(pharmacist.getUserId())) {
+                return ServiceResult.fail("Pharmacist with ID " + pharmacist.getUserId() + " already exists.");
+            }
+            pharmacistRepository.writePharmacist(pharmacist);
+            return ServiceResult.ok(null, "Pharmacist with ID " + pharmacist.getUserId() + " added successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Removes an administrator.
+     *
+     * @param staffId The administrator ID.
+     * @return A failed result if there is no such administrator.
+     * @throws IOException if the administrator file cannot be read or written.
+     */
+    public ServiceResult<Void> removeAdministrator(String staffId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.removeAdministrator");
+        try {
+            if (!administratorRepository.hasAdministrator(staffId)) {
+                return ServiceResult.fail("Administrator with ID " + staffId + " does not exist.");
+            }
+            administratorRepository.removeAdministratorById(staffId);
+            return ServiceResult.ok(null, "Administrator with ID " + staffId + " removed successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Removes a doctor.
+     *
+     * @param staffId The doctor ID.
+     * @return A failed result if there is no such doctor.
+     * @throws IOException if the doctor file cannot be read or written.
+     */
+    public ServiceResult<Void> removeDoctor(String staffId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.removeDoctor");
+        try {
+            if (!doctorRepository.hasDoctor(staffId)) {
+                return ServiceResult.fail("Doctor with ID " + staffId + " does not exist.");
+            }
+            doctorRepository.removeDoctorById(staffId);
+            return ServiceResult.ok(null, "Doctor with ID " + staffId + " removed successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Removes a pharmacist.
+     *
+     * @param staffId The pharmacist ID.
+     * @return A failed result if there is no such pharmacist.
+     * @throws IOException if the pharmacist file cannot be read or written.
+     */
+    public ServiceResult<Void> removePharmacist(String staffId) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.removePharmacist");
+        try {
+            if (!pharmacistRepository.hasPharmacist(staffId)) {
+                return ServiceResult.fail("Pharmacist with ID " + staffId + " does not exist.");
+            }
+            pharmacistRepository.removePharmacistById(staffId);
+            return ServiceResult.ok(null, "Pharmacist with ID " + staffId + " removed successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Updates a staff member's email address and phone number. A {@code null} or blank value
+     * keeps the current one.
+     *
+     * @param role        "Admin", "Doctor" or "Pharmacist", ignoring case.
+     * @param staffId     The staff ID.
+     * @param email       The new email address.
+     * @param phoneNumber The new phone number.
+     * @return The updated staff member, or a failed result if not found.
+     * @throws IOException if the staff file cannot be read or written.
+     */
+    public ServiceResult<User> updateContact(String role, String staffId, String email, String phoneNumber)
+            throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("StaffService.updateContact");
+        try {
+            User staff = getStaffMember(role, staffId);
+            boolean newEmail = email != null && !email.isEmpty();
+            boolean newPhone = phoneNumber != null && !phoneNumber.isEmpty();
+            boolean success;
+
+            if (staff instanceof Administrator administrator) {
+                if (newEmail) {
+                    administrator.setStaffEmail(email);
+                }
+                if (newPhone) {
+                    administrator.setStaffContact(phoneNumber);
+                }
+                success = administratorRepository.updateAdministrator(administrator);
+            } else if (staff instanceof Doctor doctor) {
+                if (newEmail) {
+                    doctor.setStaffEmail(email);
+                }
+                if (newPhone) {
+                    doctor.setStaffContact(phoneNumber);
+                }
+                success = doctorRepository.updateDoctor(doctor);
+            } else if (staff instanceof Pharmacist pharmacist) {
+                if (newEmail) {
+                    pharmacist.setStaffEmail(email);
+                }
+                if (newPhone) {
+                    pharmacist.setStaffContact(phoneNumber);
+                }
+                success = pharmacistRepository.updatePharmacist(pharmacist);
+            } else {
+                return ServiceResult.fail("Staff member not found!");
+            }
+
+            if (!success) {
+                return ServiceResult.fail("Failed to update contact information.");
+            }
+            return ServiceResult.ok(staff, "Contact information updated successfully.");
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static boolean isAgeBetween(User user, int from, int to) {
+        String age = user.getAge().trim();
+        if (!age.matches("\\d+")) {
+            return false;
+        }
+        int value = Integer.parseInt(age);
+        return value >= from && value <= to;
+    }
+}
@@ -0,0 +1,227 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import repository.AdministratorRepository;
+import repository.AppointmentOutcomeRepository;
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+import repository.DoctorRepository;
+import repository.MedicalRecordRepository;
+import repository.MedicationInventoryRepository;
+import repository.PatientRepository;
+import repository.PharmacistRepository;
+import repository.ReplenishmentRequestRepository;
+import storage.CsvTable;
+import util.DataDirectory;
+import util.MetricsRegistry;
+
+/**
+ * Loads every table once at startup, so that the first user of each role does not pay for
+ * parsing the files one after another.
+ * <p>
+ * Each table is loaded by its repository on a fixed pool of {@code hms.warmup.threads} threads
+ * (default the number of processors, at most one per table), which also writes the binary
+ * snapshots and builds the key filters, off-heap copies and search indexes that the first
+ * lookups would otherwise build. Payments are not cached, so their file is only read into the
+ * operating system's cache. With enough threads the warm-up takes about as long as the largest
+ * table. It is off unless {@code hms.warmup} is {@code true}; a table that fails to load is
+ * reported and left to load on first use as before.
+ * </p>
+ */
+public class WarmUpService {
+    /**
+     * The system property that turns the warm-up on when set to {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "hms.warmup";
+
+    /**
+     * The system property giving the number of tables loaded at once.
+     */
+    public static final String THREADS_PROPERTY = "hms.warmup.threads";
+
+    /**
+     * How long loading one table took.
+     *
+     * @param table  The table's name.
+     * @param rows   The number of rows loaded, or -1 if the table failed to load.
+     * @param millis The time taken in milliseconds.
+     * @param error  Why the table failed to load, or {@code null}.
+     */
+    public record TableTiming(String table, int rows, double millis, String error) {
+    }
+
+    private final Map<String, Callable<Integer>> tables = new LinkedHashMap<>();
+
+    /**
+     * Creates a warm-up over every table.
+     */
+    public WarmUpService() {
+        PatientRepository patients = new PatientRepository();
+        DoctorRepository doctors = new DoctorRepository();
+        PharmacistRepository pharmacists = new PharmacistRepository();
+        AdministratorRepository administrators = new AdministratorRepository();
+        AppointmentRepository appointments = new AppointmentRepository();
+        AvailabilityRepository availabilities = new AvailabilityRepository();
+        AppointmentOutcomeRepository outcomes = new AppointmentOutcomeRepository();
+        MedicalRecordRepository records = new MedicalRecordRepository();
+        MedicationInventoryRepository inventory = new MedicationInventoryRepository();
+        ReplenishmentRequestRepository requests = new ReplenishmentRequestRepository();
+
+        // An ID that matches nothing builds a table's key filter; a word that matches nothing its search index
+        tables.put("Patient", () -> {
+            patients.hasPatient("");
+            return patients.loadPatients().size();
+        });
+        tables.put("Doctor", () -> {
+            doctors.hasDoctor("");
+            return doctors.loadDoctors().size();
+        });
+        tables.put("Pharmacist", () -> {
+            pharmacists.hasPharmacist("");
+            return pharmacists.loadPharmacists().size();
+        });
+        tables.put("Administrator", () -> {
+            administrators.hasAdministrator("");
+            return administrators.loadAdministrators().size();
+        });
+        tables.put("Appointment", () -> {
+            appointments.loadAppointmentColumns();
+            return appointments.loadAllAppointments().size();
+        });
+        tables.put("Availability", () -> availabilities.loadAllAvailabilities().size());
+        tables.put("AppointmentOutcome", () -> {
+            outcomes.searchAppointmentOutcomes("warmup");
+            return outcomes.loadAllAppointmentOutcomes().size();
+        });
+        tables.put("MedicalRecord", () -> {
+            records.hasRecord("");
+            records.searchMedicalRecords("warmup");
+            return records.loadMedicalRecords().size() - 1; // Row 0 is the header
+        });
+        tables.put("MedicationInventory", () -> inventory.loadAllMedications().size());
+        tables.put("Payment", () -> readLines(CsvTable.forFile(DataDirectory.resolve("Payment.csv"))));
+        tables.put("ReplenishmentRequests", () -> requests.loadAllRequests().size());
+    }
+
+    /**
+     * Loads every table on the configured number of threads.
+     *
+     * @return The time each table took, in the order the tables are listed, with a report of
+     *         the whole warm-up as the message.
+     * @throws InterruptedException if the thread is interrupted while waiting for the tables.
+     */
+    public ServiceResult<List<TableTiming>> warmUp() throws InterruptedException {
+        return warmUp(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Loads every table, at most a given number at once.
+     *
+     * @param threads The number of tables loaded at once.
+     * @return The time each table took, in the order the tables are listed, with a report of
+     *         the whole warm-up as the message, or a failed result if {@code threads} is not
+     *         positive.
+     * @throws InterruptedException if the thread is interrupted while waiting for the tables.
+     */
+    public ServiceResult<List<TableTiming>> warmUp(int threads) throws InterruptedException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("WarmUpService.warmUp");
+        try {
+            if (threads < 1) {
+                return ServiceResult.fail("The warm-up needs at least one thread.");
+            }
+            int poolSize = Math.min(threads, tables.size());
+            AtomicInteger next = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+                Thread thread = new Thread(runnable, "warm-up-" + next.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            long start = System.nanoTime();
+            List<TableTiming> timings = new ArrayList<>();
+            try {
+                List<Future<TableTiming>> futures = new ArrayList<>();
+                for (Map.Entry<String, Callable<Integer>> table : tables.entrySet()) {
+                    futures.add(executor.submit(() -> load(table.getKey(), table.getValue())));
+                }
+                for (Future<TableTiming> future : futures) {
+                    try {
+                        timings.add(future.get());
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException(e.getCause()); // load() reports failures itself
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            double elapsed = (System.nanoTime() - start) / 1_000_000.0;
+            return ServiceResult.ok(timings, report(timings, elapsed, poolSize));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Runs the warm-up if {@code hms.warmup} is {@code true}, printing its report to standard
+     * error.
+     */
+    public static void warmUpFromSystemProperties() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return;
+        }
+        try {
+            System.err.print(new WarmUpService().warmUp().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TableTiming load(String table, Callable<Integer> loader) {
+        long start = System.nanoTime();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("WarmUpService." + table);
+        try {
+            int rows = loader.call();
+            return new TableTiming(table, rows, (System.nanoTime() - start) / 1_000_000.0, null);
+        } catch (Exception e) {
+            return new TableTiming(table, -1, (System.nanoTime() - start) / 1_000_000.0, String.valueOf(e.getMessage()));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static int readLines(CsvTable table) throws IOException {
+        int rows = -1; // Not counting the header
+        try (BufferedReader reader = table.openReader()) {
+            while (reader.readLine() != null) {
+                rows++;
+            }
+        }
+        return Math.max(rows, 0);
+    }
+
+    private static String report(List<TableTiming> timings, double elapsed, int threads) {
+        double total = 0;
+        StringBuilder report = new StringBuilder();
+        for (TableTiming timing : timings) {
+            total += timing.millis();
+            if (timing.error() == null) {
+                report.append(String.format("  %-22s %9d rows %10.1f ms%n", timing.table(), timing.rows(), timing.millis()));
+            } else {
+                report.append(String.format("  %-22s %14s %10.1f ms  %s%n", timing.table(), "failed", timing.millis(),
+                        timing.error()));
+            }
+        }
+        return String.format("Warmed up %d tables on %d thread%s in %.1f ms (%.1f ms added up over the tables):%n",
+                timings.size(), threads, threads == 1 ? "" : "s", elapsed, total) + report;
+    }
+}
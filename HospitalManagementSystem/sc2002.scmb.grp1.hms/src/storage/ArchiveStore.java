@@ -0,0 +1,244 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The cold tier of a table: rows moved out of the table's CSV file into gzip-compressed
+ * segments, so that the file the application loads all the time stays small.
+ * <p>
+ * The segments of {@code Appointment.csv} live in {@code archive/Appointment} next to it, as
+ * {@code Appointment-000001.csv.gz} and so on. Each segment is an ordinary CSV file, header
+ * row included, once decompressed. The directory's {@code catalog.csv} lists the segments with
+ * their row count, the first and last date of their rows and the highest key among them, so a
+ * query for a range of dates only decompresses the segments that overlap it and a table that
+ * numbers its rows can find its highest number without decompressing any.
+ * </p>
+ * <p>
+ * Segments are written once and never changed. A segment is complete before it is listed in
+ * the catalog, so readers need no table lock; {@link #write} takes the table's exclusive lock
+ * so that archiving and the rewrite of the table that follows it are seen as one change.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class ArchiveStore {
+    /**
+     * The name of the directory holding the archives, next to the table files.
+     */
+    public static final String ARCHIVE_DIRECTORY = "archive";
+
+    private static final String CATALOG_HEADER = "Segment,Rows,FirstDate,LastDate,LastKey";
+    private static final Map<CsvTable, ArchiveStore> STORES = new ConcurrentHashMap<>();
+
+    private final CsvTable table;
+    private final Path directory;
+    private final CsvTable catalog;
+
+    private ArchiveStore(CsvTable table) {
+        this.table = table;
+        this.directory = new File(table.getFilePath()).toPath().resolveSibling(ARCHIVE_DIRECTORY)
+                .resolve(table.getName());
+        this.catalog = CsvTable.forFile(directory.resolve(PartitionedTable.CATALOG_FILE).toString(),
+                table.getName() + "/archive/catalog");
+    }
+
+    /**
+     * Returns the archive of a table. The same instance is returned for every caller that uses
+     * the same table.
+     *
+     * @param table The table.
+     * @return The table's archive.
+     */
+    public static ArchiveStore forTable(CsvTable table) {
+        return STORES.computeIfAbsent(table, ArchiveStore::new);
+    }
+
+    /**
+     * One compressed segment of archived rows.
+     */
+    public final class Segment {
+        private final String fileName;
+        private final int rows;
+        private final LocalDate firstDate;
+        private final LocalDate lastDate;
+        private final String lastKey;
+
+        private Segment(String fileName, int rows, LocalDate firstDate, LocalDate lastDate, String lastKey) {
+            this.fileName = fileName;
+            this.rows = rows;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+            this.lastKey = lastKey;
+        }
+
+        /**
+         * Returns the segment's file name.
+         *
+         * @return The file name.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns the number of rows in the segment.
+         *
+         * @return The row count.
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the highest key among the segment's rows, as given when it was written.
+         *
+         * @return The key, or {@code null} if none was given or the segment was listed by a
+         *         catalog from before keys were recorded.
+         */
+        public String getLastKey() {
+            return lastKey;
+        }
+
+        /**
+         * Opens the segment for reading, decompressing it on the fly.
+         *
+         * @return A reader positioned at the header row.
+         * @throws IOException if the segment cannot be opened.
+         */
+        public BufferedReader openReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(directory.resolve(fileName)), 1 << 16)));
+        }
+
+        private boolean overlaps(LocalDate from, LocalDate to) {
+            if (firstDate == null || lastDate == null) {
+                return true; // Undated rows are always read
+            }
+            return (from == null || !lastDate.isBefore(from)) && (to == null || !firstDate.isAfter(to));
+        }
+    }
+
+    /**
+     * Returns every segment, oldest first.
+     *
+     * @return The segments, empty if nothing has been archived.
+     * @throws IOException if the catalog cannot be read.
+     */
+    public List<Segment> segments() throws IOException {
+        return segments(null, null);
+    }
+
+    /**
+     * Returns the segments that may hold rows dated within a range, oldest first. The rows
+     * still have to be filtered by date.
+     *
+     * @param from The first date, or {@code null} for no lower bound.
+     * @param to   The last date, or {@code null} for no upper bound.
+     * @return The segments to read.
+     * @throws IOException if the catalog cannot be read.
+     */
+    public List<Segment> segments(LocalDate from, LocalDate to) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.exists(Path.of(catalog.getFilePath()))) {
+            return segments;
+        }
+        try (BufferedReader reader = catalog.openReader()) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                if (fields.length != 4 && fields.length != 5) {
+                    continue; // Catalogs from before the LastKey column have four fields
+                }
+                String lastKey = fields.length == 5 && !fields[4].isEmpty() ? fields[4] : null;
+                Segment segment = new Segment(fields[0], Integer.parseInt(fields[1]), parseDate(fields[2]),
+                        parseDate(fields[3]), lastKey);
+                if (segment.overlaps(from, to)) {
+                    segments.add(segment);
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Writes rows to a new segment and adds it to the catalog. The caller removes the rows from
+     * the table afterwards, holding the table's exclusive lock across both steps.
+     *
+     * @param header    The table's header row.
+     * @param rows      The rows to archive, as CSV lines.
+     * @param firstDate The earliest date among the rows, or {@code null} if they are undated.
+     * @param lastDate  The latest date among the rows, or {@code null} if they are undated.
+     * @return The new segment.
+     * @throws LockTimeoutException if the table lock was not granted within the lock timeout.
+     * @throws IOException if the segment or the catalog cannot be written.
+     */
+    public Segment write(String header, List<String> rows, LocalDate firstDate, LocalDate lastDate)
+            throws IOException {
+        return write(header, rows, firstDate, lastDate, null);
+    }
+
+    /**
+     * Writes rows to a new segment and adds it to the catalog together with the highest key
+     * among the rows. A table whose new rows are numbered after its highest key reads it back
+     * with {@link Segment#getLastKey()}, so that numbers stay unique once rows are archived.
+     *
+     * @param header    The table's header row.
+     * @param rows      The rows to archive, as CSV lines.
+     * @param firstDate The earliest date among the rows, or {@code null} if they are undated.
+     * @param lastDate  The latest date among the rows, or {@code null} if they are undated.
+     * @param lastKey   The highest key among the rows, or {@code null} if the table has none.
+     * @return The new segment.
+     * @throws LockTimeoutException if the table lock was not granted within the lock timeout.
+     * @throws IOException if the segment or the catalog cannot be written.
+     */
+    public Segment write(String header, List<String> rows, LocalDate firstDate, LocalDate lastDate,
+            String lastKey) throws IOException {
+        try (TableLock lock = table.lockExclusive()) {
+            Files.createDirectories(directory);
+            String fileName = String.format("%s-%06d.csv.gz", table.getName(), segments().size() + 1);
+            Path target = directory.resolve(fileName);
+            Path temporary = directory.resolve(fileName + ".tmp");
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temporary), 1 << 16)))) {
+                writer.write(header);
+                writer.newLine();
+                for (String row : rows) {
+                    writer.write(row);
+                    writer.newLine();
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            boolean newCatalog = !Files.exists(Path.of(catalog.getFilePath()));
+            try (BufferedWriter writer = catalog.openWriter(true)) {
+                if (newCatalog) {
+                    writer.write(CATALOG_HEADER);
+                    writer.newLine();
+                }
+                writer.write(String.join(",", fileName, String.valueOf(rows.size()),
+                        firstDate == null ? "" : firstDate.toString(), lastDate == null ? "" : lastDate.toString(),
+                        lastKey == null ? "" : lastKey));
+                writer.newLine();
+            }
+            return new Segment(fileName, rows.size(), firstDate, lastDate, lastKey);
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        return text.isEmpty() ? null : LocalDate.parse(text);
+    }
+}
@@ -0,0 +1,293 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import util.MetricsRegistry;
+
+/**
+ * A Bloom filter over the primary keys of a table, the first field of each row, so that a
+ * lookup for a key that does not exist can be answered without reading the file.
+ * <p>
+ * {@link #mightContain(String)} returns {@code false} only if no row has the key; a
+ * {@code true} may be wrong about one time in a hundred, and the caller then scans the table as
+ * before. Keys are compared ignoring case and surrounding spaces and quotes, so the filter
+ * serves exact and case-insensitive lookups alike.
+ * </p>
+ * <p>
+ * The filter is built from the file the first time it is consulted, with about ten bits per
+ * row, and brought up to date whenever the table's change count, size or modification time
+ * moves: if the file has only had lines appended (see {@link TableTail}), just those lines are
+ * read and their keys added, otherwise the filter is built again. A repository that appends a
+ * row tells the filter with {@link #beforeWrite()} and {@link #added(long[], String)}, which
+ * sets the new key's bits without reading the file. Each
+ * consultation is recorded as a {@link CacheAccessEvent} for cache {@code BloomFilter}, a hit
+ * meaning the filter was current.
+ * </p>
+ */
+public final class BloomFilter {
+    private static final Map<CsvTable, BloomFilter> FILTERS = new ConcurrentHashMap<>();
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final CsvTable table;
+    private long[] bits; // guarded by this
+    private long[] stamp; // guarded by this
+    private int keys; // guarded by this
+    private int capacity; // guarded by this
+    private TableTail tail; // guarded by this; where the file ended when the bits were last brought up to date
+
+    private BloomFilter(CsvTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns the key filter of a table. The same instance is returned for every caller that
+     * uses the same table.
+     *
+     * @param table The table.
+     * @return The table's filter.
+     */
+    public static BloomFilter forTable(CsvTable table) {
+        return FILTERS.computeIfAbsent(table, BloomFilter::new);
+    }
+
+    /**
+     * Tests whether a row may have a key, rebuilding the filter first if the table has changed.
+     * A thread reading from a {@link SnapshotView}, or a table whose file does not exist,
+     * always gets {@code true}, leaving the answer to the caller's own read.
+     *
+     * @param key The key.
+     * @return {@code false} if no row has the key, {@code true} if one may.
+     * @throws IOException if the table has changed and cannot be read.
+     */
+    public boolean mightContain(String key) throws IOException {
+        if (key == null) {
+            return false;
+        }
+        if (SnapshotView.pinnedFor(table) != null) {
+            return true;
+        }
+        long hash = hash(key);
+        long[] current = stamp();
+        if (current == null) {
+            return true;
+        }
+        Built previous;
+        synchronized (this) {
+            if (bits != null && Arrays.equals(stamp, current)) {
+                CacheAccessEvent.emit("BloomFilter", table.getName(), true);
+                return test(bits, hash);
+            }
+            previous = bits == null || tail == null ? null : new Built(bits, keys, capacity, tail);
+        }
+        CacheAccessEvent.emit("BloomFilter", table.getName(), false);
+
+        // Read outside the monitor, because writers call added() while holding the table's lock
+        Built built = previous == null ? null : extend(previous);
+        if (built == null) {
+            built = build();
+        }
+        synchronized (this) {
+            bits = built.bits();
+            stamp = built.tail().stamp();
+            keys = built.keys();
+            capacity = built.capacity();
+            tail = built.tail();
+            return test(bits, hash);
+        }
+    }
+
+    /**
+     * Stamps the table before a row is appended. Must be called while the writer holds the
+     * table's exclusive lock, and the result passed to {@link #added(long[], String)}.
+     *
+     * @return The stamp, or {@code null} if the filter has not been built.
+     */
+    public long[] beforeWrite() {
+        synchronized (this) {
+            if (bits == null) {
+                return null;
+            }
+        }
+        try {
+            return stamp();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the key of an appended row. Nothing is done unless the filter was current when
+     * {@link #beforeWrite()} was called, in which case the next lookup rebuilds it instead.
+     *
+     * @param before The stamp returned by {@link #beforeWrite()}.
+     * @param key    The new row's key.
+     */
+    public void added(long[] before, String key) {
+        if (before == null || key == null) {
+            return;
+        }
+        TableTail previous;
+        synchronized (this) {
+            if (bits == null || !Arrays.equals(stamp, before)) {
+                return;
+            }
+            previous = tail;
+        }
+        TableTail after;
+        try {
+            // The writer still holds the lock, so only its own line is new
+            after = previous == null ? null : previous.next();
+        } catch (IOException e) {
+            after = null;
+        }
+        long hash = hash(key);
+        synchronized (this) {
+            if (bits == null || !Arrays.equals(stamp, before)) {
+                return;
+            }
+            if (after == null || ++keys > capacity) {
+                stamp = null; // Too full to stay accurate; rebuild at the next lookup
+                return;
+            }
+            set(bits, hash);
+            stamp = after.stamp();
+            tail = after;
+        }
+    }
+
+    private long[] stamp() throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(table.getFilePath()),
+                    BasicFileAttributes.class);
+            return new long[] {table.getChangeCount(), attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)};
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private record Built(long[] bits, int keys, int capacity, TableTail tail) {
+    }
+
+    private Built extend(Built previous) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("BloomFilter.extend");
+        try (BufferedReader reader = table.openReader(previous.tail().size())) {
+            // The reader holds the table's lock, so the file cannot change between the checks and the read
+            if (!previous.tail().onlyAppended()) {
+                return null;
+            }
+            TableTail mark = previous.tail().next();
+            long[] filter = previous.bits().clone();
+            int count = previous.keys();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String key = key(line);
+                if (key == null) {
+                    continue;
+                }
+                if (++count > previous.capacity()) {
+                    return null; // Too full to stay accurate; build it again at a larger size
+                }
+                set(filter, hash(key));
+            }
+            return mark == null ? null : new Built(filter, count, previous.capacity(), mark);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private Built build() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("BloomFilter.build");
+        try {
+            long[] hashes = new long[1024];
+            int count = 0;
+            TableTail mark;
+            try (BufferedReader reader = table.openReader()) {
+                mark = TableTail.mark(table);
+                String line = reader.readLine(); // Skip the header
+                while ((line = reader.readLine()) != null) {
+                    String key = key(line);
+                    if (key == null) {
+                        continue;
+                    }
+                    if (count == hashes.length) {
+                        hashes = Arrays.copyOf(hashes, count * 2);
+                    }
+                    hashes[count++] = hash(key);
+                }
+            }
+
+            // Room for twice the rows, so appends do not force a rebuild soon
+            long[] filter = new long[(int) Math.max(16, ((long) count * 2 * BITS_PER_KEY + 63) / 64)];
+            for (int i = 0; i < count; i++) {
+                set(filter, hashes[i]);
+            }
+            return new Built(filter, count, Math.max(count, filter.length * 64 / BITS_PER_KEY), mark);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static String key(String line) {
+        int comma = line.indexOf(',');
+        String key = comma < 0 ? line : line.substring(0, comma);
+        return key.isBlank() ? null : key;
+    }
+
+    private static boolean test(long[] bits, long hash) {
+        long size = (long) bits.length * 64;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, size);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void set(long[] bits, long hash) {
+        long size = (long) bits.length * 64;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, size);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static long hash(String key) {
+        int start = 0;
+        int end = key.length();
+        // Surrounding spaces and quotes are not part of the key
+        while (start < end && (Character.isWhitespace(key.charAt(start)) || key.charAt(start) == '"')) {
+            start++;
+        }
+        while (end > start && (Character.isWhitespace(key.charAt(end - 1)) || key.charAt(end - 1) == '"')) {
+            end--;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            // The same folding as String.equalsIgnoreCase
+            char c = Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        // FNV-1a mixes its low bits poorly; finish with a 64-bit avalanche
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53fe1a85ecdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
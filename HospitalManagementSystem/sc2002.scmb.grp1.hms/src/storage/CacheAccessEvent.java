@@ -0,0 +1,42 @@
+package storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted when an in-memory cache of table data is consulted.
+ */
+@Name("hms.CacheAccess")
+@Label("Cache Access")
+@Category({"Hospital Management System", "Storage"})
+@Description("A cache of table data was hit or missed")
+public class CacheAccessEvent extends Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Key")
+    String key;
+
+    @Label("Hit")
+    boolean hit;
+
+    /**
+     * Records a cache access if the event is enabled.
+     *
+     * @param cache The name of the cache.
+     * @param key   The key that was looked up.
+     * @param hit   Whether the value was found in the cache.
+     */
+    public static void emit(String cache, String key, boolean hit) {
+        CacheAccessEvent event = new CacheAccessEvent();
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.key = key;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+}
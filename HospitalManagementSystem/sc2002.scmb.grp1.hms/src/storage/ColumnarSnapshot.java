@@ -0,0 +1,412 @@
+package storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import util.DateTimeUtil;
+import util.MetricsRegistry;
+
+/**
+ * A compact binary copy of a table, kept next to its CSV file so that large tables can be
+ * loaded without parsing text.
+ * <p>
+ * The copy of {@code Appointment.csv} is {@code Appointment.csv.bin}. It stores the rows
+ * column by column: dates and times as integers, columns with few distinct values as a
+ * dictionary and one code per row, and other text length-prefixed. The CSV file stays the
+ * table's real contents; the copy records the size and a CRC-32C checksum of the file it was
+ * made from and is only used while the file still matches. Otherwise the file is parsed as
+ * usual, on several threads for large files (see {@link ParallelCsvParser}), and, for tables of
+ * at least {@code hms.snapshot.minRows} rows (default 1000), the copy is rewritten for the next
+ * load. Set {@code -Dhms.snapshot=false} to always parse the CSV.
+ * </p>
+ * <p>
+ * The file's modification time is not trusted: a rewrite to the same length within the file
+ * system's timestamp resolution, or by a tool that restores the time, would look unchanged.
+ * Checksumming the file reads it once without parsing it, which costs a fraction of a parse.
+ * </p>
+ * <p>
+ * Rows come back split exactly as the given {@link Splitter} splits the CSV line, so the
+ * repositories build their entities from the same fields either way. Each load is recorded as
+ * a {@link CacheAccessEvent} for cache {@code ColumnarSnapshot}, a hit when the copy was used.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class ColumnarSnapshot {
+    /**
+     * The system property that turns the binary copies off when set to {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "hms.snapshot";
+
+    /**
+     * The system property giving the fewest rows a table needs before a copy is written.
+     */
+    public static final String MIN_ROWS_PROPERTY = "hms.snapshot.minRows";
+
+    /**
+     * The suffix added to the CSV file name to name its binary copy.
+     */
+    public static final String FILE_SUFFIX = ".bin";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    private static final int MIN_ROWS = Integer.getInteger(MIN_ROWS_PROPERTY, 1000);
+    private static final int MAGIC = 0x484D5343; // "HMSC"
+    private static final int FORMAT_VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte DATE = 1;
+    private static final byte TIME = 2;
+    private static final byte DICTIONARY = 3;
+    private static final byte TEXT = 4;
+
+    /**
+     * How a CSV line is split into fields.
+     */
+    public enum Splitter {
+        /**
+         * {@code line.split(",")}.
+         */
+        PLAIN(line -> line.split(",")),
+
+        /**
+         * Split on commas outside double quotes, keeping trailing empty fields.
+         */
+        QUOTED(line -> line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+
+        private final Function<String, String[]> split;
+
+        Splitter(Function<String, String[]> split) {
+            this.split = split;
+        }
+
+        /**
+         * Splits a line.
+         *
+         * @param line The CSV line.
+         * @return The fields.
+         */
+        public String[] split(String line) {
+            return split.apply(line);
+        }
+    }
+
+    private ColumnarSnapshot() {
+    }
+
+    /**
+     * Returns the rows of a table after its header row, each split into fields, from the
+     * binary copy if it is up to date and from the CSV file otherwise. A thread reading from a
+     * {@link SnapshotView} always reads its pinned copy of the CSV file.
+     *
+     * @param table    The table.
+     * @param splitter How the table's lines are split.
+     * @return The split rows, in file order.
+     * @throws java.io.FileNotFoundException if the CSV file does not exist.
+     * @throws IOException if the table cannot be read.
+     */
+    public static List<String[]> readRows(CsvTable table, Splitter splitter) throws IOException {
+        if (!ENABLED || SnapshotView.pinnedFor(table) != null) {
+            return parse(table, splitter, null);
+        }
+        try (TableLock lock = table.lockShared()) {
+            Path csv = Path.of(table.getFilePath());
+            long size;
+            try {
+                size = Files.size(csv);
+            } catch (NoSuchFileException e) {
+                return parse(table, splitter, null); // reports the missing file as before
+            }
+            Path copy = Path.of(table.getFilePath() + FILE_SUFFIX);
+
+            List<String[]> rows = decode(copy, csv, size, splitter);
+            CacheAccessEvent.emit("ColumnarSnapshot", table.getName(), rows != null);
+            if (rows != null) {
+                return rows;
+            }
+
+            String[] header = new String[1];
+            rows = parse(table, splitter, header);
+            if (rows.size() >= MIN_ROWS) {
+                MetricsRegistry.Timer timer = MetricsRegistry.start("ColumnarSnapshot.write");
+                try {
+                    encode(copy, size, checksum(csv, size), splitter, header[0], rows);
+                } catch (IOException e) {
+                    // The copy only speeds up the next load; the rows are already read
+                } finally {
+                    timer.stop();
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static List<String[]> parse(CsvTable table, Splitter splitter, String[] header) throws IOException {
+        List<String[]> rows = ParallelCsvParser.parse(table, splitter, header);
+        if (rows != null) {
+            return rows;
+        }
+        rows = new ArrayList<>();
+        try (BufferedReader reader = table.openReader()) {
+            String line = reader.readLine();
+            if (header != null) {
+                header[0] = line == null ? "" : line;
+            }
+            while ((line = reader.readLine()) != null) {
+                rows.add(splitter.split(line));
+            }
+        }
+        return rows;
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    private static void encode(Path copy, long size, long checksum, Splitter splitter, String header,
+            List<String[]> rows) throws IOException {
+        int columns = 0;
+        for (String[] row : rows) {
+            if (row.length > 255) {
+                return; // Not worth a format for; the CSV is read instead
+            }
+            columns = Math.max(columns, row.length);
+        }
+
+        Path temporary = Files.createTempFile(copy.getParent(), copy.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(size);
+                out.writeLong(checksum);
+                out.writeByte(splitter.ordinal());
+                writeString(out, header);
+                out.writeInt(rows.size());
+                out.writeInt(columns);
+                for (String[] row : rows) {
+                    out.writeByte(row.length);
+                }
+                for (int column = 0; column < columns; column++) {
+                    writeColumn(out, rows, column);
+                }
+            }
+            Files.move(temporary, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream out, List<String[]> rows, int column) throws IOException {
+        boolean dates = true;
+        boolean times = true;
+        Map<String, Integer> dictionary = new HashMap<>();
+        int present = 0;
+        for (String[] row : rows) {
+            if (row.length <= column) {
+                continue;
+            }
+            String value = row[column];
+            present++;
+            dates = dates && DateTimeUtil.parseEpochDay(value) != DateTimeUtil.INVALID;
+            times = times && DateTimeUtil.parseMinuteOfDay(value) != DateTimeUtil.INVALID;
+            if (dictionary != null) {
+                dictionary.putIfAbsent(value, dictionary.size());
+                if (dictionary.size() > 256 && dictionary.size() * 2 > present) {
+                    dictionary = null; // Mostly distinct values
+                }
+            }
+        }
+
+        if (present > 0 && dates) {
+            out.writeByte(DATE);
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    out.writeInt(DateTimeUtil.parseEpochDay(row[column]));
+                }
+            }
+        } else if (present > 0 && times) {
+            out.writeByte(TIME);
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    out.writeShort(DateTimeUtil.parseMinuteOfDay(row[column]));
+                }
+            }
+        } else if (dictionary != null) {
+            out.writeByte(DICTIONARY);
+            String[] values = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                values[entry.getValue()] = entry.getKey();
+            }
+            out.writeInt(values.length);
+            for (String value : values) {
+                writeString(out, value);
+            }
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    int code = dictionary.get(row[column]);
+                    if (values.length <= 256) {
+                        out.writeByte(code);
+                    } else if (values.length <= 65536) {
+                        out.writeShort(code);
+                    } else {
+                        out.writeInt(code);
+                    }
+                }
+            }
+        } else {
+            out.writeByte(TEXT);
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    writeString(out, row[column]);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            out.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    /**
+     * Reads the copy, or returns {@code null} if it is missing, made from another version of
+     * the file, or unreadable. The file is only checksummed once the copy's header matches.
+     */
+    private static List<String[]> decode(Path copy, Path csv, long size, Splitter splitter) {
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION || in.getLong() != size) {
+                return null;
+            }
+            long checksum = in.getLong();
+            if (in.get() != splitter.ordinal() || checksum(csv, size) != checksum) {
+                return null;
+            }
+            readString(in); // header
+            int rowCount = in.getInt();
+            int columns = in.getInt();
+            String[][] rows = new String[rowCount][];
+            for (int i = 0; i < rowCount; i++) {
+                rows[i] = new String[in.get() & 0xFF];
+            }
+            for (int column = 0; column < columns; column++) {
+                readColumn(in, rows, column);
+            }
+            return new ArrayList<>(List.of(rows));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null; // A damaged copy is rebuilt from the CSV file
+        }
+    }
+
+    /**
+     * Returns a CRC-32C checksum of a file's first {@code size} bytes, which the JIT compiles to
+     * hardware instructions.
+     */
+    private static long checksum(Path csv, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < size) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, size - position));
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    break; // Shorter than it was a moment ago; the checksum will not match
+                }
+                crc.update(buffer.flip());
+                position += n;
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void readColumn(ByteBuffer in, String[][] rows, int column) {
+        byte type = in.get();
+        if (type == DATE) {
+            Map<Integer, String> formatted = new HashMap<>();
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    row[column] = formatted.computeIfAbsent(in.getInt(), DateTimeUtil::formatEpochDay);
+                }
+            }
+        } else if (type == TIME) {
+            String[] formatted = new String[24 * 60];
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    int minute = in.getShort();
+                    if (formatted[minute] == null) {
+                        formatted[minute] = DateTimeUtil.formatMinuteOfDay(minute);
+                    }
+                    row[column] = formatted[minute];
+                }
+            }
+        } else if (type == DICTIONARY) {
+            String[] values = new String[in.getInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString(in);
+            }
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    int code = values.length <= 256 ? in.get() & 0xFF
+                            : values.length <= 65536 ? in.getShort() & 0xFFFF : in.getInt();
+                    row[column] = values[code];
+                }
+            }
+        } else if (type == TEXT) {
+            for (String[] row : rows) {
+                if (row.length > column) {
+                    row[column] = readString(in);
+                }
+            }
+        } else {
+            throw new IllegalStateException("Unknown column type " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,511 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A CSV file used as a table by the repositories. All reads and writes of the data files go
+ * through this class, so it is the single place where file access is measured.
+ * <p>
+ * Readers and writers returned here behave like {@code new BufferedReader(new FileReader(path))}
+ * and {@code new BufferedWriter(new FileWriter(path, append))}, but emit a
+ * {@link TableLoadEvent} or {@link TableWriteEvent} to Java Flight Recorder when they are
+ * closed. When no recording is running the extra cost is a byte counter.
+ * </p>
+ * <p>
+ * A reader holds the table's shared {@link TableLock} and a writer its exclusive lock until
+ * they are closed, so several processes can share one data directory. Code that reads a table
+ * and then rewrites it must hold {@link #lockExclusive()} for the whole sequence, otherwise
+ * another writer can slip in between and its change is lost. Lock waits are bounded by the
+ * {@code hms.lock.timeout} system property, in milliseconds (default 10000).
+ * </p>
+ * <p>
+ * Long reads that should neither block writers nor see a half-finished rewrite can instead
+ * open a {@link SnapshotView}; readers opened on that thread then read a pinned in-memory copy
+ * of the table without taking the lock.
+ * </p>
+ */
+@SuppressWarnings("try")
+public class CsvTable {
+    /**
+     * The system property giving the longest time, in milliseconds, to wait for a table lock.
+     */
+    public static final String LOCK_TIMEOUT_PROPERTY = "hms.lock.timeout";
+
+    private static final long LOCK_TIMEOUT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong(LOCK_TIMEOUT_PROPERTY, 10_000));
+    private static final Map<Path, CsvTable> TABLES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String filePath;
+    private final TableLock.Stripe lockStripe;
+    private final AtomicLong changeCount = new AtomicLong();
+    private final AtomicLong appendCount = new AtomicLong();
+    private volatile long[] lastWritten; // The file's size and modification time after our last write
+    private final Object snapshotMonitor = new Object();
+    private TableSnapshot currentSnapshot;
+    private long lastSnapshotVersion;
+
+    private CsvTable(String filePath, String name) {
+        this.filePath = filePath;
+        this.name = name;
+        this.lockStripe = new TableLock.Stripe(name, Path.of(filePath + ".lock"));
+    }
+
+    /**
+     * Returns the table stored in the given file. The same instance is returned for every
+     * caller that names the same file, however the path is written, so that they share one
+     * lock; its {@link #getFilePath()} is the path the first caller gave.
+     *
+     * @param filePath The path of the CSV file.
+     * @return The table for the file.
+     */
+    public static CsvTable forFile(String filePath) {
+        return TABLES.computeIfAbsent(key(filePath), path -> {
+            String fileName = new File(filePath).getName();
+            return new CsvTable(filePath,
+                    fileName.endsWith(".csv") ? fileName.substring(0, fileName.length() - 4) : fileName);
+        });
+    }
+
+    /**
+     * Returns the table stored in the given file, named by the caller rather than after the
+     * file, for files such as a partition catalog whose name is the same for every table. The
+     * name is used in lock timeouts, events and metrics; it is only set by the first caller.
+     *
+     * @param filePath The path of the CSV file.
+     * @param name     The table name, e.g. "Appointment/catalog".
+     * @return The table for the file.
+     */
+    public static CsvTable forFile(String filePath, String name) {
+        return TABLES.computeIfAbsent(key(filePath), path -> new CsvTable(filePath, name));
+    }
+
+    private static Path key(String filePath) {
+        return Path.of(filePath).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Returns the table name, which is the file name without the ".csv" extension unless the
+     * table was given another name.
+     *
+     * @return The table name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the path of the CSV file.
+     *
+     * @return The file path.
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the number of writers this process has closed on the table, plus the number of
+     * changes by others that a {@link TableWatcher} or an append (see {@link #openWriter}) has
+     * seen. Together with the file's size and modification time it tells whether the table
+     * changed since it was read.
+     *
+     * @return The change count.
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    /**
+     * Returns the number of writers this process has closed on the table that appended to the
+     * file. If it has moved by as much as the change count, every change since was an append
+     * by this process (see {@link TableTail}).
+     *
+     * @return The append count.
+     */
+    public long getAppendCount() {
+        return appendCount.get();
+    }
+
+    /**
+     * Returns whether the file's size and modification time are as this process's last writer
+     * left them.
+     */
+    boolean isAsLastWritten() {
+        long[] written = lastWritten;
+        return written != null && Arrays.equals(attributes(), written);
+    }
+
+    /**
+     * Returns the registered table stored in a file.
+     *
+     * @return The table, or {@code null} if no caller has asked for one on that file.
+     */
+    static CsvTable forPath(Path path) {
+        return TABLES.get(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Records that the file changed on disk. Changes this process made itself, which leave the
+     * file as its last writer closed it, are ignored; any other change advances the change
+     * count so that every copy of the table held in memory is read again. Waits for a writer
+     * that is still at work, whose first bytes may be what the event reported.
+     */
+    void changedOnDisk() {
+        long[] current;
+        try (TableLock lock = lockShared()) {
+            current = attributes();
+        } catch (IOException e) {
+            current = null;
+        }
+        if (current == null || !Arrays.equals(current, lastWritten)) {
+            changeCount.incrementAndGet();
+        }
+    }
+
+    private long[] attributes() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+            return new long[] {attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)};
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Takes the shared lock on the table, blocking writers in this and other processes until it
+     * is closed.
+     *
+     * @return The held lock.
+     * @throws LockTimeoutException if the lock was not granted within the lock timeout.
+     * @throws IOException if the lock file cannot be opened.
+     */
+    public TableLock lockShared() throws IOException {
+        return lockStripe.acquire(false, LOCK_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Takes the exclusive lock on the table, blocking all other readers and writers in this and
+     * other processes until it is closed. Hold it across a read-modify-write.
+     *
+     * @return The held lock.
+     * @throws LockTimeoutException if the lock was not granted within the lock timeout.
+     * @throws IOException if the lock file cannot be opened.
+     */
+    public TableLock lockExclusive() throws IOException {
+        return lockStripe.acquire(true, LOCK_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Pins an immutable copy of the table as it is now. If the table has not changed since the
+     * last copy that is still pinned, that copy is shared; otherwise the file is copied into
+     * memory under the shared lock, which is released before this method returns. Close the
+     * snapshot with {@link #unpin(TableSnapshot)} exactly once.
+     *
+     * @return The pinned snapshot.
+     * @throws LockTimeoutException if the lock was not granted within the lock timeout.
+     * @throws IOException if the file cannot be read.
+     */
+    TableSnapshot pinSnapshot() throws IOException {
+        try (TableLock lock = lockShared()) {
+            Path path = Path.of(filePath);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            long changes = changeCount.get();
+            synchronized (snapshotMonitor) {
+                if (currentSnapshot != null && currentSnapshot.matches(changes, lastModified, attributes.size())) {
+                    currentSnapshot.pin();
+                    return currentSnapshot;
+                }
+            }
+            byte[] content = Files.readAllBytes(path);
+            synchronized (snapshotMonitor) {
+                // Any previous version stays readable by its pinners and is dropped by its last unpin
+                currentSnapshot = new TableSnapshot(this, ++lastSnapshotVersion, content, changes, lastModified,
+                        content.length);
+                return currentSnapshot;
+            }
+        }
+    }
+
+    /**
+     * Removes a reader from a snapshot, forgetting it once it has none.
+     */
+    void unpin(TableSnapshot snapshot) {
+        synchronized (snapshotMonitor) {
+            if (snapshot.release() && currentSnapshot == snapshot) {
+                currentSnapshot = null;
+            }
+        }
+    }
+
+    /**
+     * Opens the file for reading. The reader holds the shared lock until it is closed. If the
+     * current thread has the table pinned in a {@link SnapshotView}, the reader reads the pinned
+     * copy instead and takes no lock.
+     *
+     * @return A reader positioned at the start of the file, including the header row.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if the table lock cannot be acquired.
+     */
+    public BufferedReader openReader() throws IOException {
+        TableSnapshot pinned = SnapshotView.pinnedFor(this);
+        if (pinned != null) {
+            return new TableReader(new CountingInputStream(pinned.newInputStream()), null);
+        }
+        TableLock lock = lockShared();
+        try {
+            return new TableReader(new CountingInputStream(new FileInputStream(filePath)), lock);
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the file for reading from a byte offset, such as the end of the file when it was
+     * last read (see {@link TableTail}). Otherwise the same as {@link #openReader()}.
+     *
+     * @param offset The number of bytes to skip, which should be at the start of a line.
+     * @return A reader positioned at the offset.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if the table lock cannot be acquired.
+     */
+    public BufferedReader openReader(long offset) throws IOException {
+        TableSnapshot pinned = SnapshotView.pinnedFor(this);
+        if (pinned != null) {
+            InputStream input = pinned.newInputStream();
+            input.skip(offset); // Stops at the end of the copy
+            return new TableReader(new CountingInputStream(input), null);
+        }
+        TableLock lock = lockShared();
+        try {
+            FileInputStream input = new FileInputStream(filePath);
+            try {
+                input.getChannel().position(offset);
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+            return new TableReader(new CountingInputStream(input), lock);
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the file for writing. The writer holds the exclusive lock until it is closed.
+     * Appending to a file that is not as this process's last writer left it also advances the
+     * change count, so that {@link TableTail} checks what came before the appended lines.
+     *
+     * @param append {@code true} to add to the end of the file, {@code false} to replace its contents.
+     * @return A writer for the file.
+     * @throws IOException if the file cannot be opened or the table lock cannot be acquired.
+     */
+    public BufferedWriter openWriter(boolean append) throws IOException {
+        TableLock lock = lockExclusive();
+        try {
+            if (append && !isAsLastWritten()) {
+                // Someone else may have edited the file first; count that as a change of its own
+                changeCount.incrementAndGet();
+            }
+            return new TableWriter(new CountingOutputStream(new FileOutputStream(filePath, append)), append, lock);
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reader that counts rows and bytes and commits a {@link TableLoadEvent} on close.
+     */
+    private class TableReader extends BufferedReader {
+        private final TableLoadEvent event = new TableLoadEvent();
+        private final boolean timed = event.isEnabled();
+        private final CountingInputStream input;
+        private final TableLock lock;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long ioNanos;
+        private boolean closed;
+
+        TableReader(CountingInputStream input, TableLock lock) {
+            super(new InputStreamReader(input));
+            this.input = input;
+            this.lock = lock;
+            event.begin();
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            if (!timed) {
+                String line = super.readLine();
+                if (line != null) {
+                    rows++;
+                }
+                return line;
+            }
+            long start = System.nanoTime();
+            String line = super.readLine();
+            ioNanos += System.nanoTime() - start;
+            if (line != null) {
+                rows++;
+            }
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (lock != null) {
+                    lock.close();
+                }
+            }
+            if (closed) {
+                return;
+            }
+            closed = true;
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = name;
+                event.rowCount = rows;
+                event.bytesRead = input.count;
+                event.ioTime = ioNanos;
+                event.parseTime = Math.max(0, System.nanoTime() - startNanos - ioNanos);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Writer that counts rows and bytes and commits a {@link TableWriteEvent} on close.
+     */
+    private class TableWriter extends BufferedWriter {
+        private final TableWriteEvent event = new TableWriteEvent();
+        private final boolean counted = event.isEnabled();
+        private final CountingOutputStream output;
+        private final boolean append;
+        private final TableLock lock;
+        private long rows;
+        private boolean closed;
+
+        TableWriter(CountingOutputStream output, boolean append, TableLock lock) {
+            super(new OutputStreamWriter(output));
+            this.output = output;
+            this.append = append;
+            this.lock = lock;
+            event.begin();
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            super.write(text, offset, length);
+            if (counted) {
+                for (int i = offset; i < offset + length; i++) {
+                    if (text.charAt(i) == '\n') {
+                        rows++;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    if (append) {
+                        appendCount.incrementAndGet();
+                    }
+                    changeCount.incrementAndGet();
+                    lastWritten = attributes();
+                }
+                lock.close();
+            }
+            if (closed) {
+                return;
+            }
+            closed = true;
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = name;
+                event.mode = append ? "APPEND" : "REWRITE";
+                event.rowCount = rows;
+                event.bytesWritten = output.count;
+                event.commit();
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
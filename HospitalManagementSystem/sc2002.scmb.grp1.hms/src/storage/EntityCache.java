@@ -0,0 +1,317 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import util.MetricsRegistry;
+
+/**
+ * A size-bounded cache of table rows by primary key, for repositories that look up the same
+ * few IDs again and again.
+ * <p>
+ * Rows are kept as their split CSV fields, and the repository builds a new entity from them on
+ * every hit, so callers may change the entities they get. Each table holds at most
+ * {@code hms.cache.<Table>.capacity} rows, default {@code hms.cache.capacity} or 1024; 0 turns
+ * the cache off. When the cache is full, a new row only replaces the least recently used one
+ * if its key has been asked for more often lately, as estimated by a small count-min sketch
+ * whose counts are halved as they age (TinyLFU), so a scan over many IDs once does not push
+ * out the IDs in steady use.
+ * </p>
+ * <p>
+ * The rows are dropped whenever the change count of the table, or of any partition of a
+ * {@link PartitionedTable} or its catalog, moves. Every writer this process closes advances it,
+ * and so does a {@link TableWatcher} watching the file when someone else changes it, so a
+ * lookup on a watched table touches no file; the partition list is only read again when the
+ * catalog's change count moves. When the file is not watched, its size and modification time
+ * are compared as well. A repository that changes one
+ * row calls {@link #beforeWrite()} and {@link #invalidate(long[], String)} around the write,
+ * which drops only that row. Threads reading from a {@link SnapshotView} bypass the cache.
+ * Each lookup is recorded as a {@link CacheAccessEvent} for cache {@code EntityCache} and in
+ * the {@link MetricsRegistry} as {@code EntityCache.<Table>.hit} or {@code .miss}.
+ * </p>
+ */
+public final class EntityCache {
+    /**
+     * The system property giving the number of rows cached per table, unless set for the table
+     * as {@code hms.cache.<Table>.capacity}.
+     */
+    public static final String CAPACITY_PROPERTY = "hms.cache.capacity";
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Map<CsvTable, EntityCache> CACHES = new ConcurrentHashMap<>();
+
+    private final CsvTable table;
+    private final int capacity;
+    private final String hitMetric;
+    private final String missMetric;
+    private final LinkedHashMap<String, String[]> rows = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+    private final FrequencySketch sketch;
+    private long[] stamp; // guarded by this
+    private List<CsvTable> partitions; // guarded by this
+    private List<Long> partitionsStamp; // guarded by this; the catalog's stamp when partitions was read
+
+    private EntityCache(CsvTable table) {
+        this.table = table;
+        this.capacity = Math.max(0, Integer.getInteger("hms.cache." + table.getName() + ".capacity",
+                Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY)));
+        this.hitMetric = "EntityCache." + table.getName() + ".hit";
+        this.missMetric = "EntityCache." + table.getName() + ".miss";
+        this.sketch = new FrequencySketch(Math.max(capacity, 1));
+    }
+
+    /**
+     * Returns the row cache of a table. The same instance is returned for every caller that
+     * uses the same table.
+     *
+     * @param table The table, or for a partitioned table the original one.
+     * @return The table's cache.
+     */
+    public static EntityCache forTable(CsvTable table) {
+        return CACHES.computeIfAbsent(table, EntityCache::new);
+    }
+
+    /**
+     * The outcome of one lookup. On a miss the caller reads the row from the table and passes
+     * it to {@link #offer(String[])}.
+     */
+    public final class Lookup {
+        private final String key;
+        private final long[] stamp;
+        private final String[] row;
+
+        private Lookup(String key, long[] stamp, String[] row) {
+            this.key = key;
+            this.stamp = stamp;
+            this.row = row;
+        }
+
+        /**
+         * Returns the cached row.
+         *
+         * @return A copy of the row's fields, or {@code null} on a miss.
+         */
+        public String[] row() {
+            return row == null ? null : row.clone();
+        }
+
+        /**
+         * Offers the row read after a miss for caching. It is only kept if the table has not
+         * changed since the lookup and the cache admits it.
+         *
+         * @param fields The row's fields.
+         */
+        public void offer(String[] fields) {
+            if (stamp != null && fields != null) {
+                admit(key, stamp, fields.clone());
+            }
+        }
+    }
+
+    /**
+     * Looks up a row by its key.
+     *
+     * @param key The primary key, compared exactly.
+     * @return The lookup, holding the row on a hit.
+     * @throws IOException if the table's partitions cannot be listed or its file's attributes
+     *         cannot be read.
+     */
+    public Lookup lookup(String key) throws IOException {
+        long start = System.nanoTime();
+        if (key == null || capacity == 0 || SnapshotView.pinnedFor(table) != null) {
+            return new Lookup(key, null, null);
+        }
+        long[] current = stamp();
+        String[] row;
+        synchronized (this) {
+            sketch.increment(key);
+            if (!Arrays.equals(stamp, current)) {
+                rows.clear();
+                stamp = current;
+            }
+            row = rows.get(key);
+        }
+        CacheAccessEvent.emit("EntityCache", table.getName(), row != null);
+        MetricsRegistry.record(row != null ? hitMetric : missMetric, System.nanoTime() - start);
+        return new Lookup(key, current, row);
+    }
+
+    /**
+     * Stamps the table before a row is changed. Must be called while the writer holds the
+     * table's exclusive lock, and the result passed to {@link #invalidate(long[], String)}.
+     *
+     * @return The stamp, or {@code null} if nothing is cached.
+     */
+    public long[] beforeWrite() {
+        synchronized (this) {
+            if (stamp == null) {
+                return null;
+            }
+        }
+        try {
+            return stamp();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drops the row a write has changed, added or removed, keeping the other rows if the cache
+     * was current when {@link #beforeWrite()} was called. Otherwise the next lookup drops every
+     * row.
+     *
+     * @param before The stamp returned by {@link #beforeWrite()}.
+     * @param key    The key of the written row.
+     */
+    public void invalidate(long[] before, String key) {
+        if (before == null) {
+            return;
+        }
+        long[] after;
+        try {
+            after = stamp();
+        } catch (IOException e) {
+            after = null;
+        }
+        synchronized (this) {
+            if (Arrays.equals(stamp, before)) {
+                rows.remove(key);
+                stamp = after;
+            }
+        }
+    }
+
+    private synchronized void admit(String key, long[] lookupStamp, String[] fields) {
+        if (!Arrays.equals(stamp, lookupStamp)) {
+            return; // Read from a table that has changed since
+        }
+        if (rows.containsKey(key) || rows.size() < capacity) {
+            rows.put(key, fields);
+            return;
+        }
+        Map.Entry<String, String[]> victim = rows.entrySet().iterator().next();
+        if (sketch.frequency(key) > sketch.frequency(victim.getKey())) {
+            rows.remove(victim.getKey());
+            rows.put(key, fields);
+        }
+    }
+
+    private long[] stamp() throws IOException {
+        PartitionedTable partitioned = PartitionedTable.forTable(table);
+        List<Long> stamp = new ArrayList<>();
+        List<CsvTable> tables = List.of(table);
+        if (partitioned != null) {
+            addStamp(partitioned.getCatalog(), stamp);
+            tables = partitions(partitioned, List.copyOf(stamp));
+        }
+        for (CsvTable part : tables) {
+            addStamp(part, stamp);
+        }
+        long[] result = new long[stamp.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = stamp.get(i);
+        }
+        return result;
+    }
+
+    private static void addStamp(CsvTable part, List<Long> stamp) throws IOException {
+        stamp.add(part.getChangeCount());
+        if (TableWatcher.watches(part)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(part.getFilePath()),
+                    BasicFileAttributes.class);
+            stamp.add(attributes.size());
+            stamp.add(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        } catch (NoSuchFileException e) {
+            stamp.add(-1L);
+            stamp.add(-1L);
+        }
+    }
+
+    private List<CsvTable> partitions(PartitionedTable partitioned, List<Long> catalogStamp) throws IOException {
+        synchronized (this) {
+            if (catalogStamp.equals(partitionsStamp)) {
+                return partitions;
+            }
+        }
+        // Read after the catalog was stamped, so the list is never older than its stamp
+        List<CsvTable> read = partitioned.partitions();
+        synchronized (this) {
+            partitions = read;
+            partitionsStamp = catalogStamp;
+        }
+        return read;
+    }
+
+    /**
+     * Estimates how often each key has been looked up recently, in four-bit counters packed
+     * sixteen to a long. Every counter is halved once the sample has seen ten lookups per
+     * cached row, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L};
+
+        private final long[] counters;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            counters = new long[Integer.highestOneBit(Math.max(16, capacity) * 2 - 1)];
+            sampleSize = 10 * capacity;
+        }
+
+        private void increment(String key) {
+            long hash = spread(key);
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                int shift = shift(hash, i);
+                if (((counters[index] >>> shift) & 0xfL) < 15) {
+                    counters[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (counters[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(String key) {
+            long hash = spread(key);
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, (int) ((counters[index(hash, i)] >>> shift(hash, i)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        private int index(long hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & (counters.length - 1);
+        }
+
+        private static int shift(long hash, int i) {
+            return (int) ((hash >>> (8 * i)) & 0xfL) << 2;
+        }
+
+        private static long spread(String key) {
+            long hash = key.hashCode() * 0x9e3779b97f4a7c15L;
+            return hash ^ (hash >>> 29);
+        }
+    }
+}
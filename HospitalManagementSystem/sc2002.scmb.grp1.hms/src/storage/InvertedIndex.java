@@ -0,0 +1,571 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import util.MetricsRegistry;
+
+/**
+ * A full-text index over one text per row of a table, answering term and boolean queries
+ * such as {@code asthma AND inhaler}, {@code fever OR cough} and
+ * {@code rash AND NOT (cream OR ointment)}.
+ * <p>
+ * Text is split into runs of letters and digits and lower-cased, so matching ignores case and
+ * punctuation. For each term the index keeps a posting list: the sorted numbers of the rows
+ * that contain it, stored as the gaps between them in a variable-length byte encoding, which
+ * for common terms takes about one byte per row. Queries merge posting lists, so their cost
+ * depends on how many rows match rather than on the size of the table.
+ * </p>
+ * <p>
+ * The index keeps a fingerprint of every row it has read. Each search first compares them
+ * with the rows it is given and re-reads only the rows that changed, holding their terms in a
+ * small uncompressed list until enough have built up to fold them into the posting lists. A
+ * caller that can tell the rows have not changed at all passes a version object to skip the
+ * comparison too. When more than an eighth of the rows changed, the index is rebuilt.
+ * </p>
+ * <p>
+ * {@link #forTable(CsvTable)} returns one index per table. Searches are serialised on it.
+ * </p>
+ */
+public final class InvertedIndex {
+    private static final Map<CsvTable, InvertedIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final int MIN_PENDING = 1024;
+
+    private Object version;
+    private long[] fingerprints = new long[0];
+    private final BitSet live = new BitSet();
+    private Map<String, Postings> postings = new HashMap<>();
+    private final BitSet stale = new BitSet();
+    private final Map<String, IntList> pending = new HashMap<>();
+    private final Map<Integer, String[]> pendingTerms = new HashMap<>();
+
+    /**
+     * The rows to index, read through by position.
+     */
+    public interface Documents {
+        /**
+         * Returns the number of rows.
+         *
+         * @return The row count.
+         */
+        int size();
+
+        /**
+         * Returns a value that changes whenever the row's text changes, such as
+         * {@link InvertedIndex#fingerprint(String)} of the text.
+         *
+         * @param row The row, from 0.
+         * @return The row's fingerprint.
+         */
+        long fingerprint(int row);
+
+        /**
+         * Returns the row's text.
+         *
+         * @param row The row, from 0.
+         * @return The text, or {@code null} if the row is not to be indexed.
+         */
+        String text(int row);
+    }
+
+    private InvertedIndex() {
+    }
+
+    /**
+     * Returns the index of a table. The same instance is returned for every caller that uses
+     * the same table.
+     *
+     * @param table The table.
+     * @return The table's index.
+     */
+    public static InvertedIndex forTable(CsvTable table) {
+        return INDEXES.computeIfAbsent(table, key -> new InvertedIndex());
+    }
+
+    /**
+     * Brings the index up to date with a table's rows and runs a query against them.
+     * <p>
+     * A query is a list of terms, all of which must match. {@code AND}, {@code OR} and
+     * {@code NOT}, written in capitals, combine them, with {@code NOT} binding tightest and
+     * {@code OR} loosest, and parentheses group them. A word that contains punctuation, such as
+     * {@code eye-drops}, matches rows containing each of its parts.
+     * </p>
+     *
+     * @param query     The query.
+     * @param version   An object equal to the one passed with the last search if the rows have
+     *                  not changed since, or {@code null} to compare fingerprints.
+     * @param documents The rows.
+     * @return The matching rows in ascending order.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public synchronized int[] search(String query, Object version, Documents documents) {
+        Node node = new Parser(query).parse();
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InvertedIndex.refresh");
+        try {
+            refresh(version, documents);
+        } finally {
+            timer.stop();
+        }
+        Result result = evaluate(node);
+        return result.negated ? difference(universe(), result.rows) : result.rows;
+    }
+
+    /**
+     * Splits text into lower-case terms, in order and with repeats.
+     *
+     * @param text The text.
+     * @return The terms.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of some text, for {@link Documents#fingerprint(int)}.
+     *
+     * @param text The text, or {@code null}.
+     * @return The fingerprint.
+     */
+    public static long fingerprint(String text) {
+        long hash = 0xcbf29ce484222325L;
+        if (text == null) {
+            return hash;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0x10000) * 0x100000001b3L; // tells null apart from ""
+    }
+
+    // ---------------------------------------------------------------- maintenance
+
+    private void refresh(Object version, Documents documents) {
+        if (version != null && version.equals(this.version)) {
+            return;
+        }
+        int size = documents.size();
+        long[] next = new long[size];
+        List<Integer> changed = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            next[row] = documents.fingerprint(row);
+            if (row >= fingerprints.length || next[row] != fingerprints[row]) {
+                changed.add(row);
+            }
+        }
+        int removed = Math.max(0, fingerprints.length - size);
+
+        if (changed.size() + removed > threshold(size)) {
+            rebuild(documents, size);
+        } else {
+            for (int row = size; row < fingerprints.length; row++) {
+                remove(row);
+            }
+            for (int row : changed) {
+                remove(row);
+                add(row, documents.text(row));
+            }
+            if (pendingTerms.size() > threshold(size)) {
+                merge();
+            }
+        }
+        fingerprints = next;
+        this.version = version;
+    }
+
+    private static int threshold(int size) {
+        return Math.max(MIN_PENDING, size / 8);
+    }
+
+    private void rebuild(Documents documents, int size) {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InvertedIndex.rebuild");
+        try {
+            Map<String, IntList> lists = new HashMap<>();
+            live.clear();
+            for (int row = 0; row < size; row++) {
+                String text = documents.text(row);
+                if (text == null) {
+                    continue;
+                }
+                live.set(row);
+                for (String term : tokenize(text)) {
+                    IntList list = lists.computeIfAbsent(term, key -> new IntList());
+                    if (list.size == 0 || list.values[list.size - 1] != row) {
+                        list.add(row);
+                    }
+                }
+            }
+            Map<String, Postings> rebuilt = new HashMap<>(lists.size() * 2);
+            for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+                IntList list = entry.getValue();
+                rebuilt.put(entry.getKey(), Postings.encode(list.values, list.size));
+            }
+            postings = rebuilt;
+            stale.clear();
+            pending.clear();
+            pendingTerms.clear();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void remove(int row) {
+        String[] terms = pendingTerms.remove(row);
+        if (terms != null) {
+            for (String term : terms) {
+                IntList list = pending.get(term);
+                list.remove(row);
+                if (list.size == 0) {
+                    pending.remove(term);
+                }
+            }
+        } else if (live.get(row)) {
+            stale.set(row); // Its posting list entries are skipped until the next merge
+        }
+        live.clear(row);
+    }
+
+    private void add(int row, String text) {
+        if (text == null) {
+            return;
+        }
+        Set<String> terms = new LinkedHashSet<>(tokenize(text));
+        pendingTerms.put(row, terms.toArray(new String[0]));
+        for (String term : terms) {
+            pending.computeIfAbsent(term, key -> new IntList()).add(row);
+        }
+        live.set(row);
+    }
+
+    private void merge() {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("InvertedIndex.merge");
+        try {
+            Map<String, Postings> merged = new HashMap<>(postings.size() * 2);
+            Set<String> terms = new LinkedHashSet<>(postings.keySet());
+            terms.addAll(pending.keySet());
+            for (String term : terms) {
+                int[] rows = rowsOf(term);
+                if (rows.length > 0) {
+                    merged.put(term, Postings.encode(rows, rows.length));
+                }
+            }
+            postings = merged;
+            stale.clear();
+            pending.clear();
+            pendingTerms.clear();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // ---------------------------------------------------------------- queries
+
+    private int[] rowsOf(String term) {
+        Postings encoded = postings.get(term);
+        int[] merged = encoded == null ? new int[0] : encoded.decode(stale);
+        IntList added = pending.get(term);
+        if (added == null) {
+            return merged;
+        }
+        int[] rows = Arrays.copyOf(added.values, added.size);
+        Arrays.sort(rows);
+        return union(merged, rows);
+    }
+
+    private int[] universe() {
+        return live.stream().toArray();
+    }
+
+    private Result evaluate(Node node) {
+        if (node instanceof Term term) {
+            int[] rows = null;
+            for (String part : term.parts) {
+                int[] matches = rowsOf(part);
+                rows = rows == null ? matches : intersect(rows, matches);
+            }
+            return new Result(rows, false);
+        }
+        if (node instanceof Not not) {
+            Result operand = evaluate(not.operand);
+            return new Result(operand.rows, !operand.negated);
+        }
+        if (node instanceof And and) {
+            Result left = evaluate(and.left);
+            Result right = evaluate(and.right);
+            if (left.negated && right.negated) {
+                return new Result(union(left.rows, right.rows), true);
+            }
+            if (left.negated) {
+                return new Result(difference(right.rows, left.rows), false);
+            }
+            if (right.negated) {
+                return new Result(difference(left.rows, right.rows), false);
+            }
+            return new Result(intersect(left.rows, right.rows), false);
+        }
+        Or or = (Or) node;
+        Result left = evaluate(or.left);
+        Result right = evaluate(or.right);
+        if (!left.negated && !right.negated) {
+            return new Result(union(left.rows, right.rows), false);
+        }
+        int[] universe = universe();
+        return new Result(union(left.negated ? difference(universe, left.rows) : left.rows,
+                right.negated ? difference(universe, right.rows) : right.rows), false);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || i < a.length && a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] difference(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int j = 0;
+        int n = 0;
+        for (int value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j == b.length || b[j] != value) {
+                result[n++] = value;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private record Result(int[] rows, boolean negated) {
+    }
+
+    private sealed interface Node permits Term, Not, And, Or {
+    }
+
+    private record Term(List<String> parts) implements Node {
+    }
+
+    private record Not(Node operand) implements Node {
+    }
+
+    private record And(Node left, Node right) implements Node {
+    }
+
+    private record Or(Node left, Node right) implements Node {
+    }
+
+    /**
+     * Parses {@code or := and ("OR" and)*}, {@code and := unary ("AND"? unary)*} and
+     * {@code unary := "NOT" unary | "(" or ")" | word}.
+     */
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        private Parser(String query) {
+            if (query == null) {
+                throw new IllegalArgumentException("The search query is empty.");
+            }
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i <= query.length(); i++) {
+                char c = i < query.length() ? query.charAt(i) : ' ';
+                if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                    if (word.length() > 0) {
+                        tokens.add(word.toString());
+                        word.setLength(0);
+                    }
+                    if (c == '(' || c == ')') {
+                        tokens.add(String.valueOf(c));
+                    }
+                } else {
+                    word.append(c);
+                }
+            }
+        }
+
+        private Node parse() {
+            if (tokens.isEmpty()) {
+                throw new IllegalArgumentException("The search query is empty.");
+            }
+            Node node = or();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "' in search query.");
+            }
+            return node;
+        }
+
+        private Node or() {
+            Node node = and();
+            while (accept("OR")) {
+                node = new Or(node, and());
+            }
+            return node;
+        }
+
+        private Node and() {
+            Node node = unary();
+            while (position < tokens.size() && !tokens.get(position).equals("OR") && !tokens.get(position).equals(")")) {
+                accept("AND");
+                node = new And(node, unary());
+            }
+            return node;
+        }
+
+        private Node unary() {
+            if (position == tokens.size()) {
+                throw new IllegalArgumentException("The search query ends too early.");
+            }
+            if (accept("NOT")) {
+                return new Not(unary());
+            }
+            if (accept("(")) {
+                Node node = or();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')' in search query.");
+                }
+                return node;
+            }
+            String word = tokens.get(position++);
+            if (word.equals(")") || word.equals("AND") || word.equals("OR")) {
+                throw new IllegalArgumentException("Unexpected '" + word + "' in search query.");
+            }
+            List<String> parts = tokenize(word);
+            if (parts.isEmpty()) {
+                throw new IllegalArgumentException("'" + word + "' has no letters or digits to search for.");
+            }
+            return new Term(parts);
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A posting list: ascending row numbers stored as gaps in a variable-length byte encoding,
+     * seven bits per byte with the high bit marking that more bytes follow.
+     */
+    private static final class Postings {
+        private final byte[] data;
+        private final int count;
+
+        private Postings(byte[] data, int count) {
+            this.data = data;
+            this.count = count;
+        }
+
+        private static Postings encode(int[] rows, int count) {
+            byte[] data = new byte[Math.max(16, count * 2)];
+            int length = 0;
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                int gap = rows[i] - previous;
+                previous = rows[i];
+                if (length + 5 > data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                while ((gap & ~0x7F) != 0) {
+                    data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                    gap >>>= 7;
+                }
+                data[length++] = (byte) gap;
+            }
+            return new Postings(Arrays.copyOf(data, length), count);
+        }
+
+        private int[] decode(BitSet skip) {
+            int[] rows = new int[count];
+            int n = 0;
+            int row = -1;
+            int index = 0;
+            for (int i = 0; i < count; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[index++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                row += gap;
+                if (!skip.get(row)) {
+                    rows[n++] = row;
+                }
+            }
+            return n == count ? rows : Arrays.copyOf(rows, n);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
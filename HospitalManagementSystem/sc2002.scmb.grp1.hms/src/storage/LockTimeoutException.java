@@ -0,0 +1,20 @@
+package storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a table lock could not be acquired within the lock timeout, usually because
+ * another process or thread is holding the table for a long update.
+ */
+public class LockTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an exception.
+     *
+     * @param message The detail message.
+     */
+    public LockTimeoutException(String message) {
+        super(message);
+    }
+}
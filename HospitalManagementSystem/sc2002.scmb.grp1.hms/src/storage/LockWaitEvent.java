@@ -0,0 +1,53 @@
+package storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering the time a thread waited to acquire a table lock.
+ */
+@Name("hms.LockWait")
+@Label("Table Lock Wait")
+@Category({"Hospital Management System", "Storage"})
+@Description("A thread waited to lock a CSV table")
+@StackTrace(true)
+public class LockWaitEvent extends Event {
+    @Label("Table")
+    String table;
+
+    @Label("Mode")
+    @Description("SHARED or EXCLUSIVE")
+    String mode;
+
+    @Label("Acquired")
+    boolean acquired;
+
+    /**
+     * Creates an event for a lock wait that is about to start. Call {@link #begin()} before
+     * waiting and {@link #finish(boolean)} once the lock is acquired or the wait gives up.
+     *
+     * @param table The table being locked.
+     * @param mode  The lock mode, "SHARED" or "EXCLUSIVE".
+     */
+    public LockWaitEvent(String table, String mode) {
+        this.table = table;
+        this.mode = mode;
+    }
+
+    /**
+     * Ends the wait and commits the event if it is enabled and exceeds its threshold.
+     *
+     * @param acquired Whether the lock was acquired.
+     */
+    public void finish(boolean acquired) {
+        end();
+        if (shouldCommit()) {
+            this.acquired = acquired;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import util.MetricsRegistry;
+
+/**
+ * A read-only copy of a table's text kept outside the Java heap, for large tables whose rows
+ * are mostly free text, such as medical records.
+ * <p>
+ * Every line of the file, including the header row, becomes one row. A row is described by a
+ * fixed-size header, {@code 8 + 4 * columns} bytes holding the position of the row's text and
+ * the end offset of each field, and its fields are stored one after another as UTF-8 in a text
+ * region. Both regions are direct buffers, so a table of a million records adds a handful of
+ * objects to the heap instead of several million strings, and garbage collections do not have
+ * to trace or copy them. Fields are decoded into strings only when {@link #get(int, int)} is
+ * called, and {@link #matches(int, int, byte[])} compares a field without decoding it.
+ * </p>
+ * <p>
+ * By default the buffers come from the process's native memory. Set
+ * {@code -Dhms.offheap.dir=DIR} to back them with memory-mapped files in {@code DIR} instead,
+ * which lets the operating system page cold rows out; the files are deleted as soon as they are
+ * mapped and their space is returned when the table is dropped.
+ * </p>
+ * <p>
+ * {@link #load(CsvTable, int, ColumnarSnapshot.Splitter)} keeps the latest copy of each table
+ * and brings it up to date when the file changes. If the file has only had lines appended (see
+ * {@link TableTail}), just those lines are read into a new copy that shares the old one's
+ * buffers, writing only past the rows the old copy holds; otherwise the copy is built again. A
+ * copy is never modified, so any number of threads may read one, and a copy that has been
+ * replaced stays valid for as long as something still refers to it. Each load is recorded as a
+ * {@link CacheAccessEvent} for cache {@code OffHeapTable}.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class OffHeapTable {
+    /**
+     * The system property naming a directory for file-backed buffers.
+     */
+    public static final String DIRECTORY_PROPERTY = "hms.offheap.dir";
+
+    private static final String DIRECTORY = System.getProperty(DIRECTORY_PROPERTY);
+    private static final int CHUNK_SIZE = 64 << 20;
+    private static final Map<CsvTable, Holder> TABLES = new ConcurrentHashMap<>();
+
+    private final int columns;
+    private final int headerSize;
+    private final ByteBuffer headers;
+    private final ByteBuffer[] chunks;
+    private final int size;
+    private final long offHeapBytes;
+    private final long[] stamp;
+    private final TableTail tail;
+
+    private OffHeapTable(int columns, ByteBuffer headers, ByteBuffer[] chunks, int size, long[] stamp,
+            TableTail tail) {
+        this.columns = columns;
+        this.headerSize = 8 + 4 * columns;
+        this.headers = headers;
+        this.chunks = chunks;
+        this.size = size;
+        this.stamp = stamp;
+        this.tail = tail;
+        long bytes = headers.capacity();
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        this.offHeapBytes = bytes;
+    }
+
+    /**
+     * Returns the off-heap copy of a table, extending or building it if the table has changed
+     * since the last call. A thread reading from a {@link SnapshotView} gets a new copy of its
+     * pinned file.
+     *
+     * @param table    The table.
+     * @param columns  The number of fields kept from each line; later fields are dropped.
+     * @param splitter How the table's lines are split.
+     * @return The table's rows.
+     * @throws java.io.FileNotFoundException if the file does not exist.
+     * @throws IOException if the table cannot be read or a line has fewer than {@code columns}
+     *                     fields.
+     */
+    public static OffHeapTable load(CsvTable table, int columns, ColumnarSnapshot.Splitter splitter)
+            throws IOException {
+        if (SnapshotView.pinnedFor(table) != null) {
+            return build(table, columns, splitter, null, 0);
+        }
+        Holder holder = TABLES.computeIfAbsent(table, key -> new Holder());
+        synchronized (holder) {
+            try (TableLock lock = table.lockShared()) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(Path.of(table.getFilePath()), BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    return build(table, columns, splitter, null, 0); // reports the missing file as before
+                }
+                long[] stamp = {table.getChangeCount(), attributes.size(),
+                        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), columns, splitter.ordinal()};
+                OffHeapTable current = holder.current;
+                boolean hit = current != null && Arrays.equals(current.stamp, stamp);
+                CacheAccessEvent.emit("OffHeapTable", table.getName(), hit);
+                if (!hit) {
+                    OffHeapTable extended = current == null ? null : current.extend(table, splitter, stamp);
+                    holder.current = null; // lets the old copy go while the new one is built
+                    holder.current = extended != null ? extended
+                            : build(table, columns, splitter, stamp, attributes.size());
+                }
+                return holder.current;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows, including the header row.
+     *
+     * @return The row count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of fields in each row.
+     *
+     * @return The column count.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Decodes one field.
+     *
+     * @param row    The row, from 0.
+     * @param column The column, from 0.
+     * @return The field's text.
+     * @throws IndexOutOfBoundsException if the row or column does not exist.
+     */
+    public String get(int row, int column) {
+        int base = header(row, column);
+        ByteBuffer chunk = chunks[headers.getInt(base)];
+        int start = fieldStart(base, column);
+        int end = headers.getInt(base + 8 + 4 * column);
+        byte[] bytes = new byte[end - start];
+        chunk.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests whether a field equals a value, without decoding the field.
+     *
+     * @param row    The row, from 0.
+     * @param column The column, from 0.
+     * @param value  The value's UTF-8 bytes.
+     * @return {@code true} if the field holds exactly those bytes.
+     * @throws IndexOutOfBoundsException if the row or column does not exist.
+     */
+    public boolean matches(int row, int column, byte[] value) {
+        int base = header(row, column);
+        int start = fieldStart(base, column);
+        int end = headers.getInt(base + 8 + 4 * column);
+        if (end - start != value.length) {
+            return false;
+        }
+        ByteBuffer chunk = chunks[headers.getInt(base)];
+        for (int i = 0; i < value.length; i++) {
+            if (chunk.get(start + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of a row's fields, which changes whenever one of them does.
+     *
+     * @param row The row, from 0.
+     * @return The row's fingerprint.
+     * @throws IndexOutOfBoundsException if the row does not exist.
+     */
+    public long fingerprint(int row) {
+        int base = header(row, 0);
+        ByteBuffer chunk = chunks[headers.getInt(base)];
+        long hash = 0xcbf29ce484222325L;
+        int position = headers.getInt(base + 4);
+        for (int column = 0; column < columns; column++) {
+            int end = headers.getInt(base + 8 + 4 * column);
+            for (; position < end; position++) {
+                hash = (hash ^ (chunk.get(position) & 0xFF)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0x100) * 0x100000001b3L; // a field boundary, outside the byte range
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the native or mapped memory reserved for this copy.
+     *
+     * @return The size of the header and text regions in bytes.
+     */
+    public long offHeapBytes() {
+        return offHeapBytes;
+    }
+
+    private int header(int row, int column) {
+        if (row < 0 || row >= size || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Row " + row + ", column " + column + " of " + size + " x " + columns);
+        }
+        return row * headerSize;
+    }
+
+    private int fieldStart(int base, int column) {
+        return headers.getInt(base + 4 + 4 * column); // the row's start, or the previous field's end
+    }
+
+    // ---------------------------------------------------------------- building
+
+    /**
+     * Reads the lines appended since this copy was made into a new copy sharing its buffers.
+     * Called at most once per copy, by the holder that replaces it with the result.
+     *
+     * @return The new copy, or {@code null} if the file has changed other than at its end.
+     */
+    private OffHeapTable extend(CsvTable table, ColumnarSnapshot.Splitter splitter, long[] stamp)
+            throws IOException {
+        if (tail == null || this.stamp == null || this.stamp[3] != stamp[3] || this.stamp[4] != stamp[4]) {
+            return null; // Read with another column count or splitter
+        }
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OffHeapTable.extend");
+        try {
+            if (!tail.onlyAppended()) {
+                return null;
+            }
+            TableTail next = tail.next();
+            if (next == null) {
+                return null;
+            }
+            // The headers are read by position, so a duplicate leaves this copy's buffer untouched
+            ByteBuffer headers = this.headers.duplicate().clear().position(size * headerSize);
+            ByteBuffer[] chunks = this.chunks;
+            ByteBuffer chunk = null;
+            if (size > 0) {
+                int last = (size - 1) * headerSize;
+                chunk = chunks[this.headers.getInt(last)].duplicate().clear()
+                        .position(this.headers.getInt(last + 4 + 4 * columns));
+                chunks = chunks.clone();
+                chunks[chunks.length - 1] = chunk;
+            }
+            try (BufferedReader reader = table.openReader(tail.size())) {
+                return read(table, columns, splitter, reader, headers, chunks, chunk, size, stamp, next, 4096);
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static OffHeapTable build(CsvTable table, int columns, ColumnarSnapshot.Splitter splitter,
+            long[] stamp, long fileSize) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("OffHeapTable.build");
+        try (BufferedReader reader = table.openReader()) {
+            // Only the copy the holder keeps is ever extended, so a pinned read needs no mark
+            TableTail tail = stamp == null ? null : TableTail.mark(table);
+            ByteBuffer headers = allocate((long) (8 + 4 * columns) * Math.max(16, fileSize / 64));
+            return read(table, columns, splitter, reader, headers, new ByteBuffer[0], null, 0, stamp, tail,
+                    Math.max(fileSize, 4096));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Appends the reader's lines as rows after the first {@code size}, growing the buffers as
+     * needed.
+     */
+    private static OffHeapTable read(CsvTable table, int columns, ColumnarSnapshot.Splitter splitter,
+            BufferedReader reader, ByteBuffer headers, ByteBuffer[] chunks, ByteBuffer chunk, int size, long[] stamp,
+            TableTail tail, long firstChunkSize) throws IOException {
+        int headerSize = 8 + 4 * columns;
+        byte[][] fields = new byte[columns][];
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] data = splitter.split(line);
+            if (data.length < columns) {
+                throw new IOException("Line " + (size + 1) + " of " + table.getName() + " has " + data.length
+                        + " fields, expected " + columns + ".");
+            }
+            int length = 0;
+            for (int column = 0; column < columns; column++) {
+                fields[column] = data[column].getBytes(StandardCharsets.UTF_8);
+                length += fields[column].length;
+            }
+            if (chunk == null || chunk.remaining() < length) {
+                long wanted = chunk == null ? firstChunkSize : 2L * chunk.capacity();
+                chunk = allocate(Math.max(length, Math.min(wanted, CHUNK_SIZE)));
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = chunk;
+            }
+            if (headers.remaining() < headerSize) {
+                headers = grow(headers);
+            }
+            // Header: chunk index, start offset, then the end offset of each field
+            headers.putInt(chunks.length - 1);
+            headers.putInt(chunk.position());
+            for (byte[] field : fields) {
+                chunk.put(field);
+                headers.putInt(chunk.position());
+            }
+            size++;
+        }
+        return new OffHeapTable(columns, headers, chunks, size, stamp, tail);
+    }
+
+    private static ByteBuffer grow(ByteBuffer headers) throws IOException {
+        long capacity = (long) headers.capacity() * 2;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Table is too large to hold off-heap.");
+        }
+        ByteBuffer larger = allocate(capacity);
+        larger.put(headers.duplicate().flip()); // The old buffer may still be read by an older copy
+        return larger;
+    }
+
+    private static ByteBuffer allocate(long capacity) throws IOException {
+        int bytes = (int) Math.min(capacity, Integer.MAX_VALUE - 8);
+        if (DIRECTORY == null) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+        Path file = Files.createTempFile(Path.of(DIRECTORY), "hms-offheap", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        } finally {
+            try {
+                Files.delete(file); // The mapping keeps the space until the buffer is collected
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static final class Holder {
+        private OffHeapTable current;
+    }
+}
@@ -0,0 +1,70 @@
+package storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a row is updated with a version stamp that no longer matches the stored one,
+ * meaning someone else changed the row after it was read. Reload the row and try again.
+ */
+public class OptimisticLockException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String table;
+    private final String key;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    /**
+     * Creates an exception.
+     *
+     * @param table           The table holding the row.
+     * @param key             The ID of the row.
+     * @param expectedVersion The version the caller read.
+     * @param actualVersion   The version currently stored, or -1 if the row has been deleted.
+     */
+    public OptimisticLockException(String table, String key, long expectedVersion, long actualVersion) {
+        super(table + " " + key + (actualVersion < 0 ? " was deleted by someone else."
+                : " was changed by someone else (expected version " + expectedVersion + ", found "
+                        + actualVersion + ").") + " Reload it and try again.");
+        this.table = table;
+        this.key = key;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    /**
+     * Returns the table holding the row.
+     *
+     * @return The table name.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the ID of the row.
+     *
+     * @return The row ID.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the version the caller read.
+     *
+     * @return The expected version.
+     */
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * Returns the version currently stored.
+     *
+     * @return The stored version, or -1 if the row has been deleted.
+     */
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
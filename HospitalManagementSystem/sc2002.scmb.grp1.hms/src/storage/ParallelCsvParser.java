@@ -0,0 +1,239 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import util.MetricsRegistry;
+
+/**
+ * Parses a large table's file on several threads, for the full loads in
+ * {@link ColumnarSnapshot#readRows}.
+ * <p>
+ * The file is cut into byte ranges of at least {@code hms.parse.chunkSize} bytes (default 1 MB),
+ * about four per thread of the common fork/join pool. Each cut is moved forward to just after
+ * the next line break, so every range holds whole lines and splits them exactly as reading the
+ * file a line at a time does; a quoted field never spans a line break in these files, since
+ * rows are read one line at a time, so no cut falls inside one. The ranges are read and split
+ * on the pool and their rows joined in file order. Files shorter than two ranges, a pool of one
+ * thread, a thread reading from a {@link SnapshotView} and a default charset whose line breaks
+ * are not single bytes are left to the single-threaded reader. Set
+ * {@code -Dhms.parse.parallel=false} to always read on one thread.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class ParallelCsvParser {
+    /**
+     * The system property that turns parallel parsing off when set to {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "hms.parse.parallel";
+
+    /**
+     * The system property giving the smallest byte range parsed as one task.
+     */
+    public static final String CHUNK_SIZE_PROPERTY = "hms.parse.chunkSize";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    private static final int CHUNK_SIZE = Math.max(4096, Integer.getInteger(CHUNK_SIZE_PROPERTY, 1 << 20));
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_SIZE = 8192;
+
+    private ParallelCsvParser() {
+    }
+
+    /**
+     * Returns the rows of a table after its header row, each split into fields, parsing the
+     * file on the common fork/join pool.
+     *
+     * @param table    The table.
+     * @param splitter How the table's lines are split.
+     * @param header   If not {@code null}, receives the header row in its first element.
+     * @return The split rows, in file order, or {@code null} if the file is better read on one
+     *         thread or does not exist.
+     * @throws IOException if the file cannot be read.
+     */
+    public static List<String[]> parse(CsvTable table, ColumnarSnapshot.Splitter splitter, String[] header)
+            throws IOException {
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+        if (!ENABLED || threads < 2 || !singleByteLineBreaks() || SnapshotView.pinnedFor(table) != null) {
+            return null;
+        }
+        TableLoadEvent event = new TableLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        // The lock stays with this thread; the tasks only read the channel at given positions
+        try (TableLock lock = table.lockShared();
+                FileChannel channel = FileChannel.open(Path.of(table.getFilePath()), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.max(CHUNK_SIZE, size / ((long) threads * CHUNKS_PER_THREAD));
+            if (size < 2 * chunkSize) {
+                return null;
+            }
+            List<String[]> rows;
+            String[] first = new String[1];
+            MetricsRegistry.Timer timer = MetricsRegistry.start("ParallelCsvParser.parse");
+            try {
+                List<Long> cuts = cuts(channel, size, chunkSize);
+                List<Chunk> chunks = new ArrayList<>();
+                for (int i = 0; i + 1 < cuts.size(); i++) {
+                    chunks.add(new Chunk(channel, cuts.get(i), cuts.get(i + 1), splitter, i == 0 ? first : null));
+                }
+                rows = ForkJoinPool.commonPool().invoke(new Join(chunks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                timer.stop();
+            }
+            if (header != null) {
+                header[0] = first[0] == null ? "" : first[0];
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = table.getName();
+                event.rowCount = rows.size() + (first[0] == null ? 0 : 1);
+                event.bytesRead = size;
+                event.parseTime = System.nanoTime() - start; // Reads and parsing overlap across threads
+                event.commit();
+            }
+            return rows;
+        } catch (NoSuchFileException e) {
+            return null; // The single-threaded reader reports it as before
+        }
+    }
+
+    private static boolean singleByteLineBreaks() {
+        Charset charset = Charset.defaultCharset();
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<Long> cuts(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<Long> cuts = new ArrayList<>();
+        cuts.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long target = chunkSize;
+        while (target < size) {
+            long cut = lineStart(channel, target, size, buffer);
+            if (cut >= size) {
+                break;
+            }
+            cuts.add(cut);
+            target = Math.max(cut, target) + chunkSize;
+        }
+        cuts.add(size);
+        return cuts;
+    }
+
+    /**
+     * Returns the position just after the first line break at or after {@code position - 1},
+     * or the end of the file if there is none.
+     */
+    private static long lineStart(FileChannel channel, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        long scan = position - 1;
+        while (scan < size) {
+            buffer.clear();
+            int n = channel.read(buffer, scan);
+            if (n <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < n; i++) {
+                if (bytes[i] == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += n;
+        }
+        return size;
+    }
+
+    /**
+     * Reads and splits the lines of one byte range.
+     */
+    private static final class Chunk extends RecursiveTask<List<String[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final ColumnarSnapshot.Splitter splitter;
+        private final String[] header;
+
+        Chunk(FileChannel channel, long from, long to, ColumnarSnapshot.Splitter splitter, String[] header) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.splitter = splitter;
+            this.header = header;
+        }
+
+        @Override
+        protected List<String[]> compute() {
+            try {
+                byte[] bytes = new byte[Math.toIntExact(to - from)];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, from + buffer.position()) < 0) {
+                        break; // Cannot happen while the lock is held
+                    }
+                }
+                List<String[]> rows = new ArrayList<>();
+                // Decoded as CsvTable's readers decode, with the default charset
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new ByteArrayInputStream(bytes, 0, buffer.position())))) {
+                    String line;
+                    if (header != null) {
+                        header[0] = reader.readLine();
+                    }
+                    while ((line = reader.readLine()) != null) {
+                        rows.add(splitter.split(line));
+                    }
+                }
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs every chunk and joins their rows in file order.
+     */
+    private static final class Join extends RecursiveTask<List<String[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Chunk> chunks;
+
+        Join(List<Chunk> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected List<String[]> compute() {
+            ForkJoinTask.invokeAll(chunks);
+            int size = 0;
+            for (Chunk chunk : chunks) {
+                size += chunk.join().size();
+            }
+            List<String[]> rows = new ArrayList<>(size);
+            for (Chunk chunk : chunks) {
+                rows.addAll(chunk.join());
+            }
+            return rows;
+        }
+    }
+}
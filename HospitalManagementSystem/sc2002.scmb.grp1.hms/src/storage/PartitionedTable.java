@@ -0,0 +1,295 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import util.DateTimeUtil;
+
+/**
+ * A table whose rows are split into one CSV file per month of a date column, so that queries
+ * for a range of dates only read the months in the range.
+ * <p>
+ * The partitions of {@code Appointment.csv} live in an {@code Appointment} directory next to
+ * it, as {@code Appointment-2024-10.csv} and so on, each with the table's header row. The
+ * directory's {@code catalog.csv} lists the months that have a partition; rows whose date
+ * cannot be read go to an {@code undated} partition. A table is only partitioned once
+ * {@link #partition()} has been run on it (see {@code util.TablePartitioner}); until then every
+ * method here treats the single file as the only partition, so callers need not check.
+ * </p>
+ * <p>
+ * The original table's lock still guards the whole table: writers hold its exclusive lock
+ * while they change a partition or the catalog, and scans over several partitions hold
+ * {@link #lockForScan()}. A {@link SnapshotView} opened on the original table pins the catalog
+ * and every partition along with it.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class PartitionedTable {
+    /**
+     * The name of the catalog file in a partition directory.
+     */
+    public static final String CATALOG_FILE = "catalog.csv";
+
+    /**
+     * The partition holding rows whose date cannot be read.
+     */
+    public static final String UNDATED = "undated";
+
+    private static final String CATALOG_HEADER = "Partition,File";
+    private static final Map<CsvTable, PartitionedTable> TABLES = new ConcurrentHashMap<>();
+
+    private final CsvTable table;
+    private final int dateColumn;
+    private final String header;
+    private final Path directory;
+    private final CsvTable catalog;
+
+    private PartitionedTable(CsvTable table, int dateColumn, String header) {
+        this.table = table;
+        this.dateColumn = dateColumn;
+        this.header = header;
+        File file = new File(table.getFilePath());
+        this.directory = file.toPath().resolveSibling(table.getName());
+        this.catalog = CsvTable.forFile(directory.resolve(CATALOG_FILE).toString(), table.getName() + "/catalog");
+    }
+
+    /**
+     * Returns the monthly partitioning of a table. The same instance is returned for every
+     * caller that uses the same table.
+     *
+     * @param table      The table.
+     * @param dateColumn The index of the date column, in DD-MM-YYYY format.
+     * @param header     The header row written to each partition.
+     * @return The partitioned table.
+     */
+    public static PartitionedTable monthly(CsvTable table, int dateColumn, String header) {
+        return TABLES.computeIfAbsent(table, key -> new PartitionedTable(key, dateColumn, header));
+    }
+
+    /**
+     * Returns the partitioning registered for a table.
+     *
+     * @return The partitioned table, or {@code null} if none has been registered.
+     */
+    static PartitionedTable forTable(CsvTable table) {
+        return TABLES.get(table);
+    }
+
+    /**
+     * Returns the original table, whose lock guards all of its partitions.
+     *
+     * @return The table.
+     */
+    public CsvTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the catalog listing the partitions.
+     */
+    CsvTable getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns whether the table has been split into partitions.
+     *
+     * @return {@code true} if the partition catalog exists.
+     */
+    public boolean isPartitioned() {
+        return Files.exists(Path.of(catalog.getFilePath()));
+    }
+
+    /**
+     * Takes the shared lock that keeps writers out while several partitions are read one after
+     * the other. Nothing is locked when the current thread reads the table from a
+     * {@link SnapshotView}.
+     *
+     * @return The held lock, or {@code null} if none was needed.
+     * @throws LockTimeoutException if the lock was not granted within the lock timeout.
+     * @throws IOException if the lock file cannot be opened.
+     */
+    public TableLock lockForScan() throws IOException {
+        return SnapshotView.pinnedFor(table) != null ? null : table.lockShared();
+    }
+
+    /**
+     * Returns every partition, oldest month first, or the single file if the table is not
+     * partitioned.
+     *
+     * @return The partitions.
+     * @throws IOException if the catalog cannot be read.
+     */
+    public List<CsvTable> partitions() throws IOException {
+        return partitions(null, null);
+    }
+
+    /**
+     * Returns the partitions that may hold rows dated within a range, oldest month first, or
+     * the single file if the table is not partitioned. The rows still have to be filtered by
+     * date; only whole months are skipped.
+     *
+     * @param from The first date, or {@code null} for no lower bound.
+     * @param to   The last date, or {@code null} for no upper bound.
+     * @return The partitions to read.
+     * @throws IOException if the catalog cannot be read.
+     */
+    public List<CsvTable> partitions(LocalDate from, LocalDate to) throws IOException {
+        if (!isPartitioned()) {
+            return List.of(table);
+        }
+        boolean bounded = from != null || to != null;
+        YearMonth first = from == null ? null : YearMonth.from(from);
+        YearMonth last = to == null ? null : YearMonth.from(to);
+        List<CsvTable> partitions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : readCatalog().entrySet()) {
+            if (bounded) {
+                if (entry.getKey().equals(UNDATED)) {
+                    continue;
+                }
+                YearMonth month = YearMonth.parse(entry.getKey());
+                if ((first != null && month.isBefore(first)) || (last != null && month.isAfter(last))) {
+                    continue;
+                }
+            }
+            partitions.add(CsvTable.forFile(directory.resolve(entry.getValue()).toString()));
+        }
+        return partitions;
+    }
+
+    /**
+     * Returns the partition that holds rows with a given date.
+     *
+     * @param date The date, in DD-MM-YYYY format.
+     * @return The partition, the single file if the table is not partitioned, or {@code null}
+     *         if there is no partition for the date's month yet.
+     * @throws IOException if the catalog cannot be read.
+     */
+    public CsvTable findPartition(String date) throws IOException {
+        if (!isPartitioned()) {
+            return table;
+        }
+        String file = readCatalog().get(partitionKey(date));
+        return file == null ? null : CsvTable.forFile(directory.resolve(file).toString());
+    }
+
+    /**
+     * Returns the partition to add a row with a given date to, creating it and adding it to
+     * the catalog if the month has none yet.
+     *
+     * @param date The date, in DD-MM-YYYY format.
+     * @return The partition, or the single file if the table is not partitioned.
+     * @throws LockTimeoutException if the table lock was not granted within the lock timeout.
+     * @throws IOException if the catalog or the new partition cannot be written.
+     */
+    public CsvTable partitionFor(String date) throws IOException {
+        try (TableLock lock = table.lockExclusive()) {
+            CsvTable partition = findPartition(date);
+            if (partition != null) {
+                return partition;
+            }
+            String key = partitionKey(date);
+            TreeMap<String, String> entries = readCatalog();
+            partition = createPartition(key, List.of());
+            entries.put(key, new File(partition.getFilePath()).getName());
+            writeCatalog(entries);
+            return partition;
+        }
+    }
+
+    /**
+     * Splits the single file into monthly partitions and writes the catalog. The original
+     * file is left with only its header row. Does nothing if the table is already partitioned.
+     *
+     * @return The number of partitions.
+     * @throws LockTimeoutException if the table lock was not granted within the lock timeout.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public int partition() throws IOException {
+        try (TableLock lock = table.lockExclusive()) {
+            if (isPartitioned()) {
+                return readCatalog().size();
+            }
+            TreeMap<String, List<String>> rows = new TreeMap<>();
+            try (BufferedReader reader = table.openReader()) {
+                String line = reader.readLine(); // header
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    String[] fields = line.split(",");
+                    String date = fields.length > dateColumn ? fields[dateColumn] : "";
+                    rows.computeIfAbsent(partitionKey(date), key -> new ArrayList<>()).add(line);
+                }
+            }
+
+            Files.createDirectories(directory);
+            TreeMap<String, String> entries = new TreeMap<>();
+            for (Map.Entry<String, List<String>> month : rows.entrySet()) {
+                CsvTable partition = createPartition(month.getKey(), month.getValue());
+                entries.put(month.getKey(), new File(partition.getFilePath()).getName());
+            }
+            // The catalog goes last: until it exists the original file is still the table
+            writeCatalog(entries);
+            try (BufferedWriter writer = table.openWriter(false)) {
+                writer.write(header);
+                writer.newLine();
+            }
+            return entries.size();
+        }
+    }
+
+    private String partitionKey(String date) {
+        LocalDate parsed = DateTimeUtil.parseDate(date);
+        return parsed == null ? UNDATED : YearMonth.from(parsed).toString();
+    }
+
+    private CsvTable createPartition(String key, List<String> rows) throws IOException {
+        Files.createDirectories(directory);
+        CsvTable partition = CsvTable.forFile(directory.resolve(table.getName() + "-" + key + ".csv").toString());
+        try (BufferedWriter writer = partition.openWriter(false)) {
+            writer.write(header);
+            writer.newLine();
+            for (String row : rows) {
+                writer.write(row);
+                writer.newLine();
+            }
+        }
+        return partition;
+    }
+
+    private TreeMap<String, String> readCatalog() throws IOException {
+        TreeMap<String, String> entries = new TreeMap<>();
+        try (BufferedReader reader = catalog.openReader()) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length == 2) {
+                    entries.put(fields[0], fields[1]);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void writeCatalog(Map<String, String> entries) throws IOException {
+        try (BufferedWriter writer = catalog.openWriter(false)) {
+            writer.write(CATALOG_HEADER);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+}
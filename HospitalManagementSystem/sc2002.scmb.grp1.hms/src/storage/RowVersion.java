@@ -0,0 +1,58 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * Reads and writes the optional "Version" column that stamps rows for optimistic concurrency.
+ * <p>
+ * Every successful update of a versioned row adds one to its version, and an update only
+ * succeeds if the caller's copy still has the stored version. The column is always the last
+ * one; rows written before it existed have no value there and are read as version 0.
+ * </p>
+ */
+public final class RowVersion {
+    /**
+     * The header name of the version column.
+     */
+    public static final String COLUMN = "Version";
+
+    private RowVersion() {
+    }
+
+    /**
+     * Reads the version of a row.
+     *
+     * @param fields The fields of the row.
+     * @param index  The index of the version column.
+     * @return The version, or 0 if the row has none.
+     */
+    public static long parse(String[] fields, int index) {
+        if (index >= fields.length || fields[index].isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(fields[index].trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the fields of a row with its version set, padding any missing columns before
+     * the version column with empty values.
+     *
+     * @param fields  The fields of the row.
+     * @param index   The index of the version column.
+     * @param version The new version.
+     * @return The fields with the version set; {@code fields} itself if it was long enough.
+     */
+    public static String[] withVersion(String[] fields, int index, long version) {
+        String[] row = fields;
+        if (row.length <= index) {
+            row = Arrays.copyOf(fields, index + 1);
+            Arrays.fill(row, fields.length, index, "");
+        }
+        row[index] = String.valueOf(version);
+        return row;
+    }
+}
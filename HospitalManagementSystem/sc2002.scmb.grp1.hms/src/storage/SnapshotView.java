@@ -0,0 +1,129 @@
+package storage;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pins an immutable snapshot of some tables for the current thread, so that long reads see a
+ * fixed version of each table without holding its lock.
+ * <p>
+ * While the view is open, {@link CsvTable#openReader()} on this thread reads the pinned copy
+ * of any table in the view instead of the file, so repository code is unchanged. The table
+ * lock is only held while each copy is taken; writers in this and other processes carry on
+ * and are simply not seen by the view. A view is for reading only: writes go to the file as
+ * usual and will not show up in the view's copies.
+ * </p>
+ * <pre>
+ * try (SnapshotView view = SnapshotView.open(APPOINTMENT_TABLE)) {
+ *     return appointmentRepository.loadAllAppointments();
+ * }
+ * </pre>
+ * <p>
+ * Readers that pin an unchanged table share one copy, and each copy is dropped as soon as the
+ * last view using it is closed. Views may be nested; a table pinned by an outer view is read
+ * from the outer view's copy.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class SnapshotView implements AutoCloseable {
+    private static final ThreadLocal<SnapshotView> CURRENT = new ThreadLocal<>();
+
+    private final SnapshotView outer;
+    private final Map<CsvTable, TableSnapshot> snapshots = new LinkedHashMap<>();
+    private boolean closed;
+
+    private SnapshotView(SnapshotView outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Pins the current version of each table and makes it the one read by this thread until
+     * the view is closed. Each table is copied on its own, so the tables are each consistent
+     * but may come from slightly different moments. The partitions of a
+     * {@link PartitionedTable} are pinned with it, all from the same moment.
+     *
+     * @param tables The tables to pin.
+     * @return The open view.
+     * @throws LockTimeoutException if a table could not be locked long enough to copy it.
+     * @throws IOException if a table file cannot be read.
+     */
+    public static SnapshotView open(CsvTable... tables) throws IOException {
+        SnapshotView view = new SnapshotView(CURRENT.get());
+        try {
+            for (CsvTable table : tables) {
+                PartitionedTable partitioned = PartitionedTable.forTable(table);
+                if (partitioned == null || !partitioned.isPartitioned()) {
+                    view.pin(table);
+                    continue;
+                }
+                // Writers hold the table's lock while they change any partition
+                try (TableLock lock = table.lockShared()) {
+                    view.pin(table);
+                    view.pin(partitioned.getCatalog());
+                    for (CsvTable partition : partitioned.partitions()) {
+                        view.pin(partition);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            view.unpinAll();
+            throw e;
+        }
+        CURRENT.set(view);
+        return view;
+    }
+
+    /**
+     * Returns the snapshot of a table pinned by the current thread's views.
+     *
+     * @param table The table.
+     * @return The snapshot, or {@code null} if the table is not in an open view.
+     */
+    static TableSnapshot pinnedFor(CsvTable table) {
+        SnapshotView view = CURRENT.get();
+        return view == null ? null : view.find(table);
+    }
+
+    /**
+     * Closes the view and unpins its snapshots. Calling this more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (CURRENT.get() == this) {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+        unpinAll();
+    }
+
+    private void pin(CsvTable table) throws IOException {
+        if (find(table) == null) {
+            snapshots.put(table, table.pinSnapshot());
+        }
+    }
+
+    private TableSnapshot find(CsvTable table) {
+        for (SnapshotView view = this; view != null; view = view.outer) {
+            TableSnapshot snapshot = view.snapshots.get(table);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    private void unpinAll() {
+        for (Map.Entry<CsvTable, TableSnapshot> entry : snapshots.entrySet()) {
+            entry.getKey().unpin(entry.getValue());
+        }
+        snapshots.clear();
+    }
+}
@@ -0,0 +1,87 @@
+package storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one {@code String} instance between all the rows of a table that hold the same value,
+ * for columns whose values repeat: doctor and patient IDs, dates, times, service types.
+ * <p>
+ * Splitting a CSV line creates a new string for every field, so a million appointments with
+ * the same doctor ID otherwise keep a million copies of it on the heap. Repositories pass such
+ * fields through {@link #intern(String)} as they build entities, and the list they return holds
+ * one copy of each distinct value.
+ * </p>
+ * <p>
+ * A dictionary belongs to one table and lives as long as the application, so it is bounded:
+ * it holds at most {@code hms.dictionary.maxValues} distinct values (default 65536), and once
+ * full it passes new values through as parsed while still sharing the ones it holds. A table
+ * whose columns repeat a few values keeps all of them; one that has held more, such as years of
+ * dates or a large patient list, stops growing the dictionary instead of keeping every value it
+ * has ever seen. Columns that are unique per row, such as appointment IDs, should not be
+ * interned. Set {@code -Dhms.dictionary=false} to keep every field as parsed, for example to
+ * compare heap use.
+ * </p>
+ */
+public final class StringDictionary {
+    /**
+     * The system property that turns interning off when set to {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "hms.dictionary";
+
+    /**
+     * The system property giving the most distinct values one table's dictionary holds.
+     */
+    public static final String MAX_VALUES_PROPERTY = "hms.dictionary.maxValues";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    private static final int MAX_VALUES = Integer.getInteger(MAX_VALUES_PROPERTY, 65_536);
+    private static final Map<CsvTable, StringDictionary> DICTIONARIES = new ConcurrentHashMap<>();
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private StringDictionary() {
+    }
+
+    /**
+     * Returns the dictionary of a table. The same instance is returned for every caller that
+     * uses the same table.
+     *
+     * @param table The table.
+     * @return The table's dictionary.
+     */
+    public static StringDictionary forTable(CsvTable table) {
+        return DICTIONARIES.computeIfAbsent(table, key -> new StringDictionary());
+    }
+
+    /**
+     * Returns the dictionary's copy of a value, adding the value if it is new and the
+     * dictionary is not full.
+     *
+     * @param value The value, or {@code null}.
+     * @return An equal string shared by every row of the table, the value itself if the
+     *         dictionary is full and does not hold it, or {@code null}.
+     */
+    public String intern(String value) {
+        if (!ENABLED || value == null) {
+            return value;
+        }
+        String shared = values.get(value);
+        if (shared == null) {
+            if (values.size() >= MAX_VALUES) {
+                return value; // Full; threads racing here may overshoot the limit by a few values
+            }
+            shared = values.putIfAbsent(value, value);
+        }
+        return shared == null ? value : shared;
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     *
+     * @return The dictionary size.
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,40 @@
+package storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted each time a CSV table is read, from opening the file to
+ * closing the reader. The event duration covers both reading and parsing; {@code ioTime}
+ * is the part spent waiting for lines from the file and {@code parseTime} the remainder.
+ */
+@Name("hms.TableLoad")
+@Label("Table Load")
+@Category({"Hospital Management System", "Storage"})
+@Description("A CSV table was read")
+@StackTrace(true)
+class TableLoadEvent extends Event {
+    @Label("Table")
+    String table;
+
+    @Label("Rows Read")
+    long rowCount;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("I/O Time")
+    @Timespan
+    long ioTime;
+
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+}
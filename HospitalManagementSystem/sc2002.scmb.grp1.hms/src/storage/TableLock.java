@@ -0,0 +1,210 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import util.MetricsRegistry;
+
+/**
+ * A held shared or exclusive lock on one CSV table. Close it to release the lock.
+ * <p>
+ * Each table has its own lock stripe, so work on different tables never waits on each other.
+ * A stripe combines a {@link ReentrantReadWriteLock} for the threads of this process with a
+ * {@link FileLock} on a sidecar file ({@code <table>.csv.lock}) for other processes using the
+ * same data directory. Any number of readers may hold a table at once; a writer holds it alone.
+ * </p>
+ * <p>
+ * Locks are reentrant: a thread holding the exclusive lock may take the shared or exclusive
+ * lock again, which is how a read-modify-write method can call the plain readers and writers.
+ * A thread holding only the shared lock may not upgrade to the exclusive lock, so a
+ * read-modify-write must take the exclusive lock before it reads. Waits are bounded by the lock
+ * timeout; waits that are not granted at once are recorded as a {@link LockWaitEvent} and in
+ * {@link MetricsRegistry} under {@code TableLock.wait(<table>)}.
+ * </p>
+ * <p>
+ * Hold a lock in a try-with-resources block. The block's body never refers to the lock, which
+ * javac's {@code -Xlint:try} reports, so classes that lock tables suppress the "try" lint.
+ * </p>
+ */
+public final class TableLock implements AutoCloseable {
+    private final Stripe stripe;
+    private final boolean exclusive;
+    private final boolean ownsFileLock;
+    private boolean released;
+
+    private TableLock(Stripe stripe, boolean exclusive, boolean ownsFileLock) {
+        this.stripe = stripe;
+        this.exclusive = exclusive;
+        this.ownsFileLock = ownsFileLock;
+    }
+
+    /**
+     * Returns whether this is an exclusive lock.
+     *
+     * @return {@code true} for an exclusive lock, {@code false} for a shared one.
+     */
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * Releases the lock. Calling this more than once has no effect.
+     *
+     * @throws IOException if the file lock could not be released.
+     */
+    @Override
+    public void close() throws IOException {
+        if (released) {
+            return;
+        }
+        released = true;
+        try {
+            if (ownsFileLock) {
+                stripe.releaseFileLock(exclusive);
+            }
+        } finally {
+            (exclusive ? stripe.local.writeLock() : stripe.local.readLock()).unlock();
+        }
+    }
+
+    /**
+     * The lock state of one table within this process.
+     */
+    static final class Stripe {
+        private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+        private final String table;
+        private final Path lockFile;
+        private final ReentrantReadWriteLock local = new ReentrantReadWriteLock();
+        private final ReentrantLock fileMutex = new ReentrantLock();
+        private FileChannel channel;
+        private FileLock fileLock;
+        private int sharedHolders;
+
+        Stripe(String table, Path lockFile) {
+            this.table = table;
+            this.lockFile = lockFile;
+        }
+
+        TableLock acquire(boolean exclusive, long timeoutNanos) throws IOException {
+            if (exclusive && local.getReadHoldCount() > 0 && !local.isWriteLockedByCurrentThread()) {
+                throw new IllegalStateException("Cannot upgrade a shared lock on table " + table
+                        + " to an exclusive one; take the exclusive lock before reading.");
+            }
+            long deadline = System.nanoTime() + timeoutNanos;
+            boolean nested = local.isWriteLockedByCurrentThread();
+            Lock localLock = exclusive ? local.writeLock() : local.readLock();
+            LockWaitEvent event = null;
+            long waitStart = 0;
+
+            if (!localLock.tryLock()) {
+                event = new LockWaitEvent(table, exclusive ? "EXCLUSIVE" : "SHARED");
+                event.begin();
+                waitStart = System.nanoTime();
+                boolean acquired = false;
+                try {
+                    acquired = localLock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!acquired) {
+                    throw timedOut(event, waitStart, exclusive);
+                }
+            }
+
+            if (!nested) {
+                try {
+                    if (!acquireFileLock(exclusive, deadline)) {
+                        if (event == null) {
+                            event = new LockWaitEvent(table, exclusive ? "EXCLUSIVE" : "SHARED");
+                            waitStart = System.nanoTime();
+                        }
+                        throw timedOut(event, waitStart, exclusive);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    localLock.unlock();
+                    throw e;
+                }
+            }
+
+            if (event != null) {
+                event.finish(true);
+                MetricsRegistry.record("TableLock.wait(" + table + ")", System.nanoTime() - waitStart);
+            }
+            return new TableLock(this, exclusive, !nested);
+        }
+
+        /**
+         * Takes the file lock for this process. A shared file lock is taken by the first reader
+         * and released by the last one; the exclusive lock is only requested while this thread
+         * holds the local write lock, so no shared file lock is held by this process then.
+         */
+        private boolean acquireFileLock(boolean exclusive, long deadline) throws IOException {
+            fileMutex.lock();
+            try {
+                if (!exclusive && sharedHolders > 0) {
+                    sharedHolders++;
+                    return true;
+                }
+                if (channel == null) {
+                    channel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                long backoff = TimeUnit.MILLISECONDS.toNanos(1);
+                while (true) {
+                    FileLock lock = channel.tryLock(0, Long.MAX_VALUE, !exclusive);
+                    if (lock != null) {
+                        fileLock = lock;
+                        if (!exclusive) {
+                            sharedHolders = 1;
+                        }
+                        return true;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.sleep(Math.min(backoff, remaining));
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                fileMutex.unlock();
+            }
+        }
+
+        private void releaseFileLock(boolean exclusive) throws IOException {
+            fileMutex.lock();
+            try {
+                if (!exclusive && --sharedHolders > 0) {
+                    return;
+                }
+                FileLock lock = fileLock;
+                fileLock = null;
+                sharedHolders = 0;
+                if (lock != null && lock.isValid()) {
+                    lock.release();
+                }
+            } finally {
+                fileMutex.unlock();
+            }
+        }
+
+        private LockTimeoutException timedOut(LockWaitEvent event, long waitStart, boolean exclusive) {
+            long waited = System.nanoTime() - waitStart;
+            event.finish(false);
+            MetricsRegistry.record("TableLock.wait(" + table + ")", waited);
+            MetricsRegistry.record("TableLock.timeout(" + table + ")", waited);
+            return new LockTimeoutException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(waited)
+                    + " ms waiting for the " + (exclusive ? "exclusive" : "shared") + " lock on table " + table + ".");
+        }
+    }
+}
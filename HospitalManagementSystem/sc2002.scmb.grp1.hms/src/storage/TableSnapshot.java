@@ -0,0 +1,75 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * An immutable copy of a table's file as it was at one moment, shared by every reader that
+ * pins it.
+ * <p>
+ * Each copy has a version number that goes up whenever the table has changed since the
+ * previous copy. Readers that pin while the table is unchanged share the same version;
+ * writers are never blocked by it and simply make the next pin take a new version. A version
+ * is reclaimed as soon as its last reader unpins it, so old versions only live as long as the
+ * reports using them. Snapshots are pinned and unpinned through {@link SnapshotView}.
+ * </p>
+ */
+final class TableSnapshot {
+    private final CsvTable table;
+    private final long version;
+    private final long changeCount;
+    private final long lastModified;
+    private final long size;
+    private byte[] content;
+    private int pins = 1;
+
+    TableSnapshot(CsvTable table, long version, byte[] content, long changeCount, long lastModified, long size) {
+        this.table = table;
+        this.version = version;
+        this.content = content;
+        this.changeCount = changeCount;
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    /**
+     * Opens the copied file, including the header row.
+     */
+    InputStream newInputStream() {
+        byte[] bytes = content;
+        if (bytes == null) {
+            throw new IllegalStateException("Snapshot " + version + " of table " + table.getName() + " has been reclaimed.");
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Returns whether the table is unchanged since this copy was taken. Called with the
+     * table's snapshot monitor held.
+     */
+    boolean matches(long changeCount, long lastModified, long size) {
+        return content != null && this.changeCount == changeCount && this.lastModified == lastModified
+                && this.size == size;
+    }
+
+    /**
+     * Adds a reader. Called with the table's snapshot monitor held.
+     */
+    void pin() {
+        pins++;
+    }
+
+    /**
+     * Removes a reader and drops the copy once there are none left. Called with the table's
+     * snapshot monitor held.
+     *
+     * @return {@code true} if the copy was dropped.
+     */
+    boolean release() {
+        if (--pins > 0) {
+            return false;
+        }
+        content = null;
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Where a table's file ended when it was read, so that a later read can tell whether the file
+ * has only had lines appended since and, if so, read just those.
+ * <p>
+ * A mark records the file's size and a CRC-32C checksum of its contents up to that size. The
+ * file counts as only appended to if it is at least as long, the marked contents ended with a
+ * line break, and either every change since was an append by this process that left the file
+ * as it is, or the first {@link #size()} bytes still have the same checksum. The first case
+ * costs a file status check; the second reads the marked bytes once without parsing them, as
+ * {@link ColumnarSnapshot} does to trust its copy. Anything else, such as a rewrite by this
+ * process or an edit by another program anywhere in the marked bytes, fails the check and the
+ * caller reads the whole file as before.
+ * </p>
+ * <p>
+ * A mark keeps its checksum running, so the mark {@link #next()} takes after an append only
+ * reads the appended bytes. An append by this process to a file that is not as this process
+ * last wrote it counts as a change by others (see {@link CsvTable#openWriter}), so an edit made
+ * before it is still checked for.
+ * </p>
+ * <p>
+ * Take marks and make the check while holding the table's lock, so that no writer in this or
+ * another process changes the file in between.
+ * </p>
+ */
+public final class TableTail {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CsvTable table;
+    private final long size;
+    private final long lastModified;
+    private final long changeCount;
+    private final long appendCount;
+    private final long checksum;
+    private final boolean endsWithLine;
+    private CRC32C running; // guarded by this; the checksum of the first size bytes, for the next mark
+
+    private TableTail(CsvTable table, long size, long lastModified, long changeCount, long appendCount,
+            CRC32C running, boolean endsWithLine) {
+        this.table = table;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.changeCount = changeCount;
+        this.appendCount = appendCount;
+        this.checksum = running.getValue();
+        this.running = running;
+        this.endsWithLine = endsWithLine;
+    }
+
+    /**
+     * Marks the current end of a table's file.
+     *
+     * @param table The table.
+     * @return The mark, or {@code null} if the file does not exist.
+     * @throws IOException if the file cannot be read.
+     */
+    public static TableTail mark(CsvTable table) throws IOException {
+        return mark(table, new CRC32C(), 0);
+    }
+
+    /**
+     * Marks the current end of a table's file, adding the bytes from an offset on to a checksum
+     * of the bytes before it.
+     */
+    private static TableTail mark(CsvTable table, CRC32C crc, long from) throws IOException {
+        Path path = Path.of(table.getFilePath());
+        long changeCount = table.getChangeCount();
+        long appendCount = table.getAppendCount();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        long size = attributes.size();
+        int last = update(path, from, size, crc);
+        return new TableTail(table, size, attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), changeCount,
+                appendCount, crc, last == '\n');
+    }
+
+    /**
+     * Marks the current end of the file after lines were appended to it since this mark. Call
+     * it only once {@link #onlyAppended()} has returned {@code true}, or after this process
+     * appended to the file itself while holding the lock.
+     *
+     * @return The new mark, or {@code null} if the file does not exist.
+     * @throws IOException if the file cannot be read.
+     */
+    public TableTail next() throws IOException {
+        CRC32C crc;
+        synchronized (this) {
+            crc = running;
+            running = null; // A checksum can only be carried on once
+        }
+        if (crc == null) {
+            return mark(table);
+        }
+        return mark(table, crc, size);
+    }
+
+    /**
+     * Returns the length of the file when it was marked, which is where its new lines start.
+     *
+     * @return The size in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the table's change count, size and modification time when it was marked, in the
+     * form the caches compare to tell whether a table has changed.
+     *
+     * @return The stamp.
+     */
+    public long[] stamp() {
+        return new long[] {changeCount, size, lastModified};
+    }
+
+    /**
+     * Returns whether the file has only had whole lines appended since it was marked.
+     *
+     * @return {@code true} if the lines from {@link #size()} on are all that is new.
+     * @throws IOException if the file cannot be read.
+     */
+    public boolean onlyAppended() throws IOException {
+        if (size == 0 || !endsWithLine) {
+            return false;
+        }
+        Path path = Path.of(table.getFilePath());
+        long current;
+        try {
+            current = Files.size(path);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (current < size) {
+            return false;
+        }
+        long changes = table.getChangeCount() - changeCount;
+        if (changes == table.getAppendCount() - appendCount && table.isAsLastWritten()) {
+            return true; // Every change since was one of our own appends
+        }
+        CRC32C crc = new CRC32C();
+        update(path, 0, size, crc);
+        return crc.getValue() == checksum;
+    }
+
+    /**
+     * Adds a file's bytes from one offset to another to a checksum, which the JIT compiles to
+     * hardware instructions.
+     *
+     * @return The last byte of the file before {@code to}, or -1 if the file is empty.
+     */
+    private static int update(Path path, long from, long to, CRC32C crc) throws IOException {
+        if (to == 0) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = from;
+            while (position < to) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, to - position));
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    return -1; // Shorter than it was a moment ago; the checksum will not match
+                }
+                crc.update(buffer.flip());
+                position += n;
+            }
+            buffer.clear().limit(1);
+            return channel.read(buffer, to - 1) == 1 ? buffer.get(0) : -1;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import util.MetricsRegistry;
+
+/**
+ * Watches the data directory for CSV files changed by anything other than this process, such
+ * as an operator editing a file by hand or another tool writing to it.
+ * <p>
+ * The in-memory copies of a table (key filters, off-heap tables, patient timelines) already
+ * compare the file's size and modification time before each use, which misses an edit that
+ * keeps both, for instance one made within the file system's timestamp resolution or by a tool
+ * that restores the modification time. When the watcher sees a table's file change, and the
+ * file is not as this process's last writer left it, it advances the table's change count, so
+ * every copy of that table, and only that table, is read again on its next use. A copy that
+ * can (see {@link TableTail}) reads just the appended lines when the file has only grown. An
+ * {@link EntityCache} on a watched table relies on the change count alone.
+ * </p>
+ * <p>
+ * The data directory and the partition directories in it are watched on a daemon thread, and
+ * partition directories created later are added as they appear. Events arrive with a delay
+ * that depends on the platform; until one does, the size and modification time checks apply
+ * as before. Set {@code -Dhms.watch=false} to turn the watcher off.
+ * </p>
+ */
+public final class TableWatcher {
+    /**
+     * The system property that turns the watcher off when set to {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "hms.watch";
+
+    private static WatchService service; // guarded by TableWatcher.class
+    private static volatile Path watched; // the watched data directory, or null
+
+    private TableWatcher() {
+    }
+
+    /**
+     * Starts watching a data directory, unless a directory is already being watched.
+     *
+     * @param directory The data directory.
+     * @throws IOException if the directory cannot be watched.
+     */
+    public static synchronized void start(String directory) throws IOException {
+        if (service != null) {
+            return;
+        }
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        try {
+            Path root = Path.of(directory);
+            register(watchService, root);
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path child : children) {
+                    register(watchService, child);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        service = watchService;
+        watched = Path.of(directory).toAbsolutePath().normalize();
+        Thread thread = new Thread(() -> run(watchService), "table-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching a data directory unless {@code hms.watch} is {@code false}. A directory
+     * that cannot be watched is reported and left to the size and modification time checks.
+     *
+     * @param directory The data directory.
+     */
+    public static void startFromSystemProperties(String directory) {
+        if ("false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY))) {
+            return;
+        }
+        try {
+            start(directory);
+        } catch (IOException e) {
+            System.err.println("Not watching " + directory + " for changes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching, so that {@link #start(String)} can watch another directory.
+     */
+    public static synchronized void stop() {
+        if (service == null) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (IOException e) {
+            // The watcher thread stops either way
+        }
+        service = null;
+        watched = null;
+    }
+
+    /**
+     * Returns whether a table's file lies in the watched data directory or in one of the
+     * partition directories in it, so that a change made to it by others advances its change
+     * count once the event arrives.
+     *
+     * @param table The table.
+     * @return {@code true} if the table is being watched.
+     */
+    static boolean watches(CsvTable table) {
+        Path root = watched;
+        if (root == null) {
+            return false;
+        }
+        Path parent = Path.of(table.getFilePath()).toAbsolutePath().normalize().getParent();
+        return root.equals(parent) || parent != null && root.equals(parent.getParent());
+    }
+
+    private static void register(WatchService watchService, Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private static void run(WatchService watchService) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                MetricsRegistry.Timer timer = MetricsRegistry.start("TableWatcher.changed");
+                try {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changedAll(directory); // Some events were lost
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        register(watchService, path); // A table was just partitioned
+                        changedAll(path);
+                    } else if (path.getFileName().toString().endsWith(".csv")) {
+                        changed(path);
+                    }
+                } catch (IOException | ClosedWatchServiceException e) {
+                    // The directory went away or the watcher was stopped
+                } finally {
+                    timer.stop();
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private static void changedAll(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path path : files) {
+                changed(path);
+            }
+        }
+    }
+
+    private static void changed(Path path) {
+        CsvTable table = CsvTable.forPath(path);
+        if (table != null) {
+            table.changedOnDisk();
+        }
+    }
+}
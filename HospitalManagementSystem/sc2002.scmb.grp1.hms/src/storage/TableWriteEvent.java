@@ -0,0 +1,34 @@
+package storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted each time a CSV table is written, either rewritten in full
+ * or appended to, from opening the file to closing the writer.
+ */
+@Name("hms.TableWrite")
+@Label("Table Write")
+@Category({"Hospital Management System", "Storage"})
+@Description("A CSV table was rewritten or appended to")
+@StackTrace(true)
+class TableWriteEvent extends Event {
+    @Label("Table")
+    String table;
+
+    @Label("Mode")
+    @Description("REWRITE or APPEND")
+    String mode;
+
+    @Label("Rows Written")
+    long rowCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
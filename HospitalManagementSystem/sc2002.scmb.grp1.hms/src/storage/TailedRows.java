@@ -0,0 +1,165 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import util.MetricsRegistry;
+
+/**
+ * The split rows of a table that mostly grows at the end, such as appointment outcomes or
+ * replenishment requests, kept in memory so that reading the table again only parses the lines
+ * added since.
+ * <p>
+ * The first read parses the table as {@link ColumnarSnapshot#readRows} does and remembers
+ * where the file ended (see {@link TableTail}). A later read returns the same rows if the
+ * table's change count, size and modification time have not moved; if the file has only had
+ * lines appended, those lines are split and added to the end; otherwise, for instance after a
+ * row was updated in place, the table is read in full again. Rows are shared between callers
+ * and must not be changed. A thread reading from a {@link SnapshotView} reads its pinned copy.
+ * Each read is recorded as a {@link CacheAccessEvent} for cache {@code TailedRows}, a hit
+ * meaning nothing had to be parsed.
+ * </p>
+ */
+@SuppressWarnings("try")
+public final class TailedRows {
+    private static final Map<CsvTable, TailedRows> TABLES = new ConcurrentHashMap<>();
+
+    private final CsvTable table;
+    private String[][] rows = new String[0][]; // guarded by this; only slots below count are in use
+    private int count; // guarded by this
+    private ColumnarSnapshot.Splitter splitter; // guarded by this
+    private TableTail tail; // guarded by this; where the file ended after the last row read
+
+    private TailedRows(CsvTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns the rows of a table after its header row, each split into fields, reading only
+     * the lines appended since the last call when that is all that changed.
+     *
+     * @param table    The table.
+     * @param splitter How the table's lines are split.
+     * @return The split rows, in file order, as a list that cannot be changed.
+     * @throws java.io.FileNotFoundException if the file does not exist.
+     * @throws IOException if the table cannot be read.
+     */
+    public static List<String[]> readRows(CsvTable table, ColumnarSnapshot.Splitter splitter) throws IOException {
+        if (SnapshotView.pinnedFor(table) != null) {
+            return ColumnarSnapshot.readRows(table, splitter);
+        }
+        return TABLES.computeIfAbsent(table, TailedRows::new).read(splitter);
+    }
+
+    /**
+     * Returns a value that stays equal while {@link #readRows} would return the same rows, for
+     * callers that keep something derived from them, such as an {@link InvertedIndex}. It is
+     * taken from the table's change count, size and modification time, so it must be read
+     * before the rows: rows read after it are never older than it says.
+     *
+     * @param table The table.
+     * @return The version, or {@code null} if the file does not exist or the current thread
+     *         reads a {@link SnapshotView}'s pinned copy.
+     * @throws IOException if the file's attributes cannot be read.
+     */
+    public static Object version(CsvTable table) throws IOException {
+        if (SnapshotView.pinnedFor(table) != null) {
+            return null;
+        }
+        long[] stamp = stamp(table);
+        return stamp == null ? null : List.of(stamp[0], stamp[1], stamp[2]);
+    }
+
+    private List<String[]> read(ColumnarSnapshot.Splitter splitter) throws IOException {
+        long[] current = stamp(table);
+        synchronized (this) {
+            boolean hit = current != null && tail != null && splitter == this.splitter
+                    && Arrays.equals(tail.stamp(), current);
+            CacheAccessEvent.emit("TailedRows", table.getName(), hit);
+            if (hit) {
+                return rows();
+            }
+        }
+        // Lock before entering the monitor, as a writer already holding the lock may call in
+        try (TableLock lock = table.lockShared()) {
+            synchronized (this) {
+                if (tail == null || splitter != this.splitter || !extend()) {
+                    load(splitter);
+                }
+                return rows();
+            }
+        }
+    }
+
+    private List<String[]> rows() {
+        return Collections.unmodifiableList(Arrays.asList(rows).subList(0, count));
+    }
+
+    private boolean extend() throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("TailedRows.extend");
+        try {
+            if (!tail.onlyAppended()) {
+                return false;
+            }
+            TableTail next = tail.next();
+            if (next == null) {
+                return false;
+            }
+            String[][] grown = rows;
+            int size = count;
+            try (BufferedReader reader = table.openReader(tail.size())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (size == grown.length) {
+                        grown = Arrays.copyOf(grown, Math.max(16, size * 2));
+                    }
+                    // Only slots past every list handed out are written
+                    grown[size++] = splitter.split(line);
+                }
+            }
+            rows = grown;
+            count = size;
+            tail = next;
+            return true;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void load(ColumnarSnapshot.Splitter splitter) throws IOException {
+        MetricsRegistry.Timer timer = MetricsRegistry.start("TailedRows.load");
+        try {
+            tail = null;
+            rows = new String[0][];
+            count = 0;
+            TableTail mark = TableTail.mark(table);
+            List<String[]> read = ColumnarSnapshot.readRows(table, splitter);
+            rows = read.toArray(new String[0][]);
+            count = rows.length;
+            this.splitter = splitter;
+            tail = mark;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static long[] stamp(CsvTable table) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(table.getFilePath()),
+                    BasicFileAttributes.class);
+            return new long[] {table.getChangeCount(), attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)};
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package util;
+
+import java.io.IOException;
+
+import service.RetentionService;
+import service.ServiceResult;
+
+/**
+ * Runs the retention policy on a data directory, moving old finished history into the
+ * compressed archive.
+ * <p>
+ * Usage: {@code java util.ArchiveTool [dataDir] [--days=N] [--requests=N]}. Without a
+ * directory the one given by {@code -Dhms.data.dir} (or the default one) is used; without
+ * limits the {@code hms.retention.days} and {@code hms.retention.requests} properties apply.
+ * It can be run while other processes use the directory.
+ * </p>
+ */
+public class ArchiveTool {
+    private ArchiveTool() {
+    }
+
+    /**
+     * Archives the data directory.
+     *
+     * @param args The optional data directory and limits.
+     * @throws IOException if a table cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        int days = Integer.getInteger(RetentionService.RETENTION_DAYS_PROPERTY, RetentionService.DEFAULT_RETENTION_DAYS);
+        int requests = Integer.getInteger(RetentionService.RETAINED_REQUESTS_PROPERTY,
+                RetentionService.DEFAULT_RETAINED_REQUESTS);
+        for (String arg : args) {
+            if (arg.startsWith("--days=")) {
+                days = Integer.parseInt(arg.substring("--days=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else {
+                System.setProperty(DataDirectory.DATA_DIR_PROPERTY, arg);
+            }
+        }
+        ServiceResult<?> result = new RetentionService().archive(days, requests);
+        System.out.println(result.getMessage());
+    }
+}
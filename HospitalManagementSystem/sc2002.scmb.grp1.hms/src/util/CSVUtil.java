@@ -2,18 +2,23 @@ package util;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import storage.CsvTable;
 
 /**
  * Utility class for handling CSV file operations, such as removing empty rows.
  */
 
 public class CSVUtil {
+    private static final Set<CsvTable> CHECKED_HEADERS = ConcurrentHashMap.newKeySet();
+
     /**
      * Removes empty rows from a CSV file. This method reads all lines from the file,
      * filters out the empty or whitespace-only lines, and rewrites the file with the
@@ -23,11 +28,11 @@ public class CSVUtil {
      * @throws IOException If an error occurs while reading from or writing to the file.
      */
 	public static void removeEmptyRows(String filePath) throws IOException {
-        File file = new File(filePath);
+        CsvTable table = CsvTable.forFile(filePath);
         List<String> lines = new ArrayList<>();
         
         // Read the CSV file and filter out empty lines
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        try (BufferedReader reader = table.openReader()) {
             String line;
             while ((line = reader.readLine()) != null) {
                 // Check if the line is not empty or contains only whitespace
@@ -38,7 +43,7 @@ public class CSVUtil {
         }
 
         // Rewrite the file with the filtered lines
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+        try (BufferedWriter writer = table.openWriter(false)) {
             for (String line : lines) {
                 writer.write(line);
                 writer.newLine();
@@ -46,4 +51,72 @@ public class CSVUtil {
         }
     }
 
+    /**
+     * Appends one row to a CSV file, ending it with a line break. A line break is written first
+     * if the file does not already end with one, so no empty row is left behind and the file
+     * needs no cleaning afterwards; it also stays a pure append, which lets readers that keep
+     * the table in memory read just the new row. Call it while holding the table's exclusive
+     * lock.
+     *
+     * @param table The table.
+     * @param row   The row's CSV text, without a line break.
+     * @throws IOException If an error occurs while reading from or writing to the file.
+     */
+    public static void appendRow(CsvTable table, String row) throws IOException {
+        boolean endsWithLine = true;
+        try (RandomAccessFile file = new RandomAccessFile(table.getFilePath(), "r")) {
+            if (file.length() > 0) {
+                file.seek(file.length() - 1);
+                endsWithLine = file.read() == '\n';
+            }
+        } catch (FileNotFoundException e) {
+            // A new file is created by the writer
+        }
+        try (BufferedWriter writer = table.openWriter(true)) {
+            if (!endsWithLine) {
+                writer.newLine();
+            }
+            writer.write(row);
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Brings a table's header row up to date the first time this process writes to the table.
+     * A header that names only the leading columns, as files written before a column such as
+     * "Version" was added have, is replaced by the full header; the rows are left as they are
+     * and read the missing columns as empty. Call it while holding the table's exclusive lock,
+     * before appending rows that fill the new columns.
+     *
+     * @param table  The table.
+     * @param header The full header row, without a line break.
+     * @throws IOException If an error occurs while reading from or writing to the file.
+     */
+    public static void upgradeHeader(CsvTable table, String header) throws IOException {
+        if (CHECKED_HEADERS.contains(table)) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = table.openReader()) {
+            String line = reader.readLine();
+            if (line != null && !line.equals(header) && header.startsWith(line + ",")) {
+                lines.add(header);
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // A new file is created by the writer
+        }
+
+        if (!lines.isEmpty()) {
+            try (BufferedWriter writer = table.openWriter(false)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+        CHECKED_HEADERS.add(table);
+    }
 }
@@ -0,0 +1,35 @@
+package util;
+
+/**
+ * Utility class for locating the directory that holds the CSV data files.
+ * By default the repositories read from the project's resource folder; the
+ * location can be overridden with the {@code hms.data.dir} system property,
+ * for example to point benchmarks or load tests at a generated data set.
+ */
+public class DataDirectory {
+    /**
+     * The system property used to override the data directory.
+     */
+    public static final String DATA_DIR_PROPERTY = "hms.data.dir";
+
+    private static final String DEFAULT_DATA_DIR = "sc2002.scmb.grp1.hms/resource";
+
+    /**
+     * Returns the directory that holds the CSV data files.
+     *
+     * @return The configured data directory, or the default resource folder if none is set.
+     */
+    public static String getPath() {
+        return System.getProperty(DATA_DIR_PROPERTY, DEFAULT_DATA_DIR);
+    }
+
+    /**
+     * Resolves the path of a CSV file inside the data directory.
+     *
+     * @param fileName The name of the CSV file (e.g. "Appointment.csv").
+     * @return The path of the file inside the data directory.
+     */
+    public static String resolve(String fileName) {
+        return getPath() + "/" + fileName;
+    }
+}
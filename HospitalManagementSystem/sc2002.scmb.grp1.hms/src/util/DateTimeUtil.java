@@ -2,15 +2,28 @@ package util;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 /**
  * Utility class for handling date and time operations.
  * Provides methods to parse dates and times in specific formats
  * and to validate the input date and time strings.
+ * <p>
+ * Dates are always written DD-MM-YYYY and times HH:MM, so they are read by a fixed-format
+ * parser that checks each character in place instead of going through a
+ * {@code DateTimeFormatter}. {@link #parseEpochDay} and {@link #parseMinuteOfDay} allocate
+ * nothing and report bad input with {@link #INVALID} rather than an exception; entities use
+ * them to turn their date and time columns into numbers once, when they are loaded.
+ * </p>
  */
 public class DateTimeUtil {
+    /**
+     * The value returned by {@link #parseEpochDay} and {@link #parseMinuteOfDay} for text that is
+     * not a valid date or time.
+     */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
         /**
      * Parses a date string in the format "dd-MM-yyyy" and returns a LocalDate object.
      * If the input date string is not in the valid format or is invalid, returns null.
@@ -20,13 +33,8 @@ public class DateTimeUtil {
      */
     // Method to parse date in DD-MM-YYYY format and check if it's valid
     public static LocalDate parseDate(String date) {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-            return LocalDate.parse(date, formatter);
-        } catch (DateTimeParseException e) {
-            //System.out.println("Invalid date format. Please use DD-MM-YYYY.");
-            return null;
-        }
+        int epochDay = parseEpochDay(date);
+        return epochDay == INVALID ? null : LocalDate.ofEpochDay(epochDay);
     }
 
     /**
@@ -38,12 +46,123 @@ public class DateTimeUtil {
      */
     // Method to parse time in HH:mm format and check if it's valid
     public static LocalTime parseTime(String time) {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            return LocalTime.parse(time, formatter);
-        } catch (DateTimeParseException e) {
-            //System.out.println("Invalid time format. Please use HH:mm.");
-            return null;
+        int minuteOfDay = parseMinuteOfDay(time);
+        return minuteOfDay == INVALID ? null : LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Parses a date string in the format "dd-MM-yyyy" into the number of days since 1970-01-01.
+     * The text must be exactly ten characters and name a day that exists.
+     *
+     * @param date The date string to be parsed, or {@code null}.
+     * @return The epoch day, or {@link #INVALID} if the date is not valid.
+     */
+    public static int parseEpochDay(CharSequence date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '-' || date.charAt(5) != '-') {
+            return INVALID;
+        }
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+        if (day < 1 || month < 1 || month > 12 || year < 0 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        // Days from the civil calendar, as in LocalDate.toEpochDay
+        long total = 365L * year;
+        total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total -= isLeapYear(year) ? 1 : 2;
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+
+    /**
+     * Parses a time string in the format "HH:mm" into the number of minutes since midnight.
+     *
+     * @param time The time string to be parsed, or {@code null}.
+     * @return The minute of the day, or {@link #INVALID} if the time is not valid.
+     */
+    public static int parseMinuteOfDay(CharSequence time) {
+        if (time == null || time.length() != 5 || time.charAt(2) != ':') {
+            return INVALID;
+        }
+        int hour = digits(time, 0, 2);
+        int minute = digits(time, 3, 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        return hour * 60 + minute;
+    }
+
+    /**
+     * Formats an epoch day in the format "dd-MM-yyyy".
+     *
+     * @param epochDay The number of days since 1970-01-01, in years 0 to 9999.
+     * @return The date string.
+     */
+    public static String formatEpochDay(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        String year = String.valueOf(date.getYear());
+        return twoDigits(date.getDayOfMonth()) + "-" + twoDigits(date.getMonthValue()) + "-"
+                + "0000".substring(year.length()) + year;
+    }
+
+    /**
+     * Formats a minute of the day in the format "HH:mm".
+     *
+     * @param minuteOfDay The number of minutes since midnight.
+     * @return The time string.
+     */
+    public static String formatMinuteOfDay(int minuteOfDay) {
+        return twoDigits(minuteOfDay / 60) + ":" + twoDigits(minuteOfDay % 60);
+    }
+
+    /**
+     * Checks whether an epoch day lies within a range of dates.
+     *
+     * @param epochDay The epoch day, or {@link #INVALID}.
+     * @param from     The first date, or {@code null} for no lower bound.
+     * @param to       The last date, or {@code null} for no upper bound.
+     * @return true if the day is valid and within the range, false otherwise.
+     */
+    public static boolean isWithin(int epochDay, LocalDate from, LocalDate to) {
+        return epochDay != INVALID && (from == null || epochDay >= from.toEpochDay())
+                && (to == null || epochDay <= to.toEpochDay());
+    }
+
+    private static int digits(CharSequence text, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static String twoDigits(int number) {
+        return number < 10 ? "0" + number : String.valueOf(number);
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
         }
     }
 
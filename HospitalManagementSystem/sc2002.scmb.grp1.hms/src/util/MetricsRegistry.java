@@ -0,0 +1,247 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of call counters and latency histograms, keyed by operation name
+ * (e.g. "AppointmentRepository.loadAllAppointments").
+ * <p>
+ * Repository methods time themselves by starting a {@link Timer} and stopping it in a
+ * {@code finally} block, so that a call that throws is timed too.
+ * All updates are lock-free. The collected figures can be shown in the administrator menu
+ * and written to a file at a fixed interval (see {@link #startPeriodicDump(String, long)}).
+ * </p>
+ */
+public class MetricsRegistry {
+    /**
+     * The system property naming the file the metrics are periodically written to.
+     */
+    public static final String METRICS_FILE_PROPERTY = "hms.metrics.file";
+
+    /**
+     * The system property holding the number of seconds between metric dumps.
+     */
+    public static final String METRICS_INTERVAL_PROPERTY = "hms.metrics.interval";
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 60;
+    private static final String LINE =
+            "+--------------------------------------------------+------------+------------+------------+------------+------------+------------+";
+
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService dumpExecutor;
+
+    /**
+     * The call count and latency histogram kept for one operation.
+     */
+    public static class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the operation name.
+         *
+         * @return The operation name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of completed calls.
+         *
+         * @return The number of calls.
+         */
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        /**
+         * Returns the latency histogram of the operation.
+         *
+         * @return The latency histogram.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+
+    /**
+     * Times one call of an operation. Stopping the timer records the elapsed time.
+     */
+    public static class Timer {
+        private final Operation operation;
+        private final long start;
+
+        private Timer(Operation operation) {
+            this.operation = operation;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Records the time elapsed since the timer was started.
+         */
+        public void stop() {
+            operation.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Starts timing a call of the named operation.
+     *
+     * @param operationName The operation name, conventionally "ClassName.methodName".
+     * @return A timer to stop when the call completes.
+     */
+    public static Timer start(String operationName) {
+        return new Timer(operation(operationName));
+    }
+
+    /**
+     * Records a latency that was measured elsewhere.
+     *
+     * @param operationName The operation name.
+     * @param nanos         The latency in nanoseconds.
+     */
+    public static void record(String operationName, long nanos) {
+        operation(operationName).latency.record(nanos);
+    }
+
+    /**
+     * Returns the metrics for the named operation, creating them if needed.
+     *
+     * @param operationName The operation name.
+     * @return The metrics for the operation.
+     */
+    public static Operation operation(String operationName) {
+        return OPERATIONS.computeIfAbsent(operationName, Operation::new);
+    }
+
+    /**
+     * Returns all operations that have been called at least once, slowest in total first.
+     *
+     * @return The recorded operations.
+     */
+    public static List<Operation> getOperations() {
+        List<Operation> operations = new ArrayList<>();
+        for (Operation operation : OPERATIONS.values()) {
+            if (operation.getCalls() > 0) {
+                operations.add(operation);
+            }
+        }
+        operations.sort(Comparator.comparingLong((Operation operation) -> operation.latency.getTotal()).reversed());
+        return operations;
+    }
+
+    /**
+     * Clears all recorded metrics.
+     */
+    public static void reset() {
+        OPERATIONS.clear();
+    }
+
+    /**
+     * Formats the recorded metrics as a table with one row per operation. Latencies are shown
+     * in milliseconds.
+     *
+     * @return The formatted report.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(LINE).append('\n');
+        report.append(String.format("| %-48s | %10s | %10s | %10s | %10s | %10s | %10s |%n",
+                "Operation", "Calls", "Mean (ms)", "p50 (ms)", "p99 (ms)", "p999 (ms)", "Max (ms)"));
+        report.append(LINE).append('\n');
+        for (Operation operation : getOperations()) {
+            LatencyHistogram latency = operation.latency;
+            report.append(String.format("| %-48s | %10d | %10.3f | %10.3f | %10.3f | %10.3f | %10.3f |%n",
+                    operation.name, operation.getCalls(),
+                    millis(latency.getMean()),
+                    millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMax())));
+        }
+        report.append(LINE).append('\n');
+        return report.toString();
+    }
+
+    /**
+     * Appends the current report, with a timestamp, to the given file.
+     *
+     * @param filePath The file to append to.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void dump(String filePath) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+            writer.write("Metrics at " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            writer.newLine();
+            writer.write(report());
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Starts writing the report to a file at a fixed interval on a background thread, and once
+     * more when the program exits. Calling this again has no effect.
+     *
+     * @param filePath        The file to append to.
+     * @param intervalSeconds The number of seconds between dumps.
+     */
+    public static synchronized void startPeriodicDump(String filePath, long intervalSeconds) {
+        if (dumpExecutor != null) {
+            return;
+        }
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable task = () -> {
+            try {
+                dump(filePath);
+            } catch (IOException e) {
+                System.err.println("Error writing metrics: " + e.getMessage());
+            }
+        };
+        dumpExecutor.scheduleAtFixedRate(task, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(task, "metrics-final-dump"));
+    }
+
+    /**
+     * Starts the periodic dump if {@code hms.metrics.file} is set, using
+     * {@code hms.metrics.interval} seconds (default 60) between dumps.
+     */
+    public static void startPeriodicDumpFromSystemProperties() {
+        String filePath = System.getProperty(METRICS_FILE_PROPERTY);
+        if (filePath == null || filePath.isEmpty()) {
+            return;
+        }
+        long interval = DEFAULT_INTERVAL_SECONDS;
+        try {
+            interval = Math.max(1, Long.parseLong(System.getProperty(METRICS_INTERVAL_PROPERTY,
+                    String.valueOf(DEFAULT_INTERVAL_SECONDS))));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + METRICS_INTERVAL_PROPERTY + ", using " + DEFAULT_INTERVAL_SECONDS + " seconds.");
+        }
+        startPeriodicDump(filePath, interval);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,517 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import controller.PasswordController;
+
+/**
+ * Generates a complete set of CSV data files at a configurable scale for load tests and benchmarks.
+ * <p>
+ * The output is deterministic for a given seed and sizes, and referentially consistent: every
+ * appointment, availability, outcome, medical record, payment and replenishment request refers to
+ * a patient, doctor, appointment or medication that exists in the generated files. Rows are
+ * streamed straight to disk, so memory use does not grow with the number of rows.
+ * </p>
+ * <p>
+ * Usage: {@code java util.SyntheticDataGenerator <outputDir> [patients] [seed]}, with optional
+ * {@code --doctors=N}, {@code --appointments=N}, {@code --availabilities=N}, {@code --records=N},
+ * {@code --medications=N}, {@code --requests=N}, {@code --pharmacists=N},
+ * {@code --administrators=N} and {@code --password=TEXT} to override the derived sizes.
+ * </p>
+ */
+public class SyntheticDataGenerator {
+    /**
+     * The password given to every generated user unless another one is set.
+     */
+    public static final String DEFAULT_PASSWORD = "Password";
+
+    private static final int FIRST_YEAR = 2024;
+    private static final int DAYS = 731; // 2024-01-01 to 2025-12-31
+
+    private static final String[] FIRST_NAMES = {"Sarah", "Michael", "Emily", "David", "Alice", "Bob", "Jane",
+            "John", "Wei", "Siti", "Arjun", "Mei", "Rahul", "Nurul", "Daniel", "Grace", "Kumar", "Hui", "Aisha",
+            "Ethan"};
+    private static final String[] BLOOD_TYPES = {"A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-"};
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "Neurology", "Oncology", "Pediatrics",
+            "Orthopedics", "Dermatology", "General Medicine", "Ophthalmology"};
+    private static final String[][] QUESTIONS = {{"mascot", "penguin"}, {"linux animal", "penguin"},
+            {"my birth year", "2002"}, {"favourite colour", "blue"}};
+    private static final String[] MEDICATIONS = {"Painkiller", "Cough Syrup", "Antibiotic",
+            "Stomach Acid Reducer", "Heart Medication", "Cold Medicine", "Thyroid Pills", "Inhaler",
+            "Anti-Inflammatory", "Eye Drops"};
+    private static final String[] SERVICE_TYPES = {"Consultation", "Blood Test", "Eye Test", "X-Ray",
+            "Vaccination"};
+    private static final String[] NOTES = {"Patient in pain", "MC 3 days", "Follow up in two weeks",
+            "Rest and fluids", "nil"};
+    private static final String[] DIAGNOSES = {"Flu", "Cough", "Fever", "Migraine", "Asthma", "Hypertension",
+            "Diabetes", "Conjunctivitis"};
+    private static final String[] TREATMENTS = {"Medication", "Rest", "Physiotherapy", "Observation",
+            "Surgery"};
+    private static final String[] APPOINTMENT_STATUSES = {"Completed", "Completed", "Completed", "Completed",
+            "Confirmed", "Confirmed", "Pending", "Pending", "Cancelled", "Cancelled"};
+    private static final String[] REQUEST_STATUSES = {"Pending", "Approved", "Rejected", "Completed"};
+
+    private final long seed;
+    private final int patients;
+    private int doctors;
+    private int pharmacists;
+    private int administrators;
+    private int appointments;
+    private int availabilities;
+    private int medicalRecords;
+    private int medications;
+    private int replenishmentRequests;
+    private String password = DEFAULT_PASSWORD;
+
+    private final String[] dates = new String[DAYS];
+    private final String[] hours = new String[24];
+
+    /**
+     * Creates a generator for the given number of patients. The other table sizes are derived
+     * from it (one doctor per 100 patients, one appointment, availability and medical record per
+     * patient, and so on) and can be changed with the setters.
+     *
+     * @param seed     The seed for the random number generator.
+     * @param patients The number of patients to generate.
+     */
+    public SyntheticDataGenerator(long seed, int patients) {
+        if (patients < 1) {
+            throw new IllegalArgumentException("At least one patient is required.");
+        }
+        this.seed = seed;
+        this.patients = patients;
+        this.doctors = Math.max(1, patients / 100);
+        this.pharmacists = Math.max(1, doctors / 10);
+        this.administrators = Math.max(1, doctors / 20);
+        this.appointments = patients;
+        this.availabilities = patients;
+        this.medicalRecords = patients;
+        this.medications = Math.max(MEDICATIONS.length, patients / 1000);
+        this.replenishmentRequests = Math.max(1, medications / 2);
+
+        LocalDate first = LocalDate.of(FIRST_YEAR, 1, 1);
+        for (int i = 0; i < DAYS; i++) {
+            LocalDate date = first.plusDays(i);
+            dates[i] = pad2(date.getDayOfMonth()) + "-" + pad2(date.getMonthValue()) + "-" + date.getYear();
+        }
+        for (int i = 0; i < hours.length; i++) {
+            hours[i] = pad2(i) + ":00";
+        }
+    }
+
+    /**
+     * Sets the number of doctors.
+     *
+     * @param doctors The number of doctors, at least one.
+     */
+    public void setDoctors(int doctors) {
+        this.doctors = Math.max(1, doctors);
+    }
+
+    /**
+     * Sets the number of pharmacists.
+     *
+     * @param pharmacists The number of pharmacists.
+     */
+    public void setPharmacists(int pharmacists) {
+        this.pharmacists = Math.max(0, pharmacists);
+    }
+
+    /**
+     * Sets the number of administrators.
+     *
+     * @param administrators The number of administrators.
+     */
+    public void setAdministrators(int administrators) {
+        this.administrators = Math.max(0, administrators);
+    }
+
+    /**
+     * Sets the total number of appointments, spread evenly across the patients.
+     *
+     * @param appointments The number of appointments.
+     */
+    public void setAppointments(int appointments) {
+        this.appointments = Math.max(0, appointments);
+    }
+
+    /**
+     * Sets the total number of availability slots, spread evenly across the doctors.
+     *
+     * @param availabilities The number of availability slots.
+     */
+    public void setAvailabilities(int availabilities) {
+        this.availabilities = Math.max(0, availabilities);
+    }
+
+    /**
+     * Sets the total number of medical records, spread evenly across the patients.
+     *
+     * @param medicalRecords The number of medical records.
+     */
+    public void setMedicalRecords(int medicalRecords) {
+        this.medicalRecords = Math.max(0, medicalRecords);
+    }
+
+    /**
+     * Sets the number of medications in the inventory.
+     *
+     * @param medications The number of medications, at least one.
+     */
+    public void setMedications(int medications) {
+        this.medications = Math.max(1, medications);
+    }
+
+    /**
+     * Sets the number of replenishment requests.
+     *
+     * @param replenishmentRequests The number of replenishment requests.
+     */
+    public void setReplenishmentRequests(int replenishmentRequests) {
+        this.replenishmentRequests = Math.max(0, replenishmentRequests);
+    }
+
+    /**
+     * Sets the password given to every generated user. It is stored hashed.
+     *
+     * @param password The plain-text password.
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Writes all CSV files into the given directory, replacing any existing files.
+     *
+     * @param directory The directory to write to. It is created if it does not exist.
+     * @throws IOException if a file cannot be written.
+     */
+    public void generate(String directory) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        String hashedPassword = new PasswordController().hashPassword(password);
+
+        // Each table group gets its own stream so that changing one size does not reshuffle the others.
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom patientRandom = root.split();
+        SplittableRandom staffRandom = root.split();
+        SplittableRandom availabilityRandom = root.split();
+        SplittableRandom inventoryRandom = root.split();
+
+        writePatientTables(dir, patientRandom, hashedPassword);
+        writeStaffTables(dir, staffRandom, hashedPassword);
+        writeAvailability(dir, availabilityRandom);
+        writeInventoryTables(dir, inventoryRandom);
+    }
+
+    /**
+     * Writes patients together with everything that hangs off them: appointments, appointment
+     * outcomes, medical records and payments. Generating them in one pass per patient keeps the
+     * payment counts consistent with the completed appointments without holding any rows in memory.
+     */
+    private void writePatientTables(Path dir, SplittableRandom random, String hashedPassword) throws IOException {
+        try (BufferedWriter patientWriter = open(dir, "Patient.csv",
+                "UserID,Name,Role,Password,Gender,Age,PhoneNumber,Email,DOB,BloodType,Question,Answer");
+             BufferedWriter paymentWriter = open(dir, "Payment.csv", "PatientID,numberOfUnpaid,numberOfPaid");
+             BufferedWriter appointmentWriter = open(dir, "Appointment.csv",
+                     "AppointmentId,PatientId,DoctorId,AppointmentDate,StartTime,EndTime,Status");
+             BufferedWriter outcomeWriter = open(dir, "AppointmentOutcome.csv",
+                     "OutcomeID,AppointmentID,Date,ServiceType,PrescribedMedication,MedicationStatus,ConsultationNotes");
+             BufferedWriter recordWriter = open(dir, "MedicalRecord.csv",
+                     "RecordID,PatientID,DoctorID,Diagnosis,Treatment,Prescription")) {
+            int appointmentId = 0;
+            int outcomeId = 0;
+            int recordId = 0;
+
+            for (int p = 0; p < patients; p++) {
+                String patientId = formatId("P", p + 1);
+                String name = pick(random, FIRST_NAMES);
+                int age = 1 + random.nextInt(90);
+                StringBuilder row = new StringBuilder(160)
+                        .append(patientId).append(',')
+                        .append(name).append(',')
+                        .append("Patient,")
+                        .append(hashedPassword).append(',')
+                        .append(random.nextBoolean() ? "Male" : "Female").append(',')
+                        .append(age).append(',')
+                        .append(phoneNumber(random)).append(',')
+                        .append(name.toLowerCase()).append(p + 1).append("@gmail.com,")
+                        .append(FIRST_YEAR - age).append('-').append(pad2(1 + random.nextInt(12))).append('-')
+                        .append(pad2(1 + random.nextInt(28))).append(',')
+                        .append(pick(random, BLOOD_TYPES));
+                appendSecurityQuestion(random, row);
+                writeRow(patientWriter, row);
+
+                int completed = 0;
+                for (int a = 0; a < share(appointments, p); a++) {
+                    String appointmentKey = formatId("AP", ++appointmentId);
+                    String date = dates[random.nextInt(DAYS)];
+                    int hour = 8 + random.nextInt(10);
+                    String status = pick(random, APPOINTMENT_STATUSES);
+                    writeRow(appointmentWriter, new StringBuilder(64)
+                            .append(appointmentKey).append(',')
+                            .append(patientId).append(',')
+                            .append(formatId("D", 1 + random.nextInt(doctors))).append(',')
+                            .append(date).append(',')
+                            .append(hours[hour]).append(',')
+                            .append(hours[hour + 1]).append(',')
+                            .append(status));
+
+                    if ("Completed".equals(status)) {
+                        completed++;
+                        writeRow(outcomeWriter, new StringBuilder(128)
+                                .append(formatId("AO", ++outcomeId)).append(',')
+                                .append(appointmentKey).append(',')
+                                .append(date).append(',')
+                                .append(pick(random, SERVICE_TYPES)).append(',')
+                                .append(prescribedMedications(random)).append(',')
+                                .append(random.nextInt(4) == 0 ? "Pending" : "Dispensed").append(',')
+                                .append(pick(random, NOTES)));
+                    }
+                }
+
+                for (int r = 0; r < share(medicalRecords, p); r++) {
+                    writeRow(recordWriter, new StringBuilder(80)
+                            .append(formatId("R", ++recordId)).append(',')
+                            .append(patientId).append(',')
+                            .append(formatId("D", 1 + random.nextInt(doctors))).append(',')
+                            .append(pick(random, DIAGNOSES)).append(',')
+                            .append(pick(random, TREATMENTS)).append(',')
+                            .append(medicationName(random.nextInt(medications))));
+                }
+
+                int paid = random.nextInt(completed + 1);
+                writeRow(paymentWriter, new StringBuilder(24)
+                        .append(patientId).append(',')
+                        .append(completed - paid).append(',')
+                        .append(paid));
+            }
+        }
+    }
+
+    private void writeStaffTables(Path dir, SplittableRandom random, String hashedPassword) throws IOException {
+        try (BufferedWriter writer = open(dir, "Doctor.csv",
+                "UserID,Name,Role,Password,Gender,Age,Specialization,StaffEmail,StaffContact,Question,Answer")) {
+            for (int d = 1; d <= doctors; d++) {
+                StringBuilder row = new StringBuilder(160)
+                        .append(formatId("D", d)).append(',')
+                        .append(pick(random, FIRST_NAMES)).append(',')
+                        .append("Doctor,")
+                        .append(hashedPassword).append(',')
+                        .append(random.nextBoolean() ? "Male" : "Female").append(',')
+                        .append(28 + random.nextInt(40)).append(',')
+                        .append(pick(random, SPECIALIZATIONS)).append(',')
+                        .append("doctor").append(d).append("@hospital.com,")
+                        .append(phoneNumber(random));
+                appendSecurityQuestion(random, row);
+                writeRow(writer, row);
+            }
+        }
+        writeStaff(dir, "Pharmacist.csv", "PH", "Pharmacist", pharmacists, random, hashedPassword);
+        writeStaff(dir, "Administrator.csv", "A", "Administrator", administrators, random, hashedPassword);
+    }
+
+    private void writeStaff(Path dir, String fileName, String prefix, String role, int count,
+            SplittableRandom random, String hashedPassword) throws IOException {
+        try (BufferedWriter writer = open(dir, fileName,
+                "UserID,Name,Role,Password,Gender,Age,StaffEmail,StaffContact,Question,Answer")) {
+            for (int i = 1; i <= count; i++) {
+                StringBuilder row = new StringBuilder(160)
+                        .append(formatId(prefix, i)).append(',')
+                        .append(pick(random, FIRST_NAMES)).append(',')
+                        .append(role).append(',')
+                        .append(hashedPassword).append(',')
+                        .append(random.nextBoolean() ? "Male" : "Female").append(',')
+                        .append(22 + random.nextInt(45)).append(',')
+                        .append(role.toLowerCase()).append(i).append("@hospital.com,")
+                        .append(phoneNumber(random));
+                appendSecurityQuestion(random, row);
+                writeRow(writer, row);
+            }
+        }
+    }
+
+    private void writeAvailability(Path dir, SplittableRandom random) throws IOException {
+        try (BufferedWriter writer = open(dir, "Availability.csv", "availabilityId,doctorId,date,startTime,endTime")) {
+            int availabilityId = 0;
+            for (int d = 0; d < doctors; d++) {
+                String doctorId = formatId("D", d + 1);
+                int slots = availabilities / doctors + (d < availabilities % doctors ? 1 : 0);
+                for (int s = 0; s < slots; s++) {
+                    int hour = 8 + random.nextInt(10);
+                    writeRow(writer, new StringBuilder(48)
+                            .append(formatId("AV", ++availabilityId)).append(',')
+                            .append(doctorId).append(',')
+                            .append(dates[random.nextInt(DAYS)]).append(',')
+                            .append(hours[hour]).append(',')
+                            .append(hours[hour + 1]));
+                }
+            }
+        }
+    }
+
+    private void writeInventoryTables(Path dir, SplittableRandom random) throws IOException {
+        try (BufferedWriter writer = open(dir, "MedicationInventory.csv", "MedicationName,StockLevel,StockAlertLevel")) {
+            for (int m = 0; m < medications; m++) {
+                int alertLevel = 10 * (1 + random.nextInt(10));
+                writeRow(writer, new StringBuilder(48)
+                        .append(medicationName(m)).append(',')
+                        .append(random.nextInt(alertLevel * 4)).append(',')
+                        .append(alertLevel));
+            }
+        }
+        try (BufferedWriter writer = open(dir, "ReplenishmentRequests.csv", "RequestId,MedicationName,Quantity,Status")) {
+            for (int r = 1; r <= replenishmentRequests; r++) {
+                writeRow(writer, new StringBuilder(48)
+                        .append(r).append(',')
+                        .append(medicationName(random.nextInt(medications))).append(',')
+                        .append(10 * (1 + random.nextInt(20))).append(',')
+                        .append(pick(random, REQUEST_STATUSES)));
+            }
+        }
+    }
+
+    /**
+     * Returns how many of {@code total} rows belong to owner {@code index} when they are spread as
+     * evenly as possible across the patients.
+     */
+    private int share(int total, int index) {
+        return total / patients + (index < total % patients ? 1 : 0);
+    }
+
+    private String prescribedMedications(SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "nil";
+            case 1:
+                return "\"" + medicationName(random.nextInt(medications)) + ", "
+                        + medicationName(random.nextInt(medications)) + "\"";
+            default:
+                return medicationName(random.nextInt(medications));
+        }
+    }
+
+    private static void appendSecurityQuestion(SplittableRandom random, StringBuilder row) {
+        if (random.nextInt(5) == 0) {
+            String[] question = pick(random, QUESTIONS);
+            row.append(',').append(question[0]).append(',').append(question[1]);
+        }
+    }
+
+    /**
+     * Returns the name of the generated medication at the given index. The first ten use the
+     * names from the sample data; later ones add a series number (e.g. "Painkiller 2").
+     *
+     * @param index The zero-based medication index.
+     * @return The medication name.
+     */
+    public static String medicationName(int index) {
+        String base = MEDICATIONS[index % MEDICATIONS.length];
+        int series = index / MEDICATIONS.length;
+        return series == 0 ? base : base + " " + (series + 1);
+    }
+
+    private static String phoneNumber(SplittableRandom random) {
+        return String.valueOf((random.nextBoolean() ? 80000000 : 90000000) + random.nextInt(10000000));
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String pad2(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    /**
+     * Formats an ID the same way the controllers do: the prefix followed by the number padded to
+     * at least three digits (e.g. "AP001", "AP1000").
+     *
+     * @param prefix The ID prefix, e.g. "AP".
+     * @param number The sequence number.
+     * @return The formatted ID.
+     */
+    public static String formatId(String prefix, int number) {
+        if (number >= 100) {
+            return prefix + number;
+        }
+        return prefix + (number < 10 ? "00" : "0") + number;
+    }
+
+    private static BufferedWriter open(Path dir, String fileName, String header) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(dir.resolve(fileName));
+        writer.write(header);
+        writer.newLine();
+        return writer;
+    }
+
+    private static void writeRow(BufferedWriter writer, CharSequence row) throws IOException {
+        writer.append(row);
+        writer.newLine();
+    }
+
+    /**
+     * Generates a data set from the command line.
+     *
+     * @param args The output directory, followed by the optional patient count, seed and
+     *             {@code --name=value} size overrides.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java util.SyntheticDataGenerator <outputDir> [patients] [seed] [--doctors=N]"
+                    + " [--appointments=N] [--availabilities=N] [--records=N] [--medications=N] [--requests=N]"
+                    + " [--pharmacists=N] [--administrators=N] [--password=TEXT]");
+            return;
+        }
+
+        int patients = 1000;
+        long seed = 42;
+        int position = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                if (position++ == 0) {
+                    patients = Integer.parseInt(args[i]);
+                } else {
+                    seed = Long.parseLong(args[i]);
+                }
+            }
+        }
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(seed, patients);
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || args[i].indexOf('=') < 0) {
+                continue;
+            }
+            String name = args[i].substring(2, args[i].indexOf('='));
+            String value = args[i].substring(args[i].indexOf('=') + 1);
+            switch (name) {
+                case "doctors": generator.setDoctors(Integer.parseInt(value)); break;
+                case "appointments": generator.setAppointments(Integer.parseInt(value)); break;
+                case "availabilities": generator.setAvailabilities(Integer.parseInt(value)); break;
+                case "records": generator.setMedicalRecords(Integer.parseInt(value)); break;
+                case "medications": generator.setMedications(Integer.parseInt(value)); break;
+                case "requests": generator.setReplenishmentRequests(Integer.parseInt(value)); break;
+                case "pharmacists": generator.setPharmacists(Integer.parseInt(value)); break;
+                case "administrators": generator.setAdministrators(Integer.parseInt(value)); break;
+                case "password": generator.setPassword(value); break;
+                default: System.out.println("Unknown option: " + args[i]); return;
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            generator.generate(args[0]);
+        } catch (IOException e) {
+            System.err.println("Error generating data: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Generated %d patients in %s (%.1f s)%n", patients, args[0],
+                (System.nanoTime() - start) / 1e9);
+    }
+}
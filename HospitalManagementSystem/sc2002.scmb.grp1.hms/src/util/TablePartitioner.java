@@ -0,0 +1,37 @@
+package util;
+
+import java.io.IOException;
+
+import repository.AppointmentRepository;
+import repository.AvailabilityRepository;
+
+/**
+ * Splits the appointment and availability tables of a data directory into one file per month.
+ * <p>
+ * Usage: {@code java util.TablePartitioner [dataDir]}. Without an argument the directory given
+ * by {@code -Dhms.data.dir} (or the default one) is used. Run it while no other process is
+ * using the directory; it does nothing to a table that is already split. After it has run,
+ * queries for a range of dates read only the months in the range, and bookings and status
+ * changes rewrite only the month they touch instead of the whole history.
+ * </p>
+ */
+public class TablePartitioner {
+    private TablePartitioner() {
+    }
+
+    /**
+     * Partitions the tables.
+     *
+     * @param args The optional data directory.
+     * @throws IOException if a table cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            System.setProperty(DataDirectory.DATA_DIR_PROPERTY, args[0]);
+        }
+        int appointmentMonths = new AppointmentRepository().partitionByMonth();
+        int availabilityMonths = new AvailabilityRepository().partitionByMonth();
+        System.out.println("Appointment.csv: " + appointmentMonths + " partitions");
+        System.out.println("Availability.csv: " + availabilityMonths + " partitions");
+    }
+}